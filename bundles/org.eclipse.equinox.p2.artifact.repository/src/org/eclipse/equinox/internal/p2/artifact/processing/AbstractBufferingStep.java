@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2017 compeople AG and others.
+ * Copyright (c) 2007, 2026 compeople AG and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -43,6 +43,12 @@ public abstract class AbstractBufferingStep extends ProcessingStep {
 		stream.write(b);
 	}
 
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		OutputStream stream = getOutputStream();
+		stream.write(b, off, len);
+	}
+
 	protected OutputStream getOutputStream() throws IOException {
 		if (incomingStream != null)
 			return incomingStream;
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2015, 2018 Mykola Nikishov.
+ * Copyright (c) 2015, 2026 Mykola Nikishov and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -15,6 +15,7 @@ package org.eclipse.equinox.internal.p2.artifact.processors.checksum;
 
 import java.io.File;
 import java.io.IOException;
+import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.*;
 import java.util.Map.Entry;
@@ -34,7 +35,8 @@ public class ChecksumUtilities {
 	private static final String MD5_MESSAGE_DIGEST = "MD5"; //$NON-NLS-1$
 
 	/**
-	 * Instances of checksum verifiers applicable for the artifact descriptor
+	 * Instances of checksum verifiers applicable for the artifact descriptor. When several checksums
+	 * apply, they are verified by a single step computing all of them in one pass over the bytes.
 	 *
 	 * @param descriptor
 	 * @param property either {@link IArtifactDescriptor#ARTIFACT_CHECKSUM} or {@link IArtifactDescriptor#DOWNLOAD_CHECKSUM}
@@ -44,7 +46,7 @@ public class ChecksumUtilities {
 	 * @see ChecksumHelper#getChecksums(IArtifactDescriptor, String)
 	 */
 	public static Collection<ProcessingStep> getChecksumVerifiers(IArtifactDescriptor descriptor, String property, Set<String> checksumsToSkip) throws IllegalArgumentException {
-		Collection<ProcessingStep> steps = new ArrayList<>();
+		List<ChecksumVerifier> steps = new ArrayList<>();
 		Map<String, String> checksums = ChecksumHelper.getChecksums(descriptor, property);
 
 		IConfigurationElement[] checksumVerifierConfigurations = getChecksumComparatorConfigurations();
@@ -68,7 +70,9 @@ public class ChecksumUtilities {
 			}
 		}
 
-		return steps;
+		if (steps.size() > 1)
+			return Collections.singletonList(new MultiChecksumVerifier(steps));
+		return new ArrayList<>(steps);
 	}
 
 	public static IConfigurationElement[] getChecksumComparatorConfigurations() {
@@ -77,6 +81,7 @@ public class ChecksumUtilities {
 
 	/**
 	 * Caller is responsible for checking the returned status and decide if problems are fatal or not.
+	 * The file is read once whatever the number of checksums to calculate.
 	 *
 	 * @param pathOnDisk file to calculate checksums for
 	 * @param checksums calculated checksums
@@ -86,39 +91,50 @@ public class ChecksumUtilities {
 	public static IStatus calculateChecksums(File pathOnDisk, Map<String, String> checksums, Collection<String> checksumsToSkip) {
 		// TODO pathOnDisk.getAbsolutePath() || pathOnDisk.getCanonicalPath()
 		MultiStatus status = new MultiStatus(Activator.ID, IStatus.OK, NLS.bind(Messages.calculateChecksum_file, pathOnDisk.getAbsolutePath()), null);
+		Map<String, String> algorithms = new LinkedHashMap<>();
 		for (IConfigurationElement checksumVerifierConfiguration : ChecksumUtilities.getChecksumComparatorConfigurations()) {
 			String id = checksumVerifierConfiguration.getAttribute("id"); //$NON-NLS-1$
 			if (checksumsToSkip.contains(id))
 				// don't calculate checksum if algo is disabled
 				continue;
 			String algorithm = checksumVerifierConfiguration.getAttribute("algorithm"); //$NON-NLS-1$
-			Optional<String> checksum = calculateChecksum(pathOnDisk, status, id, algorithm);
-			checksum.ifPresent(c -> checksums.put(id, c));
+			algorithms.putIfAbsent(id, algorithm);
 		}
 
 		boolean doNotSkipMd5 = !checksumsToSkip.contains(ChecksumHelper.MD5);
-		if (doNotSkipMd5) {
-			Optional<String> md5 = calculateChecksum(pathOnDisk, status, ChecksumHelper.MD5, MD5_MESSAGE_DIGEST);
-			md5.ifPresent(c -> checksums.put(ChecksumHelper.MD5, c));
+		if (doNotSkipMd5)
+			algorithms.putIfAbsent(ChecksumHelper.MD5, MD5_MESSAGE_DIGEST);
+
+		Map<String, MessageDigest> digests = new LinkedHashMap<>();
+		for (Entry<String, String> algorithm : algorithms.entrySet()) {
+			try {
+				digests.put(algorithm.getKey(), MessageDigest.getInstance(algorithm.getValue()));
+			} catch (NoSuchAlgorithmException e) {
+				String message = NLS.bind(Messages.calculateChecksum_error, algorithm.getKey(), algorithm.getValue());
+				status.add(new Status(IStatus.ERROR, Activator.ID, message, e));
+			}
 		}
+		if (digests.isEmpty())
+			return status;
 
-		return status;
-	}
-
-	private static Optional<String> calculateChecksum(File pathOnDisk, MultiStatus status, String id, String algorithm) {
 		try {
-			String checksum = ChecksumProducer.produce(pathOnDisk, algorithm);
-			String message = NLS.bind(Messages.calculateChecksum_ok, new Object[] {id, algorithm, checksum});
-			status.add(new Status(IStatus.OK, Activator.ID, message));
-			return Optional.of(checksum);
-		} catch (NoSuchAlgorithmException e) {
-			String message = NLS.bind(Messages.calculateChecksum_error, id, algorithm);
-			status.add(new Status(IStatus.ERROR, Activator.ID, message, e));
+			ChecksumProducer.update(pathOnDisk, digests.values().toArray(new MessageDigest[digests.size()]));
 		} catch (IOException e) {
-			String message = NLS.bind(Messages.calculateChecksum_error, id, algorithm);
-			status.add(new Status(IStatus.ERROR, Activator.ID, message, e));
+			for (Entry<String, MessageDigest> digest : digests.entrySet()) {
+				String message = NLS.bind(Messages.calculateChecksum_error, digest.getKey(), digest.getValue().getAlgorithm());
+				status.add(new Status(IStatus.ERROR, Activator.ID, message, e));
+			}
+			return status;
+		}
+		for (Entry<String, MessageDigest> digest : digests.entrySet()) {
+			String id = digest.getKey();
+			String checksum = ChecksumHelper.toHexString(digest.getValue().digest());
+			String message = NLS.bind(Messages.calculateChecksum_ok, new Object[] {id, algorithms.get(id), checksum});
+			status.add(new Status(IStatus.OK, Activator.ID, message));
+			checksums.put(id, checksum);
 		}
-		return Optional.empty();
+
+		return status;
 	}
 
 	/**
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2018, 2018 Mykola Nikishov.
+ * Copyright (c) 2018, 2026 Mykola Nikishov and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -40,6 +40,19 @@ public abstract class MessageDigestProcessingStep extends ProcessingStep {
 		buffer.put((byte) b);
 	}
 
+	@Override
+	final public void write(byte[] b, int off, int len) throws IOException {
+		getDestination().write(b, off, len);
+
+		if (len <= buffer.remaining()) {
+			buffer.put(b, off, len);
+			return;
+		}
+		// digest the bytes written one at a time before the block, then the block itself
+		processBufferredBytes();
+		messageDigest.update(b, off, len);
+	}
+
 	private void processBufferredBytes() {
 		buffer.flip();
 		updateDigest();
@@ -53,9 +66,17 @@ public abstract class MessageDigestProcessingStep extends ProcessingStep {
 	@Override
 	final public void close() throws IOException {
 		processBufferredBytes();
+		completeDigest();
+		super.close();
+	}
+
+	/**
+	 * Completes the digest of the bytes written and passes it to {@link #onClose(String)}.
+	 * Used by {@link MultiChecksumVerifier} which updates the digest of this step itself.
+	 */
+	final void completeDigest() {
 		String digestString = digest();
 		onClose(digestString);
-		super.close();
 	}
 
 	private String digest() {
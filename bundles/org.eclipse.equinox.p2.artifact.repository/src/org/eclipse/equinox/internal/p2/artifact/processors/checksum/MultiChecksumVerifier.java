@@ -0,0 +1,93 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.internal.p2.artifact.processors.checksum;
+
+import java.io.IOException;
+import java.util.*;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.MultiStatus;
+import org.eclipse.equinox.internal.p2.artifact.repository.Activator;
+import org.eclipse.equinox.internal.provisional.p2.artifact.repository.processing.ProcessingStep;
+
+/**
+ * Processing step verifying several checksums of the bytes written to it. The bytes
+ * are passed once to the destination and buffered once, each digest being updated
+ * from the same buffer, instead of going through one step per checksum.
+ *
+ * @noreference This class is not intended to be referenced by clients.
+ */
+public final class MultiChecksumVerifier extends ProcessingStep {
+
+	private static final int BUFFER_SIZE = 16 * 1024;
+	private final List<ChecksumVerifier> verifiers;
+	private final byte[] buffer = new byte[BUFFER_SIZE];
+	private int count;
+
+	/**
+	 * @param verifiers initialized verifiers, they are only used for their digests and expected checksums
+	 */
+	public MultiChecksumVerifier(Collection<ChecksumVerifier> verifiers) {
+		this.verifiers = new ArrayList<>(verifiers);
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		getDestination().write(b);
+
+		if (count == buffer.length)
+			processBufferedBytes();
+		buffer[count++] = (byte) b;
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		getDestination().write(b, off, len);
+
+		if (len <= buffer.length - count) {
+			System.arraycopy(b, off, buffer, count, len);
+			count += len;
+			return;
+		}
+		// digest the bytes written one at a time before the block, then the block itself
+		processBufferedBytes();
+		for (ChecksumVerifier verifier : verifiers)
+			verifier.messageDigest.update(b, off, len);
+	}
+
+	private void processBufferedBytes() {
+		for (ChecksumVerifier verifier : verifiers)
+			verifier.messageDigest.update(buffer, 0, count);
+		count = 0;
+	}
+
+	@Override
+	public void close() throws IOException {
+		processBufferedBytes();
+		List<IStatus> failures = new ArrayList<>();
+		for (ChecksumVerifier verifier : verifiers) {
+			verifier.completeDigest();
+			if (!verifier.getStatus().isOK())
+				failures.add(verifier.getStatus());
+		}
+		if (failures.size() == 1)
+			setStatus(failures.get(0));
+		else if (!failures.isEmpty())
+			setStatus(new MultiStatus(Activator.ID, failures.get(0).getCode(), failures.toArray(new IStatus[failures.size()]), failures.get(0).getMessage(), null));
+		super.close();
+	}
+
+	public List<ChecksumVerifier> getVerifiers() {
+		return Collections.unmodifiableList(verifiers);
+	}
+}
@@ -0,0 +1,323 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.internal.p2.artifact.repository;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.concurrent.*;
+import org.eclipse.core.runtime.*;
+import org.eclipse.equinox.internal.provisional.p2.repository.IStateful;
+
+/**
+ * Downloads an artifact from a mirror and, when nothing has been received from the
+ * mirror after the delay given by {@link MirrorSelector#getHedgeDelay()}, sends the
+ * same request to a second mirror. The first of the two downloads to receive bytes
+ * writes them to the destination and the other one is canceled, so the destination
+ * only ever sees the bytes of one download.
+ * <p>
+ * The time each download waited for its first bytes, from the moment its transfer
+ * started, is reported to the selector. A download runs on the calling thread when it
+ * is not to be hedged.
+ * </p>
+ */
+public class HedgedDownload {
+	/**
+	 * Downloads the bytes at a location into a stream.
+	 */
+	public interface Transfer {
+		/**
+		 * Downloads the bytes at the given location, running the given callback when the
+		 * transfer starts, which may be after waiting for other transfers to end.
+		 */
+		IStatus download(URI location, OutputStream destination, IProgressMonitor monitor, Runnable started);
+	}
+
+	private static final long POLL_INTERVAL = 100;
+
+	private static final ExecutorService downloads = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 10, TimeUnit.SECONDS, new SynchronousQueue<>(), runnable -> {
+		Thread thread = new Thread(runnable, "p2 hedged download"); //$NON-NLS-1$
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private final MirrorSelector selector;
+	private final Transfer transfer;
+	private OutputStream destination;
+	private IProgressMonitor monitor;
+	private Attempt primary;
+	private Attempt hedge;
+	private volatile Attempt winner;
+	private volatile boolean finished;
+
+	public HedgedDownload(MirrorSelector selector, Transfer transfer) {
+		this.selector = selector;
+		this.transfer = transfer;
+	}
+
+	/**
+	 * Downloads the artifact at the given mirror location into the given stream.
+	 * Use {@link #getLocation()} to know which mirror the bytes came from. Nothing
+	 * is written to the stream once this method has returned, even when canceled.
+	 */
+	public IStatus run(URI location, OutputStream target, IProgressMonitor progress) {
+		this.destination = target;
+		this.monitor = progress != null ? progress : new NullProgressMonitor();
+		long delay = selector.getHedgeDelay();
+		primary = new Attempt(location);
+		if (delay < 0) {
+			IStatus result = transfer.download(location, primary, monitor, primary::started);
+			primary.reportTimeToFirstByte();
+			return complete(primary, result);
+		}
+		downloads.execute(primary);
+		synchronized (this) {
+			try {
+				boolean hedging = false;
+				while (winner == null && primary.result == null && !monitor.isCanceled()) {
+					// the delay runs from the start of the transfer, not while it waits for its turn
+					long start = primary.start;
+					long remaining = start == 0 ? POLL_INTERVAL : start + delay - System.currentTimeMillis();
+					if (remaining <= 0) {
+						hedging = true;
+						break;
+					}
+					wait(Math.min(remaining, POLL_INTERVAL));
+				}
+				if (hedging) {
+					URI hedgeLocation = selector.getHedgeLocation(location);
+					if (hedgeLocation != null) {
+						hedge = new Attempt(hedgeLocation);
+						downloads.execute(hedge);
+					}
+				}
+				while (!isDecided() && !monitor.isCanceled())
+					wait(POLL_INTERVAL);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			// the downloads write to the destination holding this lock, none writes from now on
+			finished = true;
+			if (!isDecided()) {
+				primary.canceled = true;
+				if (hedge != null)
+					hedge.canceled = true;
+				return Status.CANCEL_STATUS;
+			}
+			if (winner == null) {
+				// neither mirror sent anything, report the failure of the hedge so that the
+				// primary one can be reported by the caller
+				if (hedge != null)
+					selector.reportResult(hedge.location.toString(), hedge.result);
+				return complete(primary, primary.result);
+			}
+			cancel(winner == primary ? hedge : primary);
+			return complete(winner, winner.result);
+		}
+	}
+
+	/**
+	 * Returns the mirror location the artifact has been downloaded from, or the location
+	 * of the first download when no mirror sent anything.
+	 */
+	public URI getLocation() {
+		Attempt result = winner;
+		return result != null ? result.location : primary.location;
+	}
+
+	private IStatus complete(Attempt attempt, IStatus result) {
+		// the transport pushes its status onto the stream it writes to
+		if (attempt.status != null && destination instanceof IStateful)
+			((IStateful) destination).setStatus(attempt.status);
+		return result;
+	}
+
+	private boolean isDecided() {
+		if (winner != null)
+			return winner.result != null;
+		return primary.result != null && (hedge == null || hedge.result != null);
+	}
+
+	/**
+	 * Cancels a download that lost the race. When it has started without receiving anything,
+	 * the time it has waited so far is reported, a slow mirror is then known to be at least
+	 * as slow.
+	 */
+	private void cancel(Attempt attempt) {
+		if (attempt == null || attempt.result != null)
+			return;
+		attempt.canceled = true;
+		attempt.reportTimeToFirstByte();
+	}
+
+	/**
+	 * Gives the destination to the given download if no other download got it before.
+	 */
+	synchronized boolean claim(Attempt attempt) {
+		if (winner == null && !finished && !attempt.canceled) {
+			winner = attempt;
+			Attempt other = attempt == primary ? hedge : primary;
+			if (other != null)
+				cancel(other);
+		}
+		return winner == attempt;
+	}
+
+	synchronized void completed(Attempt attempt, IStatus result) {
+		attempt.result = result;
+		notifyAll();
+	}
+
+	/**
+	 * One of the downloads, writing to the destination once it has claimed it.
+	 */
+	private final class Attempt extends OutputStream implements IStateful, Runnable {
+		final URI location;
+		volatile long start;
+		private final IProgressMonitor attemptMonitor;
+		private volatile boolean receiving;
+		private boolean reported;
+		volatile boolean canceled;
+		volatile IStatus result;
+		volatile IStatus status;
+
+		Attempt(URI location) {
+			this.location = location;
+			this.attemptMonitor = new ProgressMonitorWrapper(monitor) {
+				@Override
+				public boolean isCanceled() {
+					return canceled || super.isCanceled();
+				}
+
+				// only the download writing to the destination reports its progress
+				@Override
+				public void beginTask(String name, int totalWork) {
+					if (isReporting())
+						super.beginTask(name, totalWork);
+				}
+
+				@Override
+				public void internalWorked(double work) {
+					if (isReporting())
+						super.internalWorked(work);
+				}
+
+				@Override
+				public void worked(int work) {
+					if (isReporting())
+						super.worked(work);
+				}
+
+				@Override
+				public void subTask(String name) {
+					if (isReporting())
+						super.subTask(name);
+				}
+
+				@Override
+				public void done() {
+					if (isReporting())
+						super.done();
+				}
+			};
+		}
+
+		void started() {
+			synchronized (HedgedDownload.this) {
+				start = System.currentTimeMillis();
+				HedgedDownload.this.notifyAll();
+			}
+		}
+
+		boolean isReporting() {
+			return winner == this && !finished;
+		}
+
+		@Override
+		public void run() {
+			IStatus downloaded;
+			try {
+				downloaded = transfer.download(location, this, attemptMonitor, this::started);
+			} catch (OperationCanceledException e) {
+				downloaded = Status.CANCEL_STATUS;
+			} catch (RuntimeException e) {
+				downloaded = new Status(IStatus.ERROR, Activator.ID, e.getMessage(), e);
+			}
+			// an empty artifact has no first byte
+			if (downloaded.isOK())
+				receive();
+			// a canceled download has reported the time it waited when canceled
+			if (!canceled)
+				reportTimeToFirstByte();
+			completed(this, downloaded);
+		}
+
+		synchronized void reportTimeToFirstByte() {
+			if (!reported && start != 0) {
+				reported = true;
+				selector.reportTimeToFirstByte(location.toString(), System.currentTimeMillis() - start);
+			}
+		}
+
+		private boolean receive() {
+			if (!receiving) {
+				receiving = true;
+				reportTimeToFirstByte();
+			}
+			return claim(this);
+		}
+
+		// called holding the lock of the download
+		private void checkReceive() throws IOException {
+			if (finished)
+				throw new IOException("Download finished"); //$NON-NLS-1$
+			if (winner != this && !receive())
+				throw new IOException("Superseded by the download from another mirror"); //$NON-NLS-1$
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			synchronized (HedgedDownload.this) {
+				checkReceive();
+				destination.write(b);
+			}
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			synchronized (HedgedDownload.this) {
+				checkReceive();
+				destination.write(b, off, len);
+			}
+		}
+
+		@Override
+		public void flush() throws IOException {
+			synchronized (HedgedDownload.this) {
+				if (winner == this && !finished)
+					destination.flush();
+			}
+		}
+
+		@Override
+		public IStatus getStatus() {
+			return status;
+		}
+
+		@Override
+		public void setStatus(IStatus status) {
+			this.status = status;
+		}
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2017 IBM Corporation and others.
+ * Copyright (c) 2007, 2026 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -25,6 +25,7 @@ import java.util.Map;
 import org.eclipse.core.runtime.*;
 import org.eclipse.equinox.internal.p2.artifact.repository.simple.SimpleArtifactDescriptor;
 import org.eclipse.equinox.internal.p2.core.helpers.LogHelper;
+import org.eclipse.equinox.internal.p2.repository.ArtifactCache;
 import org.eclipse.equinox.internal.p2.repository.Transport;
 import org.eclipse.equinox.internal.provisional.p2.artifact.repository.processing.ProcessingStepHandler;
 import org.eclipse.equinox.internal.provisional.p2.core.eventbus.IProvisioningEventBus;
@@ -140,6 +141,9 @@ public class MirrorRequest extends ArtifactRequest {
 				// if the descriptor is still null then we could not find our first choice of format so switch the logic.
 				if (descriptor == null)
 					descriptor = !chooseCanonical ? canonical : optimized;
+				// whatever the format, bytes already in the shared cache are not downloaded again
+				if (!chooseCanonical && descriptor != null && !isCached(descriptor))
+					descriptor = isCached(canonical) ? canonical : isCached(optimized) ? optimized : descriptor;
 			}
 		}
 
@@ -185,6 +189,12 @@ public class MirrorRequest extends ArtifactRequest {
 			setResult(new MultiStatus(Activator.ID, canonicalStatus.getCode() != 0 ? canonicalStatus.getCode() : status.getCode(), new IStatus[] {status, canonicalStatus}, Messages.MirrorRequest_multipleDownloadProblems, null));
 	}
 
+	private static boolean isCached(IArtifactDescriptor candidate) {
+		ArtifactCache cache = ArtifactCache.getDefault();
+		String key = cache != null && candidate != null ? ArtifactCache.getKey(candidate) : null;
+		return key != null && cache.contains(key);
+	}
+
 	private IArtifactDescriptor getDestinationDescriptor(IArtifactDescriptor sourceDescriptor) {
 		// Get the descriptor to use to store the artifact
 		// Since we are mirroring, ensure we clear out data from the original descriptor that may
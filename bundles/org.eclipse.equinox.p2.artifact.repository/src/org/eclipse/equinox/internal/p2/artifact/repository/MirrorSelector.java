@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2018 IBM Corporation and others.
+ * Copyright (c) 2008, 2026 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -17,7 +17,6 @@ package org.eclipse.equinox.internal.p2.artifact.repository;
 
 import static java.lang.Math.abs;
 import static java.lang.Math.max;
-import static java.lang.Math.min;
 import static java.lang.Math.sqrt;
 
 import java.io.FileNotFoundException;
@@ -42,11 +41,26 @@ import org.xml.sax.SAXException;
  * containing a list of <mirror> elements. The mirrors are assumed to be already 
  * sorted geographically with closer mirrors first.
  * <br><br>
+ * The throughput and the time to first byte of each mirror are tracked as exponentially
+ * weighted moving averages of the downloads made from it. A mirror is selected by taking
+ * two valid mirrors at random and keeping the one expected to deliver an artifact sooner,
+ * the closer one when they cannot be told apart, see {@link MirrorSelector.MirrorCostComparator}.
+ * The times to first byte observed
+ * across all the mirrors give the delay after which a download that has not received
+ * anything yet is duplicated to a second mirror, see {@link HedgedDownload}.
+ * <br><br>
  * Always use {@link MirrorSelector.MirrorInfoComparator} for comparison.
  *
  */
 public class MirrorSelector {
-	private static final double LOG2 = Math.log(2);
+	/**
+	 * The size of the artifact used to weigh the time to first byte of a mirror against its throughput.
+	 */
+	static final int REFERENCE_SIZE = 256 * 1024;
+	private static final int FIRST_BYTE_SAMPLES = 64;
+	private static final int MIN_FIRST_BYTE_SAMPLES = 8;
+	private static final double HEDGE_PERCENTILE = 0.95;
+	private static final long MIN_HEDGE_DELAY = 20;
 
 	/**
 	 * Encapsulates information about a single mirror
@@ -56,8 +70,10 @@ public class MirrorSelector {
 		private static final long SECONDARY_FAILURE_LINGER_TIME = 300000; // Wait 5 minutes
 		private static final int ACCEPTABLE_FILE_NOT_FOUND_COUNT = 5; // Given an established connection, those are generally quick
 		private static final Timer resetFailure = new Timer(true);
+		private static final double SMOOTHING = 0.3; // Weight of the latest download in the averages
 
 		long bytesPerSecond;
+		long timeToFirstByte = -1;
 		int failureCount;
 		int fileNotFoundCount;
 		int totalFailureCount;
@@ -76,7 +92,7 @@ public class MirrorSelector {
 
 		@Override
 		public synchronized String toString() {
-			return "Mirror(" + locationString + ',' + failureCount + ',' + bytesPerSecond + ')'; //$NON-NLS-1$
+			return "Mirror(" + locationString + ',' + failureCount + ',' + bytesPerSecond + ',' + timeToFirstByte + ')'; //$NON-NLS-1$
 		}
 
 		public synchronized void decrementFailureCount() {
@@ -112,6 +128,33 @@ public class MirrorSelector {
 			return bytesPerSecond;
 		}
 
+		/**
+		 * Adds the transfer rate of a download to the average rate of this mirror.
+		 */
+		public synchronized void updateBytesPerSecond(long newValue) {
+			if (newValue <= 0)
+				return;
+			if (bytesPerSecond > 0)
+				newValue = Math.round(SMOOTHING * newValue + (1 - SMOOTHING) * bytesPerSecond);
+			setBytesPerSecond(newValue);
+		}
+
+		/**
+		 * Adds the time a download waited for its first bytes to the average of this mirror.
+		 */
+		public synchronized void updateTimeToFirstByte(long millis) {
+			if (millis < 0)
+				return;
+			timeToFirstByte = timeToFirstByte < 0 ? millis : Math.round(SMOOTHING * millis + (1 - SMOOTHING) * timeToFirstByte);
+		}
+
+		/**
+		 * @return the average time to first byte in milliseconds, or -1 when unknown
+		 */
+		public synchronized long getTimeToFirstByte() {
+			return timeToFirstByte;
+		}
+
 		public synchronized void incrementFileNotFoundCount() {
 			if (++fileNotFoundCount > ACCEPTABLE_FILE_NOT_FOUND_COUNT) {
 				incrementFailureCount();
@@ -133,6 +176,13 @@ public class MirrorSelector {
 
 	private final Transport transport;
 
+	/**
+	 * The most recent times to first byte of all the mirrors, in milliseconds.
+	 */
+	private final long[] firstByteSamples = new long[FIRST_BYTE_SAMPLES];
+	private int firstByteSampleCount;
+	private int nextFirstByteSample;
+
 	/**
 	 * Constructs a mirror support class for the given repository. Mirrors are
 	 * not contacted and the mirrorsURL document is not parsed until a
@@ -247,6 +297,48 @@ public class MirrorSelector {
 
 	}
 
+	/**
+	 * This {@link Comparator} orders mirrors by the time they are expected to take to
+	 * deliver an artifact of {@link MirrorSelector#REFERENCE_SIZE} bytes, that is their
+	 * average time to first byte plus the time to transfer the bytes at their average
+	 * rate. Mirrors that have not been measured yet are assumed to perform like the
+	 * average of the measured ones, so that they get a chance to be tried. Each recent
+	 * failure of a mirror makes it look as slow again. Mirrors that cannot be told apart
+	 * are ordered by their initial rank.
+	 */
+	public static final class MirrorCostComparator implements Comparator<MirrorInfo> {
+		final long defaultBytesPerSecond;
+		final long defaultTimeToFirstByte;
+
+		/**
+		 * @param defaultBytesPerSecond the rate of the mirrors without one, or a non-positive value if unknown
+		 * @param defaultTimeToFirstByte the time to first byte of the mirrors without one, or -1 if unknown
+		 */
+		public MirrorCostComparator(long defaultBytesPerSecond, long defaultTimeToFirstByte) {
+			this.defaultBytesPerSecond = defaultBytesPerSecond;
+			this.defaultTimeToFirstByte = defaultTimeToFirstByte;
+		}
+
+		@Override
+		public int compare(MirrorInfo o1, MirrorInfo o2) {
+			if (o1 == o2) {
+				return 0;
+			}
+			int result = Double.compare(cost(o1), cost(o2));
+			return result != 0 ? result : Integer.compare(o1.initialRank, o2.initialRank);
+		}
+
+		/**
+		 * Returns the expected time in milliseconds to download an artifact from the given mirror.
+		 */
+		public double cost(MirrorInfo mirror) {
+			long firstByte = mirror.timeToFirstByte >= 0 ? mirror.timeToFirstByte : defaultTimeToFirstByte;
+			long rate = mirror.bytesPerSecond > 0 ? mirror.bytesPerSecond : defaultBytesPerSecond;
+			double cost = max(firstByte, 0) + (rate > 0 ? REFERENCE_SIZE * 1000d / rate : 0);
+			return cost * (1 + mirror.failureCount);
+		}
+	}
+
 	/**
 	 * Parses the given mirror URL to obtain the list of mirrors. Returns the mirrors,
 	 * or null if mirrors could not be computed.
@@ -296,10 +388,10 @@ public class MirrorSelector {
 	}
 
 	private String enrichWithClientLocation(String baseURL) {
-		String countryCode = Activator.getContext().getProperty("eclipse.p2.countryCode"); //$NON-NLS-1$
+		String countryCode = getProperty("eclipse.p2.countryCode"); //$NON-NLS-1$
 		if (countryCode == null || countryCode.trim().length() == 0)
 			countryCode = Locale.getDefault().getCountry().toLowerCase();
-		String timeZone = Activator.getContext().getProperty("eclipse.p2.timeZone"); //$NON-NLS-1$
+		String timeZone = getProperty("eclipse.p2.timeZone"); //$NON-NLS-1$
 		if (timeZone == null || timeZone.trim().length() == 0)
 			timeZone = Integer.toString(new GregorianCalendar().get(Calendar.ZONE_OFFSET) / (60 * 60 * 1000));
 
@@ -311,6 +403,10 @@ public class MirrorSelector {
 		return baseURL + "countryCode=" + countryCode + "&timeZone=" + timeZone + "&format=xml"; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
 	}
 
+	private static String getProperty(String key) {
+		return Activator.getContext() != null ? Activator.getContext().getProperty(key) : System.getProperty(key);
+	}
+
 	/**
 	 * Returns an equivalent location for the given artifact location in the base 
 	 * repository.  Always falls back to the given input location in case of failure
@@ -324,17 +420,61 @@ public class MirrorSelector {
 		//if we failed to relativize the location, we can't select a mirror
 		if (relativeLocation == null || relativeLocation.isAbsolute())
 			return inputLocation;
-		MirrorInfo selectedMirror = selectMirror(monitor);
+		initMirrors(monitor);
+		MirrorInfo selectedMirror = selectMirror(null);
 		if (selectedMirror == null)
 			return inputLocation;
 		if (Tracing.DEBUG_MIRRORS)
 			Tracing.debug("Selected mirror for artifact " + inputLocation + ": " + selectedMirror); //$NON-NLS-1$ //$NON-NLS-2$
+		URI location = toMirrorLocation(selectedMirror, relativeLocation.getPath());
+		return location != null ? location : inputLocation;
+	}
+
+	/**
+	 * Returns the location of the same artifact as the given mirror location on another
+	 * mirror, to download it from both at the same time. Returns null if there is no
+	 * other valid mirror.
+	 */
+	public synchronized URI getHedgeLocation(URI mirrorLocation) {
+		MirrorInfo mirror = findMirror(mirrorLocation.toString());
+		if (mirror == null)
+			return null;
+		MirrorInfo selectedMirror = selectMirror(mirror);
+		if (selectedMirror == null)
+			return null;
+		if (Tracing.DEBUG_MIRRORS)
+			Tracing.debug("Selected mirror for hedging " + mirrorLocation + ": " + selectedMirror); //$NON-NLS-1$ //$NON-NLS-2$
+		return toMirrorLocation(selectedMirror, mirrorLocation.toString().substring(mirror.locationString.length()));
+	}
+
+	private URI toMirrorLocation(MirrorInfo mirror, String relativePath) {
 		try {
-			return new URI(selectedMirror.locationString + relativeLocation.getPath());
+			return new URI(mirror.locationString + relativePath);
 		} catch (URISyntaxException e) {
-			log("Unable to make location " + inputLocation + " relative to mirror " + selectedMirror.locationString, e); //$NON-NLS-1$ //$NON-NLS-2$
+			log("Unable to make location " + relativePath + " relative to mirror " + mirror.locationString, e); //$NON-NLS-1$ //$NON-NLS-2$
 		}
-		return inputLocation;
+		return null;
+	}
+
+	/**
+	 * Returns the delay in milliseconds after which a download from a mirror that has not
+	 * received its first bytes should be duplicated to another mirror, or -1 if downloads
+	 * should not be duplicated. The delay is a high percentile of the recent times to first
+	 * byte, so that only the downloads that are unusually slow to start are duplicated.
+	 */
+	public synchronized long getHedgeDelay() {
+		if (mirrors == null || firstByteSampleCount < MIN_FIRST_BYTE_SAMPLES)
+			return -1;
+		int validMirrors = 0;
+		for (MirrorInfo mirror : mirrors) {
+			if (mirror.failureCount <= 1)
+				validMirrors++;
+		}
+		if (validMirrors < 2)
+			return -1;
+		long[] samples = Arrays.copyOf(firstByteSamples, firstByteSampleCount);
+		Arrays.sort(samples);
+		return max(MIN_HEDGE_DELAY, samples[(int) Math.ceil(HEDGE_PERCENTILE * samples.length) - 1]);
 	}
 
 	/**
@@ -349,6 +489,23 @@ public class MirrorSelector {
 			mirrors = computeMirrors(mirrorsURL, monitor);
 	}
 
+	private MirrorCostComparator getCostComparator() {
+		long totalBytesPerSecond = 0, totalTimeToFirstByte = 0;
+		int rates = 0, times = 0;
+		for (MirrorInfo mirror : mirrors) {
+			if (mirror.bytesPerSecond > 0) {
+				totalBytesPerSecond += mirror.bytesPerSecond;
+				rates++;
+			}
+			if (mirror.timeToFirstByte >= 0) {
+				totalTimeToFirstByte += mirror.timeToFirstByte;
+				times++;
+			}
+		}
+		// Unknown mirrors are expected to perform like the average known mirror
+		return new MirrorCostComparator(rates > 0 ? totalBytesPerSecond / rates : DownloadStatus.UNKNOWN_RATE, times > 0 ? totalTimeToFirstByte / times : -1);
+	}
+
 	private MirrorInfoComparator getComparator() {
 		long maxBytesPerSecond = 0;
 		if (mirrors != null) {
@@ -368,34 +525,48 @@ public class MirrorSelector {
 	 * Reports the result of a mirror download
 	 */
 	public synchronized void reportResult(String toDownload, IStatus result) {
-		if (mirrors == null)
+		MirrorInfo mirror = findMirror(toDownload);
+		if (mirror == null)
 			return;
-		for (int i = 0; i < mirrors.length; i++) {
-			MirrorInfo mirror = mirrors[i];
-			if (toDownload.startsWith(mirror.locationString)) {
-				if (!result.isOK() && result.getSeverity() != IStatus.CANCEL) {
-					// Punishing a mirror harshly for a FileNotFoundException can be very wrong.
-					// Some artifacts are not found on any mirror. When that's the case,
-					// the best mirrors will be the first to receive that kind of punishment.
-					//
-					if (result.getException() instanceof FileNotFoundException)
-						mirror.incrementFileNotFoundCount();
-					else
-						mirror.incrementFailureCount();
-				}
-				if (result instanceof DownloadStatus) {
-					long oldRate = mirror.bytesPerSecond;
-					long newRate = ((DownloadStatus) result).getTransferRate();
-					//average old and new rate so one slow download doesn't ruin the mirror's reputation
-					if (oldRate > 0)
-						newRate = (oldRate + newRate) / 2;
-					mirror.setBytesPerSecond(newRate);
-				}
-				if (Tracing.DEBUG_MIRRORS)
-					Tracing.debug("Updated mirror " + mirror); //$NON-NLS-1$
-				return;
-			}
+		if (!result.isOK() && result.getSeverity() != IStatus.CANCEL) {
+			// Punishing a mirror harshly for a FileNotFoundException can be very wrong.
+			// Some artifacts are not found on any mirror. When that's the case,
+			// the best mirrors will be the first to receive that kind of punishment.
+			//
+			if (result.getException() instanceof FileNotFoundException)
+				mirror.incrementFileNotFoundCount();
+			else
+				mirror.incrementFailureCount();
+		}
+		// only complete downloads tell how fast the mirror is
+		if (result.isOK() && result instanceof DownloadStatus)
+			mirror.updateBytesPerSecond(((DownloadStatus) result).getTransferRate());
+		if (Tracing.DEBUG_MIRRORS)
+			Tracing.debug("Updated mirror " + mirror); //$NON-NLS-1$
+	}
+
+	/**
+	 * Reports the time a download from a mirror waited for its first bytes. A download
+	 * canceled before receiving anything reports the time it waited so far.
+	 */
+	public synchronized void reportTimeToFirstByte(String toDownload, long millis) {
+		MirrorInfo mirror = findMirror(toDownload);
+		if (mirror == null)
+			return;
+		mirror.updateTimeToFirstByte(millis);
+		firstByteSamples[nextFirstByteSample] = millis;
+		nextFirstByteSample = (nextFirstByteSample + 1) % FIRST_BYTE_SAMPLES;
+		firstByteSampleCount = Math.min(firstByteSampleCount + 1, FIRST_BYTE_SAMPLES);
+	}
+
+	private MirrorInfo findMirror(String location) {
+		if (mirrors == null)
+			return null;
+		for (MirrorInfo mirror : mirrors) {
+			if (location.startsWith(mirror.locationString))
+				return mirror;
 		}
+		return null;
 	}
 
 	/** 
@@ -411,46 +582,30 @@ public class MirrorSelector {
 	}
 
 	/**
-	 * Selects a mirror from the given list of mirrors. Returns null if a mirror
-	 * could not be found.
+	 * Selects a mirror other than the given one, picking the better of two random valid
+	 * mirrors. Returns null if a mirror could not be found.
 	 */
-	private MirrorInfo selectMirror(IProgressMonitor monitor) {
-		initMirrors(monitor);
-		final int mirrorCount;
-		if (mirrors == null || (mirrorCount = mirrors.length) == 0)
+	private MirrorInfo selectMirror(MirrorInfo excluded) {
+		if (mirrors == null)
 			return null;
-
-		MirrorInfo selected;
-		if (mirrorCount == 1)
-			selected = mirrors[0];
-		else {
-			Arrays.sort(mirrors, getComparator());
-			for (;;) {
-				//this is a function that randomly selects a mirror based on a logarithmic
-				//distribution. Mirror 0 has a 1/2 chance of being selected, mirror 1 has a 1/4 chance, 
-				// mirror 2 has a 1/8 chance, etc. This introduces some variation in the mirror 
-				//selection, while still heavily favoring better mirrors
-				//the algorithm computes the most significant digit in a binary number by computing the base 2 logarithm
-				//if the first digit is most significant, mirror 0 is selected, if the second is most significant, mirror 1 is selected, etc
-				int highestMirror = min(15, mirrorCount);
-				int result = (int) (Math.log(random.nextInt(1 << highestMirror) + 1) / LOG2);
-				if (result >= highestMirror || result < 0)
-					result = highestMirror - 1;
-
-				int mirrorIndex = highestMirror - 1 - result;
-				selected = mirrors[mirrorIndex];
-
-				// Only choose a mirror from the best 50% of the top 15 of all mirrors
-				if (mirrorIndex <= (mirrorCount * 0.5d))
-					// This is good enough
-					break;
-			}
+		List<MirrorInfo> candidates = new ArrayList<>(mirrors.length);
+		for (MirrorInfo mirror : mirrors) {
+			//for now, don't tolerate mirrors with multiple failures
+			if (mirror != excluded && mirror.failureCount <= 1)
+				candidates.add(mirror);
 		}
-
-		//for now, don't tolerate mirrors with multiple failures
-		if (selected.failureCount > 1)
-			return null;
-		return selected;
+		if (candidates.size() <= 1)
+			return candidates.isEmpty() ? null : candidates.get(0);
+		//comparing two random mirrors rather than always taking the best one spreads the
+		//downloads over the good mirrors, and gets the unknown ones measured, while still
+		//avoiding the bad mirrors in almost all cases
+		int first = random.nextInt(candidates.size());
+		int second = random.nextInt(candidates.size() - 1);
+		if (second >= first)
+			second++;
+		MirrorInfo mirror1 = candidates.get(first);
+		MirrorInfo mirror2 = candidates.get(second);
+		return getCostComparator().compare(mirror1, mirror2) <= 0 ? mirror1 : mirror2;
 	}
 
 }
@@ -0,0 +1,226 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.internal.p2.artifact.repository.simple;
+
+import java.net.URI;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.eclipse.core.runtime.*;
+import org.eclipse.equinox.internal.p2.artifact.repository.Activator;
+import org.eclipse.equinox.internal.p2.artifact.repository.Messages;
+import org.eclipse.equinox.internal.p2.repository.ConnectionPermits;
+import org.eclipse.equinox.p2.repository.artifact.IArtifactRequest;
+
+/**
+ * Runs the artifact requests of a repository concurrently and limits the number of
+ * transfers running at the same time from any given host.
+ * <p>
+ * Each request is run on its own virtual thread when {@link #PROP_VIRTUAL_THREADS} is set
+ * and the running VM supports them, and by a bounded pool of threads otherwise. The number
+ * of concurrent transfers from a host is given by {@link #PROP_MAX_THREADS_PER_HOST}
+ * whatever the number of repositories downloading from it.
+ * </p>
+ * <p>
+ * The two limits are independent. With virtual threads, the requests of a repository
+ * are only limited by the hosts they are downloaded from. With a pool, a repository also
+ * runs no more requests at the same time than the pool has threads, as given by
+ * <code>eclipse.p2.max.threads</code>, even when they are downloaded from different
+ * hosts, and a thread waiting for a busy host keeps its place in the pool.
+ * </p>
+ * <p>
+ * The executor can be replaced by registering another instance with the provisioning
+ * agent under {@link #SERVICE_NAME}.
+ * </p>
+ */
+public class DownloadExecutor {
+	public static final String SERVICE_NAME = DownloadExecutor.class.getName();
+
+	/**
+	 * System property enabling virtual threads when the VM supports them.
+	 */
+	public static final String PROP_VIRTUAL_THREADS = "eclipse.p2.download.virtualThreads"; //$NON-NLS-1$
+
+	/**
+	 * System property specifying the maximum number of concurrent transfers from a host.
+	 */
+	public static final String PROP_MAX_THREADS_PER_HOST = "eclipse.p2.max.threads.perHost"; //$NON-NLS-1$
+
+	private static final int DEFAULT_MAX_THREADS_PER_HOST = 4;
+
+	private static DownloadExecutor defaultExecutor;
+
+	private final int maxThreadsPerHost;
+	private final boolean virtualThreads;
+	// the hosts transfers are running or waiting for, removed once they have none left
+	private final Map<String, Host> hosts = new HashMap<>();
+
+	private final class Host {
+		final Semaphore permits = new Semaphore(maxThreadsPerHost, true);
+		int transfers;
+	}
+
+	/**
+	 * @param maxThreadsPerHost the maximum number of concurrent transfers from a host
+	 * @param virtualThreads whether to run each request on its own virtual thread when possible
+	 */
+	public DownloadExecutor(int maxThreadsPerHost, boolean virtualThreads) {
+		this.maxThreadsPerHost = Math.max(1, maxThreadsPerHost);
+		this.virtualThreads = virtualThreads;
+	}
+
+	/**
+	 * Returns the executor shared by the repositories of agents not providing their own,
+	 * configured according to the system properties.
+	 */
+	public static synchronized DownloadExecutor getDefault() {
+		if (defaultExecutor == null) {
+			int maxThreadsPerHost = DEFAULT_MAX_THREADS_PER_HOST;
+			try {
+				String value = getProperty(PROP_MAX_THREADS_PER_HOST);
+				if (value != null)
+					maxThreadsPerHost = Integer.parseInt(value);
+			} catch (NumberFormatException e) {
+				// default number of threads
+			}
+			defaultExecutor = new DownloadExecutor(maxThreadsPerHost, Boolean.parseBoolean(getProperty(PROP_VIRTUAL_THREADS)));
+		}
+		return defaultExecutor;
+	}
+
+	private static String getProperty(String key) {
+		return Activator.getContext() != null ? Activator.getContext().getProperty(key) : System.getProperty(key);
+	}
+
+	public int getMaximumThreadsPerHost() {
+		return maxThreadsPerHost;
+	}
+
+	/**
+	 * Performs the given requests against the given repository, reporting the problems
+	 * in the given status. Returns when all the requests have been performed or skipped
+	 * because the monitor has been canceled.
+	 *
+	 * @param maxThreads the maximum number of platform threads to use, not limiting the
+	 * requests run on virtual threads
+	 */
+	public void execute(SimpleArtifactRepository repository, IArtifactRequest[] requests, int maxThreads, IProgressMonitor monitor, MultiStatus overallStatus) {
+		ExecutorService executor = createExecutorService(Math.max(1, Math.min(maxThreads, requests.length)));
+		try {
+			List<Future<?>> futures = new ArrayList<>(requests.length);
+			for (IArtifactRequest request : requests)
+				futures.add(executor.submit(() -> perform(repository, request, monitor, overallStatus)));
+			for (Future<?> future : futures) {
+				try {
+					future.get();
+				} catch (ExecutionException e) {
+					Throwable cause = e.getCause();
+					synchronized (overallStatus) {
+						overallStatus.add(new Status(IStatus.ERROR, Activator.ID, String.valueOf(cause.getMessage()), cause));
+					}
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private static void perform(SimpleArtifactRepository repository, IArtifactRequest request, IProgressMonitor monitor, MultiStatus overallStatus) {
+		if (monitor.isCanceled())
+			return;
+		SubMonitor subMonitor = SubMonitor.convert(monitor, 1);
+		subMonitor.beginTask("", 1); //$NON-NLS-1$
+		try {
+			IStatus status = repository.getArtifact(request, subMonitor);
+			if (!status.isOK()) {
+				synchronized (overallStatus) {
+					overallStatus.add(status);
+				}
+			}
+		} finally {
+			subMonitor.done();
+		}
+	}
+
+	/**
+	 * Creates the executor running the requests of one call to {@link #execute}.
+	 *
+	 * @param maxThreads the maximum number of platform threads to use
+	 */
+	protected ExecutorService createExecutorService(int maxThreads) {
+		if (virtualThreads) {
+			ExecutorService executor = createVirtualThreadExecutor();
+			if (executor != null)
+				return executor;
+		}
+		AtomicInteger count = new AtomicInteger();
+		return Executors.newFixedThreadPool(maxThreads, runnable -> {
+			Thread thread = new Thread(runnable, Messages.sar_downloadJobName + count.getAndIncrement());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	// virtual threads are not available on the minimal execution environment of this bundle
+	private static ExecutorService createVirtualThreadExecutor() {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null); //$NON-NLS-1$
+		} catch (ReflectiveOperationException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Runs the given transfer from the given location once fewer than the maximum number
+	 * of transfers from its host are running. Locations without a host are not limited.
+	 * A transport opening several connections for the transfer takes the permits of the
+	 * additional connections from the same limit, see {@link ConnectionPermits}.
+	 *
+	 * @return the status of the transfer, or a cancel status when the thread has been
+	 * interrupted while waiting for its turn
+	 */
+	public IStatus transfer(URI location, Supplier<IStatus> transfer) {
+		String host = location.getHost();
+		if (host == null)
+			return transfer.get();
+		String key = host.toLowerCase(Locale.ENGLISH);
+		Host entry;
+		synchronized (hosts) {
+			entry = hosts.computeIfAbsent(key, h -> new Host());
+			entry.transfers++;
+		}
+		try {
+			try {
+				entry.permits.acquire();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return Status.CANCEL_STATUS;
+			}
+			try {
+				return ConnectionPermits.run(entry.permits, transfer);
+			} finally {
+				entry.permits.release();
+			}
+		} finally {
+			synchronized (hosts) {
+				// all the permits of an idle host are available, a new entry is equivalent
+				if (--entry.transfers == 0)
+					hosts.remove(key);
+			}
+		}
+	}
+}
@@ -0,0 +1,247 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.internal.p2.artifact.repository.simple;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * A read-only map of the properties of an artifact descriptor, held as bytes referring to
+ * the strings of a dictionary shared by the descriptors of a repository. The descriptors
+ * read in compact mode hold their properties this way, see
+ * {@link SimpleArtifactRepositoryIO#PROP_COMPACT_DESCRIPTORS}.
+ * <p>
+ * The keys and the short values are held once in the dictionary. Numbers are held as
+ * variable length integers, long hexadecimal values such as checksums as the bytes they
+ * stand for, and the other values as their UTF-8 bytes. The entries are decoded each
+ * time they are read, in the order they were packed.
+ * </p>
+ */
+final class PackedProperties extends AbstractMap<String, String> {
+	// the kinds of values, in the two lowest bits of the tag preceding each value
+	private static final int SHARED = 0;
+	private static final int NUMBER = 1;
+	private static final int HEX = 2;
+	private static final int TEXT = 3;
+
+	// the longest decimal number held as a number, so that the tag of any such number fits a long
+	private static final int MAX_NUMBER_LENGTH = 18;
+
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray(); //$NON-NLS-1$
+
+	private final Dictionary dictionary;
+	// the number of entries, then the index of the key and the value of each entry
+	private final byte[] bytes;
+
+	/**
+	 * The strings shared by the packed properties of the descriptors of a repository. The
+	 * dictionary is only written while the repository is read.
+	 */
+	static final class Dictionary {
+		private final ArrayList<String> strings = new ArrayList<>();
+		private Map<String, Integer> indices = new HashMap<>();
+
+		private int index(String value) {
+			Integer index = indices.get(value);
+			if (index == null) {
+				index = Integer.valueOf(strings.size());
+				strings.add(value);
+				indices.put(value, index);
+			}
+			return index.intValue();
+		}
+
+		/**
+		 * Packs the given properties, or returns <code>null</code> if there are none.
+		 */
+		PackedProperties pack(Map<String, String> properties) {
+			if (properties.isEmpty())
+				return null;
+			ByteArrayOutputStream output = new ByteArrayOutputStream(16 * properties.size());
+			writeLong(output, properties.size());
+			for (Map.Entry<String, String> property : properties.entrySet()) {
+				writeLong(output, index(property.getKey()));
+				String value = property.getValue();
+				if (isNumber(value)) {
+					writeLong(output, Long.parseLong(value) << 2 | NUMBER);
+				} else if (value.length() < SimpleArtifactRepositoryIO.MAX_SHARED_LENGTH) {
+					writeLong(output, (long) index(value) << 2 | SHARED);
+				} else if (isHex(value)) {
+					writeLong(output, (long) value.length() / 2 << 2 | HEX);
+					for (int i = 0; i < value.length(); i += 2)
+						output.write(Character.digit(value.charAt(i), 16) << 4 | Character.digit(value.charAt(i + 1), 16));
+				} else {
+					byte[] text = value.getBytes(StandardCharsets.UTF_8);
+					writeLong(output, (long) text.length << 2 | TEXT);
+					output.write(text, 0, text.length);
+				}
+			}
+			return new PackedProperties(this, output.toByteArray());
+		}
+
+		/**
+		 * Releases what is only needed to pack properties, once the repository has been read.
+		 */
+		void close() {
+			indices = null;
+			strings.trimToSize();
+		}
+
+		private static boolean isNumber(String value) {
+			int length = value.length();
+			if (length == 0 || length > MAX_NUMBER_LENGTH || (length > 1 && value.charAt(0) == '0'))
+				return false;
+			for (int i = 0; i < length; i++) {
+				char c = value.charAt(i);
+				if (c < '0' || c > '9')
+					return false;
+			}
+			return true;
+		}
+
+		private static boolean isHex(String value) {
+			if (value.length() % 2 != 0)
+				return false;
+			for (int i = 0; i < value.length(); i++) {
+				char c = value.charAt(i);
+				if ((c < '0' || c > '9') && (c < 'a' || c > 'f'))
+					return false;
+			}
+			return true;
+		}
+
+		private static void writeLong(ByteArrayOutputStream output, long value) {
+			while ((value & ~0x7FL) != 0) {
+				output.write((int) (value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			output.write((int) value);
+		}
+	}
+
+	private PackedProperties(Dictionary dictionary, byte[] bytes) {
+		this.dictionary = dictionary;
+		this.bytes = bytes;
+	}
+
+	@Override
+	public int size() {
+		return (int) new Reader().readLong();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		// empty properties are not packed
+		return false;
+	}
+
+	@Override
+	public String get(Object key) {
+		Reader reader = new Reader();
+		for (long i = reader.readLong(); i > 0; i--) {
+			boolean found = dictionary.strings.get((int) reader.readLong()).equals(key);
+			String value = reader.readValue(found);
+			if (found)
+				return value;
+		}
+		return null;
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return get(key) != null;
+	}
+
+	@Override
+	public Set<Map.Entry<String, String>> entrySet() {
+		return new AbstractSet<Map.Entry<String, String>>() {
+			@Override
+			public Iterator<Map.Entry<String, String>> iterator() {
+				Reader reader = new Reader();
+				long size = reader.readLong();
+				return new Iterator<Map.Entry<String, String>>() {
+					private long next;
+
+					@Override
+					public boolean hasNext() {
+						return next < size;
+					}
+
+					@Override
+					public Map.Entry<String, String> next() {
+						if (next >= size)
+							throw new NoSuchElementException();
+						next++;
+						String key = dictionary.strings.get((int) reader.readLong());
+						return new AbstractMap.SimpleImmutableEntry<>(key, reader.readValue(true));
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return PackedProperties.this.size();
+			}
+		};
+	}
+
+	private final class Reader {
+		private int position;
+
+		long readLong() {
+			long value = 0;
+			int shift = 0;
+			byte b;
+			do {
+				b = bytes[position++];
+				value |= (long) (b & 0x7F) << shift;
+				shift += 7;
+			} while ((b & 0x80) != 0);
+			return value;
+		}
+
+		/**
+		 * Reads the next value, or skips it and returns <code>null</code> if it is not wanted.
+		 */
+		String readValue(boolean wanted) {
+			long tag = readLong();
+			long payload = tag >>> 2;
+			switch ((int) (tag & 3)) {
+				case SHARED :
+					return wanted ? dictionary.strings.get((int) payload) : null;
+				case NUMBER :
+					return wanted ? Long.toString(payload) : null;
+				case HEX : {
+					int start = position;
+					position += (int) payload;
+					if (!wanted)
+						return null;
+					char[] digits = new char[2 * (int) payload];
+					for (int i = 0; i < payload; i++) {
+						int b = bytes[start + i] & 0xFF;
+						digits[2 * i] = HEX_DIGITS[b >>> 4];
+						digits[2 * i + 1] = HEX_DIGITS[b & 0xF];
+					}
+					return new String(digits);
+				}
+				default : {
+					int start = position;
+					position += (int) payload;
+					return wanted ? new String(bytes, start, (int) payload, StandardCharsets.UTF_8) : null;
+				}
+			}
+		}
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009, 2018 IBM Corporation and others.
+ * Copyright (c) 2009, 2026 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -41,6 +41,8 @@ public class SimpleArtifactDescriptor extends ArtifactDescriptor {
 	public void setRepositoryProperty(String key, String value) {
 		if (value == null) {
 			if (repositoryProperties != null) {
+				if (!(repositoryProperties instanceof OrderedProperties))
+					repositoryProperties = new OrderedProperties(repositoryProperties);
 				repositoryProperties.remove(key);
 				if (repositoryProperties.isEmpty()) {
 					repositoryProperties = null;
@@ -51,9 +53,9 @@ public class SimpleArtifactDescriptor extends ArtifactDescriptor {
 				// first value => store in singletonMap (most repositoryProperties have at most 1 entry)
 				repositoryProperties = Collections.singletonMap(key.intern(), value);
 			} else {
-				// if current size is 1 then it is an immutable singletonMap 
+				// a singletonMap or packed properties are immutable
 				// => copy to mutable map for more entries
-				if (repositoryProperties.size() == 1) {
+				if (!(repositoryProperties instanceof OrderedProperties)) {
 					repositoryProperties = new OrderedProperties(repositoryProperties);
 				}
 				repositoryProperties.put(key, value);
@@ -69,6 +71,55 @@ public class SimpleArtifactDescriptor extends ArtifactDescriptor {
 		}
 	}
 
+	/**
+	 * Uses the given properties as the properties of this descriptor, without copying them.
+	 * Called by the parser, the properties read for an artifact are not used by anyone else.
+	 * {@link PackedProperties} are copied to a modifiable map on the first change.
+	 */
+	void adoptProperties(Map<String, String> newProperties) {
+		properties = newProperties;
+	}
+
+	/**
+	 * Uses the given repository properties as those of this descriptor, without copying them,
+	 * see {@link #adoptProperties(Map)}.
+	 */
+	void adoptRepositoryProperties(Map<String, String> newProperties) {
+		repositoryProperties = newProperties;
+	}
+
+	/**
+	 * Returns a read-only view of the properties as they are held, without copying them.
+	 */
+	Map<String, String> getStoredProperties() {
+		return Collections.unmodifiableMap(properties);
+	}
+
+	/**
+	 * Returns a read-only view of the repository properties as they are held, without
+	 * copying them, or <code>null</code> if there are none.
+	 */
+	Map<String, String> getStoredRepositoryProperties() {
+		return repositoryProperties != null ? Collections.unmodifiableMap(repositoryProperties) : null;
+	}
+
+	@Override
+	public void setProperty(String key, String value) {
+		unpackProperties();
+		super.setProperty(key, value);
+	}
+
+	@Override
+	public void addProperties(Map<String, String> additionalProperties) {
+		unpackProperties();
+		super.addProperties(additionalProperties);
+	}
+
+	private void unpackProperties() {
+		if (properties instanceof PackedProperties)
+			properties = new OrderedProperties(properties);
+	}
+
 	/**
 	 * Returns a read-only collection of the repository properties of the artifact descriptor.
 	 * @return the repository properties of this artifact descriptor.
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2018 IBM Corporation and others.
+ * Copyright (c) 2007, 2026 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -22,12 +22,16 @@ package org.eclipse.equinox.internal.p2.artifact.repository.simple;
 import java.io.*;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 import java.util.jar.JarEntry;
 import java.util.jar.JarOutputStream;
 import org.eclipse.core.runtime.*;
-import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.equinox.internal.p2.artifact.processors.checksum.ChecksumUtilities;
 import org.eclipse.equinox.internal.p2.artifact.repository.*;
 import org.eclipse.equinox.internal.p2.artifact.repository.Messages;
@@ -35,6 +39,7 @@ import org.eclipse.equinox.internal.p2.core.helpers.FileUtils;
 import org.eclipse.equinox.internal.p2.metadata.ArtifactKey;
 import org.eclipse.equinox.internal.p2.metadata.expression.CompoundIterator;
 import org.eclipse.equinox.internal.p2.metadata.index.IndexProvider;
+import org.eclipse.equinox.internal.p2.repository.ArtifactCache;
 import org.eclipse.equinox.internal.p2.repository.DownloadStatus;
 import org.eclipse.equinox.internal.p2.repository.Transport;
 import org.eclipse.equinox.internal.p2.repository.helpers.ChecksumHelper;
@@ -110,14 +115,14 @@ public class SimpleArtifactRepository extends AbstractArtifactRepository impleme
 	/**
 	 * Does this instance of the repository currently hold a lock
 	 */
-	private boolean holdsLock = false;
+	private volatile boolean holdsLock = false;
 	/**
 	 * Does this instance of the repository can be locked.
 	 * It will be initialized when initializing the location for repository
 	 */
-	private Boolean canLock = null;
+	private volatile Boolean canLock = null;
 
-	private long cacheTimestamp = 0l;
+	private volatile long cacheTimestamp = 0l;
 
 	public class ArtifactOutputStream extends OutputStream implements IStateful {
 		private boolean closed;
@@ -127,15 +132,24 @@ public class SimpleArtifactRepository extends AbstractArtifactRepository impleme
 		private File file;
 		private IStatus status = Status.OK_STATUS;
 		private OutputStream firstLink;
+		private FileChannel channel;
 
 		public ArtifactOutputStream(OutputStream os, IArtifactDescriptor descriptor) {
 			this(os, descriptor, null);
 		}
 
 		public ArtifactOutputStream(OutputStream os, IArtifactDescriptor descriptor, File file) {
+			this(os, descriptor, file, null);
+		}
+
+		/**
+		 * @param channel the channel of the file the given stream writes to, or <code>null</code>
+		 */
+		public ArtifactOutputStream(OutputStream os, IArtifactDescriptor descriptor, File file, FileChannel channel) {
 			this.destination = os;
 			this.descriptor = descriptor;
 			this.file = file;
+			this.channel = channel;
 		}
 
 		@Override
@@ -203,6 +217,54 @@ public class SimpleArtifactRepository extends AbstractArtifactRepository impleme
 		public void setFirstLink(OutputStream value) {
 			firstLink = value;
 		}
+
+		/**
+		 * Returns whether bytes can be transferred from a file channel straight into the
+		 * file this stream writes to.
+		 */
+		public boolean canTransfer() {
+			return channel != null && !closed;
+		}
+
+		/**
+		 * Transfers bytes of the given channel to the file this stream writes to, letting the
+		 * operating system copy them when it can. Bytes written so far are flushed first.
+		 * 
+		 * @return the number of bytes transferred
+		 */
+		public long transferFrom(FileChannel source, long position, long length) throws IOException {
+			destination.flush();
+			long transferred = source.transferTo(position, length, channel);
+			count += transferred;
+			return transferred;
+		}
+
+		/**
+		 * Makes the file of this stream a hard link to the bytes with the given key in the shared
+		 * cache, or a copy of them, and closes the stream once the given verifier has accepted
+		 * the linked file. Nothing must have been written yet.
+		 * 
+		 * @return the status of the verifier, or <code>null</code> if the stream does not write to a file
+		 * or the cache does not hold the bytes
+		 */
+		public IStatus linkFrom(ArtifactCache cache, String key, Function<File, IStatus> verifier) throws IOException {
+			if (!canTransfer() || count > 0 || file == null)
+				return null;
+			// the file of the stream is already open, the link is made next to it and moved in place
+			File link = new File(file.getParentFile(), file.getName() + LINK_SUFFIX);
+			if (!cache.materialize(key, link))
+				return null;
+			IStatus verified = verifier.apply(link);
+			if (verified.matches(IStatus.ERROR | IStatus.CANCEL)) {
+				link.delete();
+				return verified;
+			}
+			destination.close();
+			Files.move(link.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			count = file.length();
+			close();
+			return verified;
+		}
 	}
 
 	// TODO: optimize
@@ -268,24 +330,31 @@ public class SimpleArtifactRepository extends AbstractArtifactRepository impleme
 			{"(& (classifier=binary))", "${repoUrl}/binary/${id}_${version}"}, //$NON-NLS-1$ //$NON-NLS-2$
 			{"(& (classifier=org.eclipse.update.feature))", "${repoUrl}/features/${id}_${version}.jar"}}; //$NON-NLS-1$//$NON-NLS-2$
 	private static final String JAR_EXTENSION = ".jar"; //$NON-NLS-1$
+	private static final String LINK_SUFFIX = ".link"; //$NON-NLS-1$
 	static final private String REPOSITORY_TYPE = IArtifactRepositoryManager.TYPE_SIMPLE_REPOSITORY;
 
 	static final private Integer REPOSITORY_VERSION = 1;
 	private static final String XML_EXTENSION = ".xml"; //$NON-NLS-1$
-	protected Set<SimpleArtifactDescriptor> artifactDescriptors = new HashSet<>();
+	protected volatile Set<SimpleArtifactDescriptor> artifactDescriptors = ConcurrentHashMap.newKeySet();
 	/**
-	 * Map<IArtifactKey,List<IArtifactDescriptor>> containing the index of artifacts in the repository.
+	 * Map<IArtifactKey,IArtifactDescriptor[]> containing the index of artifacts in the repository.
+	 * The arrays are never modified, the array of a key is replaced when its descriptors change,
+	 * so that the map can be read without holding the lock of the repository.
 	 */
-	private Map<IArtifactKey, List<IArtifactDescriptor>> artifactMap = new HashMap<>();
-	private transient BlobStore blobStore;
-	transient private Mapper mapper = new Mapper();
-	private KeyIndex keyIndex;
-	private boolean snapshotNeeded = false;
+	private volatile Map<IArtifactKey, IArtifactDescriptor[]> artifactMap = new ConcurrentHashMap<>();
+	private transient volatile BlobStore blobStore;
+	transient private volatile Mapper mapper = new Mapper();
+	private volatile VersionedKeyIndex keyIndex;
+	// incremented on each change to the artifact map, while holding the lock of the repository
+	private volatile int mapVersion;
 
 	static final private String PUBLISH_PACK_FILES_AS_SIBLINGS = "publishPackFilesAsSiblings"; //$NON-NLS-1$
 
 	private static final int DEFAULT_MAX_THREADS = 4;
 
+	// the number of bytes copied between two progress reports when a local file is transferred
+	private static final long TRANSFER_SIZE = 8 * 1024 * 1024;
+
 	protected String[][] mappingRules = DEFAULT_MAPPING_RULES;
 
 	private MirrorSelector mirrors;
@@ -317,11 +386,13 @@ public class SimpleArtifactRepository extends AbstractArtifactRepository impleme
 	}
 
 	/*
-	 * This is only called by the parser when loading a repository.
+	 * This is only called by the parser when loading a repository. The set of artifacts is
+	 * used as is rather than copied, the parser creates it safe for concurrent use.
 	 */
 	SimpleArtifactRepository(IProvisioningAgent agent, String name, String type, String version, String description, String provider, Set<SimpleArtifactDescriptor> artifacts, String[][] mappingRules, Map<String, String> properties) {
 		super(agent, name, type, version, null, description, provider, properties);
-		this.artifactDescriptors.addAll(artifacts);
+		this.artifactDescriptors = artifacts;
+		this.artifactMap = new ConcurrentHashMap<>(artifacts.size());
 		this.mappingRules = mappingRules;
 		for (SimpleArtifactDescriptor desc : artifactDescriptors)
 			mapDescriptor(desc);
@@ -329,41 +400,37 @@ public class SimpleArtifactRepository extends AbstractArtifactRepository impleme
 
 	private synchronized void mapDescriptor(IArtifactDescriptor descriptor) {
 		IArtifactKey key = descriptor.getArtifactKey();
-		if (snapshotNeeded) {
-			cloneAritfactMap();
-			snapshotNeeded = false;
-		}
-		List<IArtifactDescriptor> descriptors = artifactMap.get(key);
+		IArtifactDescriptor[] descriptors = artifactMap.get(key);
 		if (descriptors == null) {
-			descriptors = new ArrayList<>();
-			artifactMap.put(key, descriptors);
+			descriptors = new IArtifactDescriptor[] {descriptor};
+		} else {
+			descriptors = Arrays.copyOf(descriptors, descriptors.length + 1);
+			descriptors[descriptors.length - 1] = descriptor;
 		}
-		descriptors.add(descriptor);
-		keyIndex = null;
+		artifactMap.put(key, descriptors);
+		mapVersion++;
 	}
 
 	private synchronized void unmapDescriptor(IArtifactDescriptor descriptor) {
 		IArtifactKey key = descriptor.getArtifactKey();
-		List<IArtifactDescriptor> descriptors = artifactMap.get(key);
+		IArtifactDescriptor[] descriptors = artifactMap.get(key);
 		if (descriptors == null)
 			return;
 
-		if (snapshotNeeded) {
-			cloneAritfactMap();
-			snapshotNeeded = false;
-			descriptors = artifactMap.get(key);
+		for (int i = 0; i < descriptors.length; i++) {
+			if (descriptor.equals(descriptors[i])) {
+				if (descriptors.length == 1) {
+					artifactMap.remove(key);
+				} else {
+					IArtifactDescriptor[] remaining = new IArtifactDescriptor[descriptors.length - 1];
+					System.arraycopy(descriptors, 0, remaining, 0, i);
+					System.arraycopy(descriptors, i + 1, remaining, i, remaining.length - i);
+					artifactMap.put(key, remaining);
+				}
+				mapVersion++;
+				return;
+			}
 		}
-		descriptors.remove(descriptor);
-		if (descriptors.isEmpty())
-			artifactMap.remove(key);
-		keyIndex = null;
-	}
-
-	private void cloneAritfactMap() {
-		HashMap<IArtifactKey, List<IArtifactDescriptor>> clone = new HashMap<>(artifactMap.size());
-		for (Entry<IArtifactKey, List<IArtifactDescriptor>> entry : artifactMap.entrySet())
-			clone.put(entry.getKey(), new ArrayList<>(entry.getValue()));
-		artifactMap = clone;
 	}
 
 	public SimpleArtifactRepository(IProvisioningAgent agent, String repositoryName, URI location, Map<String, String> properties) {
@@ -534,7 +601,7 @@ public class SimpleArtifactRepository extends AbstractArtifactRepository impleme
 	}
 
 	@Override
-	public synchronized boolean contains(IArtifactDescriptor descriptor) {
+	public boolean contains(IArtifactDescriptor descriptor) {
 		if (!holdsLock() && URIUtil.isFileURI(getLocation())) {
 			load(new NullProgressMonitor());
 		}
@@ -543,14 +610,14 @@ public class SimpleArtifactRepository extends AbstractArtifactRepository impleme
 	}
 
 	@Override
-	public synchronized boolean contains(IArtifactKey key) {
+	public boolean contains(IArtifactKey key) {
 		if (!holdsLock() && URIUtil.isFileURI(getLocation())) {
 			load(new NullProgressMonitor());
 		}
 		return artifactMap.containsKey(key);
 	}
 
-	public synchronized URI createLocation(ArtifactDescriptor descriptor) {
+	public URI createLocation(ArtifactDescriptor descriptor) {
 		if (flatButPackedEnabled(descriptor)) {
 			return getLocationForPackedButFlatArtifacts(descriptor);
 		}
@@ -603,6 +670,14 @@ public class SimpleArtifactRepository extends AbstractArtifactRepository impleme
 	}
 
 	protected IStatus downloadArtifact(IArtifactDescriptor descriptor, OutputStream destination, IProgressMonitor monitor) {
+		return downloadArtifact(descriptor, destination, null, null, monitor);
+	}
+
+	/**
+	 * Downloads an artifact, adding its bytes to the given cache under the given key when the
+	 * download is successful.
+	 */
+	private IStatus downloadArtifact(IArtifactDescriptor descriptor, OutputStream destination, ArtifactCache cache, String key, IProgressMonitor monitor) {
 		if (isFolderBased(descriptor)) {
 			File artifactFolder = getArtifactFile(descriptor);
 			if (artifactFolder == null) {
@@ -641,8 +716,18 @@ public class SimpleArtifactRepository extends AbstractArtifactRepository impleme
 		if (baseLocation == null)
 			return new Status(IStatus.ERROR, Activator.ID, NLS.bind(Messages.no_location, descriptor));
 		URI mirrorLocation = getMirror(baseLocation, monitor);
-		IStatus status = downloadArtifact(mirrorLocation, destination, monitor);
-		IStatus result = reportStatus(descriptor, destination, status);
+		ArtifactCache.Entry entry = cache != null ? cache.newEntry(key, destination) : null;
+		IStatus status;
+		IStatus result;
+		try {
+			status = downloadArtifact(mirrorLocation, entry != null ? entry : destination, monitor);
+			result = reportStatus(descriptor, destination, status);
+			if (entry != null && status.isOK() && !result.matches(IStatus.ERROR | IStatus.CANCEL))
+				entry.commit();
+		} finally {
+			if (entry != null)
+				entry.discard();
+		}
 		// if the original download went reasonably but the reportStatus found some issues
 		// (e..g, in the processing steps/validators) then mark the mirror as bad and return
 		// a retry code (assuming we have more mirrors)
@@ -694,10 +779,15 @@ public class SimpleArtifactRepository extends AbstractArtifactRepository impleme
 			long start = System.currentTimeMillis();
 
 			try (FileInputStream stream = new FileInputStream(in)) {
-				int len;
-				while ((len = stream.read(buffer)) != -1) {
-					out.write(buffer, 0, len);
-					sub.worked(1);
+				// nothing has to see the bytes when they go straight into another repository
+				if (out instanceof ArtifactOutputStream && ((ArtifactOutputStream) out).canTransfer())
+					transferFile(stream.getChannel(), (ArtifactOutputStream) out, bufferSize, sub);
+				else {
+					int len;
+					while ((len = stream.read(buffer)) != -1) {
+						out.write(buffer, 0, len);
+						sub.worked(1);
+					}
 				}
 			}
 			long end = System.currentTimeMillis();
@@ -711,15 +801,38 @@ public class SimpleArtifactRepository extends AbstractArtifactRepository impleme
 		return status;
 	}
 
+	/**
+	 * Copy a file to the file of an artifact stream, the bytes not going through the heap.
+	 * The copy is done in slices so that progress can be reported.
+	 */
+	private static void transferFile(FileChannel source, ArtifactOutputStream out, int bufferSize, SubMonitor monitor) throws IOException {
+		long size = source.size();
+		long position = 0;
+		while (position < size) {
+			long transferred = out.transferFrom(source, position, Math.min(TRANSFER_SIZE, size - position));
+			// the file has been truncated in the meantime
+			if (transferred <= 0)
+				break;
+			position += transferred;
+			monitor.worked((int) (transferred / bufferSize));
+		}
+	}
+
 	private IStatus downloadArtifact(URI mirrorLocation, OutputStream destination, IProgressMonitor monitor) {
 		//Bug 340352: transport has performance overhead of 100ms and more, bypass it for local copies
 		IStatus result = Status.OK_STATUS;
+		URI location = mirrorLocation;
 		if (SimpleArtifactRepositoryFactory.PROTOCOL_FILE.equals(mirrorLocation.getScheme()))
 			result = copyFileToStream(new File(mirrorLocation), destination, monitor);
-		else
-			result = getTransport().download(mirrorLocation, destination, monitor);
+		else if (mirrors != null) {
+			// the download goes to a second mirror when the first one is unusually slow to answer
+			HedgedDownload download = new HedgedDownload(mirrors, this::transfer);
+			result = download.run(mirrorLocation, destination, monitor);
+			location = download.getLocation();
+		} else
+			result = transfer(mirrorLocation, destination, monitor);
 		if (mirrors != null)
-			mirrors.reportResult(mirrorLocation.toString(), result);
+			mirrors.reportResult(location.toString(), result);
 		if (result.isOK() || result.getSeverity() == IStatus.CANCEL)
 			return result;
 		if (monitor.isCanceled())
@@ -733,6 +846,18 @@ public class SimpleArtifactRepository extends AbstractArtifactRepository impleme
 		return result;
 	}
 
+	private IStatus transfer(URI location, OutputStream destination, IProgressMonitor monitor) {
+		return transfer(location, destination, monitor, null);
+	}
+
+	private IStatus transfer(URI location, OutputStream destination, IProgressMonitor monitor, Runnable started) {
+		return getDownloadExecutor().transfer(location, () -> {
+			if (started != null)
+				started.run();
+			return getTransport().download(location, destination, monitor);
+		});
+	}
+
 	/**
 	 * Returns an equivalent mirror location for the given artifact location.
 	 * @param baseLocation The location of the artifact in this repository
@@ -767,13 +892,92 @@ public class SimpleArtifactRepository extends AbstractArtifactRepository impleme
 		}
 		if (monitor.isCanceled())
 			return Status.CANCEL_STATUS;
+		ArtifactCache cache = ArtifactCache.getDefault();
+		String key = cache != null ? ArtifactCache.getKey(descriptor) : null;
+		if (key != null) {
+			IStatus cached = getCachedArtifact(cache, key, descriptor, destination, monitor);
+			if (cached != null)
+				return cached;
+		}
 		ProcessingStepHandler handler = new ProcessingStepHandler();
 		destination = processDestination(handler, descriptor, destination, monitor);
 		IStatus status = ProcessingStepHandler.checkStatus(destination);
 		if (!status.isOK() && status.getSeverity() != IStatus.INFO)
 			return status;
 
-		return downloadArtifact(descriptor, destination, monitor);
+		// the downloaded bytes are shared once the processing steps, including the signature
+		// verification, have accepted them
+		return downloadArtifact(descriptor, destination, key != null && !isLocal() ? cache : null, key, monitor);
+	}
+
+	/**
+	 * Gets an artifact from the shared cache of downloaded artifacts. An artifact going into
+	 * the file of another repository without being processed is hard linked once its bytes
+	 * have been through the verifiers of the descriptor, otherwise the bytes go through the
+	 * processing steps as they would when downloaded.
+	 * 
+	 * @return the status, or <code>null</code> if the artifact is not in the cache
+	 */
+	private IStatus getCachedArtifact(ArtifactCache cache, String key, IArtifactDescriptor descriptor, OutputStream destination, IProgressMonitor monitor) {
+		if (destination instanceof ArtifactOutputStream && descriptor.getProcessingSteps().length == 0) {
+			ArtifactOutputStream stream = (ArtifactOutputStream) destination;
+			try {
+				IStatus verified = stream.linkFrom(cache, key, link -> verifyArtifact(descriptor, link, monitor));
+				if (verified != null && verified.matches(IStatus.CANCEL))
+					return verified;
+				if (verified != null && verified.matches(IStatus.ERROR)) {
+					// the bytes have been accepted with another descriptor, they are downloaded again
+					cache.remove(key);
+					return null;
+				}
+				if (verified != null) {
+					DownloadStatus status = new DownloadStatus(IStatus.OK, Activator.ID, Status.OK_STATUS.getMessage());
+					status.setFileSize(stream.count);
+					return status;
+				}
+			} catch (IOException e) {
+				return new Status(IStatus.ERROR, Activator.ID, NLS.bind(Messages.error_copying_local_file, cache.getLocation()), e);
+			}
+		}
+		File cached = cache.get(key);
+		if (cached == null)
+			return null;
+		ProcessingStepHandler handler = new ProcessingStepHandler();
+		destination = processDestination(handler, descriptor, destination, monitor);
+		IStatus status = ProcessingStepHandler.checkStatus(destination);
+		if (!status.isOK() && status.getSeverity() != IStatus.INFO)
+			return status;
+		status = reportStatus(descriptor, destination, copyFileToStream(cached, destination, monitor));
+		if (status.matches(IStatus.ERROR)) {
+			// let the artifact be downloaded again
+			cache.remove(key);
+			return new MultiStatus(Activator.ID, CODE_RETRY, new IStatus[] {status}, "Retry without the shared cache", null); //$NON-NLS-1$
+		}
+		return status;
+	}
+
+	/**
+	 * Runs the bytes of the given file through the verifiers of the given descriptor, the
+	 * checksums and the signature, without writing them anywhere.
+	 */
+	private IStatus verifyArtifact(IArtifactDescriptor descriptor, File file, IProgressMonitor monitor) {
+		OutputStream sink = new OutputStream() {
+			@Override
+			public void write(int b) {
+				// only verified
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) {
+				// only verified
+			}
+		};
+		ProcessingStepHandler handler = new ProcessingStepHandler();
+		OutputStream verifiers = processDestination(handler, descriptor, sink, monitor);
+		IStatus status = ProcessingStepHandler.checkStatus(verifiers);
+		if (!status.isOK() && status.getSeverity() != IStatus.INFO)
+			return status;
+		return reportStatus(descriptor, verifiers, copyFileToStream(file, verifiers, monitor));
 	}
 
 	@Override
@@ -787,16 +991,16 @@ public class SimpleArtifactRepository extends AbstractArtifactRepository impleme
 	}
 
 	@Override
-	public synchronized IArtifactDescriptor[] getArtifactDescriptors(IArtifactKey key) {
+	public IArtifactDescriptor[] getArtifactDescriptors(IArtifactKey key) {
 		if (!holdsLock() && URIUtil.isFileURI(getLocation())) {
 			load(new NullProgressMonitor());
 		}
 
-		List<IArtifactDescriptor> result = artifactMap.get(key);
+		IArtifactDescriptor[] result = artifactMap.get(key);
 		if (result == null)
 			return new IArtifactDescriptor[0];
 
-		return result.toArray(new IArtifactDescriptor[result.size()]);
+		return result.clone();
 	}
 
 	@Override
@@ -824,7 +1028,6 @@ public class SimpleArtifactRepository extends AbstractArtifactRepository impleme
 			return Status.CANCEL_STATUS;
 
 		final MultiStatus overallStatus = new MultiStatus(Activator.ID, IStatus.OK, NLS.bind(Messages.message_problemReadingArtifact, getLocation()), null);
-		LinkedList<IArtifactRequest> requestsPending = new LinkedList<>(Arrays.asList(requests));
 
 		int numberOfJobs = Math.min(requests.length, getMaximumThreads());
 		if (numberOfJobs <= 1 || (!isForceThreading() && isLocal())) {
@@ -841,21 +1044,9 @@ public class SimpleArtifactRepository extends AbstractArtifactRepository impleme
 				subMonitor.done();
 			}
 		} else {
-			// initialize the various jobs needed to process the get artifact requests
 			monitor.beginTask(NLS.bind(Messages.sar_downloading, Integer.toString(requests.length)), requests.length);
 			try {
-				DownloadJob jobs[] = new DownloadJob[numberOfJobs];
-				for (int i = 0; i < numberOfJobs; i++) {
-					jobs[i] = new DownloadJob(Messages.sar_downloadJobName + i);
-					jobs[i].initialize(this, requestsPending, monitor, overallStatus);
-					jobs[i].schedule();
-				}
-				// wait for all the jobs to complete
-				try {
-					Job.getJobManager().join(DownloadJob.FAMILY, null);
-				} catch (InterruptedException e) {
-					//ignore
-				}
+				getDownloadExecutor().execute(this, requests, numberOfJobs, monitor, overallStatus);
 			} finally {
 				monitor.done();
 			}
@@ -869,11 +1060,11 @@ public class SimpleArtifactRepository extends AbstractArtifactRepository impleme
 			return overallStatus;
 	}
 
-	public synchronized IArtifactDescriptor getCompleteArtifactDescriptor(IArtifactKey key) {
+	public IArtifactDescriptor getCompleteArtifactDescriptor(IArtifactKey key) {
 		if (!holdsLock() && URIUtil.isFileURI(getLocation())) {
 			load(new NullProgressMonitor());
 		}
-		List<IArtifactDescriptor> descriptors = artifactMap.get(key);
+		IArtifactDescriptor[] descriptors = artifactMap.get(key);
 		if (descriptors == null)
 			return null;
 
@@ -885,7 +1076,7 @@ public class SimpleArtifactRepository extends AbstractArtifactRepository impleme
 		return null;
 	}
 
-	public synchronized Set<SimpleArtifactDescriptor> getDescriptors() {
+	public Set<SimpleArtifactDescriptor> getDescriptors() {
 		if (!holdsLock() && URIUtil.isFileURI(getLocation())) {
 			load(new NullProgressMonitor());
 		}
@@ -899,7 +1090,7 @@ public class SimpleArtifactRepository extends AbstractArtifactRepository impleme
 	 * this arrangement "flat but packed".
 	 */
 	private boolean flatButPackedEnabled(IArtifactDescriptor descriptor) {
-		return Boolean.TRUE.toString().equals(getProperties().get(PUBLISH_PACK_FILES_AS_SIBLINGS)) && IArtifactDescriptor.FORMAT_PACKED.equals(descriptor.getProperty(IArtifactDescriptor.FORMAT));
+		return Boolean.TRUE.toString().equals(getProperty(PUBLISH_PACK_FILES_AS_SIBLINGS)) && IArtifactDescriptor.FORMAT_PACKED.equals(descriptor.getProperty(IArtifactDescriptor.FORMAT));
 	}
 
 	/**
@@ -910,7 +1101,7 @@ public class SimpleArtifactRepository extends AbstractArtifactRepository impleme
 		return mapper.map(getLocation(), key.getClassifier(), key.getId(), key.getVersion().toString(), descriptor.getProperty(IArtifactDescriptor.FORMAT));
 	}
 
-	public synchronized URI getLocation(IArtifactDescriptor descriptor) {
+	public URI getLocation(IArtifactDescriptor descriptor) {
 		// if the artifact has a uuid then use it
 		String uuid = descriptor.getProperty(ARTIFACT_UUID);
 		if (uuid != null)
@@ -1026,7 +1217,8 @@ public class SimpleArtifactRepository extends AbstractArtifactRepository impleme
 
 			// finally create and return an output stream suitably wrapped so that when it is 
 			// closed the repository is updated with the descriptor
-			return new ArtifactOutputStream(new BufferedOutputStream(target), newDescriptor, outputFile);
+			FileChannel channel = target instanceof FileOutputStream ? ((FileOutputStream) target).getChannel() : null;
+			return new ArtifactOutputStream(new BufferedOutputStream(target), newDescriptor, outputFile, channel);
 		} catch (IOException e) {
 			throw failedWrite(e);
 		}
@@ -1063,6 +1255,12 @@ public class SimpleArtifactRepository extends AbstractArtifactRepository impleme
 		return (Transport) getProvisioningAgent().getService(Transport.SERVICE_NAME);
 	}
 
+	private DownloadExecutor getDownloadExecutor() {
+		IProvisioningAgent agent = getProvisioningAgent();
+		DownloadExecutor executor = agent != null ? (DownloadExecutor) agent.getService(DownloadExecutor.SERVICE_NAME) : null;
+		return executor != null ? executor : DownloadExecutor.getDefault();
+	}
+
 	// use this method to setup any transient fields etc after the object has been restored from a stream
 	public synchronized void initializeAfterLoad(URI repoLocation) {
 		this.initializeAfterLoad(repoLocation, true);
@@ -1110,7 +1308,7 @@ public class SimpleArtifactRepository extends AbstractArtifactRepository impleme
 	}
 
 	private boolean isForceThreading() {
-		return "true".equals(getProperties().get(PROP_FORCE_THREADING)); //$NON-NLS-1$
+		return "true".equals(getProperty(PROP_FORCE_THREADING)); //$NON-NLS-1$
 	}
 
 	private boolean isLocal() {
@@ -1374,11 +1572,8 @@ public class SimpleArtifactRepository extends AbstractArtifactRepository impleme
 	@Override
 	public IQueryable<IArtifactDescriptor> descriptorQueryable() {
 		return (query, monitor) -> {
-			synchronized (SimpleArtifactRepository.this) {
-				snapshotNeeded = true;
-				Collection<List<IArtifactDescriptor>> descs = SimpleArtifactRepository.this.artifactMap.values();
-				return query.perform(new CompoundIterator<IArtifactDescriptor>(descs.iterator()));
-			}
+			Collection<IArtifactDescriptor[]> descs = SimpleArtifactRepository.this.artifactMap.values();
+			return query.perform(new CompoundIterator<IArtifactDescriptor>(descs.iterator()));
 		};
 	}
 
@@ -1388,11 +1583,10 @@ public class SimpleArtifactRepository extends AbstractArtifactRepository impleme
 	}
 
 	@Override
-	public synchronized Iterator<IArtifactKey> everything() {
+	public Iterator<IArtifactKey> everything() {
 		if (!holdsLock() && URIUtil.isFileURI(getLocation())) {
 			load(new NullProgressMonitor());
 		}
-		snapshotNeeded = true;
 		return artifactMap.keySet().iterator();
 	}
 
@@ -1436,19 +1630,37 @@ public class SimpleArtifactRepository extends AbstractArtifactRepository impleme
 	}
 
 	@Override
-	public synchronized IIndex<IArtifactKey> getIndex(String memberName) {
+	public IIndex<IArtifactKey> getIndex(String memberName) {
 		if (!holdsLock() && URIUtil.isFileURI(getLocation())) {
 			load(new NullProgressMonitor());
 		}
 		if (ArtifactKey.MEMBER_ID.equals(memberName)) {
-			snapshotNeeded = true;
-			if (keyIndex == null)
-				keyIndex = new KeyIndex(artifactMap.keySet());
-			return keyIndex;
+			// the version is read before the map, an index built while the map changes is
+			// therefore dropped by the next call
+			int version = mapVersion;
+			VersionedKeyIndex index = keyIndex;
+			if (index == null || index.version != version) {
+				index = new VersionedKeyIndex(version, new KeyIndex(artifactMap.keySet()));
+				keyIndex = index;
+			}
+			return index.index;
 		}
 		return null;
 	}
 
+	/**
+	 * The index of the artifact keys together with the version of the artifact map it was built from.
+	 */
+	private static final class VersionedKeyIndex {
+		final int version;
+		final KeyIndex index;
+
+		VersionedKeyIndex(int version, KeyIndex index) {
+			this.version = version;
+			this.index = index;
+		}
+	}
+
 	@Override
 	public Object getManagedProperty(Object client, String memberName, Object key) {
 		return null;
@@ -1572,10 +1784,28 @@ public class SimpleArtifactRepository extends AbstractArtifactRepository impleme
 	 * @param monitor
 	 */
 	private void load(IProgressMonitor monitor) {
-		if (!holdsLock())
-			doLoad(monitor);
-		else
+		// the repository on disk is usually unchanged, which is checked without holding the lock
+		// so that lookups do not wait for the threads changing the repository
+		if (holdsLock() || !isModifiedOnDisk()) {
 			monitor.done();
+			return;
+		}
+		synchronized (this) {
+			if (!holdsLock())
+				doLoad(monitor);
+			else
+				monitor.done();
+		}
+	}
+
+	private boolean isModifiedOnDisk() {
+		try {
+			File localFile = new SimpleArtifactRepositoryFactory().getLocalFile(getLocation(), new NullProgressMonitor());
+			return localFile.lastModified() > cacheTimestamp;
+		} catch (Exception e) {
+			// doLoad does not load the repository either
+			return false;
+		}
 	}
 
 	private void updateTimestamp() {
@@ -1643,6 +1873,7 @@ public class SimpleArtifactRepository extends AbstractArtifactRepository impleme
 				//
 				this.artifactDescriptors = ((SimpleArtifactRepository) repositoryOnDisk).artifactDescriptors;
 				this.artifactMap = ((SimpleArtifactRepository) repositoryOnDisk).artifactMap;
+				mapVersion++;
 			}
 		} finally {
 			monitor.done();
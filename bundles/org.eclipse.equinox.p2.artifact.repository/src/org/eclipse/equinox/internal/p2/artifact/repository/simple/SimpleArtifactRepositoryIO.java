@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2018 IBM Corporation and others.
+ * Copyright (c) 2007, 2026 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -16,6 +16,7 @@ package org.eclipse.equinox.internal.p2.artifact.repository.simple;
 import java.io.*;
 import java.net.URI;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.xml.parsers.ParserConfigurationException;
 import org.eclipse.core.runtime.*;
 import org.eclipse.equinox.internal.p2.artifact.repository.Activator;
@@ -47,14 +48,28 @@ import org.xml.sax.*;
 //		 for getting a repository reader/writer given a repository type
 public class SimpleArtifactRepositoryIO {
 
+	/**
+	 * System property enabling the compact mode. The properties of the descriptors read in
+	 * this mode are held packed, see {@link PackedProperties}, until they are changed, and
+	 * are written back from their packed form when the repository is saved.
+	 */
+	public static final String PROP_COMPACT_DESCRIPTORS = "eclipse.p2.artifacts.compact"; //$NON-NLS-1$
+
 	private final IProvisioningAgent agent;
 	private Location lockLocation = null;
 	static final IProcessingStepDescriptor[] EMPTY_STEPS = new ProcessingStepDescriptor[0];
+	// property values from that length on, such as checksums, are not shared while parsing
+	static final int MAX_SHARED_LENGTH = 32;
 
 	public SimpleArtifactRepositoryIO(IProvisioningAgent agent) {
 		this.agent = agent;
 	}
 
+	private static boolean isCompact() {
+		BundleContext context = Activator.getContext();
+		return Boolean.parseBoolean(context != null ? context.getProperty(PROP_COMPACT_DESCRIPTORS) : System.getProperty(PROP_COMPACT_DESCRIPTORS));
+	}
+
 	/**
 	 * Writes the given artifact repository to the stream.
 	 * This method performs buffering, and closes the stream when finished.
@@ -96,13 +111,13 @@ public class SimpleArtifactRepositoryIO {
 					if (canLock(location) && acquireLock) {
 						lock = lock(location, true, monitor);
 						if (lock) {
-							repositoryParser.parse(input);
+							repositoryParser.parse(bufferedInput);
 							result = repositoryParser.getStatus();
 						} else {
 							result = Status.CANCEL_STATUS;
 						}
 					} else {
-						repositoryParser.parse(input);
+						repositoryParser.parse(bufferedInput);
 						result = repositoryParser.getStatus();
 					}
 				} finally {
@@ -269,8 +284,9 @@ public class SimpleArtifactRepositoryIO {
 				attribute(ID_ATTRIBUTE, key.getId());
 				attribute(VERSION_ATTRIBUTE, key.getVersion());
 				writeProcessingSteps(descriptor.getProcessingSteps());
-				writeProperties(descriptor.getProperties());
-				writeProperties(REPOSITORY_PROPERTIES_ELEMENT, descriptor.getRepositoryProperties());
+				// the properties are written as they are held, getProperties() would copy them
+				writeProperties(descriptor.getStoredProperties());
+				writeProperties(REPOSITORY_PROPERTIES_ELEMENT, descriptor.getStoredRepositoryProperties());
 				end(ARTIFACT_ELEMENT);
 			}
 			end(ARTIFACTS_ELEMENT);
@@ -300,10 +316,33 @@ public class SimpleArtifactRepositoryIO {
 
 		private SimpleArtifactRepository theRepository = null;
 
+		// the keys and the strings repeated from one artifact to the next, held once
+		private final Map<Object, Object> shared = new HashMap<>();
+		// the strings of the packed properties, in compact mode
+		final PackedProperties.Dictionary dictionary = isCompact() ? new PackedProperties.Dictionary() : null;
+
 		public Parser(BundleContext context, String bundleId) {
 			super(context, bundleId);
 		}
 
+		@SuppressWarnings("unchecked")
+		<T> T share(T value) {
+			Object existing = shared.putIfAbsent(value, value);
+			return existing != null ? (T) existing : value;
+		}
+
+		/**
+		 * Replaces the values of the given properties by the equal values already read.
+		 * Long values, such as checksums, are not shared as they hardly ever repeat.
+		 */
+		OrderedProperties shareValues(OrderedProperties properties) {
+			for (Map.Entry<String, String> property : properties.entrySet()) {
+				if (property.getValue().length() < MAX_SHARED_LENGTH)
+					property.setValue(share(property.getValue()));
+			}
+			return properties;
+		}
+
 		public synchronized void parse(InputStream stream) throws IOException {
 			this.status = null;
 			try {
@@ -313,6 +352,8 @@ public class SimpleArtifactRepositoryIO {
 				RepositoryHandler repositoryHandler = new RepositoryHandler();
 				xmlReader.setContentHandler(new RepositoryDocHandler(REPOSITORY_ELEMENT, repositoryHandler));
 				xmlReader.parse(new InputSource(stream));
+				if (dictionary != null)
+					dictionary.close();
 				if (isValidXML()) {
 					theRepository = repositoryHandler.getRepository();
 				}
@@ -419,7 +460,7 @@ public class SimpleArtifactRepositoryIO {
 							: mappingRulesHandler.getMappingRules());
 					Map<String, String> properties = (propertiesHandler == null ? new OrderedProperties(0) //
 							: propertiesHandler.getProperties());
-					Set<SimpleArtifactDescriptor> artifacts = (artifactsHandler == null ? new HashSet<>(0) //
+					Set<SimpleArtifactDescriptor> artifacts = (artifactsHandler == null ? ConcurrentHashMap.newKeySet() //
 							: artifactsHandler.getArtifacts());
 					repository = new SimpleArtifactRepository(agent, attrValues[0], attrValues[1], attrValues[2], attrValues[3], //
 							attrValues[4], artifacts, mappingRules, properties);
@@ -478,7 +519,8 @@ public class SimpleArtifactRepositoryIO {
 			public ArtifactsHandler(AbstractHandler parentHandler, Attributes attributes) {
 				super(parentHandler, ARTIFACTS_ELEMENT);
 				String size = parseOptionalAttribute(attributes, COLLECTION_SIZE_ATTRIBUTE);
-				artifacts = (size != null ? new LinkedHashSet<>(Integer.parseInt(size)) : new LinkedHashSet<>(4));
+				// the set is used as is by the repository
+				artifacts = (size != null ? ConcurrentHashMap.newKeySet(Integer.parseInt(size)) : ConcurrentHashMap.newKeySet(4));
 			}
 
 			public Set<SimpleArtifactDescriptor> getArtifacts() {
@@ -512,7 +554,7 @@ public class SimpleArtifactRepositoryIO {
 				String[] values = parseRequiredAttributes(attributes, required);
 				Version version = checkVersion(ARTIFACT_ELEMENT, VERSION_ATTRIBUTE, values[2]);
 				// TODO: resolve access restriction on ArtifactKey construction
-				currentArtifact = new SimpleArtifactDescriptor(new ArtifactKey(values[0], values[1], version));
+				currentArtifact = new SimpleArtifactDescriptor(share(new ArtifactKey(share(values[0]), values[1], version)));
 			}
 
 			@Override
@@ -543,11 +585,17 @@ public class SimpleArtifactRepositoryIO {
 			@Override
 			protected void finished() {
 				if (isValidXML() && currentArtifact != null) {
-					Map<String, String> properties = (propertiesHandler == null ? new OrderedProperties(0) : propertiesHandler.getProperties());
-					currentArtifact.addProperties(properties);
-
-					properties = (repositoryPropertiesHandler == null ? new OrderedProperties(0) : repositoryPropertiesHandler.getProperties());
-					currentArtifact.addRepositoryProperties(properties);
+					if (dictionary != null) {
+						if (propertiesHandler != null && !propertiesHandler.getProperties().isEmpty())
+							currentArtifact.adoptProperties(dictionary.pack(propertiesHandler.getProperties()));
+						if (repositoryPropertiesHandler != null)
+							currentArtifact.adoptRepositoryProperties(dictionary.pack(repositoryPropertiesHandler.getProperties()));
+					} else {
+						if (propertiesHandler != null)
+							currentArtifact.adoptProperties(shareValues(propertiesHandler.getProperties()));
+						if (repositoryPropertiesHandler != null)
+							currentArtifact.addRepositoryProperties(shareValues(repositoryPropertiesHandler.getProperties()));
+					}
 
 					IProcessingStepDescriptor[] processingSteps = (processingStepsHandler == null ? EMPTY_STEPS //
 							: processingStepsHandler.getProcessingSteps());
@@ -1,5 +1,5 @@
 /*******************************************************************************
-* Copyright (c) 2007, 2017 compeople AG and others.
+* Copyright (c) 2007, 2026 compeople AG and others.
 *
 * This program and the accompanying materials
 * are made available under the terms of the Eclipse Public License 2.0
@@ -17,6 +17,7 @@ package org.eclipse.equinox.internal.provisional.p2.artifact.repository.processi
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import org.eclipse.core.runtime.*;
 import org.eclipse.equinox.internal.provisional.p2.repository.IStateful;
 import org.eclipse.equinox.p2.core.IProvisioningAgent;
@@ -30,6 +31,8 @@ import org.eclipse.equinox.p2.repository.artifact.IProcessingStepDescriptor;
  */
 public abstract class ProcessingStep extends OutputStream implements IStateful {
 
+	private static final int BLOCK_SIZE = 16 * 1024;
+
 	private OutputStream destination;
 	private IProgressMonitor monitor;
 	private IStatus status = Status.OK_STATUS;
@@ -69,6 +72,28 @@ public abstract class ProcessingStep extends OutputStream implements IStateful {
 		// nothing to do here!
 	}
 
+	/**
+	 * Process the remaining bytes of the given buffer and pass the result on to the configured
+	 * destination stream. The position of the buffer is advanced to its limit.
+	 * The bytes are handed to {@link #write(byte[], int, int)}, which steps able to
+	 * process a block of bytes at once override.
+	 * @param buffer the bytes being written
+	 * @since 1.3
+	 */
+	public void write(ByteBuffer buffer) throws IOException {
+		if (buffer.hasArray()) {
+			write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+			buffer.position(buffer.limit());
+			return;
+		}
+		byte[] block = new byte[Math.min(buffer.remaining(), BLOCK_SIZE)];
+		while (buffer.hasRemaining()) {
+			int len = Math.min(buffer.remaining(), block.length);
+			buffer.get(block, 0, len);
+			write(block, 0, len);
+		}
+	}
+
 	/** 
 	 * Flush any unwritten data from this stream.
 	 */
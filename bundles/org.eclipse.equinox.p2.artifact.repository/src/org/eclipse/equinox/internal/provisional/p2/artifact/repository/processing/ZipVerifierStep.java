@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2017 IBM Corporation and others.
+ * Copyright (c) 2008, 2026 IBM Corporation and others.
  *
  * This
  * program and the accompanying materials are made available under the terms of
@@ -38,6 +38,17 @@ public class ZipVerifierStep extends ProcessingStep {
 		}
 	}
 
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		getDestination().write(b, off, len);
+		for (int i = 0; i < len && valid >= 0 && valid <= 3; i++) {
+			if ((b[off + i] & 0xFF) != ZIP_HEADER[valid++]) {
+				valid = -1;
+				setStatus(new Status(IStatus.ERROR, Activator.ID, Messages.ZipVerifierStep_invalid_archive));
+			}
+		}
+	}
+
 	@Override
 	public void close() throws IOException {
 		if (valid > 3) {
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2013, 2018 Rapicorp Inc. and others. 
+ * Copyright (c) 2013, 2026 Rapicorp Inc. and others. 
  *
  * This
  * program and the accompanying materials are made available under the terms of
@@ -31,15 +31,21 @@ public class OptimizationFunction {
 	private int numberOfInstalledIUs; //TODO this should be renamed to consideredIUs or sliceSize
 	private IQueryable<IInstallableUnit> lastState;
 	private List<AbstractVariable> optionalRequirementVariable;
+	private RequirementMatchCache matchCache;
 
 	public OptimizationFunction(IQueryable<IInstallableUnit> lastState, List<AbstractVariable> abstractVariables, List<AbstractVariable> optionalRequirementVariable, IQueryable<IInstallableUnit> picker, IInstallableUnit selectionContext, Map<String, Map<Version, IInstallableUnit>> slice) {
 		this.lastState = lastState;
 		this.optionalRequirementVariable = optionalRequirementVariable;
 		this.picker = picker;
+		this.matchCache = new RequirementMatchCache(picker);
 		this.selectionContext = selectionContext;
 		this.slice = slice;
 	}
 
+	public void setMatchCache(RequirementMatchCache matchCache) {
+		this.matchCache = matchCache;
+	}
+
 	//Create an optimization function favoring the highest version of each IU
 	public List<WeightedObject<? extends Object>> createOptimizationFunction(IInstallableUnit metaIu, Collection<IInstallableUnit> newRoots) {
 		numberOfInstalledIUs = sizeOf(lastState);
@@ -49,7 +55,9 @@ public class OptimizationFunction {
 		if (newRoots.isEmpty()) {
 			transitiveClosure = Collections.emptySet();
 		} else {
-			IQueryable<IInstallableUnit> queryable = new Slicer(picker, selectionContext, false).slice(newRoots.toArray(new IInstallableUnit[newRoots.size()]), new NullProgressMonitor());
+			Slicer slicer = new Slicer(picker, selectionContext, false);
+			slicer.setMatchCache(matchCache);
+			IQueryable<IInstallableUnit> queryable = slicer.slice(newRoots.toArray(new IInstallableUnit[newRoots.size()]), new NullProgressMonitor());
 			if (queryable == null) {
 				transitiveClosure = Collections.emptySet();
 			} else {
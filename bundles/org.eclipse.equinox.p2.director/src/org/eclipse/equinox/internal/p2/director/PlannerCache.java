@@ -0,0 +1,373 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.internal.p2.director;
+
+import java.net.URI;
+import java.util.*;
+import java.util.function.Consumer;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.equinox.internal.p2.core.helpers.Tracing;
+import org.eclipse.equinox.p2.core.IProvisioningAgent;
+import org.eclipse.equinox.p2.engine.*;
+import org.eclipse.equinox.p2.metadata.IInstallableUnit;
+import org.eclipse.equinox.p2.query.IQueryable;
+import org.eclipse.equinox.p2.repository.IRepository;
+import org.eclipse.equinox.p2.repository.metadata.IMetadataRepositoryManager;
+
+/**
+ * Remembers the provisioning plans computed by a planner, so that asking again for
+ * the same change of the same profile state with the same repositories returns a copy
+ * of the previous plan instead of slicing and solving the problem again.
+ * <p>
+ * A plan is looked up by a fingerprint of the profile (its id and timestamp), of the
+ * installer profile when there is one, of the change request, and of the provisioning
+ * context: its properties, its extra units, the artifact repositories it names, and
+ * the location and timestamp of each metadata repository it names. Nothing is loaded
+ * to compute a fingerprint: the timestamp of a repository is only known while the
+ * manager holds it loaded, so the plan is remembered under the fingerprint computed
+ * once planning has loaded the repositories. A repository that is modified or reloaded
+ * with other contents has another timestamp and therefore invalidates the plans
+ * computed from it. Plans depending on repositories without a timestamp, or on the
+ * repositories they reference, are not remembered.
+ * </p>
+ * <p>
+ * Plans are created through {@link #createPlan(IEngine, IProfile, ProvisioningContext)},
+ * which records the operations added to them. A remembered plan is never handed out
+ * itself: {@link #get(Fingerprint, ProvisioningContext)} replays its operations on a new
+ * plan bound to the context of the caller.
+ * </p>
+ * <p>
+ * The cache is disabled unless {@link #PROP_CACHE_SIZE} is set to a positive number
+ * of plans. The least recently used plans are evicted first.
+ * </p>
+ */
+public class PlannerCache {
+	/**
+	 * System property specifying the number of plans to keep. The cache is disabled
+	 * when the property is not set or not positive.
+	 */
+	public static final String PROP_CACHE_SIZE = "eclipse.p2.planner.cacheSize"; //$NON-NLS-1$
+
+	private final int maxSize;
+	private final Map<Fingerprint, RecordingPlan> plans;
+	private int hits;
+	private int misses;
+
+	public PlannerCache(int maxSize) {
+		this.maxSize = maxSize;
+		this.plans = new LinkedHashMap<Fingerprint, RecordingPlan>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Fingerprint, RecordingPlan> eldest) {
+				return size() > PlannerCache.this.maxSize;
+			}
+		};
+	}
+
+	/**
+	 * Returns a cache sized according to {@link #PROP_CACHE_SIZE}.
+	 */
+	public static PlannerCache create() {
+		String value = DirectorActivator.context != null ? DirectorActivator.context.getProperty(PROP_CACHE_SIZE) : System.getProperty(PROP_CACHE_SIZE);
+		int size = 0;
+		if (value != null) {
+			try {
+				size = Integer.parseInt(value.trim());
+			} catch (NumberFormatException e) {
+				// fall through and disable the cache
+			}
+		}
+		return new PlannerCache(Math.max(0, size));
+	}
+
+	public boolean isEnabled() {
+		return maxSize > 0;
+	}
+
+	/**
+	 * Computes the fingerprint of a planning request, or returns <code>null</code> when the
+	 * outcome of the request cannot be told from the state the fingerprint captures.
+	 */
+	public Fingerprint createFingerprint(ProfileChangeRequest request, ProvisioningContext context, IProvisioningAgent agent) {
+		if (!isEnabled() || context == null)
+			return null;
+		IProfile profile = request.getProfile();
+		if (profile == null || profile.getTimestamp() <= 0)
+			return null;
+		IMetadataRepositoryManager manager = (IMetadataRepositoryManager) agent.getService(IMetadataRepositoryManager.SERVICE_NAME);
+		if (manager == null)
+			return null;
+		URI[] artifactRepositories = context.getArtifactRepositoryLocations();
+		URI[] metadataRepositories = context.getMetadataRepositoryLocations();
+		// A context that names no metadata repository consults either none or all the known ones
+		if (metadataRepositories == null || metadataRepositories.length == 0)
+			return null;
+		// The referenced repositories are not known without loading the ones referencing them
+		if (Boolean.parseBoolean(context.getProperty(ProvisioningContext.FOLLOW_REPOSITORY_REFERENCES)))
+			return null;
+		Map<URI, String> repositories = new HashMap<>();
+		for (URI location : metadataRepositories) {
+			String timestamp = manager.getRepositoryProperty(location, IRepository.PROP_TIMESTAMP);
+			if (timestamp == null)
+				return null;
+			repositories.put(location, timestamp);
+		}
+
+		List<Object> state = new ArrayList<>();
+		state.add(profile.getProfileId());
+		state.add(Long.valueOf(profile.getTimestamp()));
+		IProfile installerProfile = getInstallerProfile(agent);
+		if (installerProfile != null) {
+			state.add(installerProfile.getProfileId());
+			state.add(Long.valueOf(installerProfile.getTimestamp()));
+		}
+
+		// Units are equal when their ids and versions are, compare the instances instead
+		state.add(identitySet(request.getAdditions()));
+		state.add(identitySet(request.getRemovals()));
+		state.add(new HashMap<>(request.getPropertiesToAdd()));
+		state.add(new HashSet<>(Arrays.asList(request.getPropertiesToRemove())));
+		Map<IInstallableUnit, Object> iuProperties = new IdentityHashMap<>();
+		for (Map.Entry<IInstallableUnit, Map<String, String>> entry : request.getInstallableUnitProfilePropertiesToAdd().entrySet())
+			iuProperties.put(entry.getKey(), new HashMap<>(entry.getValue()));
+		state.add(iuProperties);
+		iuProperties = new IdentityHashMap<>();
+		for (Map.Entry<IInstallableUnit, List<String>> entry : request.getInstallableUnitProfilePropertiesToRemove().entrySet())
+			iuProperties.put(entry.getKey(), new HashSet<>(entry.getValue()));
+		state.add(iuProperties);
+		state.add(request.getExtraRequirements() == null ? Collections.emptySet() : new HashSet<>(request.getExtraRequirements()));
+
+		state.add(new HashMap<>(context.getProperties()));
+		state.add(identitySet(context.getExtraInstallableUnits()));
+		state.add(artifactRepositories == null ? null : Arrays.asList(artifactRepositories));
+		state.add(repositories);
+		return new Fingerprint(state);
+	}
+
+	private static Set<IInstallableUnit> identitySet(Collection<IInstallableUnit> units) {
+		Set<IInstallableUnit> result = Collections.newSetFromMap(new IdentityHashMap<IInstallableUnit, Boolean>());
+		result.addAll(units);
+		return result;
+	}
+
+	private static IProfile getInstallerProfile(IProvisioningAgent agent) {
+		IProvisioningAgent installerAgent = (IProvisioningAgent) agent.getService(IProvisioningAgent.INSTALLER_AGENT);
+		if (installerAgent == null)
+			return null;
+		IProfileRegistry registry = (IProfileRegistry) installerAgent.getService(IProfileRegistry.SERVICE_NAME);
+		String profileId = (String) agent.getService(IProvisioningAgent.INSTALLER_PROFILEID);
+		return registry == null || profileId == null ? null : registry.getProfile(profileId);
+	}
+
+	/**
+	 * Creates a plan with the given engine. When the cache is enabled, the operations added
+	 * to the plan are recorded so that it can be remembered, and the plan must be passed to
+	 * {@link #unwrap(IProvisioningPlan)} before it is handed out.
+	 */
+	public IProvisioningPlan createPlan(IEngine engine, IProfile profile, ProvisioningContext context) {
+		IProvisioningPlan plan = engine.createPlan(profile, context);
+		return isEnabled() ? new RecordingPlan(engine, plan) : plan;
+	}
+
+	/**
+	 * Returns the plan created by the engine for a plan returned by
+	 * {@link #createPlan(IEngine, IProfile, ProvisioningContext)}.
+	 */
+	public static IProvisioningPlan unwrap(IProvisioningPlan plan) {
+		return plan instanceof RecordingPlan ? ((RecordingPlan) plan).delegate : plan;
+	}
+
+	/**
+	 * Returns a copy of the plan remembered for the given fingerprint, bound to the given
+	 * context, or <code>null</code> if there is none.
+	 */
+	public IProvisioningPlan get(Fingerprint fingerprint, ProvisioningContext context) {
+		RecordingPlan plan;
+		synchronized (this) {
+			plan = plans.get(fingerprint);
+			if (plan == null)
+				misses++;
+			else
+				hits++;
+			if (Tracing.DEBUG_PLANNER_OPERANDS)
+				Tracing.debug("Planner cache " + (plan == null ? "miss" : "hit") + ", hits: " + hits + ", misses: " + misses + ", size: " + plans.size()); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$
+		}
+		return plan == null ? null : plan.copy(plan.getContext(), context);
+	}
+
+	/**
+	 * Remembers the given plan unless its computation was canceled. Only plans created
+	 * through {@link #createPlan(IEngine, IProfile, ProvisioningContext)} are remembered.
+	 */
+	public synchronized void put(Fingerprint fingerprint, IProvisioningPlan plan) {
+		if (!(plan instanceof RecordingPlan) || plan.getStatus().getSeverity() == IStatus.CANCEL)
+			return;
+		plans.put(fingerprint, (RecordingPlan) plan);
+	}
+
+	public synchronized void clear() {
+		plans.clear();
+	}
+
+	public synchronized int size() {
+		return plans.size();
+	}
+
+	/**
+	 * The state a provisioning plan has been computed from.
+	 */
+	public static final class Fingerprint {
+		private final List<Object> state;
+		private final int hashCode;
+
+		Fingerprint(List<Object> state) {
+			this.state = state;
+			this.hashCode = state.hashCode();
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (!(obj instanceof Fingerprint))
+				return false;
+			Fingerprint other = (Fingerprint) obj;
+			return hashCode == other.hashCode && state.equals(other.state);
+		}
+	}
+
+	/**
+	 * A plan created by an engine that records the operations added to it, so that they
+	 * can be replayed on a plan bound to another context.
+	 */
+	private static final class RecordingPlan implements IProvisioningPlan {
+		final IEngine engine;
+		final IProvisioningPlan delegate;
+		private final List<Consumer<IProvisioningPlan>> operations = new ArrayList<>();
+		private IProvisioningPlan installerPlan;
+
+		RecordingPlan(IEngine engine, IProvisioningPlan delegate) {
+			this.engine = engine;
+			this.delegate = delegate;
+		}
+
+		/**
+		 * Replays the operations of this plan on a new plan. The plans bound to the given
+		 * original context are bound to the given target context instead.
+		 */
+		synchronized IProvisioningPlan copy(ProvisioningContext original, ProvisioningContext target) {
+			ProvisioningContext context = delegate.getContext() == original ? target : delegate.getContext();
+			IProvisioningPlan copy = engine.createPlan(delegate.getProfile(), context);
+			for (Consumer<IProvisioningPlan> operation : operations)
+				operation.accept(copy);
+			if (installerPlan instanceof RecordingPlan)
+				copy.setInstallerPlan(((RecordingPlan) installerPlan).copy(original, target));
+			else if (installerPlan != null)
+				copy.setInstallerPlan(installerPlan);
+			return copy;
+		}
+
+		private synchronized void record(Consumer<IProvisioningPlan> operation) {
+			operations.add(operation);
+			operation.accept(delegate);
+		}
+
+		@Override
+		public IQueryable<IInstallableUnit> getAdditions() {
+			return delegate.getAdditions();
+		}
+
+		@Override
+		public ProvisioningContext getContext() {
+			return delegate.getContext();
+		}
+
+		@Override
+		public synchronized IProvisioningPlan getInstallerPlan() {
+			return installerPlan;
+		}
+
+		@Override
+		public IProfile getProfile() {
+			return delegate.getProfile();
+		}
+
+		@Override
+		public IQueryable<IInstallableUnit> getFutureState() {
+			return delegate.getFutureState();
+		}
+
+		@Override
+		public IQueryable<IInstallableUnit> getRemovals() {
+			return delegate.getRemovals();
+		}
+
+		@Override
+		public IStatus getStatus() {
+			return delegate.getStatus();
+		}
+
+		@Override
+		public boolean isEmpty() {
+			return delegate.isEmpty();
+		}
+
+		@Override
+		public void addInstallableUnit(IInstallableUnit iu) {
+			record(plan -> plan.addInstallableUnit(iu));
+		}
+
+		@Override
+		public void removeInstallableUnit(IInstallableUnit iu) {
+			record(plan -> plan.removeInstallableUnit(iu));
+		}
+
+		@Override
+		public void setInstallableUnitProfileProperty(IInstallableUnit iu, String name, String value) {
+			record(plan -> plan.setInstallableUnitProfileProperty(iu, name, value));
+		}
+
+		@Override
+		public synchronized void setInstallerPlan(IProvisioningPlan installerPlan) {
+			this.installerPlan = installerPlan;
+			delegate.setInstallerPlan(unwrap(installerPlan));
+		}
+
+		@Override
+		public void setProfileProperty(String name, String value) {
+			record(plan -> plan.setProfileProperty(name, value));
+		}
+
+		@Override
+		public void setStatus(IStatus status) {
+			record(plan -> plan.setStatus(status));
+		}
+
+		@Override
+		public void updateInstallableUnit(IInstallableUnit from, IInstallableUnit to) {
+			record(plan -> plan.updateInstallableUnit(from, to));
+		}
+
+		@Override
+		public void setFuturePlan(IQueryable<IInstallableUnit> futureState) {
+			record(plan -> plan.setFuturePlan(futureState));
+		}
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2018 IBM Corporation and others.
+ * Copyright (c) 2007, 2026 IBM Corporation and others.
  *
  * This
  * program and the accompanying materials are made available under the terms of
@@ -20,6 +20,7 @@
  ******************************************************************************/
 package org.eclipse.equinox.internal.p2.director;
 
+import java.math.BigInteger;
 import java.util.*;
 import java.util.Map.Entry;
 import org.eclipse.core.runtime.*;
@@ -86,6 +87,21 @@ public class Projector {
 
 	private boolean emptyBecauseFiltered;
 	private boolean userDefinedFunction;
+	private RequirementMatchCache matchCache;
+
+	private long encodingTime;
+
+	//Encoding kept for later projections
+	private boolean keepEncoding;
+	private Encoding encoding;
+	private boolean encodingReused;
+	private Set<Object> model; //The solution found when optimizing a kept encoding
+
+	//Portfolio of solvers
+	private int portfolioSize = 1;
+	private int solverTimeout;
+	private List<Constraint> constraints; //All the constraints, to give them to the other solvers of the portfolio
+	private WeightedObject<Object>[] objective;
 
 	static class AbstractVariable {
 		//		private String name;
@@ -105,6 +121,97 @@ public class Projector {
 		}
 	}
 
+	/**
+	 * A constraint given to the solver, kept to be given again to the other solvers of the portfolio.
+	 */
+	static final class Constraint {
+		static final int IMPLIES = 0;
+		static final int IMPLIES_NOT = 1;
+		static final int FALSE = 2;
+		static final int AT_MOST_ONE = 3;
+
+		final int kind;
+		final Object[] left;
+		final Object[] right;
+		final Explanation explanation;
+
+		Constraint(int kind, Object[] left, Object[] right, Explanation explanation) {
+			this.kind = kind;
+			this.left = left;
+			this.right = right;
+			this.explanation = explanation;
+		}
+
+		void post(DependencyHelper<Object, Explanation> helper) throws ContradictionException {
+			switch (kind) {
+				case IMPLIES :
+					helper.implication(left).implies(right).named(explanation);
+					break;
+				case IMPLIES_NOT :
+					for (Object r : right)
+						helper.implication(left).impliesNot(r).named(explanation);
+					break;
+				case FALSE :
+					helper.setFalse(left[0], explanation);
+					break;
+				case AT_MOST_ONE :
+					helper.atMost(1, left).named(explanation);
+					break;
+			}
+		}
+	}
+
+	/**
+	 * The encoding of the units of a slice, kept with its solver to answer the later projections
+	 * of the same profile and repositories. A later projection reuses it when its slice is part
+	 * of the encoded one: only its entry point and its objective function are encoded, and the
+	 * encoded units out of its slice are assumed not to be installed. The roots and the bounds
+	 * found on the objective function are never asserted: they are assumed by the projection,
+	 * and made false when the next one starts. A slice with other units is encoded again.
+	 */
+	public static final class Encoding {
+		final DependencyHelper<Object, Explanation> helper;
+		final Set<IInstallableUnit> units;
+		final Set<IInstallableUnit> nonGreedyUnits;
+		final Map<IInstallableUnit, AbstractVariable> nonGreedyVariables;
+		final Map<IInstallableUnitFragment, Set<IInstallableUnit>> fragments;
+		//The abstract variables created for the requirements of each unit
+		final Map<IInstallableUnit, List<AbstractVariable>> abstractVariables = new HashMap<>();
+		final Map<IInstallableUnit, List<AbstractVariable>> optionalAbstractRequirements = new HashMap<>();
+		//The literals assumed by the last projection, to be made false by the next one
+		final List<Object> retired = new ArrayList<>();
+
+		Encoding(DependencyHelper<Object, Explanation> helper, Set<IInstallableUnit> units, Set<IInstallableUnit> nonGreedyUnits, Map<IInstallableUnit, AbstractVariable> nonGreedyVariables, Map<IInstallableUnitFragment, Set<IInstallableUnit>> fragments) {
+			this.helper = helper;
+			this.units = units;
+			this.nonGreedyUnits = nonGreedyUnits;
+			this.nonGreedyVariables = nonGreedyVariables;
+			this.fragments = fragments;
+		}
+
+		/**
+		 * Returns whether the constraints of the encoded units restricted to the given ones are
+		 * those an encoding of the given units would produce.
+		 */
+		boolean covers(Set<IInstallableUnit> slice, Set<IInstallableUnit> nonGreedy) {
+			if (!units.containsAll(slice) || !nonGreedyUnits.containsAll(nonGreedy))
+				return false;
+			// the constraints of a patched unit depend on all the patches applying to it
+			for (IInstallableUnit unit : units) {
+				if (unit instanceof IInstallableUnitPatch && !slice.contains(unit))
+					return false;
+			}
+			return true;
+		}
+
+		void record(IInstallableUnit unit, List<AbstractVariable> variables, int from, List<AbstractVariable> optional, int optionalFrom) {
+			if (variables.size() > from)
+				abstractVariables.put(unit, new ArrayList<>(variables.subList(from, variables.size())));
+			if (optional.size() > optionalFrom)
+				optionalAbstractRequirements.put(unit, new ArrayList<>(optional.subList(optionalFrom, optional.size())));
+		}
+	}
+
 	/**
 	 * Job for computing SAT failure explanation in the background.
 	 */
@@ -166,9 +273,19 @@ public class Projector {
 	}
 
 	public Projector(IQueryable<IInstallableUnit> q, Map<String, String> context, Set<IInstallableUnit> nonGreedyIUs, boolean considerMetaRequirements) {
+		this(q, InstallableUnit.contextIU(context), nonGreedyIUs, considerMetaRequirements);
+	}
+
+	/**
+	 * Creates a projector evaluating the filters against the given selection context, which
+	 * is to be the one of the slicer when the results of the filters are shared through a
+	 * {@link RequirementMatchCache}.
+	 */
+	public Projector(IQueryable<IInstallableUnit> q, IInstallableUnit selectionContext, Set<IInstallableUnit> nonGreedyIUs, boolean considerMetaRequirements) {
 		picker = q;
+		matchCache = new RequirementMatchCache(q);
 		slice = new HashMap<>();
-		selectionContext = InstallableUnit.contextIU(context);
+		this.selectionContext = selectionContext;
 		abstractVariables = new ArrayList<>();
 		allOptionalAbstractRequirements = new ArrayList<>();
 		result = new MultiStatus(DirectorActivator.PI_DIRECTOR, IStatus.OK, Messages.Planner_Problems_resolving_plan, null);
@@ -182,25 +299,14 @@ public class Projector {
 		alreadyInstalledIUs = Arrays.asList(alreadyExistingRoots);
 		lastState = installedIUs;
 		this.entryPoint = entryPointIU;
+		Encoding previous = encoding;
+		encoding = null;
 		try {
-			long start = 0;
+			long start = System.currentTimeMillis();
 			if (DEBUG) {
-				start = System.currentTimeMillis();
 				Tracing.debug("Start projection: " + start); //$NON-NLS-1$
 			}
-			IPBSolver solver;
-			if (DEBUG_ENCODING) {
-				solver = new UserFriendlyPBStringSolver<>();
-			} else {
-				if (userDefinedFunction) {
-					PBSolverResolution mysolver = SolverFactory.newCompetPBResLongWLMixedConstraintsObjectiveExpSimp();
-					mysolver.setSimplifier(mysolver.SIMPLE_SIMPLIFICATION);
-					mysolver.setRestartStrategy(new LubyRestarts(512));
-					solver = mysolver;
-				} else {
-					solver = SolverFactory.newEclipseP2();
-				}
-			}
+			IPBSolver solver = null;
 			int timeout = DEFAULT_SOLVER_TIMEOUT;
 			String timeoutString = null;
 			try {
@@ -216,43 +322,79 @@ public class Projector {
 				System.err.println("Ignoring user-specified 'eclipse.p2.projector.timeout' value of: " + timeoutString); //$NON-NLS-1$
 				e.printStackTrace();
 			}
-			if (userDefinedFunction)
-				solver.setTimeoutOnConflicts(timeout / 4);
-			else
-				solver.setTimeoutOnConflicts(timeout);
+			solverTimeout = timeout;
+			if (!userDefinedFunction && !DEBUG_ENCODING)
+				portfolioSize = SolverPortfolio.getSize();
+			// the kept encoding is solved with its own optimization loop, see optimize()
+			boolean keep = keepEncoding && !userDefinedFunction && !DEBUG_ENCODING && portfolioSize == 1;
 
 			IQueryResult<IInstallableUnit> queryResult = picker.query(QueryUtil.createIUAnyQuery(), null);
-			if (DEBUG_ENCODING) {
-				dependencyHelper = new LexicoHelper<>(solver, false);
-				((UserFriendlyPBStringSolver<Object>) solver).setMapping(dependencyHelper.getMappingToDomain());
+			Set<IInstallableUnit> units = new HashSet<>(queryResult.toUnmodifiableSet());
+			units.remove(entryPointIU);
+			if (keep && previous != null && reuse(previous, entryPointIU, alreadyExistingRoots, units, newRoots)) {
+				encodingReused = true;
 			} else {
+				if (DEBUG_ENCODING) {
+					solver = new UserFriendlyPBStringSolver<>();
+				} else {
+					if (userDefinedFunction) {
+						PBSolverResolution mysolver = SolverFactory.newCompetPBResLongWLMixedConstraintsObjectiveExpSimp();
+						mysolver.setSimplifier(mysolver.SIMPLE_SIMPLIFICATION);
+						mysolver.setRestartStrategy(new LubyRestarts(512));
+						solver = mysolver;
+					} else if (keep) {
+						solver = SolverPortfolio.createDecisionSolver(0);
+					} else {
+						solver = SolverFactory.newEclipseP2();
+					}
+				}
 				if (userDefinedFunction)
-					dependencyHelper = new SteppedTimeoutLexicoHelper<>(solver);
+					solver.setTimeoutOnConflicts(timeout / 4);
 				else
-					dependencyHelper = new DependencyHelper<>(solver);
-			}
-			List<IInstallableUnit> iusToOrder = new ArrayList<>(queryResult.toSet());
-			Collections.sort(iusToOrder);
-			for (Iterator<IInstallableUnit> iusToEncode = iusToOrder.iterator(); iusToEncode.hasNext();) {
-				if (monitor.isCanceled()) {
-					result.merge(Status.CANCEL_STATUS);
-					throw new OperationCanceledException();
+					solver.setTimeoutOnConflicts(timeout);
+				if (portfolioSize > 1)
+					constraints = new ArrayList<>();
+
+				if (DEBUG_ENCODING) {
+					dependencyHelper = new LexicoHelper<>(solver, false);
+					((UserFriendlyPBStringSolver<Object>) solver).setMapping(dependencyHelper.getMappingToDomain());
+				} else {
+					if (userDefinedFunction)
+						dependencyHelper = new SteppedTimeoutLexicoHelper<>(solver);
+					else
+						dependencyHelper = new DependencyHelper<>(solver);
 				}
-				IInstallableUnit iuToEncode = iusToEncode.next();
-				if (iuToEncode != entryPointIU) {
-					processIU(iuToEncode, false);
+				Encoding kept = keep ? new Encoding(dependencyHelper, units, nonGreedyIUs, nonGreedyVariables, fragments) : null;
+				List<IInstallableUnit> iusToOrder = new ArrayList<>(queryResult.toSet());
+				Collections.sort(iusToOrder);
+				for (Iterator<IInstallableUnit> iusToEncode = iusToOrder.iterator(); iusToEncode.hasNext();) {
+					if (monitor.isCanceled()) {
+						result.merge(Status.CANCEL_STATUS);
+						throw new OperationCanceledException();
+					}
+					IInstallableUnit iuToEncode = iusToEncode.next();
+					if (iuToEncode != entryPointIU) {
+						int abstractCount = abstractVariables.size();
+						int optionalCount = allOptionalAbstractRequirements.size();
+						processIU(iuToEncode, false);
+						if (kept != null)
+							kept.record(iuToEncode, abstractVariables, abstractCount, allOptionalAbstractRequirements, optionalCount);
+					}
 				}
-			}
-			createMustHave(entryPointIU, alreadyExistingRoots);
+				createMustHave(entryPointIU, alreadyExistingRoots);
 
-			createConstraintsForSingleton();
+				createConstraintsForSingleton();
 
-			createConstraintsForNonGreedy();
+				createConstraintsForNonGreedy();
 
-			createOptimizationFunction(entryPointIU, newRoots);
+				createOptimizationFunction(entryPointIU, newRoots);
+				encoding = kept;
+			}
+			if (encoding != null)
+				encoding.retired.add(entryPointIU);
+			encodingTime = System.currentTimeMillis() - start;
 			if (DEBUG) {
-				long stop = System.currentTimeMillis();
-				Tracing.debug("Projection complete: " + (stop - start)); //$NON-NLS-1$
+				Tracing.debug("Projection complete: " + encodingTime + (encodingReused ? " (encoding reused)" : "")); //$NON-NLS-1$ //$NON-NLS-2$
 			}
 			if (DEBUG_ENCODING) {
 				System.out.println(solver.toString());
@@ -264,12 +406,79 @@ public class Projector {
 		}
 	}
 
+	/**
+	 * Encodes the entry point and the objective function of this projection into the encoding
+	 * of an earlier one, provided that it covers the slice.
+	 *
+	 * @return whether the encoding has been reused
+	 */
+	private boolean reuse(Encoding previous, IInstallableUnit entryPointIU, IInstallableUnit[] alreadyExistingRoots, Set<IInstallableUnit> units, Collection<IInstallableUnit> newRoots) throws ContradictionException {
+		if (!previous.covers(units, nonGreedyIUs) || !getApplicablePatches(entryPointIU).isEmpty())
+			return false;
+		// the encoded non greedy constraints do not list the entry point among the providers
+		for (IRequirement req : getRequiredCapabilities(entryPointIU)) {
+			if (!req.isGreedy() || !isApplicable(req))
+				continue;
+			for (IInstallableUnit match : getApplicableMatches(req)) {
+				if (nonGreedyIUs.contains(match))
+					return false;
+			}
+		}
+		Set<Object> known = new HashSet<>(previous.helper.getMappingToDomain().values());
+		// an earlier entry point equal to this one has been made false
+		if (known.contains(entryPointIU))
+			return false;
+
+		dependencyHelper = previous.helper;
+		for (Object literal : previous.retired)
+			dependencyHelper.setFalse(literal, null);
+		previous.retired.clear();
+		nonGreedyVariables = previous.nonGreedyVariables;
+		fragments = previous.fragments;
+		for (IInstallableUnit unit : units) {
+			IInstallableUnit iu = unit.unresolved();
+			Map<Version, IInstallableUnit> iuSlice = slice.get(iu.getId());
+			if (iuSlice == null) {
+				iuSlice = new HashMap<>();
+				slice.put(iu.getId(), iuSlice);
+			}
+			iuSlice.put(iu.getVersion(), iu);
+			List<AbstractVariable> variables = previous.abstractVariables.get(unit);
+			if (variables != null)
+				abstractVariables.addAll(variables);
+			variables = previous.optionalAbstractRequirements.get(unit);
+			if (variables != null)
+				allOptionalAbstractRequirements.addAll(variables);
+		}
+		// the variables of the units out of the slice would not exist in an encoding of the slice
+		List<Object> absent = new ArrayList<>();
+		for (IInstallableUnit unit : previous.units) {
+			if (units.contains(unit))
+				continue;
+			absent.add(unit);
+			List<AbstractVariable> variables = previous.abstractVariables.get(unit);
+			if (variables != null)
+				absent.addAll(variables);
+			AbstractVariable nonGreedy = previous.nonGreedyVariables.get(unit);
+			if (nonGreedy != null)
+				absent.add(nonGreedy);
+		}
+		for (Object variable : absent) {
+			if (known.contains(variable))
+				assumptions.add(dependencyHelper.not(variable));
+		}
+		createMustHave(entryPointIU, alreadyExistingRoots);
+		createOptimizationFunction(entryPointIU, newRoots);
+		encoding = previous;
+		return true;
+	}
+
 	private void createConstraintsForNonGreedy() throws ContradictionException {
 		for (IInstallableUnit iu : nonGreedyIUs) {
 			AbstractVariable var = getNonGreedyVariable(iu);
 			List<Object> providers = nonGreedyProvider.get(var);
 			if (providers == null || providers.size() == 0) {
-				dependencyHelper.setFalse(var, new Explanation.MissingGreedyIU(iu));
+				post(new Constraint(Constraint.FALSE, new Object[] {var}, null, new Explanation.MissingGreedyIU(iu)));
 			} else {
 				createImplication(var, providers, Explanation.OPTIONAL_REQUIREMENT);//FIXME
 			}
@@ -287,12 +496,16 @@ public class Projector {
 
 	//Create an optimization function favoring the highest version of each IU
 	private void createStandardOptimizationFunction(IInstallableUnit entryPointIU, Collection<IInstallableUnit> newRoots) {
-		List<WeightedObject<? extends Object>> weights = new OptimizationFunction(lastState, abstractVariables, allOptionalAbstractRequirements, picker, selectionContext, slice).createOptimizationFunction(entryPointIU, newRoots);
+		OptimizationFunction function = new OptimizationFunction(lastState, abstractVariables, allOptionalAbstractRequirements, picker, selectionContext, slice);
+		function.setMatchCache(matchCache);
+		List<WeightedObject<? extends Object>> weights = function.createOptimizationFunction(entryPointIU, newRoots);
 		createObjectiveFunction(weights);
 	}
 
 	private void createUserDefinedOptimizationFunction(IInstallableUnit entryPointIU, Collection<IInstallableUnit> newRoots) {
-		List<WeightedObject<? extends Object>> weights = new UserDefinedOptimizationFunction(lastState, abstractVariables, allOptionalAbstractRequirements, picker, selectionContext, slice, dependencyHelper, alreadyInstalledIUs).createOptimizationFunction(entryPointIU, newRoots);
+		OptimizationFunction function = new UserDefinedOptimizationFunction(lastState, abstractVariables, allOptionalAbstractRequirements, picker, selectionContext, slice, dependencyHelper, alreadyInstalledIUs);
+		function.setMatchCache(matchCache);
+		List<WeightedObject<? extends Object>> weights = function.createOptimizationFunction(entryPointIU, newRoots);
 		createObjectiveFunction(weights);
 	}
 
@@ -312,6 +525,7 @@ public class Projector {
 		}
 		@SuppressWarnings("unchecked")
 		WeightedObject<Object>[] array = (WeightedObject<Object>[]) weightedObjects.toArray(new WeightedObject<?>[weightedObjects.size()]);
+		objective = array;
 		dependencyHelper.setObjectiveFunction(array);
 	}
 
@@ -328,18 +542,18 @@ public class Projector {
 		if (DEBUG) {
 			Tracing.debug(iu + "=0"); //$NON-NLS-1$
 		}
-		dependencyHelper.setFalse(iu, new Explanation.MissingIU(iu, req, iu == this.entryPoint));
+		post(new Constraint(Constraint.FALSE, new Object[] {iu}, null, new Explanation.MissingIU(iu, req, iu == this.entryPoint)));
 	}
 
 	// Check whether the requirement is applicable
 	private boolean isApplicable(IRequirement req) {
 		IMatchExpression<IInstallableUnit> filter = req.getFilter();
-		return filter == null || filter.isMatch(selectionContext);
+		return filter == null || matchCache.isMatch(filter, selectionContext);
 	}
 
 	private boolean isApplicable(IInstallableUnit iu) {
 		IMatchExpression<IInstallableUnit> filter = iu.getFilter();
-		return filter == null || filter.isMatch(selectionContext);
+		return filter == null || matchCache.isMatch(filter, selectionContext);
 	}
 
 	private void expandNegatedRequirement(IRequirement req, IInstallableUnit iu, List<AbstractVariable> optionalAbstractRequirements, boolean isRootIu) throws ContradictionException {
@@ -388,7 +602,7 @@ public class Projector {
 		if (req.getMin() > 0) {
 			if (matches.isEmpty()) {
 				if (iu == entryPoint && emptyBecauseFiltered) {
-					dependencyHelper.setFalse(iu, new NotInstallableRoot(req));
+					post(new Constraint(Constraint.FALSE, new Object[] {iu}, null, new NotInstallableRoot(req)));
 				} else {
 					missingRequirement(iu, req);
 				}
@@ -809,13 +1023,13 @@ public class Projector {
 	 */
 	private List<IInstallableUnit> getApplicableMatches(IRequirement req) {
 		List<IInstallableUnit> target = new ArrayList<>();
-		IQueryResult<IInstallableUnit> matches = picker.query(QueryUtil.createMatchQuery(req.getMatches()), null);
+		IInstallableUnit[] matches = matchCache.getMatches(picker, req);
 		for (IInstallableUnit match : matches) {
 			if (isApplicable(match)) {
 				target.add(match);
 			}
 		}
-		emptyBecauseFiltered = !matches.isEmpty() && target.isEmpty();
+		emptyBecauseFiltered = matches.length > 0 && target.isEmpty();
 		return target;
 	}
 
@@ -866,22 +1080,27 @@ public class Projector {
 		if (DEBUG) {
 			Tracing.debug(name + ": " + left + "->" + right); //$NON-NLS-1$ //$NON-NLS-2$
 		}
-		for (Object r : right)
-			dependencyHelper.implication(new Object[] {left}).impliesNot(r).named(name);
+		post(new Constraint(Constraint.IMPLIES_NOT, new Object[] {left}, right.toArray(), name));
 	}
 
 	private void createImplication(Object left, List<?> right, Explanation name) throws ContradictionException {
 		if (DEBUG) {
 			Tracing.debug(name + ": " + left + "->" + right); //$NON-NLS-1$ //$NON-NLS-2$
 		}
-		dependencyHelper.implication(new Object[] {left}).implies(right.toArray()).named(name);
+		post(new Constraint(Constraint.IMPLIES, new Object[] {left}, right.toArray(), name));
 	}
 
 	private void createImplication(Object[] left, List<?> right, Explanation name) throws ContradictionException {
 		if (DEBUG) {
 			Tracing.debug(name + ": " + Arrays.asList(left) + "->" + right); //$NON-NLS-1$ //$NON-NLS-2$
 		}
-		dependencyHelper.implication(left).implies(right.toArray()).named(name);
+		post(new Constraint(Constraint.IMPLIES, left, right.toArray(), name));
+	}
+
+	private void post(Constraint constraint) throws ContradictionException {
+		if (constraints != null)
+			constraints.add(constraint);
+		constraint.post(dependencyHelper);
 	}
 
 	//Return IUPatches that are applicable for the given iu
@@ -936,7 +1155,8 @@ public class Projector {
 			}
 			Tracing.debug("At most 1 of " + b); //$NON-NLS-1$
 		}
-		dependencyHelper.atMost(1, (Object[]) ius).named(new Explanation.Singleton(ius));
+		// the array is reused by the caller
+		post(new Constraint(Constraint.AT_MOST_ONE, ius.clone(), null, new Explanation.Singleton(ius)));
 	}
 
 	private AbstractVariable getAbstractVariable(IRequirement req) {
@@ -970,19 +1190,35 @@ public class Projector {
 		try {
 			if (monitor.isCanceled())
 				return Status.CANCEL_STATUS;
-			if (dependencyHelper.hasASolution(assumptions)) {
+			boolean satisfiable;
+			if (constraints != null) {
+				// Race the solver holding the encoding against differently configured solvers given the same constraints
+				SolverPortfolio portfolio = new SolverPortfolio(portfolioSize, solverTimeout);
+				satisfiable = portfolio.solve(dependencyHelper, constraints, objective, assumptions);
+				dependencyHelper = portfolio.getWinner();
+				if (DEBUG)
+					Tracing.debug("Solver portfolio won by configuration: " + portfolio.getWinningConfiguration()); //$NON-NLS-1$
+			} else if (encoding != null) {
+				satisfiable = optimize();
+			} else {
+				satisfiable = dependencyHelper.hasASolution(assumptions);
+			}
+			if (satisfiable) {
 				if (DEBUG) {
 					Tracing.debug("Satisfiable !"); //$NON-NLS-1$
 				}
 				backToIU();
 				long stop = System.currentTimeMillis();
-				if (DEBUG)
+				if (DEBUG) {
 					Tracing.debug("Solver solution found in: " + (stop - start) + " ms."); //$NON-NLS-1$ //$NON-NLS-2$
+					Tracing.debug("Encoding time: " + encodingTime + " ms" + (encodingReused ? " (encoding reused)" : "") + ", solving time: " + (stop - start) + " ms."); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$
+				}
 			} else {
 				long stop = System.currentTimeMillis();
 				if (DEBUG) {
 					Tracing.debug("Unsatisfiable !"); //$NON-NLS-1$
 					Tracing.debug("Solver solution NOT found: " + (stop - start)); //$NON-NLS-1$
+					Tracing.debug("Encoding time: " + encodingTime + " ms" + (encodingReused ? " (encoding reused)" : "") + ", solving time: " + (stop - start) + " ms."); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$
 				}
 				result = new MultiStatus(DirectorActivator.PI_DIRECTOR, SimplePlanner.UNSATISFIABLE, result.getChildren(), Messages.Planner_Unsatisfiable_problem, null);
 				result.merge(new Status(IStatus.ERROR, DirectorActivator.PI_DIRECTOR, SimplePlanner.UNSATISFIABLE, Messages.Planner_Unsatisfiable_problem, null));
@@ -997,10 +1233,59 @@ public class Projector {
 		return result;
 	}
 
+	/**
+	 * Minimizes the objective function with the solver of a kept encoding. Each bound on the
+	 * objective function is guarded by a new literal, assumed by this projection only, so that
+	 * the bounds do not constrain the later projections. The best solution is kept when the
+	 * solver times out once a solution has been found.
+	 */
+	private boolean optimize() throws TimeoutException {
+		List<Object> assumed = new ArrayList<>(assumptions);
+		if (!dependencyHelper.hasASolution(assumed))
+			return false;
+		model = new LinkedHashSet<>(Arrays.asList(dependencyHelper.getSolution().toArray()));
+		if (objective == null)
+			return true;
+		BigInteger max = BigInteger.ZERO;
+		for (WeightedObject<Object> weighted : objective) {
+			if (weighted.getWeight().signum() > 0)
+				max = max.add(weighted.getWeight());
+		}
+		WeightedObject<Object>[] bound = Arrays.copyOf(objective, objective.length + 1);
+		while (true) {
+			BigInteger cost = BigInteger.ZERO;
+			for (WeightedObject<Object> weighted : objective) {
+				if (model.contains(weighted.thing))
+					cost = cost.add(weighted.getWeight());
+			}
+			// guard -> sum(objective) < cost
+			AbstractVariable guard = new AbstractVariable();
+			encoding.retired.add(guard);
+			bound[objective.length] = WeightedObject.newWO(guard, max.subtract(cost).add(BigInteger.ONE));
+			try {
+				dependencyHelper.atMost(null, max, bound);
+			} catch (ContradictionException e) {
+				return true;
+			}
+			assumed.add(guard);
+			try {
+				if (!dependencyHelper.hasASolution(assumed))
+					return true;
+			} catch (TimeoutException e) {
+				if (DEBUG)
+					Tracing.debug("Timeout while optimizing, keeping a solution of cost " + cost); //$NON-NLS-1$
+				return true;
+			}
+			// the next bound is stronger
+			assumed.remove(assumed.size() - 1);
+			model = new LinkedHashSet<>(Arrays.asList(dependencyHelper.getSolution().toArray()));
+		}
+	}
+
 	private void backToIU() {
 		solution = new ArrayList<>();
-		IVec<Object> sat4jSolution = dependencyHelper.getSolution();
-		for (Iterator<Object> iter = sat4jSolution.iterator(); iter.hasNext();) {
+		Iterator<Object> sat4jSolution = model != null ? model.iterator() : dependencyHelper.getSolution().iterator();
+		for (Iterator<Object> iter = sat4jSolution; iter.hasNext();) {
 			Object var = iter.next();
 			if (var instanceof IInstallableUnit) {
 				IInstallableUnit iu = (IInstallableUnit) var;
@@ -1058,12 +1343,12 @@ public class Projector {
 	public Map<IInstallableUnitFragment, List<IInstallableUnit>> getFragmentAssociation() {
 		Map<IInstallableUnitFragment, List<IInstallableUnit>> resolvedFragments = new HashMap<>(fragments.size());
 		for (Entry<IInstallableUnitFragment, Set<IInstallableUnit>> fragment : fragments.entrySet()) {
-			if (!dependencyHelper.getBooleanValueFor(fragment.getKey()))
+			if (!isSelected(fragment.getKey()))
 				continue;
 			Set<IInstallableUnit> potentialHosts = fragment.getValue();
 			List<IInstallableUnit> resolvedHost = new ArrayList<>(potentialHosts.size());
 			for (IInstallableUnit host : potentialHosts) {
-				if (dependencyHelper.getBooleanValueFor(host))
+				if (isSelected(host))
 					resolvedHost.add(host);
 			}
 			if (resolvedHost.size() != 0)
@@ -1072,6 +1357,10 @@ public class Projector {
 		return resolvedFragments;
 	}
 
+	private boolean isSelected(Object thing) {
+		return model != null ? model.contains(thing) : dependencyHelper.getBooleanValueFor(thing);
+	}
+
 	private void rememberHostMatches(IInstallableUnitFragment fragment, List<IInstallableUnit> matches) {
 		Set<IInstallableUnit> existingMatches = fragments.get(fragment);
 		if (existingMatches == null) {
@@ -1085,4 +1374,34 @@ public class Projector {
 	public void setUserDefined(boolean containsKey) {
 		userDefinedFunction = containsKey;
 	}
+
+	/**
+	 * Keeps the encoding of this projection for the later projections of the same profile and
+	 * repositories, reusing the given encoding of an earlier one if it is not <code>null</code>
+	 * and covers the slice. The encoding is only kept for the standard optimization function
+	 * and a single solver.
+	 */
+	public void setEncoding(Encoding previous) {
+		keepEncoding = true;
+		encoding = previous;
+	}
+
+	/**
+	 * Returns the encoding kept by this projection, or <code>null</code> if it is not kept.
+	 * It must not be given to another projection before this one is done with the solver.
+	 */
+	public Encoding getEncoding() {
+		return encoding;
+	}
+
+	public boolean isEncodingReused() {
+		return encodingReused;
+	}
+
+	/**
+	 * Shares the matches of the requirements with the other participants of a planning session.
+	 */
+	public void setMatchCache(RequirementMatchCache matchCache) {
+		this.matchCache = matchCache;
+	}
 }
\ No newline at end of file
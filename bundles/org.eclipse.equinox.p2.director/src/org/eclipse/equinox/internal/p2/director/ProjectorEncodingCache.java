@@ -0,0 +1,146 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.internal.p2.director;
+
+import java.net.URI;
+import java.util.*;
+import org.eclipse.equinox.internal.p2.core.helpers.Tracing;
+import org.eclipse.equinox.p2.engine.ProvisioningContext;
+
+/**
+ * Keeps the encodings of the projections of a planner, one per profile and set of metadata
+ * repositories, so that a later plan for the same profile and repositories only encodes its
+ * roots, see {@link Projector.Encoding}.
+ * <p>
+ * An encoding holds a solver, which is not thread safe: it is taken out of the cache by the
+ * projection using it and put back once the projection is done with it.
+ * </p>
+ * <p>
+ * The cache is disabled unless {@link #PROP_CACHE_SIZE} is set to a positive number
+ * of encodings. The least recently used encodings are evicted first.
+ * </p>
+ */
+public class ProjectorEncodingCache {
+	/**
+	 * System property specifying the number of encodings to keep. The cache is disabled
+	 * when the property is not set or not positive.
+	 */
+	public static final String PROP_CACHE_SIZE = "eclipse.p2.projector.encodingCacheSize"; //$NON-NLS-1$
+
+	private final int maxSize;
+	private final Map<Key, Projector.Encoding> encodings;
+	private int hits;
+	private int misses;
+
+	public ProjectorEncodingCache(int maxSize) {
+		this.maxSize = maxSize;
+		this.encodings = new LinkedHashMap<Key, Projector.Encoding>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, Projector.Encoding> eldest) {
+				return size() > ProjectorEncodingCache.this.maxSize;
+			}
+		};
+	}
+
+	/**
+	 * Returns a cache sized according to {@link #PROP_CACHE_SIZE}.
+	 */
+	public static ProjectorEncodingCache create() {
+		String value = DirectorActivator.context != null ? DirectorActivator.context.getProperty(PROP_CACHE_SIZE) : System.getProperty(PROP_CACHE_SIZE);
+		int size = 0;
+		if (value != null) {
+			try {
+				size = Integer.parseInt(value.trim());
+			} catch (NumberFormatException e) {
+				// fall through and disable the cache
+			}
+		}
+		return new ProjectorEncodingCache(Math.max(0, size));
+	}
+
+	public boolean isEnabled() {
+		return maxSize > 0;
+	}
+
+	/**
+	 * Computes the key of the encodings of the given profile with the metadata repositories
+	 * of the given context.
+	 */
+	public Key createKey(String profileId, ProvisioningContext context, Map<String, String> selectionContext, boolean considerMetaRequirements) {
+		URI[] repositories = context == null ? null : context.getMetadataRepositoryLocations();
+		List<Object> state = new ArrayList<>(4);
+		state.add(profileId);
+		state.add(repositories == null ? null : new HashSet<>(Arrays.asList(repositories)));
+		state.add(new HashMap<>(selectionContext));
+		state.add(Boolean.valueOf(considerMetaRequirements));
+		return new Key(state);
+	}
+
+	/**
+	 * Removes and returns the encoding kept for the given key, or returns <code>null</code>
+	 * if there is none.
+	 */
+	public synchronized Projector.Encoding take(Key key) {
+		Projector.Encoding encoding = encodings.remove(key);
+		if (encoding == null)
+			misses++;
+		else
+			hits++;
+		if (Tracing.DEBUG_PLANNER_PROJECTOR)
+			Tracing.debug("Projector encoding cache " + (encoding == null ? "miss" : "hit") + ", hits: " + hits + ", misses: " + misses + ", size: " + encodings.size()); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$
+		return encoding;
+	}
+
+	public synchronized void put(Key key, Projector.Encoding encoding) {
+		encodings.put(key, encoding);
+	}
+
+	public synchronized void clear() {
+		encodings.clear();
+	}
+
+	public synchronized int size() {
+		return encodings.size();
+	}
+
+	/**
+	 * The profile and repositories an encoding has been computed for.
+	 */
+	public static final class Key {
+		private final List<Object> state;
+		private final int hashCode;
+
+		Key(List<Object> state) {
+			this.state = state;
+			this.hashCode = state.hashCode();
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (!(obj instanceof Key))
+				return false;
+			Key other = (Key) obj;
+			return hashCode == other.hashCode && state.equals(other.state);
+		}
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2017 IBM Corporation and others.
+ * Copyright (c) 2008, 2026 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -39,6 +39,12 @@ public class QueryableArray extends IndexProvider<IInstallableUnit> {
 		return dataSet.iterator();
 	}
 
+	@Override
+	protected boolean isSnapshot() {
+		// the units never change
+		return true;
+	}
+
 	@Override
 	public synchronized IIndex<IInstallableUnit> getIndex(String memberName) {
 		if (InstallableUnit.MEMBER_PROVIDED_CAPABILITIES.equals(memberName)) {
@@ -0,0 +1,192 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.internal.p2.director;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import org.eclipse.equinox.p2.metadata.IInstallableUnit;
+import org.eclipse.equinox.p2.metadata.IRequirement;
+import org.eclipse.equinox.p2.metadata.expression.IMatchExpression;
+import org.eclipse.equinox.p2.query.IQueryable;
+import org.eclipse.equinox.p2.query.QueryUtil;
+
+/**
+ * Remembers the units that match a requirement for the duration of a planning session,
+ * so that the slicers and the projector evaluate the match expression of a requirement
+ * only once.
+ * <p>
+ * The matches are computed against the units available to the session and are kept per
+ * requirement. A participant working on a subset of these units, like the projector on
+ * the slice, gets the remembered matches restricted to the members of its queryable, plus
+ * the matches among its units that are not available to the session.
+ * </p>
+ * <p>
+ * The results of the filters of the units and requirements are remembered too, per
+ * selection context. A session has a single selection context and a few hundred distinct
+ * filters, so each of them is evaluated once.
+ * </p>
+ * <p>
+ * Requirements are compared by identity. Units share their requirement instances, so a
+ * requirement is found again whenever the unit declaring it is visited.
+ * </p>
+ * <p>
+ * This class is thread safe.
+ * </p>
+ */
+public class RequirementMatchCache {
+	private final IQueryable<IInstallableUnit> available;
+	private final Map<IRequirement, IInstallableUnit[]> matches = new IdentityHashMap<>();
+	private final Map<IQueryable<IInstallableUnit>, Scope> scopes = new IdentityHashMap<>();
+	private final Map<IInstallableUnit, Map<IMatchExpression<IInstallableUnit>, Boolean>> filterResults = new IdentityHashMap<>();
+	private Set<IInstallableUnit> availableUnits;
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong filterHits = new AtomicLong();
+	private final AtomicLong filterMisses = new AtomicLong();
+
+	/**
+	 * The units of a queryable other than the one of the session.
+	 */
+	private static class Scope {
+		final Set<IInstallableUnit> members;
+		// the members that are not available to the session, or null if there are none
+		final IQueryable<IInstallableUnit> others;
+
+		Scope(Set<IInstallableUnit> members, IQueryable<IInstallableUnit> others) {
+			this.members = members;
+			this.others = others;
+		}
+	}
+
+	/**
+	 * Creates a cache for a planning session working on the given units.
+	 */
+	public RequirementMatchCache(IQueryable<IInstallableUnit> available) {
+		this.available = available;
+	}
+
+	/**
+	 * Returns the units available to the session that match the given requirement, in the
+	 * order the queryable of the session returns them. Neither the filter of the requirement
+	 * nor the filters of the units are considered.
+	 */
+	public IInstallableUnit[] getMatches(IRequirement req) {
+		IInstallableUnit[] result;
+		synchronized (matches) {
+			result = matches.get(req);
+		}
+		if (result != null) {
+			hits.incrementAndGet();
+			return result;
+		}
+		misses.incrementAndGet();
+		// Query outside of the lock. Concurrent misses for the same requirement compute the same result.
+		result = available.query(QueryUtil.createMatchQuery(req.getMatches()), null).toArray(IInstallableUnit.class);
+		synchronized (matches) {
+			matches.put(req, result);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the units of the given queryable that match the given requirement. The matches
+	 * among the units available to the session come first, in the order of
+	 * {@link #getMatches(IRequirement)}. Neither the filter of the requirement nor the
+	 * filters of the units are considered.
+	 */
+	public IInstallableUnit[] getMatches(IQueryable<IInstallableUnit> queryable, IRequirement req) {
+		IInstallableUnit[] availableMatches = getMatches(req);
+		if (queryable == available)
+			return availableMatches;
+		Scope scope = getScope(queryable);
+		List<IInstallableUnit> result = new ArrayList<>(availableMatches.length);
+		for (IInstallableUnit match : availableMatches) {
+			if (scope.members.contains(match))
+				result.add(match);
+		}
+		if (scope.others != null) {
+			for (IInstallableUnit match : scope.others.query(QueryUtil.createMatchQuery(req.getMatches()), null))
+				result.add(match);
+		}
+		return result.toArray(new IInstallableUnit[result.size()]);
+	}
+
+	private Scope getScope(IQueryable<IInstallableUnit> queryable) {
+		synchronized (scopes) {
+			Scope scope = scopes.get(queryable);
+			if (scope != null)
+				return scope;
+			if (availableUnits == null)
+				availableUnits = available.query(QueryUtil.ALL_UNITS, null).toUnmodifiableSet();
+			Set<IInstallableUnit> members = queryable.query(QueryUtil.ALL_UNITS, null).toUnmodifiableSet();
+			List<IInstallableUnit> others = new ArrayList<>();
+			for (IInstallableUnit member : members) {
+				if (!availableUnits.contains(member))
+					others.add(member);
+			}
+			scope = new Scope(members, others.isEmpty() ? null : new QueryableArray(others.toArray(new IInstallableUnit[others.size()])));
+			scopes.put(queryable, scope);
+			return scope;
+		}
+	}
+
+	/**
+	 * Returns whether the given filter matches the given selection context. Filters and
+	 * selection contexts are compared by identity, the selection context must not change
+	 * during the session.
+	 */
+	public boolean isMatch(IMatchExpression<IInstallableUnit> filter, IInstallableUnit selectionContext) {
+		Map<IMatchExpression<IInstallableUnit>, Boolean> contextResults;
+		Boolean result;
+		synchronized (filterResults) {
+			contextResults = filterResults.get(selectionContext);
+			if (contextResults == null) {
+				contextResults = new IdentityHashMap<>();
+				filterResults.put(selectionContext, contextResults);
+			}
+			result = contextResults.get(filter);
+		}
+		if (result != null) {
+			filterHits.incrementAndGet();
+			return result.booleanValue();
+		}
+		filterMisses.incrementAndGet();
+		result = Boolean.valueOf(filter.isMatch(selectionContext));
+		synchronized (filterResults) {
+			contextResults.put(filter, result);
+		}
+		return result.booleanValue();
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+	public long getFilterHits() {
+		return filterHits.get();
+	}
+
+	public long getFilterMisses() {
+		return filterMisses.get();
+	}
+
+	@Override
+	public String toString() {
+		return "Requirement matches cache hits: " + hits.get() + ", misses: " + misses.get() + ", filter results cache hits: " + filterHits.get() + ", misses: " + filterMisses.get(); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2017 IBM Corporation and others.
+ * Copyright (c) 2007, 2026 IBM Corporation and others.
  *
  * This
  * program and the accompanying materials are made available under the terms of
@@ -32,6 +32,7 @@ import org.eclipse.equinox.internal.p2.core.helpers.Tracing;
 import org.eclipse.equinox.internal.p2.director.Explanation.MissingIU;
 import org.eclipse.equinox.internal.p2.director.Explanation.Singleton;
 import org.eclipse.equinox.internal.p2.metadata.IRequiredCapability;
+import org.eclipse.equinox.internal.p2.metadata.InstallableUnit;
 import org.eclipse.equinox.internal.p2.metadata.query.UpdateQuery;
 import org.eclipse.equinox.internal.p2.rollback.FormerState;
 import org.eclipse.equinox.internal.provisional.p2.director.PlannerStatus;
@@ -61,11 +62,13 @@ public class SimplePlanner implements IPlanner {
 	private final IProvisioningAgent agent;
 	private final IProfileRegistry profileRegistry;
 	private final IEngine engine;
+	private final PlannerCache planCache = PlannerCache.create();
+	private final ProjectorEncodingCache encodingCache = ProjectorEncodingCache.create();
 
 	private IProvisioningPlan generateProvisioningPlan(Collection<IInstallableUnit> fromState,
 			Collection<IInstallableUnit> toState, ProfileChangeRequest changeRequest, IProvisioningPlan installerPlan,
 			ProvisioningContext context) {
-		IProvisioningPlan plan = engine.createPlan(changeRequest.getProfile(), context);
+		IProvisioningPlan plan = planCache.createPlan(engine, changeRequest.getProfile(), context);
 		plan.setFuturePlan(new CollectionResult<>(toState));
 		planIUOperations(plan, fromState, toState);
 		planPropertyOperations(plan, changeRequest, toState);
@@ -414,6 +417,8 @@ public class SimplePlanner implements IPlanner {
 			IProgressMonitor monitor) {
 		SubMonitor sub = SubMonitor.convert(monitor, ExpandWork);
 		sub.setTaskName(Messages.Director_Task_Resolving_Dependencies);
+		ProjectorEncodingCache.Key encodingKey = null;
+		Projector.Encoding encoding = null;
 		try {
 			IProfile profile = profileChangeRequest.getProfile();
 
@@ -434,12 +439,17 @@ public class SimplePlanner implements IPlanner {
 
 			IInstallableUnit[] availableIUs = gatherAvailableInstallableUnits(
 					extraIUs.stream().toArray(IInstallableUnit[]::new), context, sub.newChild(ExpandWork / 4));
-			Slicer slicer = new Slicer(new QueryableArray(availableIUs), newSelectionContext,
+			IQueryable<IInstallableUnit> available = new QueryableArray(availableIUs);
+			RequirementMatchCache matchCache = new RequirementMatchCache(available);
+			// the results of the filters are cached per selection context unit, shared by the slicer and the projector
+			IInstallableUnit selectionContextIU = InstallableUnit.contextIU(newSelectionContext);
+			Slicer slicer = new Slicer(available, selectionContextIU,
 					satisfyMetaRequirements(profileChangeRequest.getProfileProperties()));
+			slicer.setMatchCache(matchCache);
 			IQueryable<IInstallableUnit> slice = slicer
 					.slice(new IInstallableUnit[] { (IInstallableUnit) updatedPlan[0] }, sub.newChild(ExpandWork / 4));
 			if (slice == null) {
-				IProvisioningPlan plan = engine.createPlan(profile, context);
+				IProvisioningPlan plan = planCache.createPlan(engine, profile, context);
 				plan.setStatus(slicer.getStatus());
 				return plan;
 			}
@@ -449,16 +459,36 @@ public class SimplePlanner implements IPlanner {
 					new QueryableArray(profileChangeRequest.getAdditions().stream().toArray(IInstallableUnit[]::new)) };
 			slice = new CompoundQueryable<>(queryables);
 
-			Projector projector = new Projector(slice, newSelectionContext, slicer.getNonGreedyIUs(),
+			Projector projector = new Projector(slice, selectionContextIU, slicer.getNonGreedyIUs(),
 					satisfyMetaRequirements(profileChangeRequest.getProfileProperties()));
 			projector.setUserDefined(profileChangeRequest.getPropertiesToAdd().containsKey("_internal_user_defined_")); //$NON-NLS-1$
+			projector.setMatchCache(matchCache);
+			if (encodingCache.isEnabled()) {
+				encodingKey = encodingCache.createKey(profile.getProfileId(), context, newSelectionContext,
+						satisfyMetaRequirements(profileChangeRequest.getProfileProperties()));
+				projector.setEncoding(encodingCache.take(encodingKey));
+			}
 			projector.encode((IInstallableUnit) updatedPlan[0], (IInstallableUnit[]) updatedPlan[1], profile,
 					profileChangeRequest.getAdditions(), sub.newChild(ExpandWork / 4));
+			if (Tracing.DEBUG_PLANNER_PROJECTOR)
+				Tracing.debug(matchCache.toString());
 
 			IStatus s = projector.invokeSolver(sub.newChild(ExpandWork / 4));
+			// the encoding is put back once the explanation, if any, has been computed
+			encoding = projector.getEncoding();
+			if (s.getCode() == UNSATISFIABLE && projector.isEncodingReused()) {
+				// the units out of the slice are only assumed not to be installed, which an
+				// explanation would not tell: explain the failure with the slice alone
+				projector = new Projector(slice, selectionContextIU, slicer.getNonGreedyIUs(),
+						satisfyMetaRequirements(profileChangeRequest.getProfileProperties()));
+				projector.setMatchCache(matchCache);
+				projector.encode((IInstallableUnit) updatedPlan[0], (IInstallableUnit[]) updatedPlan[1], profile,
+						profileChangeRequest.getAdditions(), sub.newChild(0));
+				s = projector.invokeSolver(sub.newChild(0));
+			}
 			switch (s.getSeverity()) {
 			case CANCEL: {
-				IProvisioningPlan plan = engine.createPlan(profile, context);
+				IProvisioningPlan plan = planCache.createPlan(engine, profile, context);
 				plan.setStatus(s);
 				return plan;
 			}
@@ -468,7 +498,7 @@ public class SimplePlanner implements IPlanner {
 				sub.setTaskName(Messages.Planner_NoSolution);
 				if (s.getCode() != UNSATISFIABLE || (context != null && !(context.getProperty(EXPLANATION) == null
 						|| Boolean.parseBoolean(context.getProperty(EXPLANATION))))) {
-					IProvisioningPlan plan = engine.createPlan(profile, context);
+					IProvisioningPlan plan = planCache.createPlan(engine, profile, context);
 					plan.setStatus(s);
 					return plan;
 				}
@@ -483,7 +513,7 @@ public class SimplePlanner implements IPlanner {
 				PlannerStatus plannerStatus = new PlannerStatus(explanationStatus,
 						new RequestStatus(null, REMOVED, ERROR, explanation), requestChanges, requestSideEffects, null);
 
-				IProvisioningPlan plan = engine.createPlan(profile, context);
+				IProvisioningPlan plan = planCache.createPlan(engine, profile, context);
 				plan.setStatus(plannerStatus);
 				return plan;
 			}
@@ -503,6 +533,8 @@ public class SimplePlanner implements IPlanner {
 			}
 			}
 		} finally {
+			if (encoding != null)
+				encodingCache.put(encodingKey, encoding);
 			sub.done();
 		}
 	}
@@ -511,6 +543,22 @@ public class SimplePlanner implements IPlanner {
 	public IProvisioningPlan getProvisioningPlan(IProfileChangeRequest request, ProvisioningContext context,
 			IProgressMonitor monitor) {
 		ProfileChangeRequest pcr = (ProfileChangeRequest) request;
+		if (!planCache.isEnabled())
+			return computeProvisioningPlan(pcr, context, monitor);
+		PlannerCache.Fingerprint fingerprint = planCache.createFingerprint(pcr, context, agent);
+		IProvisioningPlan plan = fingerprint == null ? null : planCache.get(fingerprint, context);
+		if (plan != null)
+			return plan;
+		plan = computeProvisioningPlan(pcr, context, monitor);
+		// the repositories consulted are loaded now, remember the plan with their current state
+		fingerprint = planCache.createFingerprint(pcr, context, agent);
+		if (fingerprint != null)
+			planCache.put(fingerprint, plan);
+		return PlannerCache.unwrap(plan);
+	}
+
+	private IProvisioningPlan computeProvisioningPlan(ProfileChangeRequest pcr, ProvisioningContext context,
+			IProgressMonitor monitor) {
 		SubMonitor sub = SubMonitor.convert(monitor, ExpandWork);
 		sub.setTaskName(Messages.Director_Task_Resolving_Dependencies);
 		try {
@@ -534,7 +582,7 @@ public class SimplePlanner implements IPlanner {
 			return createInstallerPlan(pcr.getProfile(), pcr, fullState, newState, temporaryPlan, context,
 					sub.newChild(ExpandWork / 2));
 		} catch (OperationCanceledException e) {
-			IProvisioningPlan plan = engine.createPlan(pcr.getProfile(), context);
+			IProvisioningPlan plan = planCache.createPlan(engine, pcr.getProfile(), context);
 			plan.setStatus(Status.CANCEL_STATUS);
 			return plan;
 		} finally {
@@ -621,7 +669,7 @@ public class SimplePlanner implements IPlanner {
 		try {
 			sub.setTaskName(Messages.Director_Task_installer_plan);
 			if (profileRegistry == null) {
-				IProvisioningPlan plan = engine.createPlan(initialRequest.getProfile(), initialContext);
+				IProvisioningPlan plan = planCache.createPlan(engine, initialRequest.getProfile(), initialContext);
 				plan.setStatus(new Status(ERROR, PI_DIRECTOR, Messages.Planner_no_profile_registry));
 				return plan;
 			}
@@ -642,7 +690,7 @@ public class SimplePlanner implements IPlanner {
 				// The target and the installer are the same profile (e.g. the eclipse SDK)
 				if (profile.getProfileId().equals(installerProfile.getProfileId())) {
 					if (profile.getTimestamp() != installerProfile.getTimestamp()) {
-						IProvisioningPlan plan = engine.createPlan(initialRequest.getProfile(), initialContext);
+						IProvisioningPlan plan = planCache.createPlan(engine, initialRequest.getProfile(), initialContext);
 						plan.setStatus(new Status(ERROR, PI_DIRECTOR,
 								NLS.bind(Messages.Planner_profile_out_of_sync, profile.getProfileId())));
 						return plan;
@@ -716,9 +764,9 @@ public class SimplePlanner implements IPlanner {
 			MultiStatus externalInstallerStatus = new MultiStatus(PI_DIRECTOR, 0, Messages.Planner_can_not_install_preq,
 					null);
 			externalInstallerStatus.add(((IProvisioningPlan) externalInstallerPlan).getStatus());
-			IProvisioningPlan plan = engine.createPlan(initialRequest.getProfile(), initialContext);
+			IProvisioningPlan plan = planCache.createPlan(engine, initialRequest.getProfile(), initialContext);
 			plan.setStatus(externalInstallerStatus);
-			IProvisioningPlan installerPlan = engine.createPlan(agentProfile, initialContext);
+			IProvisioningPlan installerPlan = planCache.createPlan(engine, agentProfile, initialContext);
 			installerPlan.setStatus(externalInstallerStatus);
 			plan.setInstallerPlan(installerPlan);
 			return plan;
@@ -779,9 +827,9 @@ public class SimplePlanner implements IPlanner {
 			MultiStatus agentStatus = new MultiStatus(PI_DIRECTOR, 0,
 					Messages.Planner_actions_and_software_incompatible, null);
 			agentStatus.add(((IProvisioningPlan) agentSolution).getStatus());
-			IProvisioningPlan plan = engine.createPlan(initialRequest.getProfile(), initialContext);
+			IProvisioningPlan plan = planCache.createPlan(engine, initialRequest.getProfile(), initialContext);
 			plan.setStatus(agentStatus);
-			IProvisioningPlan installerPlan = engine.createPlan(initialRequest.getProfile(), initialContext);
+			IProvisioningPlan installerPlan = planCache.createPlan(engine, initialRequest.getProfile(), initialContext);
 			installerPlan.setStatus(agentStatus);
 			plan.setInstallerPlan(installerPlan);
 			return plan;
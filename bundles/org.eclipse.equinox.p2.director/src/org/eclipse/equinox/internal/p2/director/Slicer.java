@@ -1,5 +1,5 @@
 /*******************************************************************************
- *  Copyright (c) 2007, 2017 IBM Corporation and others.
+ *  Copyright (c) 2007, 2026 IBM Corporation and others.
  *
  *  This program and the accompanying materials
  *  are made available under the terms of the Eclipse Public License 2.0
@@ -15,6 +15,8 @@
 package org.eclipse.equinox.internal.p2.director;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import org.eclipse.core.runtime.*;
 import org.eclipse.equinox.internal.p2.core.helpers.LogHelper;
 import org.eclipse.equinox.internal.p2.core.helpers.Tracing;
@@ -26,6 +28,13 @@ import org.eclipse.equinox.p2.query.*;
 import org.eclipse.osgi.util.NLS;
 
 public class Slicer {
+	/**
+	 * System property specifying the number of threads used to expand the requirements
+	 * of the installable units being sliced. A value of 1 (the default) slices sequentially.
+	 */
+	public static final String PROP_PARALLELISM = "eclipse.p2.director.slicerParallelism"; //$NON-NLS-1$
+	private static final int MIN_UNITS_PER_TASK = 8;
+
 	private static boolean DEBUG = false;
 	private final IQueryable<IInstallableUnit> possibilites;
 	private final boolean considerMetaRequirements;
@@ -36,6 +45,8 @@ public class Slicer {
 	private LinkedList<IInstallableUnit> toProcess;
 	private Set<IInstallableUnit> considered; //IUs to add to the slice
 	private Set<IInstallableUnit> nonGreedyIUs = new HashSet<>(); //IUs that are brought in by non greedy dependencies
+	private int parallelism = Math.max(1, Integer.getInteger(PROP_PARALLELISM, 1).intValue());
+	private RequirementMatchCache matchCache;
 
 	public Slicer(IQueryable<IInstallableUnit> input, Map<String, String> context, boolean considerMetaRequirements) {
 		this(input, InstallableUnit.contextIU(context), considerMetaRequirements);
@@ -45,10 +56,29 @@ public class Slicer {
 		this.possibilites = possibilites;
 		this.selectionContext = selectionContext;
 		this.considerMetaRequirements = considerMetaRequirements;
+		this.matchCache = new RequirementMatchCache(possibilites);
 		slice = new HashMap<>();
 		result = new MultiStatus(DirectorActivator.PI_DIRECTOR, IStatus.OK, Messages.Planner_Problems_resolving_plan, null);
 	}
 
+	/**
+	 * Sets the number of threads used to expand requirements while slicing. With more than
+	 * one thread the units are processed one breadth-first level at a time: the requirements
+	 * of all the units of a level are expanded concurrently and the results are then merged
+	 * in the order of the level, so the slice and the status are the same as when slicing
+	 * sequentially.
+	 */
+	public void setParallelism(int parallelism) {
+		this.parallelism = Math.max(1, parallelism);
+	}
+
+	/**
+	 * Shares the matches of the requirements with the other participants of a planning session.
+	 */
+	public void setMatchCache(RequirementMatchCache matchCache) {
+		this.matchCache = matchCache;
+	}
+
 	public IQueryable<IInstallableUnit> slice(IInstallableUnit[] ius, IProgressMonitor monitor) {
 		try {
 			long start = 0;
@@ -60,11 +90,10 @@ public class Slicer {
 			validateInput(ius);
 			considered = new HashSet<>(Arrays.asList(ius));
 			toProcess = new LinkedList<>(considered);
+			if (parallelism > 1)
+				sliceInParallel(monitor);
 			while (!toProcess.isEmpty()) {
-				if (monitor.isCanceled()) {
-					result.merge(Status.CANCEL_STATUS);
-					throw new OperationCanceledException();
-				}
+				checkCanceled(monitor);
 				processIU(toProcess.removeFirst());
 			}
 			computeNonGreedyIUs();
@@ -82,6 +111,33 @@ public class Slicer {
 		return new QueryableArray(considered.toArray(new IInstallableUnit[considered.size()]));
 	}
 
+	private void checkCanceled(IProgressMonitor monitor) {
+		if (monitor.isCanceled()) {
+			result.merge(Status.CANCEL_STATUS);
+			throw new OperationCanceledException();
+		}
+	}
+
+	private void sliceInParallel(IProgressMonitor monitor) {
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			while (!toProcess.isEmpty()) {
+				checkCanceled(monitor);
+				Expansion[] level = new Expansion[toProcess.size()];
+				for (int i = 0; i < level.length; i++) {
+					IInstallableUnit iu = toProcess.removeFirst().unresolved();
+					addToSlice(iu);
+					level[i] = new Expansion(iu);
+				}
+				pool.invoke(new ExpansionTask(level, 0, level.length));
+				for (Expansion expansion : level)
+					merge(expansion);
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
 	private void computeNonGreedyIUs() {
 		IQueryable<IInstallableUnit> queryable = new QueryableArray(considered.toArray(new IInstallableUnit[considered.size()]));
 		Iterator<IInstallableUnit> it = queryable.query(QueryUtil.ALL_UNITS, new NullProgressMonitor()).iterator();
@@ -113,17 +169,23 @@ public class Slicer {
 	// Check whether the requirement is applicable
 	protected boolean isApplicable(IRequirement req) {
 		IMatchExpression<IInstallableUnit> filter = req.getFilter();
-		return filter == null || filter.isMatch(selectionContext);
+		return filter == null || matchCache.isMatch(filter, selectionContext);
 	}
 
 	protected boolean isApplicable(IInstallableUnit iu) {
 		IMatchExpression<IInstallableUnit> filter = iu.getFilter();
-		return filter == null || filter.isMatch(selectionContext);
+		return filter == null || matchCache.isMatch(filter, selectionContext);
 	}
 
 	protected void processIU(IInstallableUnit iu) {
 		iu = iu.unresolved();
+		addToSlice(iu);
+		Expansion expansion = new Expansion(iu);
+		expand(expansion);
+		merge(expansion);
+	}
 
+	private void addToSlice(IInstallableUnit iu) {
 		Map<Version, IInstallableUnit> iuSlice = slice.get(iu.getId());
 		if (iuSlice == null) {
 
@@ -131,6 +193,12 @@ public class Slicer {
 			slice.put(iu.getId(), iuSlice);
 		}
 		iuSlice.put(iu.getVersion(), iu);
+	}
+
+	// Collects the matches of the requirements of the unit. This does not modify the state
+	// of the slicer and may therefore run concurrently for different units.
+	private void expand(Expansion expansion) {
+		IInstallableUnit iu = expansion.iu;
 		if (!isApplicable(iu)) {
 			return;
 		}
@@ -146,7 +214,17 @@ public class Slicer {
 				continue;
 			}
 
-			expandRequirement(iu, req);
+			expandRequirement(expansion, req);
+		}
+	}
+
+	private void merge(Expansion expansion) {
+		for (IStatus problem : expansion.problems)
+			result.add(problem);
+		for (IInstallableUnit match : expansion.matches) {
+			Map<Version, IInstallableUnit> iuSlice = slice.get(match.getId());
+			if (iuSlice == null || !iuSlice.containsKey(match.getVersion()))
+				consider(match);
 		}
 	}
 
@@ -180,27 +258,23 @@ public class Slicer {
 		return aggregatedRequirements;
 	}
 
-	private void expandRequirement(IInstallableUnit iu, IRequirement req) {
+	private void expandRequirement(Expansion expansion, IRequirement req) {
 		if (req.getMax() == 0)
 			return;
-		IQueryResult<IInstallableUnit> matches = possibilites.query(QueryUtil.createMatchQuery(req.getMatches()), null);
 		int validMatches = 0;
-		for (Iterator<IInstallableUnit> iterator = matches.iterator(); iterator.hasNext();) {
-			IInstallableUnit match = iterator.next();
+		for (IInstallableUnit match : matchCache.getMatches(possibilites, req)) {
 			if (!isApplicable(match))
 				continue;
 			validMatches++;
-			Map<Version, IInstallableUnit> iuSlice = slice.get(match.getId());
-			if (iuSlice == null || !iuSlice.containsKey(match.getVersion()))
-				consider(match);
+			expansion.matches.add(match);
 		}
 
 		if (validMatches == 0) {
 			if (req.getMin() == 0) {
 				if (DEBUG)
-					System.out.println("No IU found to satisfy optional dependency of " + iu + " on req " + req); //$NON-NLS-1$//$NON-NLS-2$
+					System.out.println("No IU found to satisfy optional dependency of " + expansion.iu + " on req " + req); //$NON-NLS-1$//$NON-NLS-2$
 			} else {
-				result.add(new Status(IStatus.WARNING, DirectorActivator.PI_DIRECTOR, NLS.bind(Messages.Planner_Unsatisfied_dependency, iu, req)));
+				expansion.problems.add(new Status(IStatus.WARNING, DirectorActivator.PI_DIRECTOR, NLS.bind(Messages.Planner_Unsatisfied_dependency, expansion.iu, req)));
 			}
 		}
 	}
@@ -213,4 +287,42 @@ public class Slicer {
 	Set<IInstallableUnit> getNonGreedyIUs() {
 		return nonGreedyIUs;
 	}
+
+	/**
+	 * The applicable matches of the requirements of a unit and the problems found
+	 * while looking them up.
+	 */
+	private static class Expansion {
+		final IInstallableUnit iu;
+		final List<IInstallableUnit> matches = new ArrayList<>();
+		final List<IStatus> problems = new ArrayList<>(0);
+
+		Expansion(IInstallableUnit iu) {
+			this.iu = iu;
+		}
+	}
+
+	private class ExpansionTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final Expansion[] expansions;
+		private final int start;
+		private final int end;
+
+		ExpansionTask(Expansion[] expansions, int start, int end) {
+			this.expansions = expansions;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		protected void compute() {
+			if (end - start <= MIN_UNITS_PER_TASK) {
+				for (int i = start; i < end; i++)
+					expand(expansions[i]);
+				return;
+			}
+			int middle = (start + end) >>> 1;
+			invokeAll(new ExpansionTask(expansions, start, middle), new ExpansionTask(expansions, middle, end));
+		}
+	}
 }
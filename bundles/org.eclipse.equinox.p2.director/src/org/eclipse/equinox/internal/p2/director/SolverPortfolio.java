@@ -0,0 +1,380 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.internal.p2.director;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import org.eclipse.equinox.internal.p2.core.helpers.Tracing;
+import org.sat4j.minisat.core.*;
+import org.sat4j.minisat.learning.*;
+import org.sat4j.minisat.orders.*;
+import org.sat4j.minisat.restarts.*;
+import org.sat4j.pb.*;
+import org.sat4j.pb.constraints.CompetResolutionPBMixedHTClauseCardConstrDataStructure;
+import org.sat4j.pb.core.PBDataStructureFactory;
+import org.sat4j.pb.core.PBSolverResolution;
+import org.sat4j.pb.orders.VarOrderHeapObjective;
+import org.sat4j.pb.tools.DependencyHelper;
+import org.sat4j.pb.tools.WeightedObject;
+import org.sat4j.specs.*;
+import org.sat4j.specs.TimeoutException;
+import org.sat4j.tools.SolutionFoundListener;
+
+/**
+ * Races differently configured solvers on the same problem and keeps the answer of the
+ * first one proving it, either by finding an optimal solution or by showing that there
+ * is none. The other solvers are then stopped.
+ * <p>
+ * The first configuration is the one the projector uses on its own. The others vary the
+ * restart policy, the phase selection and the learning strategy of the solver. When no
+ * solver reaches a conclusion before its timeout, the best solution found is kept, the
+ * first configuration in portfolio order winning between solutions of equal cost.
+ * </p>
+ * <p>
+ * Solutions of equal cost may differ, and which solver proves the optimum first depends
+ * on timing. When another solver proves the optimum, the first configuration is therefore
+ * left running until it finds a solution of that cost, without having to prove it optimal.
+ * That solution is the one the first configuration would have ended with on its own, since
+ * it only accepts solutions better than the previous one, so the same solution is kept
+ * whichever solver won. The solution of the winner is only kept when the first configuration
+ * times out before.
+ * </p>
+ * <p>
+ * The number of solvers is given by {@link #PROP_PORTFOLIO_SIZE}. A single solver is
+ * used when the property is not set.
+ * </p>
+ */
+public class SolverPortfolio {
+	/**
+	 * System property specifying the number of solvers racing on a problem.
+	 */
+	public static final String PROP_PORTFOLIO_SIZE = "eclipse.p2.projector.portfolio"; //$NON-NLS-1$
+
+	/**
+	 * The number of distinct solver configurations.
+	 */
+	static final int CONFIGURATIONS = 5;
+
+	/**
+	 * The delay, in milliseconds, between two attempts at stopping a solver that is still running.
+	 */
+	private static final long STOP_INTERVAL = 10;
+
+	private final int size;
+	private final int timeout;
+	private DependencyHelper<Object, Explanation> winner;
+	private int winningConfiguration = -1;
+
+	/**
+	 * Outcome of one solver of the portfolio.
+	 */
+	private static final class Outcome {
+		final int configuration;
+		final DependencyHelper<Object, Explanation> helper;
+		final boolean satisfiable;
+		final boolean conclusive;
+
+		Outcome(int configuration, DependencyHelper<Object, Explanation> helper, boolean satisfiable, boolean conclusive) {
+			this.configuration = configuration;
+			this.helper = helper;
+			this.satisfiable = satisfiable;
+			this.conclusive = conclusive;
+		}
+
+		long getObjectiveValue() {
+			IPBSolver solver = helper.getSolver();
+			if (solver instanceof OptToPBSATAdapter) {
+				Number value = ((OptToPBSATAdapter) solver).getCurrentObjectiveValue();
+				if (value != null)
+					return value.longValue();
+			}
+			return Long.MAX_VALUE;
+		}
+	}
+
+	/**
+	 * @param size the number of solvers, at most {@link #CONFIGURATIONS} are used
+	 * @param timeout the timeout of each solver, in number of conflicts
+	 */
+	public SolverPortfolio(int size, int timeout) {
+		this.size = Math.max(1, Math.min(size, CONFIGURATIONS));
+		this.timeout = timeout;
+	}
+
+	/**
+	 * Returns the number of solvers specified by {@link #PROP_PORTFOLIO_SIZE}.
+	 */
+	public static int getSize() {
+		String value = DirectorActivator.context != null ? DirectorActivator.context.getProperty(PROP_PORTFOLIO_SIZE) : System.getProperty(PROP_PORTFOLIO_SIZE);
+		if (value == null)
+			return 1;
+		try {
+			return Math.max(1, Math.min(Integer.parseInt(value.trim()), CONFIGURATIONS));
+		} catch (NumberFormatException e) {
+			return 1;
+		}
+	}
+
+	/**
+	 * Creates the solver of the given configuration. The first configuration is the solver
+	 * the projector uses by default.
+	 */
+	static IPBSolver createSolver(int configuration) {
+		if (configuration == 0)
+			return SolverFactory.newEclipseP2();
+		return new OptToPBSATAdapter(new PseudoOptDecorator(createDecisionSolver(configuration)));
+	}
+
+	/**
+	 * Creates the solver of the given configuration without the optimization loop, the first
+	 * configuration being the one {@link SolverFactory#newEclipseP2()} wraps.
+	 */
+	static PBSolverResolution createDecisionSolver(int configuration) {
+		LearningStrategy<PBDataStructureFactory> learning;
+		IPhaseSelectionStrategy phase;
+		RestartStrategy restarts;
+		switch (configuration) {
+			case 0 :
+				learning = new MiniSATLearning<>();
+				phase = new RSATPhaseSelectionStrategy();
+				restarts = new ArminRestarts();
+				break;
+			case 1 :
+				learning = new MiniSATLearning<>();
+				phase = new RSATPhaseSelectionStrategy();
+				restarts = new LubyRestarts(512);
+				break;
+			case 2 :
+				learning = new MiniSATLearning<>();
+				phase = new PhaseCachingAutoEraseStrategy();
+				restarts = new Glucose21Restarts();
+				break;
+			case 3 :
+				learning = new PercentLengthLearning<>(10);
+				phase = new RSATLastLearnedClausesPhaseSelectionStrategy();
+				restarts = new ArminRestarts();
+				break;
+			default :
+				learning = new ClauseOnlyLearning<>();
+				phase = new NegativeLiteralSelectionStrategy();
+				restarts = new MiniSATRestarts();
+				break;
+		}
+		PBSolverResolution solver = new PBSolverResolution(learning, new CompetResolutionPBMixedHTClauseCardConstrDataStructure(), new VarOrderHeapObjective(phase), restarts);
+		if (learning instanceof MiniSATLearning) {
+			((MiniSATLearning<PBDataStructureFactory>) learning).setDataStructureFactory(solver.getDSFactory());
+			((MiniSATLearning<PBDataStructureFactory>) learning).setVarActivityListener(solver);
+		}
+		solver.setVerbose(false);
+		solver.setLearnedConstraintsDeletionStrategy(solver.memory_based);
+		return solver;
+	}
+
+	/**
+	 * Solves the problem held by the given helper with all the solvers of the portfolio.
+	 * The given helper takes part in the race with the first configuration, the others are
+	 * given the constraints and the objective function the problem has been encoded with.
+	 *
+	 * @return whether the problem has a solution, the solution being held by {@link #getWinner()}
+	 * @throws TimeoutException when no solver has found a solution before its timeout
+	 */
+	public boolean solve(DependencyHelper<Object, Explanation> helper, List<Projector.Constraint> constraints, WeightedObject<Object>[] objective, Collection<Object> assumptions) throws TimeoutException {
+		Outcome outcome = race(helper, constraints, objective, assumptions);
+		winner = outcome.helper;
+		winningConfiguration = outcome.configuration;
+		return outcome.satisfiable;
+	}
+
+	private Outcome race(DependencyHelper<Object, Explanation> helper, List<Projector.Constraint> constraints, WeightedObject<Object>[] objective, Collection<Object> assumptions) throws TimeoutException {
+		AtomicReferenceArray<DependencyHelper<Object, Explanation>> helpers = new AtomicReferenceArray<>(size);
+		List<Future<Outcome>> futures = new ArrayList<>(size);
+		AtomicBoolean finished = new AtomicBoolean();
+		ExecutorService executor = Executors.newFixedThreadPool(size, runnable -> {
+			Thread thread = new Thread(runnable, "p2 solver portfolio"); //$NON-NLS-1$
+			thread.setDaemon(true);
+			return thread;
+		});
+		CompletionService<Outcome> completion = new ExecutorCompletionService<>(executor);
+		AtomicLong firstValue = new AtomicLong(Long.MAX_VALUE);
+		OptToPBSATAdapter first = helper.getSolver() instanceof OptToPBSATAdapter ? (OptToPBSATAdapter) helper.getSolver() : null;
+		if (first != null)
+			first.setSolutionFoundListener(new SolutionFoundListener() {
+				@Override
+				public void onSolutionFound(int[] model) {
+					Number value = first.getCurrentObjectiveValue();
+					if (value != null)
+						firstValue.set(value.longValue());
+				}
+
+				@Override
+				public void onSolutionFound(IVecInt model) {
+					onSolutionFound(model.toArray());
+				}
+
+				@Override
+				public void onUnsatTermination() {
+					// the outcome tells
+				}
+			});
+		try {
+			for (int i = 0; i < size; i++) {
+				int configuration = i;
+				futures.add(completion.submit(() -> {
+					DependencyHelper<Object, Explanation> solver = configuration == 0 ? helper : createHelper(configuration, constraints, objective);
+					helpers.set(configuration, solver);
+					if (finished.get())
+						return null;
+					return solve(configuration, solver, objective, assumptions);
+				}));
+			}
+			Outcome best = null;
+			Exception failure = null;
+			for (int i = 0; i < size; i++) {
+				Outcome outcome;
+				try {
+					outcome = completion.take().get();
+				} catch (ExecutionException e) {
+					if (failure == null)
+						failure = e;
+					continue;
+				}
+				if (outcome == null)
+					continue;
+				if (outcome.conclusive) {
+					if (!outcome.satisfiable || outcome.configuration == 0 || objective == null || first == null)
+						return outcome;
+					return settle(outcome, futures, helpers, firstValue);
+				}
+				if (outcome.satisfiable && (best == null || isBetter(outcome, best)))
+					best = outcome;
+			}
+			if (best != null)
+				return best;
+			if (failure != null)
+				throw new IllegalStateException(failure.getCause());
+			throw new TimeoutException();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new TimeoutException();
+		} finally {
+			finished.set(true);
+			stop(futures, helpers);
+			executor.shutdown();
+			if (first != null)
+				first.setSolutionFoundListener(SolutionFoundListener.VOID);
+		}
+	}
+
+	private static boolean isBetter(Outcome outcome, Outcome best) {
+		long value = outcome.getObjectiveValue();
+		long bestValue = best.getObjectiveValue();
+		return value < bestValue || (value == bestValue && outcome.configuration < best.configuration);
+	}
+
+	/**
+	 * Stops the solvers still running and waits for them to return. A solver resets its
+	 * timeout when its search starts, so one stopped just before is stopped again until
+	 * it returns.
+	 */
+	private static void stop(List<Future<Outcome>> futures, AtomicReferenceArray<DependencyHelper<Object, Explanation>> helpers) {
+		for (int i = 0; i < futures.size(); i++)
+			stop(i, futures, helpers);
+	}
+
+	private static void stop(int configuration, List<Future<Outcome>> futures, AtomicReferenceArray<DependencyHelper<Object, Explanation>> helpers) {
+		boolean interrupted = false;
+		Future<Outcome> future = futures.get(configuration);
+		while (!future.isDone()) {
+			DependencyHelper<Object, Explanation> helper = helpers.get(configuration);
+			if (helper != null)
+				helper.stopSolver();
+			try {
+				future.get(STOP_INTERVAL, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException e) {
+				interrupted = true;
+			} catch (ExecutionException | java.util.concurrent.TimeoutException e) {
+				// checked again by the loop
+			}
+		}
+		if (interrupted)
+			Thread.currentThread().interrupt();
+	}
+
+	/**
+	 * Stops the solvers other than the first configuration and lets the first one run until
+	 * it finds a solution as good as the optimum the winner has proven, or until it returns.
+	 * Keeps the solution of the winner if the first configuration does not find one in time.
+	 */
+	private static Outcome settle(Outcome outcome, List<Future<Outcome>> futures, AtomicReferenceArray<DependencyHelper<Object, Explanation>> helpers, AtomicLong firstValue) throws InterruptedException {
+		for (int i = 1; i < futures.size(); i++)
+			stop(i, futures, helpers);
+		long optimum = outcome.getObjectiveValue();
+		Future<Outcome> future = futures.get(0);
+		while (!future.isDone() && firstValue.get() > optimum) {
+			try {
+				future.get(STOP_INTERVAL, TimeUnit.MILLISECONDS);
+			} catch (ExecutionException | java.util.concurrent.TimeoutException e) {
+				// checked again by the loop
+			}
+		}
+		// no better solution than the optimum is left to look for
+		stop(0, futures, helpers);
+		try {
+			Outcome first = future.get();
+			if (first != null && first.satisfiable && first.getObjectiveValue() <= optimum)
+				return new Outcome(0, first.helper, true, true);
+		} catch (ExecutionException e) {
+			// keep the solution of the winner
+		}
+		if (Tracing.DEBUG_PLANNER_PROJECTOR)
+			Tracing.debug("Solution of solver configuration " + outcome.configuration + " kept"); //$NON-NLS-1$ //$NON-NLS-2$
+		return outcome;
+	}
+
+	private DependencyHelper<Object, Explanation> createHelper(int configuration, List<Projector.Constraint> constraints, WeightedObject<Object>[] objective) throws ContradictionException {
+		IPBSolver solver = createSolver(configuration);
+		solver.setTimeoutOnConflicts(timeout);
+		DependencyHelper<Object, Explanation> helper = new DependencyHelper<>(solver);
+		for (Projector.Constraint constraint : constraints)
+			constraint.post(helper);
+		if (objective != null)
+			helper.setObjectiveFunction(objective);
+		return helper;
+	}
+
+	private static Outcome solve(int configuration, DependencyHelper<Object, Explanation> helper, WeightedObject<Object>[] objective, Collection<Object> assumptions) {
+		try {
+			boolean satisfiable = helper.hasASolution(assumptions);
+			IPBSolver solver = helper.getSolver();
+			boolean optimal = objective == null || !(solver instanceof OptToPBSATAdapter) || ((OptToPBSATAdapter) solver).isOptimal();
+			return new Outcome(configuration, helper, satisfiable, !satisfiable || optimal);
+		} catch (TimeoutException e) {
+			if (Tracing.DEBUG_PLANNER_PROJECTOR)
+				Tracing.debug("Solver configuration " + configuration + " timed out"); //$NON-NLS-1$ //$NON-NLS-2$
+			return new Outcome(configuration, helper, false, false);
+		}
+	}
+
+	/**
+	 * Returns the helper holding the solution of the solver that won the race.
+	 */
+	public DependencyHelper<Object, Explanation> getWinner() {
+		return winner;
+	}
+
+	public int getWinningConfiguration() {
+		return winningConfiguration;
+	}
+}
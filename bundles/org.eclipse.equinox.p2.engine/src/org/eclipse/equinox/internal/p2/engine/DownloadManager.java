@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2017 IBM Corporation and others.
+ * Copyright (c) 2007, 2026 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -15,17 +15,93 @@
 package org.eclipse.equinox.internal.p2.engine;
 
 import java.util.*;
+import java.util.concurrent.*;
 import org.eclipse.core.runtime.*;
+import org.eclipse.equinox.internal.p2.core.helpers.LogHelper;
 import org.eclipse.equinox.internal.p2.engine.phases.Collect;
+import org.eclipse.equinox.internal.p2.repository.ArtifactCache;
 import org.eclipse.equinox.internal.provisional.p2.core.eventbus.IProvisioningEventBus;
 import org.eclipse.equinox.p2.core.IProvisioningAgent;
 import org.eclipse.equinox.p2.engine.ProvisioningContext;
+import org.eclipse.equinox.p2.metadata.IArtifactKey;
 import org.eclipse.equinox.p2.metadata.expression.ExpressionUtil;
 import org.eclipse.equinox.p2.query.*;
-import org.eclipse.equinox.p2.repository.artifact.IArtifactRepository;
-import org.eclipse.equinox.p2.repository.artifact.IArtifactRequest;
+import org.eclipse.equinox.p2.repository.artifact.*;
 
 public class DownloadManager {
+	/**
+	 * Reports the progress of one of the repositories fetching at the same time as a
+	 * share of the progress of the round. The monitor of the round is used by one thread
+	 * at a time, and so are the share and the progress reported, which are guarded by
+	 * the same lock since a repository may report its progress from several threads.
+	 */
+	private static final class SharedProgressMonitor extends NullProgressMonitor {
+		private final IProgressMonitor round;
+		private final int ticks;
+		private double scale;
+		private double reported;
+
+		SharedProgressMonitor(IProgressMonitor round, int ticks) {
+			this.round = round;
+			this.ticks = ticks;
+		}
+
+		@Override
+		public void beginTask(String name, int totalWork) {
+			synchronized (round) {
+				scale = totalWork > 0 ? (double) ticks / totalWork : 0;
+			}
+		}
+
+		@Override
+		public void worked(int work) {
+			internalWorked(work);
+		}
+
+		@Override
+		public void internalWorked(double work) {
+			synchronized (round) {
+				report(Math.min(work * scale, ticks - reported));
+			}
+		}
+
+		@Override
+		public void done() {
+			synchronized (round) {
+				report(ticks - reported);
+			}
+		}
+
+		// called holding the lock of the round
+		private void report(double work) {
+			if (work <= 0)
+				return;
+			reported += work;
+			round.internalWorked(work);
+		}
+
+		@Override
+		public boolean isCanceled() {
+			synchronized (round) {
+				return round.isCanceled();
+			}
+		}
+
+		@Override
+		public void setCanceled(boolean canceled) {
+			synchronized (round) {
+				round.setCanceled(canceled);
+			}
+		}
+
+		@Override
+		public void subTask(String name) {
+			synchronized (round) {
+				round.subTask(name);
+			}
+		}
+	}
+
 	private ProvisioningContext provContext = null;
 	ArrayList<IArtifactRequest> requestsToProcess = new ArrayList<>();
 	private IProvisioningAgent agent = null;
@@ -119,13 +195,33 @@ public class DownloadManager {
 		return repositories;
 	}
 
+	/*
+	 * Fetches the requests in rounds. In each round every request still to fetch is assigned
+	 * to the first repository containing its artifact that it has not been tried against, and
+	 * the repositories given requests fetch them at the same time. The requests that failed
+	 * are given to the next repository containing their artifact in the following round.
+	 * The requests whose artifact is in the shared cache of downloaded artifacts are fetched
+	 * in a first round, from a repository describing the bytes of the cache.
+	 */
 	private void fetch(IArtifactRepository[] repositories, IProgressMonitor mon) {
 		SubMonitor monitor = SubMonitor.convert(mon, requestsToProcess.size());
-		for (int i = 0; i < repositories.length && !requestsToProcess.isEmpty() && !monitor.isCanceled(); i++) {
-			IArtifactRequest[] requests = getRequestsForRepository(repositories[i]);
-			publishDownloadEvent(new CollectEvent(CollectEvent.TYPE_REPOSITORY_START, repositories[i], provContext, requests));
-			IStatus dlStatus = repositories[i].getArtifacts(requests, monitor.newChild(requests.length));
-			publishDownloadEvent(new CollectEvent(CollectEvent.TYPE_REPOSITORY_END, repositories[i], provContext, requests));
+		Map<IArtifactRepository, Set<IArtifactKey>> keys = new HashMap<>();
+		Map<IArtifactRequest, Integer> nextRepository = new HashMap<>();
+		ArtifactCache cache = ArtifactCache.getDefault();
+		if (cache != null) {
+			Map<IArtifactRepository, IArtifactRequest[]> cached = assignCachedRequests(repositories, keys, cache);
+			if (!cached.isEmpty()) {
+				if (fetch(cached, monitor).getSeverity() == IStatus.CANCEL)
+					return;
+				filterUnfetched();
+				monitor.setWorkRemaining(requestsToProcess.size());
+			}
+		}
+		while (!requestsToProcess.isEmpty() && !monitor.isCanceled()) {
+			Map<IArtifactRepository, IArtifactRequest[]> assignments = assignRequests(repositories, keys, nextRepository);
+			if (assignments.isEmpty())
+				return;
+			IStatus dlStatus = fetch(assignments, monitor);
 			if (dlStatus.getSeverity() == IStatus.CANCEL)
 				return;
 			filterUnfetched();
@@ -133,19 +229,126 @@ public class DownloadManager {
 		}
 	}
 
-	private void publishDownloadEvent(CollectEvent event) {
-		IProvisioningEventBus bus = (IProvisioningEventBus) agent.getService(IProvisioningEventBus.SERVICE_NAME);
-		if (bus != null)
-			bus.publishEvent(event);
+	private Map<IArtifactRepository, IArtifactRequest[]> assignRequests(IArtifactRepository[] repositories, Map<IArtifactRepository, Set<IArtifactKey>> keys, Map<IArtifactRequest, Integer> nextRepository) {
+		Map<IArtifactRepository, List<IArtifactRequest>> assigned = new LinkedHashMap<>();
+		for (IArtifactRequest request : requestsToProcess) {
+			Integer next = nextRepository.get(request);
+			int i = next == null ? 0 : next.intValue();
+			while (i < repositories.length && !contains(repositories[i], request.getArtifactKey(), keys))
+				i++;
+			if (i < repositories.length)
+				assigned.computeIfAbsent(repositories[i], r -> new ArrayList<>()).add(request);
+			nextRepository.put(request, Integer.valueOf(Math.min(i + 1, repositories.length)));
+		}
+		// keep the order of the repositories
+		Map<IArtifactRepository, IArtifactRequest[]> result = new LinkedHashMap<>();
+		for (IArtifactRepository repository : repositories) {
+			List<IArtifactRequest> requests = assigned.get(repository);
+			if (requests != null)
+				result.put(repository, requests.toArray(new IArtifactRequest[requests.size()]));
+		}
+		return result;
 	}
 
-	private IArtifactRequest[] getRequestsForRepository(IArtifactRepository repository) {
-		ArrayList<IArtifactRequest> applicable = new ArrayList<>();
+	/*
+	 * Assigns the requests whose artifact is in the cache to the first repository having a
+	 * descriptor of the artifact whose bytes are in the cache.
+	 */
+	private Map<IArtifactRepository, IArtifactRequest[]> assignCachedRequests(IArtifactRepository[] repositories, Map<IArtifactRepository, Set<IArtifactKey>> keys, ArtifactCache cache) {
+		Map<IArtifactRepository, List<IArtifactRequest>> assigned = new LinkedHashMap<>();
 		for (IArtifactRequest request : requestsToProcess) {
-			if (repository.contains(request.getArtifactKey()))
-				applicable.add(request);
+			for (IArtifactRepository repository : repositories) {
+				if (contains(repository, request.getArtifactKey(), keys) && isCached(repository, request.getArtifactKey(), cache)) {
+					assigned.computeIfAbsent(repository, r -> new ArrayList<>()).add(request);
+					break;
+				}
+			}
+		}
+		Map<IArtifactRepository, IArtifactRequest[]> result = new LinkedHashMap<>();
+		for (Map.Entry<IArtifactRepository, List<IArtifactRequest>> entry : assigned.entrySet())
+			result.put(entry.getKey(), entry.getValue().toArray(new IArtifactRequest[entry.getValue().size()]));
+		return result;
+	}
+
+	private static boolean isCached(IArtifactRepository repository, IArtifactKey key, ArtifactCache cache) {
+		for (IArtifactDescriptor descriptor : repository.getArtifactDescriptors(key)) {
+			String cacheKey = ArtifactCache.getKey(descriptor);
+			if (cacheKey != null && cache.contains(cacheKey))
+				return true;
 		}
-		return applicable.toArray(new IArtifactRequest[applicable.size()]);
+		return false;
+	}
+
+	/*
+	 * Returns whether the repository contains the artifact. The keys of the artifacts of a
+	 * repository are queried at once the first time a request could be fetched from it. The
+	 * repositories answering with no key, as do those not supporting the query, are asked
+	 * for each artifact.
+	 */
+	private boolean contains(IArtifactRepository repository, IArtifactKey key, Map<IArtifactRepository, Set<IArtifactKey>> keys) {
+		Set<IArtifactKey> result = keys.get(repository);
+		if (result == null && !keys.containsKey(repository)) {
+			IQueryResult<IArtifactKey> allKeys = repository.query(ArtifactKeyQuery.ALL_KEYS, null);
+			// not every repository answers queries for its keys
+			result = allKeys.isEmpty() ? null : allKeys.toUnmodifiableSet();
+			keys.put(repository, result);
+		}
+		return result != null ? result.contains(key) : repository.contains(key);
+	}
+
+	private IStatus fetch(Map<IArtifactRepository, IArtifactRequest[]> assignments, SubMonitor monitor) {
+		if (assignments.size() == 1) {
+			Map.Entry<IArtifactRepository, IArtifactRequest[]> assignment = assignments.entrySet().iterator().next();
+			return fetch(assignment.getKey(), assignment.getValue(), monitor.newChild(assignment.getValue().length));
+		}
+
+		int work = 0;
+		for (IArtifactRequest[] requests : assignments.values())
+			work += requests.length;
+		SubMonitor round = monitor.newChild(work);
+		round.setWorkRemaining(work);
+		ExecutorService executor = Executors.newFixedThreadPool(assignments.size(), runnable -> {
+			Thread thread = new Thread(runnable, "p2 artifact fetch"); //$NON-NLS-1$
+			thread.setDaemon(true);
+			return thread;
+		});
+		try {
+			List<Future<IStatus>> results = new ArrayList<>(assignments.size());
+			for (Map.Entry<IArtifactRepository, IArtifactRequest[]> assignment : assignments.entrySet()) {
+				IProgressMonitor repositoryMonitor = new SharedProgressMonitor(round, assignment.getValue().length);
+				results.add(executor.submit(() -> fetch(assignment.getKey(), assignment.getValue(), repositoryMonitor)));
+			}
+			IStatus result = Status.OK_STATUS;
+			for (Future<IStatus> future : results) {
+				try {
+					IStatus status = future.get();
+					if (status.getSeverity() == IStatus.CANCEL)
+						result = status;
+				} catch (ExecutionException e) {
+					// the requests that have not been performed are reported as not fetched
+					LogHelper.log(new Status(IStatus.ERROR, EngineActivator.ID, e.getCause().getMessage(), e.getCause()));
+				}
+			}
+			return result;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return Status.CANCEL_STATUS;
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private IStatus fetch(IArtifactRepository repository, IArtifactRequest[] requests, IProgressMonitor monitor) {
+		publishDownloadEvent(new CollectEvent(CollectEvent.TYPE_REPOSITORY_START, repository, provContext, requests));
+		IStatus dlStatus = repository.getArtifacts(requests, monitor);
+		publishDownloadEvent(new CollectEvent(CollectEvent.TYPE_REPOSITORY_END, repository, provContext, requests));
+		return dlStatus;
+	}
+
+	private void publishDownloadEvent(CollectEvent event) {
+		IProvisioningEventBus bus = (IProvisioningEventBus) agent.getService(IProvisioningEventBus.SERVICE_NAME);
+		if (bus != null)
+			bus.publishEvent(event);
 	}
 
 	//	private void notifyFetched() {
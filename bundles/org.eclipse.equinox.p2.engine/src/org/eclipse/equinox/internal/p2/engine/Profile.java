@@ -56,8 +56,6 @@ public class Profile extends IndexProvider<IInstallableUnit> implements IProfile
 
 	private IIndex<IInstallableUnit> propertiesIndex;
 
-	private IIndex<IInstallableUnit> capabilityIndex;
-
 	private TranslationSupport translationSupport;
 
 	/**
@@ -179,11 +177,8 @@ public class Profile extends IndexProvider<IInstallableUnit> implements IProfile
 			return idIndex;
 		}
 
-		if (InstallableUnit.MEMBER_PROVIDED_CAPABILITIES.equals(memberName)) {
-			if (capabilityIndex == null)
-				capabilityIndex = new CapabilityIndex(ius.iterator());
-			return capabilityIndex;
-		}
+		if (InstallableUnit.MEMBER_PROVIDED_CAPABILITIES.equals(memberName))
+			return ius.getCapabilityIndex();
 
 		if (InstallableUnit.MEMBER_PROFILE_PROPERTIES.equals(memberName)) {
 			if (propertiesIndex == null)
@@ -1,5 +1,5 @@
 /*******************************************************************************
- *  Copyright (c) 2008, 2017 IBM Corporation and others.
+ *  Copyright (c) 2008, 2026 IBM Corporation and others.
  *
  *  This program and the accompanying materials
  *  are made available under the terms of the Eclipse Public License 2.0
@@ -336,6 +336,32 @@ public class ProvisioningContext {
 		return properties.get(key);
 	}
 
+	/**
+	 * Returns the locations of the artifact repositories to consult, as given to
+	 * {@link #setArtifactRepositories(URI...)}, or <code>null</code> if none have
+	 * been given, in which case all the known artifact repositories are consulted.
+	 * Referenced repositories are not included.
+	 *
+	 * @return the artifact repository locations, or <code>null</code>
+	 * @since 2.7
+	 */
+	public URI[] getArtifactRepositoryLocations() {
+		return artifactRepositories == null ? null : artifactRepositories.clone();
+	}
+
+	/**
+	 * Returns the locations of the metadata repositories to consult, as given to
+	 * {@link #setMetadataRepositories(URI...)}, or <code>null</code> if none have
+	 * been given, in which case all the known metadata repositories are consulted.
+	 * Referenced repositories are not included.
+	 *
+	 * @return the metadata repository locations, or <code>null</code>
+	 * @since 2.7
+	 */
+	public URI[] getMetadataRepositoryLocations() {
+		return metadataRepositories == null ? null : metadataRepositories.clone();
+	}
+
 	/**
 	 * Sets the artifact repositories to consult when performing an operation.
 	 * <p>
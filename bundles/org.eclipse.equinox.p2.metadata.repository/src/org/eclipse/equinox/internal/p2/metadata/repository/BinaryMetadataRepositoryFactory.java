@@ -0,0 +1,119 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.internal.p2.metadata.repository;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+import org.eclipse.core.runtime.*;
+import org.eclipse.equinox.internal.p2.core.helpers.LogHelper;
+import org.eclipse.equinox.internal.p2.core.helpers.Tracing;
+import org.eclipse.equinox.internal.p2.metadata.repository.io.BinaryMetadataReader;
+import org.eclipse.equinox.p2.core.IProvisioningAgent;
+import org.eclipse.equinox.p2.core.ProvisionException;
+import org.eclipse.equinox.p2.repository.metadata.IMetadataRepository;
+import org.eclipse.equinox.p2.repository.metadata.spi.AbstractMetadataRepository.RepositoryState;
+import org.eclipse.equinox.p2.repository.metadata.spi.MetadataRepositoryFactory;
+import org.eclipse.osgi.util.NLS;
+
+/**
+ * Loads local metadata repositories from the binary <code>content.p2bin</code> index
+ * written next to <code>content.xml</code> when the {@link LocalMetadataRepository#PROP_BINARY}
+ * property is set. The index is memory mapped and installable units are only decoded
+ * on first use.
+ */
+public class BinaryMetadataRepositoryFactory extends MetadataRepositoryFactory {
+	private static final String PROTOCOL_FILE = "file"; //$NON-NLS-1$
+
+	@Override
+	public IMetadataRepository create(URI location, String name, String type, Map<String, String> properties) {
+		if (!PROTOCOL_FILE.equals(location.getScheme()))
+			return null;
+		Map<String, String> binaryProperties = properties == null ? new HashMap<>() : new HashMap<>(properties);
+		binaryProperties.put(LocalMetadataRepository.PROP_BINARY, Boolean.TRUE.toString());
+		return new LocalMetadataRepository(getAgent(), location, name, binaryProperties);
+	}
+
+	@Override
+	public IMetadataRepository load(URI location, int flags, IProgressMonitor monitor) throws ProvisionException {
+		try {
+			IMetadataRepository result = null;
+			if (PROTOCOL_FILE.equals(location.getScheme())) {
+				try {
+					result = loadBinary(getAgent(), location);
+				} catch (IOException e) {
+					String msg = NLS.bind(Messages.io_failedRead, location);
+					throw new ProvisionException(new Status(IStatus.ERROR, Activator.ID, ProvisionException.REPOSITORY_FAILED_READ, msg, e));
+				}
+			}
+			if (result == null) {
+				String msg = NLS.bind(Messages.io_failedRead, location);
+				throw new ProvisionException(new Status(IStatus.ERROR, Activator.ID, ProvisionException.REPOSITORY_NOT_FOUND, msg, null));
+			}
+			return result;
+		} finally {
+			if (monitor != null)
+				monitor.done();
+		}
+	}
+
+	/**
+	 * Loads the repository at the given local location from its binary index if one exists
+	 * and is up to date with the XML content. Returns <code>null</code> otherwise, so that
+	 * the caller can fall back to parsing the XML.
+	 */
+	static IMetadataRepository loadIfCurrent(IProvisioningAgent agent, URI location) {
+		if (!PROTOCOL_FILE.equals(location.getScheme()))
+			return null;
+		try {
+			return loadBinary(agent, location);
+		} catch (IOException e) {
+			LogHelper.log(new Status(IStatus.WARNING, Activator.ID, "Ignoring unreadable binary metadata index: " + location, e)); //$NON-NLS-1$
+			return null;
+		}
+	}
+
+	/**
+	 * Loads the repository from its binary index, or returns <code>null</code> if there is no
+	 * index or it was not written with the XML content that is there now.
+	 */
+	private static IMetadataRepository loadBinary(IProvisioningAgent agent, URI location) throws IOException {
+		File binaryFile = LocalMetadataRepository.getBinaryLocation(location);
+		if (!binaryFile.exists())
+			return null;
+		long time = 0;
+		final String debugMsg = "Loading binary metadata repository "; //$NON-NLS-1$
+		if (Tracing.DEBUG_METADATA_PARSING) {
+			Tracing.debug(debugMsg + location);
+			time = -System.currentTimeMillis();
+		}
+		BinaryMetadataReader reader = BinaryMetadataReader.open(binaryFile);
+		if (!LocalMetadataRepository.isBinaryCurrent(location, reader))
+			return null;
+		RepositoryState state = reader.readRepositoryState();
+		if (!LocalMetadataRepository.class.getName().equals(state.Type))
+			throw new IOException("Unsupported repository type in binary metadata index: " + state.Type); //$NON-NLS-1$
+		LocalMetadataRepository result = new LocalMetadataRepository(agent);
+		result.initialize(state);
+		result.setDeferredUnits(reader);
+		result.initializeAfterLoad(location);
+		if (Tracing.DEBUG_METADATA_PARSING) {
+			time += System.currentTimeMillis();
+			Tracing.debug(debugMsg + "time (ms): " + time + ", units: " + reader.getUnitCount()); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		return result;
+	}
+}
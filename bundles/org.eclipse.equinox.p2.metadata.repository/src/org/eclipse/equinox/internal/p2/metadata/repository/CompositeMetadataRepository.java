@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2017 IBM Corporation and others.
+ * Copyright (c) 2008, 2026 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -22,6 +22,8 @@ import java.util.jar.JarEntry;
 import java.util.jar.JarOutputStream;
 import org.eclipse.core.runtime.*;
 import org.eclipse.equinox.internal.p2.core.helpers.LogHelper;
+import org.eclipse.equinox.internal.p2.metadata.index.ISnapshotIndexProvider;
+import org.eclipse.equinox.internal.p2.metadata.index.IndexProvider;
 import org.eclipse.equinox.internal.p2.persistence.CompositeRepositoryIO;
 import org.eclipse.equinox.internal.p2.persistence.CompositeRepositoryState;
 import org.eclipse.equinox.p2.core.*;
@@ -35,7 +37,7 @@ import org.eclipse.equinox.p2.repository.metadata.IMetadataRepositoryManager;
 import org.eclipse.equinox.p2.repository.metadata.spi.AbstractMetadataRepository;
 import org.eclipse.osgi.util.NLS;
 
-public class CompositeMetadataRepository extends AbstractMetadataRepository implements ICompositeRepository<IInstallableUnit>, IIndexProvider<IInstallableUnit> {
+public class CompositeMetadataRepository extends AbstractMetadataRepository implements ICompositeRepository<IInstallableUnit>, ISnapshotIndexProvider<IInstallableUnit> {
 
 	static final public String REPOSITORY_TYPE = CompositeMetadataRepository.class.getName();
 	static final public String PI_REPOSITORY_TYPE = "compositeMetadataRepository"; //$NON-NLS-1$
@@ -362,6 +364,13 @@ public class CompositeMetadataRepository extends AbstractMetadataRepository impl
 		return Collections.EMPTY_LIST.iterator();
 	}
 
+	@Override
+	@SuppressWarnings("unchecked")
+	public boolean isSnapshot() {
+		IQueryable<IInstallableUnit> queryable = QueryUtil.compoundQueryable(loadedRepos);
+		return queryable instanceof IIndexProvider<?> && IndexProvider.isSnapshot((IIndexProvider<IInstallableUnit>) queryable);
+	}
+
 	@Override
 	@SuppressWarnings("unchecked")
 	public Object getManagedProperty(Object client, String memberName, Object key) {
@@ -1,5 +1,5 @@
 /*******************************************************************************
- *  Copyright (c) 2007, 2018 IBM Corporation and others.
+ *  Copyright (c) 2007, 2026 IBM Corporation and others.
  *
  *  This program and the accompanying materials
  *  are made available under the terms of the Eclipse Public License 2.0
@@ -16,20 +16,23 @@ package org.eclipse.equinox.internal.p2.metadata.repository;
 
 import java.io.*;
 import java.net.URI;
+import java.nio.file.*;
 import java.util.*;
 import java.util.jar.JarEntry;
 import java.util.jar.JarOutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
 import org.eclipse.core.runtime.*;
 import org.eclipse.equinox.internal.p2.core.helpers.LogHelper;
 import org.eclipse.equinox.internal.p2.metadata.*;
 import org.eclipse.equinox.internal.p2.metadata.index.*;
+import org.eclipse.equinox.internal.p2.metadata.repository.io.BinaryMetadataReader;
 import org.eclipse.equinox.internal.provisional.p2.core.eventbus.IProvisioningEventBus;
 import org.eclipse.equinox.internal.provisional.p2.repository.RepositoryEvent;
 import org.eclipse.equinox.p2.core.*;
 import org.eclipse.equinox.p2.metadata.IInstallableUnit;
 import org.eclipse.equinox.p2.metadata.KeyWithLocale;
 import org.eclipse.equinox.p2.metadata.index.IIndex;
-import org.eclipse.equinox.p2.metadata.index.IIndexProvider;
 import org.eclipse.equinox.p2.query.IQuery;
 import org.eclipse.equinox.p2.query.IQueryResult;
 import org.eclipse.equinox.p2.repository.*;
@@ -41,21 +44,28 @@ import org.eclipse.equinox.p2.repository.metadata.spi.AbstractMetadataRepository
  * location is a directory, this implementation will traverse the directory structure
  * and combine any metadata repository files that are found.
  */
-public class LocalMetadataRepository extends AbstractMetadataRepository implements IIndexProvider<IInstallableUnit> {
+public class LocalMetadataRepository extends AbstractMetadataRepository implements ISnapshotIndexProvider<IInstallableUnit> {
 
 	static final private String CONTENT_FILENAME = "content"; //$NON-NLS-1$
 	static final private String REPOSITORY_TYPE = LocalMetadataRepository.class.getName();
 	static final private Integer REPOSITORY_VERSION = 1;
 	static final private String JAR_EXTENSION = ".jar"; //$NON-NLS-1$
 	static final private String XML_EXTENSION = ".xml"; //$NON-NLS-1$
+	static final private String BINARY_EXTENSION = ".p2bin"; //$NON-NLS-1$
+
+	/**
+	 * Repository property (value <code>"p2.binary"</code>) that, when set to <code>"true"</code>,
+	 * causes a binary <code>content.p2bin</code> index to be written next to the XML content.
+	 */
+	public static final String PROP_BINARY = "p2.binary"; //$NON-NLS-1$
 
 	protected IUMap units = new IUMap();
 	protected HashSet<IRepositoryReference> repositories = new HashSet<>();
 	private IIndex<IInstallableUnit> idIndex;
-	private IIndex<IInstallableUnit> capabilityIndex;
 	private TranslationSupport translationSupport;
 	private boolean snapshotNeeded = false;
 	private boolean disableSave = false;
+	private BinaryMetadataReader deferredUnits;
 
 	private static File getActualLocation(URI location, String extension) {
 		File spec = URIUtil.toFile(location);
@@ -76,6 +86,34 @@ public class LocalMetadataRepository extends AbstractMetadataRepository implemen
 		return getActualLocation(location, XML_EXTENSION);
 	}
 
+	public static File getBinaryLocation(URI location) {
+		return getActualLocation(location, BINARY_EXTENSION);
+	}
+
+	/**
+	 * Returns whether the given binary index of the given location was written together with
+	 * the XML content that is there now, the content the XML loader would read has the length
+	 * and checksum recorded in the index. An index without XML content next to it is current.
+	 */
+	public static boolean isBinaryCurrent(URI location, BinaryMetadataReader reader) throws IOException {
+		// the compressed content is preferred when both exist, as it is when loading the XML
+		File contentFile = getActualLocation(location, JAR_EXTENSION);
+		if (!contentFile.exists())
+			contentFile = getActualLocation(location);
+		if (!contentFile.exists())
+			return true;
+		if (contentFile.length() != reader.getContentLength())
+			return false;
+		CRC32 checksum = new CRC32();
+		try (InputStream input = new FileInputStream(contentFile)) {
+			byte[] buffer = new byte[64 * 1024];
+			int read;
+			while ((read = input.read(buffer)) > 0)
+				checksum.update(buffer, 0, read);
+		}
+		return checksum.getValue() == reader.getContentChecksum();
+	}
+
 	/**
 	 * This no argument constructor is called when restoring an existing repository.
 	 */
@@ -103,13 +141,13 @@ public class LocalMetadataRepository extends AbstractMetadataRepository implemen
 	public synchronized void addInstallableUnits(Collection<IInstallableUnit> installableUnits) {
 		if (installableUnits == null || installableUnits.isEmpty())
 			return;
+		materializeUnits();
 		if (snapshotNeeded) {
 			units = units.clone();
 			idIndex = null; // Backed by units
 			snapshotNeeded = false;
 		}
 		units.addAll(installableUnits);
-		capabilityIndex = null; // Generated, not backed by units
 		save();
 	}
 
@@ -128,6 +166,7 @@ public class LocalMetadataRepository extends AbstractMetadataRepository implemen
 
 	@Override
 	public synchronized IIndex<IInstallableUnit> getIndex(String memberName) {
+		materializeUnits();
 		if (InstallableUnit.MEMBER_ID.equals(memberName)) {
 			snapshotNeeded = true;
 			if (idIndex == null)
@@ -135,12 +174,9 @@ public class LocalMetadataRepository extends AbstractMetadataRepository implemen
 			return idIndex;
 		}
 
-		if (InstallableUnit.MEMBER_PROVIDED_CAPABILITIES.equals(memberName)) {
-			snapshotNeeded = true;
-			if (capabilityIndex == null)
-				capabilityIndex = new CapabilityIndex(units.iterator());
-			return capabilityIndex;
-		}
+		if (InstallableUnit.MEMBER_PROVIDED_CAPABILITIES.equals(memberName))
+			// Kept up to date by units, safe to use while units change
+			return units.getCapabilityIndex();
 		return null;
 	}
 
@@ -194,6 +230,32 @@ public class LocalMetadataRepository extends AbstractMetadataRepository implemen
 		return new ArrayList<>(repositories);
 	}
 
+	/**
+	 * Defers decoding of the installable units of this repository until they are first
+	 * needed. Used when the repository is restored from a binary index.
+	 */
+	public synchronized void setDeferredUnits(BinaryMetadataReader reader) {
+		this.deferredUnits = reader;
+	}
+
+	// caller should be synchronized
+	private void materializeUnits() {
+		if (deferredUnits == null)
+			return;
+		BinaryMetadataReader reader = deferredUnits;
+		deferredUnits = null;
+		try {
+			IInstallableUnit[] loaded = reader.readInstallableUnits();
+			boolean restoreIndex = !units.iterator().hasNext();
+			units.addAll(loaded);
+			// The persisted capability index only describes the loaded units
+			if (restoreIndex)
+				units.setCapabilityIndex(reader.readCapabilityIndex(loaded));
+		} catch (IOException e) {
+			LogHelper.log(new Status(IStatus.ERROR, Activator.ID, ProvisionException.REPOSITORY_FAILED_READ, "Error reading binary metadata index: " + getLocation(), e)); //$NON-NLS-1$
+		}
+	}
+
 	// use this method to setup any transient fields etc after the object has been restored from a stream
 	public synchronized void initializeAfterLoad(URI aLocation) {
 		setLocation(aLocation);
@@ -211,19 +273,27 @@ public class LocalMetadataRepository extends AbstractMetadataRepository implemen
 
 	@Override
 	public synchronized Iterator<IInstallableUnit> everything() {
+		materializeUnits();
 		snapshotNeeded = true;
 		return units.iterator();
 	}
 
+	@Override
+	public boolean isSnapshot() {
+		// the units are copied before they change once they have been handed out, and
+		// the capability index replaces the candidate sets it changes
+		return true;
+	}
+
 	@Override
 	public synchronized void removeAll() {
+		deferredUnits = null;
 		if (snapshotNeeded) {
 			units = new IUMap();
 			idIndex = null; // Backed by units
 			snapshotNeeded = false;
 		} else
 			units.clear();
-		capabilityIndex = null; // Generated, not backed by units.
 		save();
 	}
 
@@ -232,13 +302,13 @@ public class LocalMetadataRepository extends AbstractMetadataRepository implemen
 		boolean changed = false;
 		if (installableUnits != null && !installableUnits.isEmpty()) {
 			changed = true;
+			materializeUnits();
 			if (snapshotNeeded) {
 				units = units.clone();
 				idIndex = null; // Backed by units
 				snapshotNeeded = false;
 			}
 			units.removeAll(installableUnits);
-			capabilityIndex = null; // Generated, not backed by units.
 		}
 		if (changed)
 			save();
@@ -257,6 +327,7 @@ public class LocalMetadataRepository extends AbstractMetadataRepository implemen
 		File file = getActualLocation(getLocation());
 		File jarFile = getActualLocation(getLocation(), JAR_EXTENSION);
 		boolean compress = "true".equalsIgnoreCase(getProperty(PROP_COMPRESSED)); //$NON-NLS-1$
+		CRC32 checksum = new CRC32();
 		try {
 			OutputStream output = null;
 			if (!compress) {
@@ -268,7 +339,7 @@ public class LocalMetadataRepository extends AbstractMetadataRepository implemen
 						file.getParentFile().mkdirs();
 					file.createNewFile();
 				}
-				output = new FileOutputStream(file);
+				output = new CheckedOutputStream(new FileOutputStream(file), checksum);
 			} else {
 				if (file.exists()) {
 					file.delete();
@@ -279,16 +350,43 @@ public class LocalMetadataRepository extends AbstractMetadataRepository implemen
 					jarFile.createNewFile();
 				}
 				JarEntry jarEntry = new JarEntry(file.getName());
-				output = new JarOutputStream(new FileOutputStream(jarFile));
+				output = new JarOutputStream(new CheckedOutputStream(new FileOutputStream(jarFile), checksum));
 				((JarOutputStream) output).putNextEntry(jarEntry);
 			}
 			super.setProperty(IRepository.PROP_TIMESTAMP, Long.toString(System.currentTimeMillis()), new NullProgressMonitor());
-			new MetadataRepositoryIO(getProvisioningAgent()).write(this, output);
+			MetadataRepositoryIO io = new MetadataRepositoryIO(getProvisioningAgent());
+			io.write(this, output);
+			File binaryFile = getBinaryLocation(getLocation());
+			if ("true".equalsIgnoreCase(getProperty(PROP_BINARY))) //$NON-NLS-1$
+				saveBinary(io, binaryFile, (compress ? jarFile : file).length(), checksum.getValue());
+			else if (binaryFile.exists())
+				binaryFile.delete();
 		} catch (IOException e) {
 			LogHelper.log(new Status(IStatus.ERROR, Activator.ID, ProvisionException.REPOSITORY_FAILED_WRITE, "Error saving metadata repository: " + getLocation(), e)); //$NON-NLS-1$
 		}
 	}
 
+	/**
+	 * Writes the binary index next to the XML content just written. The index that is replaced
+	 * may still be mapped by the reader of deferred units, so it is never written in place: a
+	 * new file is moved over it. A stale index left behind when the move fails is ignored by
+	 * {@link #isBinaryCurrent(URI, BinaryMetadataReader)}.
+	 */
+	private void saveBinary(MetadataRepositoryIO io, File binaryFile, long contentLength, long contentChecksum) throws IOException {
+		File tempFile = File.createTempFile(CONTENT_FILENAME, BINARY_EXTENSION + ".tmp", binaryFile.getParentFile()); //$NON-NLS-1$
+		try {
+			io.writeBinary(this, contentLength, contentChecksum, new FileOutputStream(tempFile));
+			try {
+				Files.move(tempFile.toPath(), binaryFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(tempFile.toPath(), binaryFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			if (tempFile.exists())
+				tempFile.delete();
+		}
+	}
+
 	@Override
 	public String setProperty(String key, String newValue, IProgressMonitor monitor) {
 		try {
@@ -339,7 +437,8 @@ public class LocalMetadataRepository extends AbstractMetadataRepository implemen
 	}
 
 	@Override
-	public void compress(IPool<IInstallableUnit> iuPool) {
+	public synchronized void compress(IPool<IInstallableUnit> iuPool) {
+		materializeUnits();
 		units.compress(iuPool);
 	}
 }
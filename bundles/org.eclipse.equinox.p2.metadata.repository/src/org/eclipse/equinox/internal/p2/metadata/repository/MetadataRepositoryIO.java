@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2018 IBM Corporation and others.
+ * Copyright (c) 2007, 2026 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -18,14 +18,15 @@ import java.io.*;
 import java.lang.reflect.Constructor;
 import java.net.MalformedURLException;
 import java.net.URL;
-import java.util.Iterator;
-import java.util.Set;
+import java.util.*;
 import javax.xml.parsers.ParserConfigurationException;
 import org.eclipse.core.runtime.*;
 import org.eclipse.equinox.internal.p2.core.helpers.LogHelper;
 import org.eclipse.equinox.internal.p2.core.helpers.OrderedProperties;
+import org.eclipse.equinox.internal.p2.metadata.repository.io.BinaryMetadataWriter;
 import org.eclipse.equinox.internal.p2.metadata.repository.io.MetadataParser;
 import org.eclipse.equinox.internal.p2.metadata.repository.io.MetadataWriter;
+import org.eclipse.equinox.internal.p2.metadata.repository.io.ParallelUnitsParser;
 import org.eclipse.equinox.internal.p2.persistence.XMLWriter;
 import org.eclipse.equinox.p2.core.IProvisioningAgent;
 import org.eclipse.equinox.p2.core.ProvisionException;
@@ -101,6 +102,31 @@ public class MetadataRepositoryIO {
 		}
 	}
 
+	/**
+	 * Writes the given repository in the binary <code>content.p2bin</code> format
+	 * read by {@link BinaryMetadataRepositoryFactory}. The length and CRC-32 checksum of the
+	 * XML content written together with the index are recorded in it. The stream is closed
+	 * when finished.
+	 */
+	public void writeBinary(IMetadataRepository repository, long contentLength, long contentChecksum, OutputStream output) throws IOException {
+		OutputStream bufferedOutput = null;
+		try {
+			bufferedOutput = new BufferedOutputStream(output);
+			Collection<IRepositoryReference> references = Collections.emptySet();
+			if (repository instanceof LocalMetadataRepository)
+				references = ((LocalMetadataRepository) repository).repositories;
+			BinaryMetadataWriter writer = new BinaryMetadataWriter();
+			writer.writeRepository(repository.getName(), repository.getType(), repository.getVersion(), repository.getProvider(), repository.getDescription(), repository.getProperties(), references);
+			writer.writeInstallableUnits(repository.query(QueryUtil.createIUAnyQuery(), null).iterator());
+			writer.setContent(contentLength, contentChecksum);
+			writer.writeTo(bufferedOutput);
+		} finally {
+			if (bufferedOutput != null) {
+				bufferedOutput.close();
+			}
+		}
+	}
+
 	private interface XMLConstants extends org.eclipse.equinox.internal.p2.metadata.repository.io.XMLConstants {
 
 		// Constants defining the structure of the XML for a MetadataRepository
@@ -206,8 +232,10 @@ public class MetadataRepositoryIO {
 			try {
 				// TODO: currently not caching the parser since we make no assumptions
 				//		 or restrictions on concurrent parsing
-				getParser();
 				RepositoryHandler repositoryHandler = new RepositoryHandler();
+				if (ParallelUnitsParser.isEnabled(context))
+					stream = parseUnitsInParallel(stream, repositoryHandler, monitor);
+				getParser();
 				xmlReader.setContentHandler(new RepositoryDocHandler(REPOSITORY_ELEMENT, repositoryHandler));
 				xmlReader.parse(new InputSource(stream));
 				if (isValidXML()) {
@@ -229,6 +257,31 @@ public class MetadataRepositoryIO {
 			}
 		}
 
+		/**
+		 * Parses the installable units of the given document on several threads and hands
+		 * them to the repository handler. Returns the remainder of the document that still
+		 * needs to be parsed, or the complete document if it could not be split.
+		 */
+		private InputStream parseUnitsInParallel(InputStream stream, RepositoryHandler repositoryHandler, IProgressMonitor monitor) throws IOException {
+			ByteArrayOutputStream content = new ByteArrayOutputStream();
+			byte[] buffer = new byte[8192];
+			int read;
+			while ((read = stream.read(buffer)) != -1)
+				content.write(buffer, 0, read);
+			byte[] document = content.toByteArray();
+			ParallelUnitsParser.UnitBoundaries boundaries = ParallelUnitsParser.scan(document);
+			if (boundaries == null)
+				return new ByteArrayInputStream(document);
+			ParallelUnitsParser unitsParser = new ParallelUnitsParser(context, bundleId);
+			repositoryHandler.parsedUnits = unitsParser.parseUnits(document, boundaries, monitor);
+			IStatus unitsStatus = unitsParser.getStatus();
+			if (!unitsStatus.isOK()) {
+				for (IStatus child : unitsStatus.getChildren())
+					addError(child.getSeverity(), child.getMessage(), child.getException());
+			}
+			return boundaries.getSkeleton(document);
+		}
+
 		public IMetadataRepository getRepository() {
 			return theRepository;
 		}
@@ -267,6 +320,9 @@ public class MetadataRepositoryIO {
 
 			private AbstractMetadataRepository repository = null;
 
+			// units parsed ahead of the document by the parallel parse mode
+			IInstallableUnit[] parsedUnits = null;
+
 			private RepositoryState state = new RepositoryState();
 
 			public RepositoryHandler() {
@@ -320,8 +376,11 @@ public class MetadataRepositoryIO {
 				if (isValidXML()) {
 					state.Properties = (propertiesHandler == null ? new OrderedProperties(0) //
 							: propertiesHandler.getProperties());
-					state.Units = (unitsHandler == null ? new IInstallableUnit[0] //
-							: unitsHandler.getUnits());
+					if (parsedUnits != null)
+						state.Units = parsedUnits;
+					else
+						state.Units = (unitsHandler == null ? new IInstallableUnit[0] //
+								: unitsHandler.getUnits());
 					state.Repositories = repositoryReferencesHandler == null ? new IRepositoryReference[0] : repositoryReferencesHandler.getReferences();
 					Object repositoryObject = null;
 					//can't create repository if missing type - this is already logged when parsing attributes
@@ -86,6 +86,15 @@ public class SimpleMetadataRepositoryFactory extends MetadataRepositoryFactory {
 		}
 		SubMonitor sub = SubMonitor.convert(monitor, 400);
 		try {
+			//prefer an up to date binary index over parsing the XML
+			IMetadataRepository binary = BinaryMetadataRepositoryFactory.loadIfCurrent(getAgent(), location);
+			if (binary != null) {
+				if (Tracing.DEBUG_METADATA_PARSING) {
+					time += System.currentTimeMillis();
+					Tracing.debug(debugMsg + "time (ms): " + time); //$NON-NLS-1$ 
+				}
+				return binary;
+			}
 			File localFile = getLocalFile(location, sub.newChild(300));
 			InputStream inStream = new BufferedInputStream(new FileInputStream(localFile));
 			JarInputStream jarStream = null;
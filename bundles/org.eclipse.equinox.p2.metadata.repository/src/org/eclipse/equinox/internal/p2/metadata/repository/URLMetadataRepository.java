@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2017 IBM Corporation and others.
+ * Copyright (c) 2007, 2026 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -26,7 +26,6 @@ import org.eclipse.equinox.p2.core.IProvisioningAgent;
 import org.eclipse.equinox.p2.metadata.IInstallableUnit;
 import org.eclipse.equinox.p2.metadata.KeyWithLocale;
 import org.eclipse.equinox.p2.metadata.index.IIndex;
-import org.eclipse.equinox.p2.metadata.index.IIndexProvider;
 import org.eclipse.equinox.p2.query.IQuery;
 import org.eclipse.equinox.p2.query.IQueryResult;
 import org.eclipse.equinox.p2.repository.IRepositoryReference;
@@ -35,7 +34,7 @@ import org.eclipse.equinox.p2.repository.metadata.spi.AbstractMetadataRepository
 /**
  * A metadata repository backed by an arbitrary URL.
  */
-public class URLMetadataRepository extends AbstractMetadataRepository implements IIndexProvider<IInstallableUnit> {
+public class URLMetadataRepository extends AbstractMetadataRepository implements ISnapshotIndexProvider<IInstallableUnit> {
 
 	public static final String CONTENT_FILENAME = "content"; //$NON-NLS-1$
 	protected Collection<IRepositoryReference> references;
@@ -46,7 +45,6 @@ public class URLMetadataRepository extends AbstractMetadataRepository implements
 	transient protected URI content;
 	protected IUMap units = new IUMap();
 	private IIndex<IInstallableUnit> idIndex;
-	private IIndex<IInstallableUnit> capabilityIndex;
 	private TranslationSupport translationSupport;
 
 	public static URI getActualLocation(URI base) {
@@ -115,11 +113,8 @@ public class URLMetadataRepository extends AbstractMetadataRepository implements
 			return idIndex;
 		}
 
-		if (InstallableUnit.MEMBER_PROVIDED_CAPABILITIES.equals(memberName)) {
-			if (capabilityIndex == null)
-				capabilityIndex = new CapabilityIndex(units.iterator());
-			return capabilityIndex;
-		}
+		if (InstallableUnit.MEMBER_PROVIDED_CAPABILITIES.equals(memberName))
+			return units.getCapabilityIndex();
 		return null;
 	}
 
@@ -140,4 +135,10 @@ public class URLMetadataRepository extends AbstractMetadataRepository implements
 	public Iterator<IInstallableUnit> everything() {
 		return units.iterator();
 	}
+
+	@Override
+	public boolean isSnapshot() {
+		// the units do not change once loaded
+		return true;
+	}
 }
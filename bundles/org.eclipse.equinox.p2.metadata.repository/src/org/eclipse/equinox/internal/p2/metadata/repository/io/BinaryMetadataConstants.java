@@ -0,0 +1,60 @@
+/*******************************************************************************
+ *  Copyright (c) 2026 Eclipse Foundation and others.
+ *
+ *  This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License 2.0
+ *  which accompanies this distribution, and is available at
+ *  https://www.eclipse.org/legal/epl-2.0/
+ *
+ *  SPDX-License-Identifier: EPL-2.0
+ *
+ *  Contributors:
+ *     Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.internal.p2.metadata.repository.io;
+
+/**
+ * Constants defining the layout of the binary <code>content.p2bin</code> metadata index.
+ * <p>
+ * The file consists of a fixed header, a table of interned UTF-8 strings, a table of
+ * unit record offsets, the offset of the capability index section and a body holding
+ * the repository state, one record per installable unit and the capability index.
+ * The header records the length and CRC-32 checksum of the XML content the index was
+ * written with. All string references in the body are indexes into the string table
+ * (offset by one so that zero denotes <code>null</code>).
+ * </p>
+ */
+public interface BinaryMetadataConstants {
+
+	// "P2BN"
+	public static final int MAGIC = 0x5032424E;
+	public static final int FORMAT_VERSION = 4;
+
+	// Kinds of installable unit records
+	public static final byte UNIT_PLAIN = 0;
+	public static final byte UNIT_FRAGMENT = 1;
+	public static final byte UNIT_PATCH = 2;
+
+	// Kinds of requirement records
+	public static final byte REQUIREMENT_RANGE = 0;
+	public static final byte REQUIREMENT_PROPERTIES = 1;
+	public static final byte REQUIREMENT_EXPRESSION = 2;
+
+	// Kinds of update descriptor records
+	public static final byte UPDATE_NONE = 0;
+	public static final byte UPDATE_RANGE = 1;
+	public static final byte UPDATE_EXPRESSION = 2;
+
+	// Types of provided capability property values
+	public static final byte VALUE_STRING = 0;
+	public static final byte VALUE_INTEGER = 1;
+	public static final byte VALUE_LONG = 2;
+	public static final byte VALUE_FLOAT = 3;
+	public static final byte VALUE_DOUBLE = 4;
+	public static final byte VALUE_BYTE = 5;
+	public static final byte VALUE_SHORT = 6;
+	public static final byte VALUE_CHARACTER = 7;
+	public static final byte VALUE_BOOLEAN = 8;
+	public static final byte VALUE_VERSION = 9;
+	public static final byte VALUE_LIST = 10;
+}
@@ -0,0 +1,507 @@
+/*******************************************************************************
+ *  Copyright (c) 2026 Eclipse Foundation and others.
+ *
+ *  This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License 2.0
+ *  which accompanies this distribution, and is available at
+ *  https://www.eclipse.org/legal/epl-2.0/
+ *
+ *  SPDX-License-Identifier: EPL-2.0
+ *
+ *  Contributors:
+ *     Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.internal.p2.metadata.repository.io;
+
+import java.io.*;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import org.eclipse.equinox.internal.p2.core.helpers.OrderedProperties;
+import org.eclipse.equinox.internal.p2.metadata.ArtifactKey;
+import org.eclipse.equinox.internal.p2.metadata.InstallableUnit;
+import org.eclipse.equinox.internal.p2.metadata.index.CapabilityIndex;
+import org.eclipse.equinox.p2.metadata.*;
+import org.eclipse.equinox.p2.metadata.MetadataFactory.*;
+import org.eclipse.equinox.p2.metadata.expression.*;
+import org.eclipse.equinox.p2.repository.IRepositoryReference;
+import org.eclipse.equinox.p2.repository.metadata.spi.AbstractMetadataRepository.RepositoryState;
+import org.eclipse.equinox.p2.repository.spi.RepositoryReference;
+
+/**
+ * Reads a binary metadata index written by {@link BinaryMetadataWriter}. The file
+ * is memory mapped; strings, versions and version ranges are decoded on first use
+ * and shared between all units that reference them. Installable units are only
+ * decoded when {@link #readInstallableUnits()} is called.
+ */
+public class BinaryMetadataReader implements BinaryMetadataConstants {
+
+	private final ByteBuffer buffer;
+	private final int stringBytesStart;
+	private final int[] stringOffsets;
+	private final int stringBytesLength;
+	private final int[] unitOffsets;
+	private final int capabilityIndexOffset;
+	private final int bodyStart;
+	private final long contentLength;
+	private final long contentChecksum;
+
+	private final String[] strings;
+	private final Version[] versions;
+	private final VersionRange[] ranges;
+
+	// the current read position within the body
+	private int position;
+
+	/**
+	 * Maps the given file and validates its header.
+	 * @throws IOException if the file cannot be read or is not a binary metadata index
+	 */
+	public static BinaryMetadataReader open(File file) throws IOException {
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) { //$NON-NLS-1$
+			MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			return new BinaryMetadataReader(mapped);
+		}
+	}
+
+	BinaryMetadataReader(ByteBuffer buffer) throws IOException {
+		this.buffer = buffer;
+		try {
+			if (buffer.getInt(0) != MAGIC)
+				throw new IOException("Not a binary metadata index"); //$NON-NLS-1$
+			int formatVersion = buffer.getInt(4);
+			if (formatVersion != FORMAT_VERSION)
+				throw new IOException("Unsupported binary metadata index version: " + formatVersion); //$NON-NLS-1$
+			contentLength = buffer.getLong(8);
+			contentChecksum = buffer.getLong(16);
+			int stringCount = buffer.getInt(24);
+			stringBytesLength = buffer.getInt(28);
+			int offset = 32;
+			stringOffsets = new int[stringCount];
+			for (int i = 0; i < stringCount; i++, offset += 4)
+				stringOffsets[i] = buffer.getInt(offset);
+			stringBytesStart = offset;
+			offset += stringBytesLength;
+			int unitCount = buffer.getInt(offset);
+			offset += 4;
+			unitOffsets = new int[unitCount];
+			for (int i = 0; i < unitCount; i++, offset += 4)
+				unitOffsets[i] = buffer.getInt(offset);
+			capabilityIndexOffset = buffer.getInt(offset);
+			offset += 4;
+			int bodyLength = buffer.getInt(offset);
+			bodyStart = offset + 4;
+			if (bodyStart + bodyLength > buffer.limit())
+				throw new IOException("Truncated binary metadata index"); //$NON-NLS-1$
+		} catch (IndexOutOfBoundsException e) {
+			throw new IOException("Truncated binary metadata index", e); //$NON-NLS-1$
+		}
+		strings = new String[stringOffsets.length];
+		versions = new Version[stringOffsets.length];
+		ranges = new VersionRange[stringOffsets.length];
+	}
+
+	public int getUnitCount() {
+		return unitOffsets.length;
+	}
+
+	/**
+	 * Returns the length of the XML content the index was written with, or <code>-1</code>
+	 * if it was written on its own.
+	 */
+	public long getContentLength() {
+		return contentLength;
+	}
+
+	/**
+	 * Returns the CRC-32 checksum of the XML content the index was written with.
+	 */
+	public long getContentChecksum() {
+		return contentChecksum;
+	}
+
+	/**
+	 * Reads the repository state stored at the start of the body. The
+	 * <code>Units</code> of the returned state are left empty.
+	 */
+	public synchronized RepositoryState readRepositoryState() throws IOException {
+		try {
+			position = bodyStart;
+			RepositoryState state = new RepositoryState();
+			state.Name = readString();
+			state.Type = readString();
+			state.Version = readVersion();
+			state.Provider = readString();
+			state.Description = readString();
+			state.Location = null;
+			int size = readInt();
+			OrderedProperties properties = new OrderedProperties(size);
+			for (int i = 0; i < size; i++)
+				properties.put(readString(), readString());
+			state.Properties = properties;
+			size = readInt();
+			List<IRepositoryReference> references = new ArrayList<>(size);
+			for (int i = 0; i < size; i++) {
+				URI location = readURI();
+				String nickname = readString();
+				int type = readInt();
+				int options = readInt();
+				if (location != null)
+					references.add(new RepositoryReference(location, nickname, type, options));
+			}
+			state.Repositories = references.toArray(new IRepositoryReference[references.size()]);
+			state.Units = new IInstallableUnit[0];
+			return state;
+		} catch (RuntimeException e) {
+			throw new IOException("Corrupt binary metadata index", e); //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * Decodes all installable units of this index.
+	 */
+	public synchronized IInstallableUnit[] readInstallableUnits() throws IOException {
+		IInstallableUnit[] result = new IInstallableUnit[unitOffsets.length];
+		try {
+			for (int i = 0; i < result.length; i++) {
+				position = bodyStart + unitOffsets[i];
+				result[i] = MetadataFactory.createInstallableUnit(readInstallableUnit());
+			}
+		} catch (RuntimeException e) {
+			throw new IOException("Corrupt binary metadata index", e); //$NON-NLS-1$
+		}
+		return result;
+	}
+
+	/**
+	 * Restores the capability index persisted for the given units, which must have been
+	 * obtained from {@link #readInstallableUnits()} on this reader.
+	 */
+	public synchronized CapabilityIndex readCapabilityIndex(IInstallableUnit[] units) throws IOException {
+		try {
+			position = bodyStart + capabilityIndexOffset;
+			int namespaceCount = readInt();
+			Map<String, Map<String, IInstallableUnit[]>> capabilities = new HashMap<>();
+			for (int i = 0; i < namespaceCount; i++) {
+				String namespace = readString();
+				int size = readInt();
+				Map<String, IInstallableUnit[]> namespaceCapabilities = new HashMap<>(size * 4 / 3 + 1);
+				for (int j = 0; j < size; j++) {
+					String name = readString();
+					namespaceCapabilities.put(name, readUnits(units));
+				}
+				capabilities.put(namespace, namespaceCapabilities);
+			}
+			return new CapabilityIndex(capabilities, Arrays.asList(readUnits(units)));
+		} catch (RuntimeException e) {
+			throw new IOException("Corrupt binary metadata index", e); //$NON-NLS-1$
+		}
+	}
+
+	private IInstallableUnit[] readUnits(IInstallableUnit[] units) {
+		IInstallableUnit[] result = new IInstallableUnit[readInt()];
+		for (int i = 0; i < result.length; i++)
+			result[i] = units[readInt()];
+		return result;
+	}
+
+	private InstallableUnitDescription readInstallableUnit() {
+		byte kind = buffer.get(position++);
+		InstallableUnitDescription unit;
+		switch (kind) {
+			case UNIT_FRAGMENT :
+				unit = new InstallableUnitFragmentDescription();
+				break;
+			case UNIT_PATCH :
+				unit = new InstallableUnitPatchDescription();
+				break;
+			default :
+				unit = new InstallableUnitDescription();
+		}
+		unit.setId(readString());
+		unit.setVersion(readVersion());
+		unit.setSingleton(readBoolean());
+
+		if (kind == UNIT_FRAGMENT)
+			((InstallableUnitFragmentDescription) unit).setHost(readRequirements());
+
+		if (kind == UNIT_PATCH) {
+			InstallableUnitPatchDescription patch = (InstallableUnitPatchDescription) unit;
+			IRequirement[][] scope = new IRequirement[readInt()][];
+			for (int i = 0; i < scope.length; i++)
+				scope[i] = readRequirements();
+			patch.setApplicabilityScope(scope);
+			IRequirementChange[] changes = new IRequirementChange[readInt()];
+			for (int i = 0; i < changes.length; i++) {
+				IRequirement from = readOptionalRequirement();
+				IRequirement to = readOptionalRequirement();
+				changes[i] = MetadataFactory.createRequirementChange(from, to);
+			}
+			patch.setRequirementChanges(changes);
+			patch.setLifeCycle(readOptionalRequirement());
+		}
+
+		IUpdateDescriptor updateDescriptor = readUpdateDescriptor();
+		int size = readInt();
+		for (int i = 0; i < size; i++)
+			unit.setProperty(readString(), readString());
+		if (updateDescriptor != null)
+			unit.setUpdateDescriptor(updateDescriptor);
+		unit.setMetaRequirements(readRequirements());
+		unit.setCapabilities(readProvidedCapabilities());
+		unit.setRequirements(readRequirements());
+		String filter = readString();
+		if (filter != null)
+			unit.setFilter(filter);
+
+		IArtifactKey[] artifacts = new IArtifactKey[readInt()];
+		for (int i = 0; i < artifacts.length; i++)
+			artifacts[i] = new ArtifactKey(readString(), readString(), readVersion());
+		unit.setArtifacts(artifacts);
+
+		unit.setTouchpointType(MetadataFactory.createTouchpointType(readString(), readVersion()));
+
+		size = readInt();
+		for (int i = 0; i < size; i++) {
+			int count = readInt();
+			Map<String, ITouchpointInstruction> instructions = new LinkedHashMap<>(count);
+			for (int j = 0; j < count; j++) {
+				String key = readString();
+				String body = readString();
+				String importAttribute = readString();
+				instructions.put(key, MetadataFactory.createTouchpointInstruction(body, importAttribute));
+			}
+			unit.addTouchpointData(MetadataFactory.createTouchpointData(instructions));
+		}
+
+		ILicense[] licenses = new ILicense[readInt()];
+		for (int i = 0; i < licenses.length; i++)
+			licenses[i] = MetadataFactory.createLicense(readURI(), readString());
+		unit.setLicenses(licenses.length == 0 ? MetadataParser.NO_LICENSES : licenses);
+
+		if (readBoolean())
+			unit.setCopyright(MetadataFactory.createCopyright(readURI(), readString()));
+		return unit;
+	}
+
+	private IUpdateDescriptor readUpdateDescriptor() {
+		byte kind = buffer.get(position++);
+		if (kind == UPDATE_NONE)
+			return null;
+		String id = null;
+		VersionRange range = null;
+		IMatchExpression<IInstallableUnit> match = null;
+		if (kind == UPDATE_RANGE) {
+			id = readString();
+			range = readVersionRange();
+		} else
+			match = readMatchExpression();
+		int severity = readInt();
+		String description = readString();
+		URI location = readURI();
+		if (match == null)
+			return MetadataFactory.createUpdateDescriptor(id, range, severity, description, location);
+		return MetadataFactory.createUpdateDescriptor(Collections.singleton(match), severity, description, location);
+	}
+
+	private IProvidedCapability[] readProvidedCapabilities() {
+		IProvidedCapability[] capabilities = new IProvidedCapability[readInt()];
+		for (int i = 0; i < capabilities.length; i++) {
+			String namespace = readString();
+			String name = readString();
+			Version version = readVersion();
+			int size = readInt();
+			Map<String, Object> properties = new HashMap<>(size + 2);
+			for (int j = 0; j < size; j++) {
+				String key = readString();
+				properties.put(key, readValue());
+			}
+			properties.put(namespace, name);
+			properties.put(IProvidedCapability.PROPERTY_VERSION, version);
+			capabilities[i] = MetadataFactory.createProvidedCapability(namespace, properties);
+		}
+		return capabilities;
+	}
+
+	private Object readValue() {
+		byte type = buffer.get(position);
+		if (type != VALUE_LIST)
+			return readScalar();
+		position++;
+		int size = readInt();
+		List<Object> list = new ArrayList<>(size);
+		for (int i = 0; i < size; i++)
+			list.add(readScalar());
+		return list;
+	}
+
+	private Object readScalar() {
+		byte type = buffer.get(position++);
+		Object value;
+		switch (type) {
+			case VALUE_INTEGER :
+				value = Integer.valueOf(buffer.getInt(position));
+				position += 4;
+				break;
+			case VALUE_LONG :
+				value = Long.valueOf(buffer.getLong(position));
+				position += 8;
+				break;
+			case VALUE_FLOAT :
+				value = Float.valueOf(buffer.getFloat(position));
+				position += 4;
+				break;
+			case VALUE_DOUBLE :
+				value = Double.valueOf(buffer.getDouble(position));
+				position += 8;
+				break;
+			case VALUE_BYTE :
+				value = Byte.valueOf(buffer.get(position));
+				position += 1;
+				break;
+			case VALUE_SHORT :
+				value = Short.valueOf(buffer.getShort(position));
+				position += 2;
+				break;
+			case VALUE_CHARACTER :
+				value = Character.valueOf(buffer.getChar(position));
+				position += 2;
+				break;
+			case VALUE_BOOLEAN :
+				value = Boolean.valueOf(buffer.get(position) != 0);
+				position += 1;
+				break;
+			case VALUE_VERSION :
+				value = readVersion();
+				break;
+			default :
+				value = readString();
+		}
+		return value;
+	}
+
+	private IRequirement[] readRequirements() {
+		IRequirement[] requirements = new IRequirement[readInt()];
+		for (int i = 0; i < requirements.length; i++)
+			requirements[i] = readRequirement();
+		return requirements;
+	}
+
+	private IRequirement readOptionalRequirement() {
+		return readBoolean() ? readRequirement() : null;
+	}
+
+	private IRequirement readRequirement() {
+		byte kind = buffer.get(position++);
+		String namespace = null;
+		String name = null;
+		VersionRange range = null;
+		String propertiesMatch = null;
+		IMatchExpression<IInstallableUnit> match = null;
+		switch (kind) {
+			case REQUIREMENT_RANGE :
+				namespace = readString();
+				name = readString();
+				range = readVersionRange();
+				break;
+			case REQUIREMENT_PROPERTIES :
+				namespace = readString();
+				propertiesMatch = readString();
+				break;
+			default :
+				match = readMatchExpression();
+		}
+		int min = readInt();
+		int max = readInt();
+		boolean greedy = readBoolean();
+		String filterText = readString();
+		IMatchExpression<IInstallableUnit> filter = filterText == null ? null : InstallableUnit.parseFilter(filterText);
+		String description = readString();
+		if (kind == REQUIREMENT_RANGE)
+			return MetadataFactory.createRequirement(namespace, name, range, filter, min, max, greedy, description);
+		if (kind == REQUIREMENT_PROPERTIES)
+			return MetadataFactory.createRequirement(namespace, ExpressionUtil.parseLDAP(propertiesMatch), filter, min, max, greedy, description);
+		return MetadataFactory.createRequirement(match, filter, min, max, greedy, description);
+	}
+
+	private IMatchExpression<IInstallableUnit> readMatchExpression() {
+		String match = readString();
+		String params = readString();
+		return MetadataParser.createMatchExpression(match, params);
+	}
+
+	private boolean readBoolean() {
+		return buffer.get(position++) != 0;
+	}
+
+	private int readInt() {
+		int value = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = buffer.get(position++);
+			value |= (b & 0x7F) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+		return value;
+	}
+
+	private String readString() {
+		int index = readInt();
+		return index == 0 ? null : getString(index - 1);
+	}
+
+	private String getString(int index) {
+		String value = strings[index];
+		if (value == null) {
+			int start = stringOffsets[index];
+			int end = index + 1 < stringOffsets.length ? stringOffsets[index + 1] : stringBytesLength;
+			byte[] bytes = new byte[end - start];
+			ByteBuffer view = buffer.duplicate();
+			view.position(stringBytesStart + start);
+			view.get(bytes);
+			value = new String(bytes, StandardCharsets.UTF_8);
+			strings[index] = value;
+		}
+		return value;
+	}
+
+	private Version readVersion() {
+		int index = readInt();
+		if (index == 0)
+			return null;
+		Version version = versions[index - 1];
+		if (version == null) {
+			version = Version.create(getString(index - 1));
+			versions[index - 1] = version;
+		}
+		return version;
+	}
+
+	private VersionRange readVersionRange() {
+		int index = readInt();
+		if (index == 0)
+			return null;
+		VersionRange range = ranges[index - 1];
+		if (range == null) {
+			range = VersionRange.create(getString(index - 1));
+			ranges[index - 1] = range;
+		}
+		return range;
+	}
+
+	private URI readURI() {
+		String value = readString();
+		if (value == null)
+			return null;
+		try {
+			return new URI(value);
+		} catch (URISyntaxException e) {
+			return null;
+		}
+	}
+}
@@ -0,0 +1,416 @@
+/*******************************************************************************
+ *  Copyright (c) 2026 Eclipse Foundation and others.
+ *
+ *  This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License 2.0
+ *  which accompanies this distribution, and is available at
+ *  https://www.eclipse.org/legal/epl-2.0/
+ *
+ *  SPDX-License-Identifier: EPL-2.0
+ *
+ *  Contributors:
+ *     Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.internal.p2.metadata.repository.io;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import org.eclipse.equinox.internal.p2.metadata.RequiredCapability;
+import org.eclipse.equinox.internal.p2.metadata.RequiredPropertiesMatch;
+import org.eclipse.equinox.internal.p2.metadata.index.CapabilityIndex;
+import org.eclipse.equinox.p2.metadata.*;
+import org.eclipse.equinox.p2.metadata.expression.*;
+import org.eclipse.equinox.p2.repository.IRepositoryReference;
+
+/**
+ * Writes installable units and repository state in the binary format described
+ * by {@link BinaryMetadataConstants}. Every string is written once into a shared
+ * string table; the body only stores indexes into that table.
+ */
+public class BinaryMetadataWriter implements BinaryMetadataConstants {
+
+	private final Map<String, Integer> strings = new HashMap<>();
+	private final List<String> stringList = new ArrayList<>();
+	private final ByteArrayOutputStream bodyBytes = new ByteArrayOutputStream(64 * 1024);
+	private final DataOutputStream body = new DataOutputStream(bodyBytes);
+	private final List<Integer> unitOffsets = new ArrayList<>();
+
+	// ordinals of the units providing each capability namespace and name, for the persisted capability index
+	private final Map<String, Map<String, List<Integer>>> capabilityUnits = new LinkedHashMap<>();
+	private final List<Integer> executionEnvironmentUnits = new ArrayList<>();
+	private int capabilityIndexOffset = -1;
+	private long contentLength = -1;
+	private long contentChecksum;
+
+	/**
+	 * Writes the repository header information. Must be called once, before any unit is written.
+	 */
+	public void writeRepository(String name, String type, String version, String provider, String description, Map<String, String> properties, Collection<IRepositoryReference> references) throws IOException {
+		writeString(name);
+		writeString(type);
+		writeString(version);
+		writeString(provider);
+		writeString(description);
+		writeStringMap(properties);
+		writeInt(references.size());
+		for (IRepositoryReference reference : references) {
+			writeString(reference.getLocation().toString());
+			writeString(reference.getNickname());
+			writeInt(reference.getType());
+			writeInt(reference.getOptions());
+		}
+	}
+
+	public void writeInstallableUnits(Iterator<IInstallableUnit> units) throws IOException {
+		while (units.hasNext())
+			writeInstallableUnit(units.next());
+	}
+
+	public void writeInstallableUnit(IInstallableUnit resolvedIU) throws IOException {
+		IInstallableUnit iu = resolvedIU.unresolved();
+		unitOffsets.add(body.size());
+
+		if (iu instanceof IInstallableUnitPatch)
+			body.writeByte(UNIT_PATCH);
+		else if (iu instanceof IInstallableUnitFragment)
+			body.writeByte(UNIT_FRAGMENT);
+		else
+			body.writeByte(UNIT_PLAIN);
+
+		writeString(iu.getId());
+		writeString(iu.getVersion().toString());
+		body.writeBoolean(iu.isSingleton());
+
+		if (iu instanceof IInstallableUnitFragment)
+			writeRequirements(((IInstallableUnitFragment) iu).getHost());
+
+		if (iu instanceof IInstallableUnitPatch) {
+			IInstallableUnitPatch patch = (IInstallableUnitPatch) iu;
+			IRequirement[][] scope = patch.getApplicabilityScope();
+			writeInt(scope.length);
+			for (int i = 0; i < scope.length; i++)
+				writeRequirements(Arrays.asList(scope[i]));
+			List<IRequirementChange> changes = patch.getRequirementsChange();
+			writeInt(changes.size());
+			for (IRequirementChange change : changes) {
+				writeOptionalRequirement(change.applyOn());
+				writeOptionalRequirement(change.newValue());
+			}
+			writeOptionalRequirement(patch.getLifeCycle());
+		}
+
+		writeUpdateDescriptor(resolvedIU.getUpdateDescriptor());
+		writeStringMap(iu.getProperties());
+		writeRequirements(iu.getMetaRequirements());
+		writeProvidedCapabilities(iu.getProvidedCapabilities());
+		indexProvidedCapabilities(iu.getProvidedCapabilities(), unitOffsets.size() - 1);
+		writeRequirements(iu.getRequirements());
+		writeString(iu.getFilter() == null ? null : iu.getFilter().getParameters()[0].toString());
+
+		Collection<IArtifactKey> artifacts = iu.getArtifacts();
+		writeInt(artifacts.size());
+		for (IArtifactKey key : artifacts) {
+			writeString(key.getClassifier());
+			writeString(key.getId());
+			writeString(key.getVersion().toString());
+		}
+
+		ITouchpointType touchpointType = iu.getTouchpointType();
+		writeString(touchpointType.getId());
+		writeString(touchpointType.getVersion().toString());
+
+		Collection<ITouchpointData> touchpointData = iu.getTouchpointData();
+		writeInt(touchpointData.size());
+		for (ITouchpointData data : touchpointData) {
+			Map<String, ITouchpointInstruction> instructions = data.getInstructions();
+			writeInt(instructions.size());
+			for (Map.Entry<String, ITouchpointInstruction> entry : instructions.entrySet()) {
+				writeString(entry.getKey());
+				writeString(entry.getValue().getBody());
+				writeString(entry.getValue().getImportAttribute());
+			}
+		}
+
+		Collection<ILicense> licenses = iu.getLicenses();
+		List<ILicense> nonNullLicenses = new ArrayList<>(licenses.size());
+		for (ILicense license : licenses)
+			if (license != null)
+				nonNullLicenses.add(license);
+		writeInt(nonNullLicenses.size());
+		for (ILicense license : nonNullLicenses) {
+			writeString(license.getLocation() == null ? null : license.getLocation().toString());
+			writeString(license.getBody());
+		}
+
+		ICopyright copyright = iu.getCopyright();
+		body.writeBoolean(copyright != null);
+		if (copyright != null) {
+			writeString(copyright.getLocation() == null ? null : copyright.getLocation().toString());
+			writeString(copyright.getBody());
+		}
+	}
+
+	/**
+	 * Records the length and CRC-32 checksum of the XML content written together with
+	 * this index, so that readers can tell whether the index is still current.
+	 */
+	public void setContent(long length, long checksum) {
+		contentLength = length;
+		contentChecksum = checksum;
+	}
+
+	/**
+	 * Writes the header, string table, unit table and body to the given stream.
+	 * The stream is not closed.
+	 */
+	public void writeTo(OutputStream output) throws IOException {
+		if (capabilityIndexOffset < 0)
+			writeCapabilityIndex();
+		body.flush();
+		DataOutputStream out = new DataOutputStream(output);
+		out.writeInt(MAGIC);
+		out.writeInt(FORMAT_VERSION);
+		out.writeLong(contentLength);
+		out.writeLong(contentChecksum);
+
+		byte[][] encoded = new byte[stringList.size()][];
+		int offset = 0;
+		for (int i = 0; i < encoded.length; i++) {
+			encoded[i] = stringList.get(i).getBytes(StandardCharsets.UTF_8);
+			offset += encoded[i].length;
+		}
+		out.writeInt(encoded.length);
+		out.writeInt(offset);
+		offset = 0;
+		for (int i = 0; i < encoded.length; i++) {
+			out.writeInt(offset);
+			offset += encoded[i].length;
+		}
+		for (int i = 0; i < encoded.length; i++)
+			out.write(encoded[i]);
+
+		out.writeInt(unitOffsets.size());
+		for (Integer unitOffset : unitOffsets)
+			out.writeInt(unitOffset.intValue());
+		out.writeInt(capabilityIndexOffset);
+
+		out.writeInt(body.size());
+		bodyBytes.writeTo(out);
+		out.flush();
+	}
+
+	private void indexProvidedCapabilities(Collection<IProvidedCapability> capabilities, int ordinal) {
+		Integer unit = Integer.valueOf(ordinal);
+		for (IProvidedCapability capability : capabilities) {
+			if (CapabilityIndex.NAMESPACE_EXECUTION_ENVIRONMENT.equals(capability.getNamespace()) && !executionEnvironmentUnits.contains(unit))
+				executionEnvironmentUnits.add(unit);
+			Map<String, List<Integer>> namespaceUnits = capabilityUnits.get(capability.getNamespace());
+			if (namespaceUnits == null) {
+				namespaceUnits = new LinkedHashMap<>();
+				capabilityUnits.put(capability.getNamespace(), namespaceUnits);
+			}
+			List<Integer> providers = namespaceUnits.get(capability.getName());
+			if (providers == null) {
+				providers = new ArrayList<>(1);
+				namespaceUnits.put(capability.getName(), providers);
+			} else if (providers.get(providers.size() - 1).equals(unit))
+				continue;
+			providers.add(unit);
+		}
+	}
+
+	/**
+	 * Appends the capability index section to the body: for each capability namespace and
+	 * name the ordinals of the units providing it, followed by the ordinals of the units
+	 * providing an execution environment.
+	 */
+	private void writeCapabilityIndex() throws IOException {
+		capabilityIndexOffset = body.size();
+		writeInt(capabilityUnits.size());
+		for (Map.Entry<String, Map<String, List<Integer>>> namespaceEntry : capabilityUnits.entrySet()) {
+			writeString(namespaceEntry.getKey());
+			writeInt(namespaceEntry.getValue().size());
+			for (Map.Entry<String, List<Integer>> entry : namespaceEntry.getValue().entrySet()) {
+				writeString(entry.getKey());
+				writeOrdinals(entry.getValue());
+			}
+		}
+		writeOrdinals(executionEnvironmentUnits);
+	}
+
+	private void writeOrdinals(List<Integer> ordinals) throws IOException {
+		writeInt(ordinals.size());
+		for (Integer ordinal : ordinals)
+			writeInt(ordinal.intValue());
+	}
+
+	private void writeUpdateDescriptor(IUpdateDescriptor descriptor) throws IOException {
+		if (descriptor == null) {
+			body.writeByte(UPDATE_NONE);
+			return;
+		}
+		if (descriptor.getIUsBeingUpdated().size() > 1)
+			throw new IllegalStateException();
+		IMatchExpression<IInstallableUnit> singleUD = descriptor.getIUsBeingUpdated().iterator().next();
+		if (RequiredCapability.isVersionRangeRequirement(singleUD)) {
+			body.writeByte(UPDATE_RANGE);
+			writeString(RequiredCapability.extractName(singleUD));
+			writeString(RequiredCapability.extractRange(singleUD).toString());
+		} else {
+			body.writeByte(UPDATE_EXPRESSION);
+			writeMatchExpression(singleUD);
+		}
+		writeInt(descriptor.getSeverity());
+		writeString(descriptor.getDescription());
+		writeString(descriptor.getLocation() == null ? null : descriptor.getLocation().toString());
+	}
+
+	private void writeProvidedCapabilities(Collection<IProvidedCapability> capabilities) throws IOException {
+		writeInt(capabilities.size());
+		for (IProvidedCapability capability : capabilities) {
+			writeString(capability.getNamespace());
+			writeString(capability.getName());
+			writeString(capability.getVersion().toString());
+
+			Map<String, Object> props = new HashMap<>(capability.getProperties());
+			props.remove(capability.getNamespace());
+			props.remove(IProvidedCapability.PROPERTY_VERSION);
+			writeInt(props.size());
+			for (Map.Entry<String, Object> entry : props.entrySet()) {
+				writeString(entry.getKey());
+				writeValue(entry.getValue());
+			}
+		}
+	}
+
+	private void writeValue(Object value) throws IOException {
+		if (value instanceof Collection<?>) {
+			Collection<?> coll = (Collection<?>) value;
+			body.writeByte(VALUE_LIST);
+			writeInt(coll.size());
+			for (Object element : coll)
+				writeScalar(element);
+		} else
+			writeScalar(value);
+	}
+
+	private void writeScalar(Object value) throws IOException {
+		if (value instanceof Integer) {
+			body.writeByte(VALUE_INTEGER);
+			body.writeInt(((Integer) value).intValue());
+		} else if (value instanceof Long) {
+			body.writeByte(VALUE_LONG);
+			body.writeLong(((Long) value).longValue());
+		} else if (value instanceof Float) {
+			body.writeByte(VALUE_FLOAT);
+			body.writeFloat(((Float) value).floatValue());
+		} else if (value instanceof Double) {
+			body.writeByte(VALUE_DOUBLE);
+			body.writeDouble(((Double) value).doubleValue());
+		} else if (value instanceof Byte) {
+			body.writeByte(VALUE_BYTE);
+			body.writeByte(((Byte) value).byteValue());
+		} else if (value instanceof Short) {
+			body.writeByte(VALUE_SHORT);
+			body.writeShort(((Short) value).shortValue());
+		} else if (value instanceof Character) {
+			body.writeByte(VALUE_CHARACTER);
+			body.writeChar(((Character) value).charValue());
+		} else if (value instanceof Boolean) {
+			body.writeByte(VALUE_BOOLEAN);
+			body.writeBoolean(((Boolean) value).booleanValue());
+		} else if (value instanceof Version) {
+			body.writeByte(VALUE_VERSION);
+			writeString(value.toString());
+		} else {
+			// Null and unknown types are read back as String, as in the XML format
+			body.writeByte(VALUE_STRING);
+			writeString(value == null ? null : value.toString());
+		}
+	}
+
+	private void writeRequirements(Collection<IRequirement> requirements) throws IOException {
+		if (requirements == null) {
+			writeInt(0);
+			return;
+		}
+		writeInt(requirements.size());
+		for (IRequirement requirement : requirements)
+			writeRequirement(requirement);
+	}
+
+	private void writeOptionalRequirement(IRequirement requirement) throws IOException {
+		body.writeBoolean(requirement != null);
+		if (requirement != null)
+			writeRequirement(requirement);
+	}
+
+	private void writeRequirement(IRequirement requirement) throws IOException {
+		IMatchExpression<IInstallableUnit> match = requirement.getMatches();
+		if (requirement.getMax() > 0 && RequiredCapability.isVersionRangeRequirement(match)) {
+			body.writeByte(REQUIREMENT_RANGE);
+			writeString(RequiredCapability.extractNamespace(match));
+			writeString(RequiredCapability.extractName(match));
+			writeString(RequiredCapability.extractRange(match).toString());
+		} else if (RequiredPropertiesMatch.isPropertiesMatchRequirement(match)) {
+			body.writeByte(REQUIREMENT_PROPERTIES);
+			writeString(RequiredPropertiesMatch.extractNamespace(match));
+			writeString(RequiredPropertiesMatch.extractPropertiesMatch(match).toString());
+		} else {
+			body.writeByte(REQUIREMENT_EXPRESSION);
+			writeMatchExpression(match);
+		}
+		writeInt(requirement.getMin());
+		writeInt(requirement.getMax());
+		body.writeBoolean(requirement.isGreedy());
+		writeString(requirement.getFilter() == null ? null : requirement.getFilter().getParameters()[0].toString());
+		writeString(requirement.getDescription());
+	}
+
+	private void writeMatchExpression(IMatchExpression<IInstallableUnit> match) throws IOException {
+		writeString(ExpressionUtil.getOperand(match).toString());
+		Object[] params = match.getParameters();
+		if (params.length > 0) {
+			IExpressionFactory factory = ExpressionUtil.getFactory();
+			IExpression[] constantArray = new IExpression[params.length];
+			for (int idx = 0; idx < params.length; ++idx)
+				constantArray[idx] = factory.constant(params[idx]);
+			writeString(factory.array(constantArray).toString());
+		} else
+			writeString(null);
+	}
+
+	private void writeStringMap(Map<String, String> map) throws IOException {
+		writeInt(map.size());
+		for (Map.Entry<String, String> entry : map.entrySet()) {
+			writeString(entry.getKey());
+			writeString(entry.getValue());
+		}
+	}
+
+	private void writeString(String value) throws IOException {
+		if (value == null) {
+			writeInt(0);
+			return;
+		}
+		Integer index = strings.get(value);
+		if (index == null) {
+			index = Integer.valueOf(stringList.size());
+			strings.put(value, index);
+			stringList.add(value);
+		}
+		writeInt(index.intValue() + 1);
+	}
+
+	/**
+	 * Writes a non-negative int using a variable length encoding of 7 bits per byte.
+	 */
+	private void writeInt(int value) throws IOException {
+		while ((value & ~0x7F) != 0) {
+			body.writeByte((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		body.writeByte(value);
+	}
+}
@@ -0,0 +1,384 @@
+/*******************************************************************************
+ *  Copyright (c) 2026 Eclipse Foundation and others.
+ *
+ *  This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License 2.0
+ *  which accompanies this distribution, and is available at
+ *  https://www.eclipse.org/legal/epl-2.0/
+ *
+ *  SPDX-License-Identifier: EPL-2.0
+ *
+ *  Contributors:
+ *     Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.internal.p2.metadata.repository.io;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import javax.xml.parsers.ParserConfigurationException;
+import org.eclipse.core.runtime.*;
+import org.eclipse.equinox.p2.metadata.IInstallableUnit;
+import org.eclipse.equinox.p2.metadata.MetadataFactory;
+import org.eclipse.equinox.p2.metadata.MetadataFactory.InstallableUnitDescription;
+import org.osgi.framework.BundleContext;
+import org.xml.sax.*;
+
+/**
+ * Parses the <code>&lt;unit&gt;</code> elements of a metadata document on several
+ * threads. The document is pre-scanned for the boundaries of each unit element;
+ * consecutive units are grouped into chunks that are parsed independently by
+ * {@link InstallableUnitHandler}s on a fork-join pool. The resulting units are
+ * returned in document order.
+ */
+public class ParallelUnitsParser {
+
+	/**
+	 * System property (value <code>"eclipse.p2.metadata.parallelParsing"</code>) enabling
+	 * the parallel parse mode when set to <code>"true"</code>.
+	 */
+	public static final String PROP_PARALLEL_PARSING = "eclipse.p2.metadata.parallelParsing"; //$NON-NLS-1$
+
+	// below this number of units the sequential parser is at least as fast
+	private static final int MIN_UNITS = 500;
+	private static final int MIN_UNITS_PER_CHUNK = 200;
+
+	private static final byte[] CHUNK_PREFIX = "<?xml version='1.0' encoding='UTF-8'?>\n<units>".getBytes(StandardCharsets.UTF_8); //$NON-NLS-1$
+	private static final byte[] CHUNK_SUFFIX = "</units>".getBytes(StandardCharsets.UTF_8); //$NON-NLS-1$
+
+	/**
+	 * The position of the units element and of each unit element within a document.
+	 */
+	public static class UnitBoundaries {
+		final int contentStart;
+		final int contentEnd;
+		final int[] starts;
+		final int[] ends;
+
+		UnitBoundaries(int contentStart, int contentEnd, int[] starts, int[] ends) {
+			this.contentStart = contentStart;
+			this.contentEnd = contentEnd;
+			this.starts = starts;
+			this.ends = ends;
+		}
+
+		public int getUnitCount() {
+			return starts.length;
+		}
+
+		/**
+		 * Returns the document with the content of the units element removed.
+		 */
+		public InputStream getSkeleton(byte[] document) {
+			return new SequenceInputStream(new ByteArrayInputStream(document, 0, contentStart), new ByteArrayInputStream(document, contentEnd, document.length - contentEnd));
+		}
+	}
+
+	final BundleContext context;
+	final String bundleId;
+	private MultiStatus status;
+
+	public ParallelUnitsParser(BundleContext context, String bundleId) {
+		this.context = context;
+		this.bundleId = bundleId;
+	}
+
+	public static boolean isEnabled(BundleContext context) {
+		String value = context != null ? context.getProperty(PROP_PARALLEL_PARSING) : System.getProperty(PROP_PARALLEL_PARSING);
+		return Boolean.parseBoolean(value);
+	}
+
+	/**
+	 * Non-fatal errors accumulated while parsing the chunks.
+	 */
+	public IStatus getStatus() {
+		return status != null ? status : Status.OK_STATUS;
+	}
+
+	/**
+	 * Scans the given UTF-8 document for the boundaries of its unit elements. Returns
+	 * <code>null</code> if the document cannot be split, or has too few units for
+	 * parallel parsing to pay off.
+	 */
+	public static UnitBoundaries scan(byte[] doc) {
+		if (!isUTF8(doc))
+			return null;
+		int unitsStart = findStartTag(doc, 0, "units"); //$NON-NLS-1$
+		if (unitsStart < 0)
+			return null;
+		int contentStart = endOfTag(doc, unitsStart);
+		if (contentStart < 0 || doc[contentStart - 2] == '/')
+			return null;
+		List<int[]> units = new ArrayList<>();
+		int i = contentStart;
+		while (true) {
+			i = nextMarkup(doc, i);
+			if (i < 0)
+				return null;
+			if (matchesName(doc, i + 1, "unit")) { //$NON-NLS-1$
+				int tagEnd = endOfTag(doc, i);
+				if (tagEnd < 0)
+					return null;
+				int end = doc[tagEnd - 2] == '/' ? tagEnd : findEndTag(doc, tagEnd, "unit"); //$NON-NLS-1$
+				if (end < 0)
+					return null;
+				units.add(new int[] {i, end});
+				i = end;
+			} else if (doc[i + 1] == '/' && matchesName(doc, i + 2, "units")) { //$NON-NLS-1$
+				if (units.size() < MIN_UNITS)
+					return null;
+				int[] starts = new int[units.size()];
+				int[] ends = new int[units.size()];
+				for (int u = 0; u < starts.length; u++) {
+					starts[u] = units.get(u)[0];
+					ends[u] = units.get(u)[1];
+				}
+				return new UnitBoundaries(contentStart, i, starts, ends);
+			} else {
+				// anything else directly inside <units> is left to the sequential parser to report
+				return null;
+			}
+		}
+	}
+
+	/**
+	 * Parses the units delimited by the given boundaries on the common fork-join pool.
+	 */
+	public IInstallableUnit[] parseUnits(byte[] doc, UnitBoundaries boundaries, IProgressMonitor monitor) throws IOException {
+		int unitCount = boundaries.getUnitCount();
+		int chunkCount = Math.max(1, Math.min(ForkJoinPool.commonPool().getParallelism() * 4, unitCount / MIN_UNITS_PER_CHUNK));
+		List<ChunkTask> tasks = new ArrayList<>(chunkCount);
+		try {
+			for (int c = 0; c < chunkCount; c++) {
+				int first = (int) ((long) unitCount * c / chunkCount);
+				int last = (int) ((long) unitCount * (c + 1) / chunkCount) - 1;
+				ChunkParser parser = new ChunkParser(context, bundleId);
+				// SAX parser factories are not thread safe, so obtain the parsers up front
+				parser.prepare(monitor);
+				tasks.add(new ChunkTask(parser, doc, boundaries.starts[first], boundaries.ends[last]));
+			}
+		} catch (ParserConfigurationException | SAXException e) {
+			throw new IOException(e.getMessage(), e);
+		}
+
+		RecursiveAction.invokeAll(tasks);
+
+		List<IInstallableUnit> result = new ArrayList<>(unitCount);
+		for (ChunkTask task : tasks) {
+			if (task.failure instanceof OperationCanceledException)
+				throw (OperationCanceledException) task.failure;
+			if (task.failure != null)
+				throw new IOException(task.failure.getMessage(), task.failure);
+			IStatus chunkStatus = task.parser.getStatus();
+			if (!chunkStatus.isOK())
+				addStatus(chunkStatus);
+			result.addAll(task.units);
+		}
+		return result.toArray(new IInstallableUnit[result.size()]);
+	}
+
+	private void addStatus(IStatus chunkStatus) {
+		if (status == null)
+			status = new MultiStatus(bundleId, IStatus.OK, chunkStatus.getMessage(), null);
+		if (chunkStatus.isMultiStatus()) {
+			for (IStatus child : chunkStatus.getChildren())
+				status.add(child);
+		} else
+			status.add(chunkStatus);
+	}
+
+	private static class ChunkTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		final transient ChunkParser parser;
+		final transient byte[] doc;
+		final int start;
+		final int end;
+		transient List<IInstallableUnit> units = Collections.emptyList();
+		transient Exception failure;
+
+		ChunkTask(ChunkParser parser, byte[] doc, int start, int end) {
+			this.parser = parser;
+			this.doc = doc;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		protected void compute() {
+			InputStream chunk = new SequenceInputStream(Collections.enumeration(Arrays.asList( //
+					new ByteArrayInputStream(CHUNK_PREFIX), //
+					new ByteArrayInputStream(doc, start, end - start), //
+					new ByteArrayInputStream(CHUNK_SUFFIX))));
+			try {
+				units = parser.parse(chunk);
+			} catch (Exception e) {
+				failure = e;
+			}
+		}
+	}
+
+	/**
+	 * Parses a synthetic <code>&lt;units&gt;</code> document holding a slice of the original units.
+	 */
+	static class ChunkParser extends MetadataParser {
+		private List<InstallableUnitDescription> descriptions = new ArrayList<>();
+
+		ChunkParser(BundleContext context, String bundleId) {
+			super(context, bundleId);
+		}
+
+		void prepare(IProgressMonitor monitor) throws ParserConfigurationException, SAXException {
+			getParser();
+			setProgressMonitor(monitor);
+		}
+
+		List<IInstallableUnit> parse(InputStream stream) throws IOException, SAXException {
+			xmlReader.setContentHandler(new DocHandler(INSTALLABLE_UNITS_ELEMENT, new UnitsHandler()));
+			xmlReader.parse(new InputSource(stream));
+			List<IInstallableUnit> units = new ArrayList<>(descriptions.size());
+			if (isValidXML()) {
+				for (InstallableUnitDescription description : descriptions)
+					units.add(MetadataFactory.createInstallableUnit(description));
+			}
+			return units;
+		}
+
+		private final class UnitsHandler extends RootHandler {
+			@Override
+			protected void handleRootAttributes(Attributes attributes) {
+				// the synthetic root has no attributes
+			}
+
+			@Override
+			public void startElement(String name, Attributes attributes) {
+				if (name.equals(INSTALLABLE_UNIT_ELEMENT)) {
+					new InstallableUnitHandler(this, attributes, descriptions);
+				} else {
+					invalidElement(name, attributes);
+				}
+			}
+		}
+
+		@Override
+		protected Object getRootObject() {
+			return null;
+		}
+
+		@Override
+		protected String getErrorMessage() {
+			return "Error parsing installable units"; //$NON-NLS-1$
+		}
+	}
+
+	private static boolean isUTF8(byte[] doc) {
+		if (doc.length < 5 || doc[0] != '<' || doc[1] != '?')
+			return true;
+		int end = indexOf(doc, 0, "?>"); //$NON-NLS-1$
+		if (end < 0)
+			return false;
+		String prolog = new String(doc, 0, end, StandardCharsets.US_ASCII).toLowerCase(Locale.ENGLISH);
+		int encoding = prolog.indexOf("encoding"); //$NON-NLS-1$
+		return encoding < 0 || prolog.indexOf("utf-8", encoding) > 0; //$NON-NLS-1$
+	}
+
+	/**
+	 * Returns the index of the next '&lt;' that starts an element tag, skipping over
+	 * comments, processing instructions and CDATA sections.
+	 */
+	private static int nextMarkup(byte[] doc, int from) {
+		int i = from;
+		while (i < doc.length) {
+			if (doc[i] != '<') {
+				i++;
+				continue;
+			}
+			if (startsWith(doc, i, "<!--")) { //$NON-NLS-1$
+				i = skipPast(doc, i + 4, "-->"); //$NON-NLS-1$
+			} else if (startsWith(doc, i, "<![CDATA[")) { //$NON-NLS-1$
+				i = skipPast(doc, i + 9, "]]>"); //$NON-NLS-1$
+			} else if (startsWith(doc, i, "<?")) { //$NON-NLS-1$
+				i = skipPast(doc, i + 2, "?>"); //$NON-NLS-1$
+			} else
+				return i;
+			if (i < 0)
+				return -1;
+		}
+		return -1;
+	}
+
+	private static int findStartTag(byte[] doc, int from, String name) {
+		int i = from;
+		while ((i = nextMarkup(doc, i)) >= 0) {
+			if (matchesName(doc, i + 1, name))
+				return i;
+			i++;
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the index just past the end tag of the given name.
+	 */
+	private static int findEndTag(byte[] doc, int from, String name) {
+		int i = from;
+		while ((i = nextMarkup(doc, i)) >= 0) {
+			if (doc[i + 1] == '/' && matchesName(doc, i + 2, name))
+				return endOfTag(doc, i);
+			i++;
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the index just past the '&gt;' closing the tag that starts at the given index.
+	 */
+	private static int endOfTag(byte[] doc, int tagStart) {
+		byte quote = 0;
+		for (int i = tagStart + 1; i < doc.length; i++) {
+			byte b = doc[i];
+			if (quote != 0) {
+				if (b == quote)
+					quote = 0;
+			} else if (b == '"' || b == '\'') {
+				quote = b;
+			} else if (b == '>') {
+				return i + 1;
+			}
+		}
+		return -1;
+	}
+
+	private static boolean matchesName(byte[] doc, int at, String name) {
+		if (!startsWith(doc, at, name))
+			return false;
+		int next = at + name.length();
+		if (next >= doc.length)
+			return false;
+		byte b = doc[next];
+		return b == '>' || b == '/' || b == ' ' || b == '\t' || b == '\r' || b == '\n';
+	}
+
+	private static boolean startsWith(byte[] doc, int at, String prefix) {
+		if (at + prefix.length() > doc.length)
+			return false;
+		for (int i = 0; i < prefix.length(); i++)
+			if (doc[at + i] != prefix.charAt(i))
+				return false;
+		return true;
+	}
+
+	private static int skipPast(byte[] doc, int from, String terminator) {
+		int i = indexOf(doc, from, terminator);
+		return i < 0 ? -1 : i + terminator.length();
+	}
+
+	private static int indexOf(byte[] doc, int from, String pattern) {
+		for (int i = from; i <= doc.length - pattern.length(); i++)
+			if (startsWith(doc, i, pattern))
+				return i;
+		return -1;
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009, 2018 IBM Corporation and others.
+ * Copyright (c) 2009, 2026 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -22,6 +22,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.NoSuchElementException;
 import org.eclipse.equinox.internal.p2.core.helpers.CollectionUtils;
+import org.eclipse.equinox.internal.p2.metadata.index.CapabilityIndex;
 import org.eclipse.equinox.p2.core.IPool;
 import org.eclipse.equinox.p2.metadata.IInstallableUnit;
 import org.eclipse.equinox.p2.metadata.Version;
@@ -103,12 +104,39 @@ public class IUMap implements Cloneable {
 	 */
 	final Map<String, Object> units = new HashMap<>();
 
+	/**
+	 * Index of the provided capabilities of the units in this map. Created on demand
+	 * and then kept up to date as units are added and removed.
+	 */
+	private CapabilityIndex capabilityIndex;
+
 	public IUMap() {
 		//
 	}
 
 	private IUMap(IUMap cloneSource) {
 		units.putAll(cloneSource.units);
+		if (cloneSource.capabilityIndex != null)
+			capabilityIndex = cloneSource.capabilityIndex.copy();
+	}
+
+	/**
+	 * Returns an index of the provided capabilities of the units in this map. The index
+	 * is updated incrementally by subsequent modifications of this map.
+	 */
+	public CapabilityIndex getCapabilityIndex() {
+		if (capabilityIndex == null)
+			capabilityIndex = new CapabilityIndex(iterator());
+		return capabilityIndex;
+	}
+
+	/**
+	 * Installs a previously computed capability index for the units of this map, e.g. one
+	 * that was persisted together with the units. The index must reflect the current
+	 * content of the map.
+	 */
+	public void setCapabilityIndex(CapabilityIndex index) {
+		capabilityIndex = index;
 	}
 
 	public void add(IInstallableUnit unit) {
@@ -116,6 +144,8 @@ public class IUMap implements Cloneable {
 		Object matching = units.get(key);
 		if (matching == null) {
 			units.put(key, unit);
+			if (capabilityIndex != null)
+				capabilityIndex.add(unit);
 			return;
 		}
 
@@ -136,9 +166,12 @@ public class IUMap implements Cloneable {
 			units.put(unit.getId(), iuArrPlus);
 		} else {
 			IInstallableUnit old = (IInstallableUnit) matching;
-			if (!old.equals(unit))
-				units.put(key, new IInstallableUnit[] {old, unit});
+			if (old.equals(unit))
+				return;
+			units.put(key, new IInstallableUnit[] {old, unit});
 		}
+		if (capabilityIndex != null)
+			capabilityIndex.add(unit);
 	}
 
 	public void addAll(IInstallableUnit[] toAdd) {
@@ -154,6 +187,7 @@ public class IUMap implements Cloneable {
 
 	public void clear() {
 		units.clear();
+		capabilityIndex = null;
 	}
 
 	@Override
@@ -209,8 +243,11 @@ public class IUMap implements Cloneable {
 			return;
 
 		if (matching instanceof IInstallableUnit) {
-			if (matching.equals(unit))
+			if (matching.equals(unit)) {
 				units.remove(key);
+				if (capabilityIndex != null)
+					capabilityIndex.remove((IInstallableUnit) matching);
+			}
 			return;
 		}
 
@@ -218,6 +255,8 @@ public class IUMap implements Cloneable {
 		int idx = array.length;
 		while (--idx >= 0) {
 			if (unit.equals(array[idx])) {
+				if (capabilityIndex != null)
+					capabilityIndex.remove(array[idx]);
 				if (array.length == 2) {
 					// We no longer need this array. Replace it with the
 					// entry that we keep.
@@ -253,6 +292,8 @@ public class IUMap implements Cloneable {
 		if (iuPool == null) {
 			return;
 		}
+		// The index refers to the instances being replaced
+		capabilityIndex = null;
 
 		Iterator<Entry<String, Object>> entries = units.entrySet().iterator();
 		while (entries.hasNext()) {
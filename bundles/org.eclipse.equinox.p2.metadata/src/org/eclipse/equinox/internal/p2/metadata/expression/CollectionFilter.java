@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009, 2017 Cloudsmith Inc. and others.
+ * Copyright (c) 2009, 2026 Cloudsmith Inc. and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -14,9 +14,9 @@
 package org.eclipse.equinox.internal.p2.metadata.expression;
 
 import java.util.Iterator;
+import org.eclipse.equinox.internal.p2.metadata.index.IndexPlanner;
 import org.eclipse.equinox.p2.metadata.expression.IEvaluationContext;
 import org.eclipse.equinox.p2.metadata.expression.IExpressionVisitor;
-import org.eclipse.equinox.p2.metadata.index.IIndex;
 import org.eclipse.equinox.p2.metadata.index.IIndexProvider;
 
 /**
@@ -96,20 +96,16 @@ public abstract class CollectionFilter extends Unary {
 		throw new UnsupportedOperationException();
 	}
 
-	private transient IIndexProvider<?> lastIndexProvider;
-	private transient IIndex<?> lastIndex;
+	private transient IndexPlanner<?> lastPlanner;
 
-	private IIndex<?> getIndex(Class<?> elementClass, IIndexProvider<?> indexProvider) {
-		if (lastIndexProvider == indexProvider)
-			return lastIndex;
-
-		for (String member : getIndexCandidateMembers(elementClass, lambda.getItemVariable(), lambda.getOperand())) {
-			IIndex<?> index = indexProvider.getIndex(member);
-			if (index != null)
-				lastIndex = index;
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	private IndexPlanner<?> getPlanner(Class<?> elementClass, IIndexProvider<?> indexProvider) {
+		IndexPlanner<?> planner = lastPlanner;
+		if (planner == null || planner.getIndexProvider() != indexProvider) {
+			planner = new IndexPlanner(indexProvider, getIndexCandidateMembers(elementClass, lambda.getItemVariable(), lambda.getOperand()));
+			lastPlanner = planner;
 		}
-		lastIndexProvider = indexProvider;
-		return lastIndex;
+		return planner;
 	}
 
 	protected Iterator<?> getInnerIterator(IEvaluationContext context) {
@@ -120,12 +116,9 @@ public abstract class CollectionFilter extends Unary {
 			IIndexProvider<?> indexProvider = context.getIndexProvider();
 			if (indexProvider != null) {
 				Class<?> elementClass = ((Everything<?>) collection).getElementClass();
-				IIndex<?> index = getIndex(elementClass, indexProvider);
-				if (index != null) {
-					Iterator<?> indexed = index.getCandidates(context, lambda.getItemVariable(), lambda.getOperand());
-					if (indexed != null)
-						return indexed;
-				}
+				Iterator<?> indexed = getPlanner(elementClass, indexProvider).getCandidates(context, lambda.getItemVariable(), lambda.getOperand());
+				if (indexed != null)
+					return indexed;
 			}
 		}
 
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009, 2018 Cloudsmith Inc. and others.
+ * Copyright (c) 2009, 2026 Cloudsmith Inc. and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -317,6 +317,7 @@ public abstract class Expression implements IExpression, Comparable<Expression>,
 
 	private static class MembersFinder implements IExpressionVisitor {
 		private List<String> members;
+		private final List<Expression> matchesOperands = new ArrayList<>(2);
 		private final Class<?> elementClass;
 		private final IExpression operand;
 
@@ -342,12 +343,17 @@ public abstract class Expression implements IExpression, Comparable<Expression>,
 					}
 				}
 
-				// No point in scanning for more index candidates in a matches expression
-				return false;
+				// No point in scanning for more index candidates in a matches expression,
+				// but the expressions next to it may still have some
+				matchesOperands.add(((Matches) expression).lhs);
+				matchesOperands.add(((Matches) expression).rhs);
+				return true;
 			}
 
 			if (expression instanceof Member) {
 				Member member = (Member) expression;
+				if (isMatchesOperand(member))
+					return false;
 				if (member.getOperand() == operand) {
 					String name = member.getName();
 					if (members == null)
@@ -360,6 +366,13 @@ public abstract class Expression implements IExpression, Comparable<Expression>,
 			return true;
 		}
 
+		private boolean isMatchesOperand(Expression expression) {
+			for (Expression matchesOperand : matchesOperands)
+				if (matchesOperand == expression)
+					return true;
+			return false;
+		}
+
 		List<String> getMembers() {
 			return members == null ? Collections.emptyList() : members;
 		}
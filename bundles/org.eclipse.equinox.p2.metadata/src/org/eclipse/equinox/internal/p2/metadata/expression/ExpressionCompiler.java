@@ -0,0 +1,311 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.internal.p2.metadata.expression;
+
+import java.util.*;
+import org.eclipse.equinox.internal.p2.metadata.InstallableUnit;
+import org.eclipse.equinox.internal.p2.metadata.ProvidedCapability;
+import org.eclipse.equinox.internal.p2.metadata.RequiredCapability;
+import org.eclipse.equinox.p2.metadata.IInstallableUnit;
+import org.eclipse.equinox.p2.metadata.expression.IEvaluationContext;
+import org.eclipse.equinox.p2.metadata.expression.IExpression;
+import org.eclipse.equinox.p2.metadata.expression.IMatchExpression;
+
+/**
+ * Compiles the predicate of a {@link MatchExpression} into a tree of closures that yield
+ * the same values as the interpreted expression. The compiled predicate keeps the item
+ * variables of its lambdas in a frame rather than in nested evaluation contexts, iterates
+ * the collections directly and reads the well-known members of installable units and
+ * provided capabilities with direct calls.
+ * <p>
+ * Only the expressions used for matching are compiled: literals, parameters, the
+ * <code>this</code> variable, members, boolean operators, comparisons, matches and the
+ * <code>exists</code> and <code>all</code> collection filters. Any other expression is
+ * left to the interpreter.
+ * </p>
+ */
+final class ExpressionCompiler {
+	/**
+	 * Whether match expressions are compiled. Set the <code>eclipse.p2.expression.compile</code>
+	 * property to <code>false</code> to always interpret them.
+	 */
+	static final boolean ENABLED = !"false".equalsIgnoreCase(System.getProperty("eclipse.p2.expression.compile")); //$NON-NLS-1$ //$NON-NLS-2$
+
+	/**
+	 * A compiled expression. The first slot of the frame holds the value of <code>this</code>,
+	 * the other slots the item variables of the lambdas.
+	 */
+	interface Code {
+		Object run(IEvaluationContext context, Object[] frame);
+	}
+
+	/**
+	 * A compiled predicate, which can be evaluated by several threads at the same time.
+	 */
+	interface CompiledPredicate {
+		boolean isMatch(IEvaluationContext context, Object value);
+	}
+
+	private static final class ClosurePredicate implements CompiledPredicate {
+		private final Code code;
+		private final int frameSize;
+
+		ClosurePredicate(Code code, int frameSize) {
+			this.code = code;
+			this.frameSize = frameSize;
+		}
+
+		@Override
+		public boolean isMatch(IEvaluationContext context, Object value) {
+			Object[] frame = new Object[frameSize];
+			frame[0] = value;
+			return code.run(context, frame) == Boolean.TRUE;
+		}
+	}
+
+	// the variables in scope, at the index of their slot
+	private final List<Variable> variables = new ArrayList<>();
+	private int frameSize;
+
+	/**
+	 * Returns the compiled form of the predicate of the given expression, or <code>null</code>
+	 * if it uses expressions that are not compiled. The requirements on a range of versions of
+	 * a capability get a dedicated matcher.
+	 */
+	@SuppressWarnings("unchecked")
+	static CompiledPredicate compile(MatchExpression<?> expression) {
+		CompiledPredicate predicate = compilePredicate(expression.operand);
+		if (predicate != null && RequiredCapability.isVersionRangeRequirement((IMatchExpression<IInstallableUnit>) expression))
+			return new RequirementMatcher((MatchExpression<IInstallableUnit>) expression, predicate);
+		return predicate;
+	}
+
+	/**
+	 * Returns the compiled form of the given boolean expression, evaluated with <code>this</code>
+	 * bound to the matched value, or <code>null</code> if it uses expressions that are not compiled.
+	 */
+	static CompiledPredicate compilePredicate(Expression predicate) {
+		ExpressionCompiler compiler = new ExpressionCompiler();
+		compiler.push(ExpressionFactory.THIS);
+		Code code = compiler.compile(predicate);
+		return code == null ? null : new ClosurePredicate(code, compiler.frameSize);
+	}
+
+	private int push(Variable variable) {
+		variables.add(variable);
+		frameSize = Math.max(frameSize, variables.size());
+		return variables.size() - 1;
+	}
+
+	private Code compile(Expression expression) {
+		switch (expression.getExpressionType()) {
+			case IExpression.TYPE_LITERAL :
+				Object value = ((Literal) expression).value;
+				return (context, frame) -> value;
+			case IExpression.TYPE_PARAMETER :
+				if (expression.getClass() != Parameter.class)
+					return null;
+				int position = ((Parameter) expression).position;
+				return (context, frame) -> context.getParameter(position);
+			case IExpression.TYPE_VARIABLE :
+				return compileVariable((Variable) expression);
+			case IExpression.TYPE_MEMBER :
+				if (expression.getClass() != Member.DynamicMember.class)
+					return null;
+				return compileMember((Member.DynamicMember) expression);
+			case IExpression.TYPE_AND :
+				return compileAnd(compile(((NAry) expression).operands));
+			case IExpression.TYPE_OR :
+				return compileOr(compile(((NAry) expression).operands));
+			case IExpression.TYPE_NOT :
+				Code negated = compile(((Unary) expression).operand);
+				if (negated == null)
+					return null;
+				return (context, frame) -> Boolean.valueOf(negated.run(context, frame) != Boolean.TRUE);
+			case IExpression.TYPE_EQUALS :
+			case IExpression.TYPE_NOT_EQUALS :
+				return compileEquals((Equals) expression);
+			case IExpression.TYPE_LESS :
+			case IExpression.TYPE_LESS_EQUAL :
+			case IExpression.TYPE_GREATER :
+			case IExpression.TYPE_GREATER_EQUAL :
+				return compileCompare((Compare) expression);
+			case IExpression.TYPE_MATCHES :
+				return compileMatches((Matches) expression);
+			case IExpression.TYPE_EXISTS :
+			case IExpression.TYPE_ALL :
+				return compileCollectionFilter((CollectionFilter) expression, expression.getExpressionType() == IExpression.TYPE_EXISTS);
+			default :
+				return null;
+		}
+	}
+
+	private Code[] compile(Expression[] expressions) {
+		Code[] codes = new Code[expressions.length];
+		for (int i = 0; i < expressions.length; i++) {
+			codes[i] = compile(expressions[i]);
+			if (codes[i] == null)
+				return null;
+		}
+		return codes;
+	}
+
+	private Code compileVariable(Variable variable) {
+		// the innermost variable hides the outer ones
+		for (int slot = variables.size() - 1; slot >= 0; slot--) {
+			if (variables.get(slot) == variable) {
+				int index = slot;
+				return (context, frame) -> frame[index];
+			}
+		}
+		return null;
+	}
+
+	private static Code compileAnd(Code[] operands) {
+		if (operands == null)
+			return null;
+		return (context, frame) -> {
+			for (Code operand : operands) {
+				if (operand.run(context, frame) != Boolean.TRUE)
+					return Boolean.FALSE;
+			}
+			return Boolean.TRUE;
+		};
+	}
+
+	private static Code compileOr(Code[] operands) {
+		if (operands == null)
+			return null;
+		return (context, frame) -> {
+			for (Code operand : operands) {
+				if (operand.run(context, frame) == Boolean.TRUE)
+					return Boolean.TRUE;
+			}
+			return Boolean.FALSE;
+		};
+	}
+
+	private Code compileMember(Member.DynamicMember member) {
+		Code operand = compile(member.operand);
+		if (operand == null)
+			return null;
+		// the members of the metadata classes are read without going through the member provider interface
+		String name = member.getName();
+		if (name == ProvidedCapability.MEMBER_NAMESPACE) {
+			return (context, frame) -> {
+				Object self = operand.run(context, frame);
+				return self instanceof ProvidedCapability ? ((ProvidedCapability) self).getNamespace() : member.invoke(self);
+			};
+		}
+		if (name == ProvidedCapability.MEMBER_NAME) {
+			return (context, frame) -> {
+				Object self = operand.run(context, frame);
+				return self instanceof ProvidedCapability ? ((ProvidedCapability) self).getName() : member.invoke(self);
+			};
+		}
+		if (name == ProvidedCapability.MEMBER_VERSION) {
+			return (context, frame) -> {
+				Object self = operand.run(context, frame);
+				if (self instanceof ProvidedCapability)
+					return ((ProvidedCapability) self).getVersion();
+				return self instanceof InstallableUnit ? ((InstallableUnit) self).getVersion() : member.invoke(self);
+			};
+		}
+		return (context, frame) -> {
+			Object self = operand.run(context, frame);
+			return self instanceof InstallableUnit ? ((InstallableUnit) self).getMember(name) : member.invoke(self);
+		};
+	}
+
+	private Code compileEquals(Equals equals) {
+		Code lhs = compile(equals.lhs);
+		Code rhs = compile(equals.rhs);
+		if (lhs == null || rhs == null)
+			return null;
+		boolean negate = equals.getExpressionType() == IExpression.TYPE_NOT_EQUALS;
+		return (context, frame) -> {
+			Object lhsVal = lhs.run(context, frame);
+			Object rhsVal = rhs.run(context, frame);
+			// names and namespaces need no coercion
+			if (lhsVal instanceof String && rhsVal instanceof String)
+				return Boolean.valueOf(lhsVal.equals(rhsVal) != negate);
+			return equals.evaluate(lhsVal, rhsVal);
+		};
+	}
+	private Code compileCompare(Compare compare) {
+		Code lhs = compile(compare.lhs);
+		Code rhs = compile(compare.rhs);
+		if (lhs == null || rhs == null)
+			return null;
+		return (context, frame) -> compare.evaluate(lhs.run(context, frame), rhs.run(context, frame));
+	}
+
+	private Code compileMatches(Matches matches) {
+		Code lhs = compile(matches.lhs);
+		Code rhs = compile(matches.rhs);
+		if (lhs == null || rhs == null)
+			return null;
+		return (context, frame) -> Boolean.valueOf(matches.match(lhs.run(context, frame), rhs.run(context, frame)));
+	}
+
+	private Code compileCollectionFilter(CollectionFilter filter, boolean exists) {
+		// curried lambdas assign variables, and the everything variable is answered by indexes
+		if (filter.lambda.getClass() != LambdaExpression.class || filter.operand == ExpressionFactory.EVERYTHING)
+			return null;
+		Code collection = compile(filter.operand);
+		if (collection == null)
+			return null;
+		// a single use iterator held by a variable is replaced by a repeatable one, as the interpreter does
+		int variableSlot = filter.operand instanceof Variable ? variables.lastIndexOf(filter.operand) : -1;
+		int slot = push(filter.lambda.getItemVariable());
+		Code body = compile(filter.lambda.operand);
+		variables.remove(slot);
+		if (body == null)
+			return null;
+		Boolean early = Boolean.valueOf(exists);
+		Boolean otherwise = Boolean.valueOf(!exists);
+		return (context, frame) -> {
+			Object value = collection.run(context, frame);
+			if (value instanceof List<?> && value instanceof RandomAccess) {
+				List<?> list = (List<?>) value;
+				for (int i = 0, size = list.size(); i < size; i++) {
+					frame[slot] = list.get(i);
+					if ((body.run(context, frame) == Boolean.TRUE) == exists)
+						return early;
+				}
+			} else if (value instanceof Object[]) {
+				for (Object item : (Object[]) value) {
+					frame[slot] = item;
+					if ((body.run(context, frame) == Boolean.TRUE) == exists)
+						return early;
+				}
+			} else {
+				Iterator<?> items;
+				if (value instanceof IRepeatableIterator<?>)
+					items = ((IRepeatableIterator<?>) value).getCopy();
+				else {
+					items = RepeatableIterator.create(value);
+					if (variableSlot >= 0)
+						frame[variableSlot] = items;
+				}
+				while (items.hasNext()) {
+					frame[slot] = items.next();
+					if ((body.run(context, frame) == Boolean.TRUE) == exists)
+						return early;
+				}
+			}
+			return otherwise;
+		};
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010, 2017 Cloudsmith Inc. and others.
+ * Copyright (c) 2010, 2026 Cloudsmith Inc. and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -21,6 +21,8 @@ import org.osgi.framework.Filter;
 import org.osgi.framework.ServiceReference;
 
 public class LDAPFilter extends Unary implements IFilterExpression {
+	// the compiled filter, this filter itself when it can not be compiled
+	private transient volatile Object compiled;
 
 	LDAPFilter(Expression expression) {
 		super(expression);
@@ -63,12 +65,29 @@ public class LDAPFilter extends Unary implements IFilterExpression {
 	}
 
 	public boolean isMatch(Object candidate) {
+		ExpressionCompiler.CompiledPredicate predicate = getCompiledPredicate();
+		if (predicate != null)
+			// filters have no parameters
+			return predicate.isMatch(EvaluationContext.create(), candidate);
 		Variable self = ExpressionFactory.THIS;
 		IEvaluationContext ctx = EvaluationContext.create(self);
 		self.setValue(ctx, candidate);
 		return Boolean.TRUE == operand.evaluate(ctx);
 	}
 
+	private ExpressionCompiler.CompiledPredicate getCompiledPredicate() {
+		if (!ExpressionCompiler.ENABLED)
+			return null;
+		Object result = compiled;
+		if (result == null) {
+			result = ExpressionCompiler.compilePredicate(operand);
+			if (result == null)
+				result = this;
+			compiled = result;
+		}
+		return result == this ? null : (ExpressionCompiler.CompiledPredicate) result;
+	}
+
 	@Override
 	public boolean match(ServiceReference<?> reference) {
 		return isMatch(reference == null ? MemberProvider.emptyProvider() : MemberProvider.create(reference, true));
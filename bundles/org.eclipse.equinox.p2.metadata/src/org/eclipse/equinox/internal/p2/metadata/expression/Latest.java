@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009, 2017 Cloudsmith Inc. and others.
+ * Copyright (c) 2009, 2026 Cloudsmith Inc. and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -33,9 +33,10 @@ final class Latest extends UnaryCollectionFilter {
 		HashMap<String, IVersionedId> greatestIUVersion;
 		if (operand instanceof Select) {
 			// Inline element evaluation here so that we don't build a map that is
-			// larger then it has to be
+			// larger then it has to be. The candidates of everything are taken
+			// from an index when one applies to the select.
 			Select select = (Select) operand;
-			Iterator<?> iterator = select.operand.evaluateAsIterator(context);
+			Iterator<?> iterator = select.operand == ExpressionFactory.EVERYTHING ? select.getInnerIterator(context) : select.operand.evaluateAsIterator(context);
 			if (!iterator.hasNext())
 				return Collections.EMPTY_SET.iterator();
 
@@ -84,7 +85,8 @@ final class Latest extends UnaryCollectionFilter {
 					greatestIUVersion.put(id, prev);
 			}
 		}
-		return greatestIUVersion.values().iterator();
+		// the values are unique, a result needs no copy of them
+		return RepeatableIterator.create(greatestIUVersion.values());
 	}
 
 	@Override
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009, 2017 Cloudsmith Inc. and others.
+ * Copyright (c) 2009, 2026 Cloudsmith Inc. and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -25,6 +25,8 @@ import org.eclipse.equinox.p2.metadata.expression.*;
 public class MatchExpression<T> extends Unary implements IMatchExpression<T> {
 	private static final Object[] noParams = new Object[0];
 	private final Object[] parameters;
+	// the compiled predicate, this expression itself when the predicate can not be compiled
+	private transient volatile Object compiled;
 
 	MatchExpression(Expression expression, Object[] parameters) {
 		super(expression);
@@ -87,11 +89,36 @@ public class MatchExpression<T> extends Unary implements IMatchExpression<T> {
 	@Override
 	public boolean isMatch(IEvaluationContext context, T value) {
 		ExpressionFactory.THIS.setValue(context, value);
+		ExpressionCompiler.CompiledPredicate predicate = getCompiledPredicate();
+		if (predicate != null)
+			return predicate.isMatch(context, value);
 		return Boolean.TRUE == operand.evaluate(context);
 	}
 
+	/**
+	 * Returns the compiled form of the predicate, compiling it on first use, or <code>null</code>
+	 * if the predicate must be interpreted.
+	 */
+	ExpressionCompiler.CompiledPredicate getCompiledPredicate() {
+		if (!ExpressionCompiler.ENABLED)
+			return null;
+		Object result = compiled;
+		if (result == null) {
+			// compiling twice when racing is harmless
+			result = ExpressionCompiler.compile(this);
+			if (result == null)
+				result = this;
+			compiled = result;
+		}
+		return result == this ? null : (ExpressionCompiler.CompiledPredicate) result;
+	}
+
 	@Override
 	public boolean isMatch(T value) {
+		ExpressionCompiler.CompiledPredicate predicate = getCompiledPredicate();
+		if (predicate instanceof RequirementMatcher)
+			// the requirements are matched without a context
+			return predicate.isMatch(null, value);
 		return isMatch(createContext(), value);
 	}
 
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009, 2017 Cloudsmith Inc. and others.
+ * Copyright (c) 2009, 2026 Cloudsmith Inc. and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -29,6 +29,64 @@ public class QueryResult<T> implements IQueryResult<T> {
 	private final IRepeatableIterator<T> iterator;
 	private boolean firstUse = true;
 
+	// The elements read so far by a lazy result, and the iterator of the remaining ones
+	private final Set<T> values;
+	private Iterator<T> source;
+	private LazyIterator lazyIterator;
+
+	/**
+	 * The iterator returned by the first use of a lazy result. It reads the source as it goes,
+	 * until another use of the result reads the remaining elements.
+	 */
+	private final class LazyIterator implements Iterator<T> {
+		private T nextValue;
+		private boolean positioned;
+		Iterator<T> rest;
+
+		@Override
+		public boolean hasNext() {
+			synchronized (QueryResult.this) {
+				if (positioned)
+					return true;
+				if (rest != null) {
+					if (rest.hasNext()) {
+						nextValue = rest.next();
+						positioned = true;
+					}
+					return positioned;
+				}
+				while (source.hasNext()) {
+					T value = source.next();
+					if (values.add(value)) {
+						nextValue = value;
+						positioned = true;
+						return true;
+					}
+				}
+				source = null;
+				rest = Collections.emptyIterator();
+				return false;
+			}
+		}
+
+		@Override
+		public T next() {
+			synchronized (QueryResult.this) {
+				if (!hasNext())
+					throw new NoSuchElementException();
+				positioned = false;
+				T value = nextValue;
+				nextValue = null;
+				return value;
+			}
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+
 	/**
 	 * Create an QueryResult based on the given iterator. The <code>oneShot</code> parameter
 	 * can be set to <code>true</code> if the returned instance is expected to be perused
@@ -39,19 +97,55 @@ public class QueryResult<T> implements IQueryResult<T> {
 	 */
 	public QueryResult(Iterator<T> iterator) {
 		this.iterator = (iterator instanceof IRepeatableIterator<?>) ? (IRepeatableIterator<T>) iterator : RepeatableIterator.create(iterator);
+		this.values = null;
 	}
 
 	public QueryResult(Collection<T> collection) {
 		this.iterator = RepeatableIterator.create(collection);
+		this.values = null;
+	}
+
+	private QueryResult(Iterator<T> source, Set<T> values) {
+		this.iterator = null;
+		this.source = source;
+		this.values = values;
+	}
+
+	/**
+	 * Creates a result that reads the given iterator as it is consumed rather than up front.
+	 * The iterator must keep yielding the same elements whatever happens after this call,
+	 * see {@link org.eclipse.equinox.internal.p2.metadata.index.ISnapshotIndexProvider}.
+	 * The first iteration of the result streams the elements, any other use reads the
+	 * remaining ones into a set.
+	 */
+	public static <T> QueryResult<T> createLazy(Iterator<T> iterator) {
+		if (iterator instanceof IRepeatableIterator<?>)
+			return new QueryResult<>(iterator);
+		return new QueryResult<>(iterator, new HashSet<>());
 	}
 
 	@Override
 	public boolean isEmpty() {
-		return !iterator.hasNext();
+		if (values == null)
+			return !iterator.hasNext();
+		synchronized (this) {
+			return values.isEmpty() && (source == null || !source.hasNext());
+		}
 	}
 
 	@Override
 	public Iterator<T> iterator() {
+		if (values != null) {
+			synchronized (this) {
+				if (firstUse && source != null) {
+					firstUse = false;
+					lazyIterator = new LazyIterator();
+					return lazyIterator;
+				}
+				firstUse = false;
+				return RepeatableIterator.create(readAll());
+			}
+		}
 		if (firstUse) {
 			firstUse = false;
 			return iterator;
@@ -59,9 +153,33 @@ public class QueryResult<T> implements IQueryResult<T> {
 		return iterator.getCopy();
 	}
 
+	/**
+	 * Reads the remaining elements of a lazy result. The lazy iterator continues with the
+	 * elements it has not seen.
+	 */
+	private Set<T> readAll() {
+		if (source != null) {
+			List<T> rest = lazyIterator == null ? null : new ArrayList<>();
+			while (source.hasNext()) {
+				T value = source.next();
+				if (values.add(value) && rest != null)
+					rest.add(value);
+			}
+			source = null;
+			if (rest != null)
+				lazyIterator.rest = rest.iterator();
+		}
+		return values;
+	}
+
 	@Override
 	@SuppressWarnings("unchecked")
 	public T[] toArray(Class<T> clazz) {
+		if (values != null) {
+			synchronized (this) {
+				return readAll().toArray((T[]) Array.newInstance(clazz, values.size()));
+			}
+		}
 		Object provider = iterator.getIteratorProvider();
 		if (provider.getClass().isArray())
 			return (T[]) provider;
@@ -73,6 +191,11 @@ public class QueryResult<T> implements IQueryResult<T> {
 	@Override
 	@SuppressWarnings("unchecked")
 	public Set<T> toSet() {
+		if (values != null) {
+			synchronized (this) {
+				return new HashSet<>(readAll());
+			}
+		}
 		Object provider = iterator.getIteratorProvider();
 		if (provider instanceof Collection<?>)
 			return new HashSet<>((Collection<T>) provider);
@@ -99,6 +222,11 @@ public class QueryResult<T> implements IQueryResult<T> {
 	@Override
 	@SuppressWarnings("unchecked")
 	public Set<T> toUnmodifiableSet() {
+		if (values != null) {
+			synchronized (this) {
+				return Collections.unmodifiableSet(readAll());
+			}
+		}
 		Object provider = iterator.getIteratorProvider();
 		if (provider instanceof Set<?>)
 			return Collections.unmodifiableSet((Set<T>) provider);
@@ -0,0 +1,111 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.internal.p2.metadata.expression;
+
+import org.eclipse.equinox.internal.p2.metadata.*;
+import org.eclipse.equinox.p2.metadata.*;
+import org.eclipse.equinox.p2.metadata.expression.IEvaluationContext;
+import org.eclipse.equinox.p2.metadata.expression.IMatchExpression;
+
+/**
+ * Matches the requirements on a name, a namespace and a range of versions, the expressions
+ * recognized by {@link RequiredCapability#isVersionRangeRequirement(IMatchExpression)}. The
+ * provided capabilities of an installable unit are compared with plain string and version
+ * comparisons, without allocating anything.
+ * <p>
+ * Values that are not {@link InstallableUnit}s, or that provide capabilities of other classes,
+ * are matched by the general compiled predicate.
+ * </p>
+ */
+final class RequirementMatcher implements ExpressionCompiler.CompiledPredicate {
+	private final String name;
+	private final String namespace;
+	private final Version strict;
+	private final Version minimum;
+	private final boolean includeMinimum;
+	private final Version maximum;
+	private final boolean includeMaximum;
+	private final MatchExpression<?> expression;
+	private final ExpressionCompiler.CompiledPredicate general;
+
+	RequirementMatcher(MatchExpression<IInstallableUnit> expression, ExpressionCompiler.CompiledPredicate general) {
+		this.expression = expression;
+		this.general = general;
+		Object[] parameters = expression.getParameters();
+		name = (String) parameters[0];
+		namespace = (String) parameters[1];
+		VersionRange range = RequiredCapability.extractRange(expression);
+		if (parameters.length == 2) {
+			// any version
+			strict = null;
+			minimum = null;
+			maximum = null;
+		} else if (RequiredCapability.isStrictVersionRequirement(expression)) {
+			strict = range.getMinimum();
+			minimum = null;
+			maximum = null;
+		} else {
+			strict = null;
+			minimum = range.getMinimum();
+			// the open ranges have no upper bound in their expression
+			maximum = parameters.length == 4 ? range.getMaximum() : null;
+		}
+		includeMinimum = range.getIncludeMinimum();
+		includeMaximum = range.getIncludeMaximum();
+	}
+
+	/**
+	 * Returns whether the given value matches the requirement. The context may be <code>null</code>,
+	 * it is only needed by the general predicate.
+	 */
+	@Override
+	public boolean isMatch(IEvaluationContext context, Object value) {
+		if (!(value instanceof InstallableUnit))
+			return matchGeneral(context, value);
+		IProvidedCapability[] capabilities = (IProvidedCapability[]) ((InstallableUnit) value).getMember(InstallableUnit.MEMBER_PROVIDED_CAPABILITIES);
+		for (IProvidedCapability capability : capabilities) {
+			if (!(capability instanceof ProvidedCapability))
+				return matchGeneral(context, value);
+			ProvidedCapability provided = (ProvidedCapability) capability;
+			if (name.equals(provided.getName()) && namespace.equals(provided.getNamespace())) {
+				Version version = provided.getVersion();
+				if (version == null)
+					return matchGeneral(context, value);
+				if (isIncluded(version))
+					return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean matchGeneral(IEvaluationContext context, Object value) {
+		return general.isMatch(context == null ? expression.createContext() : context, value);
+	}
+
+	private boolean isIncluded(Version version) {
+		if (strict != null)
+			return strict.equals(version);
+		if (minimum != null) {
+			int cmp = version.compareTo(minimum);
+			if (includeMinimum ? cmp < 0 : cmp <= 0)
+				return false;
+		}
+		if (maximum != null) {
+			int cmp = version.compareTo(maximum);
+			if (includeMaximum ? cmp > 0 : cmp >= 0)
+				return false;
+		}
+		return true;
+	}
+}
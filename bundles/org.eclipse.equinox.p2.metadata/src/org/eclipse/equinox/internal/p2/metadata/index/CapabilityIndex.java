@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010, 2018 Cloudsmith Inc. and others.
+ * Copyright (c) 2010, 2026 Cloudsmith Inc. and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -14,13 +14,19 @@
 package org.eclipse.equinox.internal.p2.metadata.index;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.eclipse.equinox.internal.p2.core.helpers.CollectionUtils;
+import org.eclipse.equinox.internal.p2.core.helpers.Tracing;
 import org.eclipse.equinox.internal.p2.metadata.IRequiredCapability;
 import org.eclipse.equinox.internal.p2.metadata.InstallableUnit;
 import org.eclipse.equinox.internal.p2.metadata.ProvidedCapability;
@@ -36,33 +42,150 @@ import org.eclipse.equinox.internal.p2.metadata.expression.Unary;
 import org.eclipse.equinox.p2.metadata.IInstallableUnit;
 import org.eclipse.equinox.p2.metadata.IProvidedCapability;
 import org.eclipse.equinox.p2.metadata.IRequirement;
+import org.eclipse.equinox.p2.metadata.Version;
+import org.eclipse.equinox.p2.metadata.VersionRange;
 import org.eclipse.equinox.p2.metadata.expression.ExpressionUtil;
 import org.eclipse.equinox.p2.metadata.expression.IEvaluationContext;
 import org.eclipse.equinox.p2.metadata.expression.IExpression;
 import org.eclipse.equinox.p2.metadata.expression.IMatchExpression;
 
 /**
- * An in-memory implementation of a CapabilityIndex based on a Map.
+ * An in-memory implementation of a CapabilityIndex based on a Map. The index
+ * can be updated incrementally using {@link #add(IInstallableUnit)} and
+ * {@link #remove(IInstallableUnit)}. Updates are safe with respect to concurrent
+ * queries since the candidate lists are never modified once published.
+ * <p>
+ * Capabilities are partitioned by namespace so that equal names in different
+ * namespaces do not end up in the same candidate list. Requirements on a version
+ * range are answered from providers of the required namespace and name sorted by
+ * version, so only the providers within the range are returned as candidates.
+ * </p>
  */
 @SuppressWarnings("unchecked")
 public class CapabilityIndex extends Index<IInstallableUnit> {
 
-	private static final String NAMESPACE_EXECUTION_ENVIRONMENT = "osgi.ee";
-	private final Map<String, Object> capabilityMap;
-	private final Set<IInstallableUnit> eeProvidersSet;
+	public static final String NAMESPACE_EXECUTION_ENVIRONMENT = "osgi.ee"; //$NON-NLS-1$
+
+	// Number of queries between two reports of the candidate statistics
+	private static final int REPORT_INTERVAL = 1000;
+	private static final AtomicLong queryCount = new AtomicLong();
+	private static final AtomicLong candidateCount = new AtomicLong();
+
+	/**
+	 * The capabilities of one namespace.
+	 */
+	private static final class Partition {
+		final String namespace;
+
+		/**
+		 * Map<String,Object> mapping capability name to either an array of iu's or a single iu.
+		 */
+		final Map<String, Object> providers;
+
+		/**
+		 * Map<String,VersionedProviders> mapping capability name to the providers sorted by
+		 * version. Derived on demand from the providers map.
+		 */
+		final Map<String, VersionedProviders> versionedProviders = new ConcurrentHashMap<>();
+
+		Partition(String namespace, Map<String, Object> providers) {
+			this.namespace = namespace;
+			this.providers = providers;
+		}
+	}
+
+	/**
+	 * The providers of one namespace and name, sorted by the version of the capability.
+	 * Valid as long as the providers entry it was derived from is unchanged.
+	 */
+	private static final class VersionedProviders {
+		final Object source;
+		final Version[] versions;
+		final IInstallableUnit[] units;
+
+		VersionedProviders(String namespace, String name, IInstallableUnit[] bucket) {
+			this.source = bucket;
+			List<IProvidedCapability> capabilities = new ArrayList<>(bucket.length);
+			List<IInstallableUnit> providers = new ArrayList<>(bucket.length);
+			for (IInstallableUnit iu : bucket) {
+				for (IProvidedCapability pc : iu.getProvidedCapabilities()) {
+					if (name.equals(pc.getName()) && namespace.equals(pc.getNamespace())) {
+						capabilities.add(pc);
+						providers.add(iu);
+					}
+				}
+			}
+			Integer[] order = new Integer[capabilities.size()];
+			for (int i = 0; i < order.length; i++)
+				order[i] = Integer.valueOf(i);
+			Arrays.sort(order, (a, b) -> capabilities.get(a.intValue()).getVersion().compareTo(capabilities.get(b.intValue()).getVersion()));
+			versions = new Version[order.length];
+			units = new IInstallableUnit[order.length];
+			for (int i = 0; i < order.length; i++) {
+				versions[i] = capabilities.get(order[i].intValue()).getVersion();
+				units[i] = providers.get(order[i].intValue());
+			}
+		}
+
+		Collection<IInstallableUnit> getUnits(VersionRange range) {
+			int from = 0;
+			int to = versions.length;
+			if (range != null) {
+				from = lowerBound(range.getMinimum(), range.getIncludeMinimum());
+				to = lowerBound(range.getMaximum(), !range.getIncludeMaximum());
+			}
+			if (from >= to)
+				return Collections.emptySet();
+			return Collections.unmodifiableList(Arrays.asList(units).subList(from, to));
+		}
+
+		// index of the first version that is greater than (or equal to if inclusive) the given version
+		private int lowerBound(Version version, boolean inclusive) {
+			int low = 0;
+			int high = versions.length;
+			while (low < high) {
+				int mid = (low + high) >>> 1;
+				int cmp = versions[mid].compareTo(version);
+				if (cmp < 0 || (cmp == 0 && !inclusive))
+					low = mid + 1;
+				else
+					high = mid;
+			}
+			return low;
+		}
+	}
+
+	/**
+	 * Map<String,Integer> mapping a namespace to its dense id, the index of its partition.
+	 */
+	private final Map<String, Integer> namespaceIds = new ConcurrentHashMap<>();
+	private volatile Partition[] partitions = new Partition[0];
+	// Replaced rather than modified, like the candidate lists
+	private volatile Set<IInstallableUnit> eeProviders;
+
+	public CapabilityIndex() {
+		this((Collection<IInstallableUnit>) null);
+	}
 
 	public CapabilityIndex(Iterator<IInstallableUnit> itor) {
-		HashMap<String, Object> index = new HashMap<>(300);
-		Set<IInstallableUnit> eeProviders = new HashSet<>(10);
+		this();
+		Set<IInstallableUnit> executionEnvironmentProviders = new HashSet<>();
+		Map<String, HashMap<String, Object>> index = new HashMap<>();
 		while (itor.hasNext()) {
 			IInstallableUnit iu = itor.next();
 			Collection<IProvidedCapability> pcs = iu.getProvidedCapabilities();
 			for (IProvidedCapability pc : pcs) {
-				if (NAMESPACE_EXECUTION_ENVIRONMENT.equals(pc.getNamespace())) {
-					eeProviders.add(iu);
+				String namespace = pc.getNamespace();
+				if (NAMESPACE_EXECUTION_ENVIRONMENT.equals(namespace)) {
+					executionEnvironmentProviders.add(iu);
+				}
+				HashMap<String, Object> namespaceIndex = index.get(namespace);
+				if (namespaceIndex == null) {
+					namespaceIndex = new HashMap<>();
+					index.put(namespace, namespaceIndex);
 				}
 				String name = pc.getName();
-				Object prev = index.put(name, iu);
+				Object prev = namespaceIndex.put(name, iu);
 				if (prev == null || prev == iu)
 					continue;
 
@@ -72,12 +195,165 @@ public class CapabilityIndex extends Index<IInstallableUnit> {
 					list.add((IInstallableUnit) prev);
 				} else
 					list = (ArrayList<IInstallableUnit>) prev;
-				list.add(iu);
-				index.put(name, list);
+				if (list.get(list.size() - 1) != iu)
+					list.add(iu);
+				namespaceIndex.put(name, list);
+			}
+		}
+		if (!executionEnvironmentProviders.isEmpty())
+			eeProviders = Collections.unmodifiableSet(executionEnvironmentProviders);
+		for (Map.Entry<String, HashMap<String, Object>> namespaceEntry : index.entrySet()) {
+			Map<String, Object> providers = getPartition(namespaceEntry.getKey(), namespaceEntry.getValue().size()).providers;
+			for (Map.Entry<String, Object> entry : namespaceEntry.getValue().entrySet()) {
+				Object value = entry.getValue();
+				if (value instanceof ArrayList<?>) {
+					ArrayList<IInstallableUnit> list = (ArrayList<IInstallableUnit>) value;
+					value = list.toArray(new IInstallableUnit[list.size()]);
+				}
+				providers.put(entry.getKey(), value);
+			}
+		}
+	}
+
+	/**
+	 * Creates an index from previously computed content, e.g. an index that was
+	 * persisted together with the units it refers to.
+	 * @param capabilities The units providing each capability, keyed by namespace and name.
+	 * @param executionEnvironmentProviders The units providing an execution environment capability.
+	 */
+	public CapabilityIndex(Map<String, Map<String, IInstallableUnit[]>> capabilities, Collection<IInstallableUnit> executionEnvironmentProviders) {
+		this(executionEnvironmentProviders);
+		for (Map.Entry<String, Map<String, IInstallableUnit[]>> namespaceEntry : capabilities.entrySet()) {
+			Map<String, Object> providers = getPartition(namespaceEntry.getKey(), namespaceEntry.getValue().size()).providers;
+			for (Map.Entry<String, IInstallableUnit[]> entry : namespaceEntry.getValue().entrySet()) {
+				IInstallableUnit[] ius = entry.getValue();
+				if (ius.length > 0)
+					providers.put(entry.getKey(), ius.length == 1 ? ius[0] : ius.clone());
+			}
+		}
+	}
+
+	private CapabilityIndex(Collection<IInstallableUnit> executionEnvironmentProviders) {
+		this.eeProviders = executionEnvironmentProviders == null || executionEnvironmentProviders.isEmpty() ? Collections.emptySet() : Collections.unmodifiableSet(new HashSet<>(executionEnvironmentProviders));
+	}
+
+	/**
+	 * Returns a copy of this index that can be updated independently of the receiver.
+	 */
+	public CapabilityIndex copy() {
+		CapabilityIndex copy = new CapabilityIndex(eeProviders);
+		for (Partition partition : partitions)
+			copy.getPartition(partition.namespace, partition.providers.size()).providers.putAll(partition.providers);
+		return copy;
+	}
+
+	/**
+	 * Returns the partition of the given namespace, creating it if necessary.
+	 * Partitions are only created by the thread updating the index.
+	 */
+	private Partition getPartition(String namespace, int expectedNames) {
+		Integer id = namespaceIds.get(namespace);
+		if (id != null)
+			return partitions[id.intValue()];
+		Partition[] current = partitions;
+		Partition partition = new Partition(namespace, new ConcurrentHashMap<>(Math.max(16, expectedNames)));
+		Partition[] grown = new Partition[current.length + 1];
+		System.arraycopy(current, 0, grown, 0, current.length);
+		grown[current.length] = partition;
+		partitions = grown;
+		namespaceIds.put(namespace, Integer.valueOf(current.length));
+		return partition;
+	}
+
+	/**
+	 * Returns the partition of the given namespace or <code>null</code> if the index has no
+	 * capabilities in that namespace.
+	 */
+	private Partition findPartition(String namespace) {
+		Integer id = namespaceIds.get(namespace);
+		return id == null ? null : partitions[id.intValue()];
+	}
+
+	/**
+	 * Adds the capabilities provided by the given unit to this index.
+	 * The caller is responsible for not adding the same unit twice.
+	 */
+	public void add(IInstallableUnit iu) {
+		for (IProvidedCapability pc : iu.getProvidedCapabilities()) {
+			String namespace = pc.getNamespace();
+			if (NAMESPACE_EXECUTION_ENVIRONMENT.equals(namespace) && !eeProviders.contains(iu)) {
+				Set<IInstallableUnit> providers = new HashSet<>(eeProviders);
+				providers.add(iu);
+				eeProviders = Collections.unmodifiableSet(providers);
+			}
+
+			Map<String, Object> providers = getPartition(namespace, 0).providers;
+			String name = pc.getName();
+			Object prev = providers.putIfAbsent(name, iu);
+			if (prev == null || prev == iu)
+				continue;
+
+			IInstallableUnit[] bucket;
+			if (prev instanceof IInstallableUnit)
+				bucket = new IInstallableUnit[] {(IInstallableUnit) prev, iu};
+			else {
+				IInstallableUnit[] prevBucket = (IInstallableUnit[]) prev;
+				if (prevBucket[prevBucket.length - 1] == iu)
+					// Same unit providing more than one capability with this name
+					continue;
+				bucket = new IInstallableUnit[prevBucket.length + 1];
+				System.arraycopy(prevBucket, 0, bucket, 0, prevBucket.length);
+				bucket[prevBucket.length] = iu;
+			}
+			providers.put(name, bucket);
+		}
+	}
+
+	/**
+	 * Removes the given unit from all capabilities it provides.
+	 */
+	public void remove(IInstallableUnit iu) {
+		for (IProvidedCapability pc : iu.getProvidedCapabilities()) {
+			String namespace = pc.getNamespace();
+			if (NAMESPACE_EXECUTION_ENVIRONMENT.equals(namespace) && eeProviders.contains(iu)) {
+				Set<IInstallableUnit> providers = new HashSet<>(eeProviders);
+				providers.remove(iu);
+				eeProviders = Collections.unmodifiableSet(providers);
+			}
+
+			Partition partition = findPartition(namespace);
+			if (partition == null)
+				continue;
+			String name = pc.getName();
+			Object prev = partition.providers.get(name);
+			if (prev == null)
+				continue;
+
+			if (prev instanceof IInstallableUnit) {
+				if (prev.equals(iu)) {
+					partition.providers.remove(name);
+					partition.versionedProviders.remove(name);
+				}
+				continue;
+			}
+
+			IInstallableUnit[] prevBucket = (IInstallableUnit[]) prev;
+			int idx = prevBucket.length;
+			while (--idx >= 0)
+				if (prevBucket[idx].equals(iu))
+					break;
+			if (idx < 0)
+				continue;
+
+			if (prevBucket.length == 2) {
+				partition.providers.put(name, prevBucket[idx == 0 ? 1 : 0]);
+				continue;
 			}
+			IInstallableUnit[] bucket = new IInstallableUnit[prevBucket.length - 1];
+			System.arraycopy(prevBucket, 0, bucket, 0, idx);
+			System.arraycopy(prevBucket, idx + 1, bucket, idx, bucket.length - idx);
+			partition.providers.put(name, bucket);
 		}
-		this.capabilityMap = index;
-		this.eeProvidersSet = Collections.unmodifiableSet(eeProviders);
 	}
 
 	private Object getRequirementIDs(IEvaluationContext ctx, IExpression requirement, Object queriedKeys) {
@@ -148,6 +424,7 @@ public class CapabilityIndex extends Index<IInstallableUnit> {
 	@Override
 	public Iterator<IInstallableUnit> getCandidates(IEvaluationContext ctx, IExpression variable, IExpression booleanExpr) {
 		Object queriedKeys = null;
+		String queriedNamespace = null;
 
 		// booleanExpression must be a collection filter on providedCapabilities
 		// or an IInstallableUnit used in a match expression.
@@ -156,6 +433,8 @@ public class CapabilityIndex extends Index<IInstallableUnit> {
 		int type = booleanExpr.getExpressionType();
 		if (type == 0) {
 			// wrapper
+			if (booleanExpr instanceof IMatchExpression<?> && RequiredCapability.isVersionRangeRequirement((IMatchExpression<IInstallableUnit>) booleanExpr))
+				return traced(getVersionRangeCandidates((IMatchExpression<IInstallableUnit>) booleanExpr));
 			expr = ((Unary) booleanExpr).operand;
 			type = expr.getExpressionType();
 		}
@@ -170,15 +449,17 @@ public class CapabilityIndex extends Index<IInstallableUnit> {
 					//
 					LambdaExpression lambda = cf.lambda;
 					queriedKeys = getQueriedIDs(ctx, lambda.getItemVariable(), ProvidedCapability.MEMBER_NAME, lambda.getOperand(), queriedKeys);
+					Object namespaceKey = getQueriedIDs(ctx, lambda.getItemVariable(), ProvidedCapability.MEMBER_NAMESPACE, lambda.getOperand(), null);
 					if (queriedKeys == null) {
 						// Special handling to support
 						//     osgi.ee; (&(osgi.ee=JavaSE)(version=1.8))
 						//     providedCapabilities.exists(cap | cap.namespace == $0 && cap.properties ~= $1)
 						// in a performant way
-						if (NAMESPACE_EXECUTION_ENVIRONMENT.equals(getQueriedIDs(ctx, lambda.getItemVariable(), ProvidedCapability.MEMBER_NAMESPACE, lambda.getOperand(), queriedKeys))) {
-							return this.eeProvidersSet.iterator();
+						if (NAMESPACE_EXECUTION_ENVIRONMENT.equals(namespaceKey)) {
+							return traced(eeProviders);
 						}
-					}
+					} else if (namespaceKey instanceof String)
+						queriedNamespace = (String) namespaceKey;
 				} else {
 					// Might be the requirements array.
 					//
@@ -200,13 +481,20 @@ public class CapabilityIndex extends Index<IInstallableUnit> {
 						}
 						if (instance) {
 							Collection<String> result = new ArrayList<>();
+							String namespace = null;
 							for (Object object : collection) {
 								// This instance of check was done above
 								IRequiredCapability capability = (IRequiredCapability) object;
 								result.add(capability.getName());
+								if (namespace == null)
+									namespace = capability.getNamespace();
+								else if (!namespace.equals(capability.getNamespace()))
+									namespace = ""; //$NON-NLS-1$
 							}
 							if (result.size() > 0) {
 								queriedKeys = result;
+								if (!"".equals(namespace)) //$NON-NLS-1$
+									queriedNamespace = namespace;
 							}
 						}
 					}
@@ -226,7 +514,9 @@ public class CapabilityIndex extends Index<IInstallableUnit> {
 				// index usage query
 				//
 				IMatchExpression<IInstallableUnit> rm = ((IRequirement) rhsObj).getMatches();
-				queriedKeys = RequiredCapability.isVersionRangeRequirement(rm) ? concatenateUnique(queriedKeys, rm.getParameters()[0]) : getRequirementIDs(rm.createContext(), ((Unary) rm).operand, queriedKeys);
+				if (RequiredCapability.isVersionRangeRequirement(rm))
+					return traced(getVersionRangeCandidates(rm));
+				queriedKeys = getRequirementIDs(rm.createContext(), ((Unary) rm).operand, queriedKeys);
 				break;
 
 			default :
@@ -245,26 +535,97 @@ public class CapabilityIndex extends Index<IInstallableUnit> {
 		} else if (queriedKeys instanceof Collection<?>) {
 			matchingIUs = new HashSet<>();
 			for (Object key : (Collection<Object>) queriedKeys)
-				collectMatchingIUs((String) key, matchingIUs);
+				collectMatchingIUs(queriedNamespace, (String) key, matchingIUs);
+		} else if (queriedNamespace != null) {
+			Partition partition = findPartition(queriedNamespace);
+			matchingIUs = partition == null ? Collections.emptySet() : asCollection(partition.providers.get(queriedKeys));
 		} else {
-			Object v = capabilityMap.get(queriedKeys);
-			if (v == null)
-				matchingIUs = Collections.emptySet();
-			else if (v instanceof IInstallableUnit)
-				matchingIUs = Collections.singleton((IInstallableUnit) v);
-			else
-				matchingIUs = (Collection<IInstallableUnit>) v;
+			Object single = null;
+			matchingIUs = null;
+			for (Partition partition : partitions) {
+				Object v = partition.providers.get(queriedKeys);
+				if (v == null)
+					continue;
+				if (single == null)
+					single = v;
+				else {
+					// Present in more than one namespace
+					if (matchingIUs == null) {
+						matchingIUs = new HashSet<>();
+						addTo(single, matchingIUs);
+					}
+					addTo(v, matchingIUs);
+				}
+			}
+			if (matchingIUs == null)
+				matchingIUs = asCollection(single);
+		}
+		return traced(matchingIUs);
+	}
+
+	/**
+	 * Returns the providers of the namespace and name of the given version range requirement
+	 * whose capability version is within the required range.
+	 */
+	private Collection<IInstallableUnit> getVersionRangeCandidates(IMatchExpression<IInstallableUnit> requirement) {
+		Partition partition = findPartition(RequiredCapability.extractNamespace(requirement));
+		if (partition == null)
+			return Collections.emptySet();
+		String name = RequiredCapability.extractName(requirement);
+		Object bucket = partition.providers.get(name);
+		if (bucket == null)
+			return Collections.emptySet();
+		if (bucket instanceof IInstallableUnit)
+			return Collections.singleton((IInstallableUnit) bucket);
+
+		VersionedProviders providers = partition.versionedProviders.get(name);
+		if (providers == null || providers.source != bucket) {
+			providers = new VersionedProviders(partition.namespace, name, (IInstallableUnit[]) bucket);
+			partition.versionedProviders.put(name, providers);
+		}
+		// a requirement on all versions does not constrain the version at all
+		return providers.getUnits(requirement.getParameters().length > 2 ? RequiredCapability.extractRange(requirement) : null);
+	}
+
+	private void collectMatchingIUs(String namespace, String name, Collection<IInstallableUnit> collector) {
+		if (namespace != null) {
+			Partition partition = findPartition(namespace);
+			if (partition != null)
+				addTo(partition.providers.get(name), collector);
+			return;
 		}
-		return matchingIUs.iterator();
+		for (Partition partition : partitions)
+			addTo(partition.providers.get(name), collector);
 	}
 
-	private void collectMatchingIUs(String name, Collection<IInstallableUnit> collector) {
-		Object v = capabilityMap.get(name);
+	private static void addTo(Object v, Collection<IInstallableUnit> collector) {
 		if (v == null)
 			return;
 		if (v instanceof IInstallableUnit)
 			collector.add((IInstallableUnit) v);
 		else
-			collector.addAll((Collection<IInstallableUnit>) v);
+			Collections.addAll(collector, (IInstallableUnit[]) v);
+	}
+
+	private static Collection<IInstallableUnit> asCollection(Object v) {
+		if (v == null)
+			return Collections.emptySet();
+		if (v instanceof IInstallableUnit)
+			return Collections.singleton((IInstallableUnit) v);
+		return CollectionUtils.unmodifiableList((IInstallableUnit[]) v);
+	}
+
+	/**
+	 * Records the number of candidates returned for a query and periodically reports
+	 * the average when tracing of the metadata index is enabled.
+	 */
+	private static Iterator<IInstallableUnit> traced(Collection<IInstallableUnit> candidates) {
+		if (Tracing.DEBUG_METADATA_INDEX) {
+			long queries = queryCount.incrementAndGet();
+			long candidatesTotal = candidateCount.addAndGet(candidates.size());
+			if (queries % REPORT_INTERVAL == 0)
+				Tracing.debug("Capability index queries: " + queries + ", average candidates per query: " + ((double) candidatesTotal / queries)); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		return candidates.iterator();
 	}
 }
@@ -0,0 +1,29 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.internal.p2.metadata.index;
+
+import org.eclipse.equinox.p2.metadata.index.IIndexProvider;
+
+/**
+ * An index provider that may hand out snapshots: iterators, from {@link #everything()} or
+ * from its indexes, that are not affected by the changes made to the provider after they
+ * were created. The results of the expression queries performed on such a provider are
+ * read from these iterators as they are consumed rather than copied up front.
+ */
+public interface ISnapshotIndexProvider<T> extends IIndexProvider<T> {
+	/**
+	 * Returns whether the iterators handed out by this provider and by its indexes are snapshots.
+	 */
+	boolean isSnapshot();
+}
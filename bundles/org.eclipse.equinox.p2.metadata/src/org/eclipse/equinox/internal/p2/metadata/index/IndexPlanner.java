@@ -0,0 +1,202 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.internal.p2.metadata.index;
+
+import java.util.*;
+import org.eclipse.equinox.internal.p2.metadata.expression.Unary;
+import org.eclipse.equinox.p2.metadata.expression.*;
+import org.eclipse.equinox.p2.metadata.index.IIndex;
+import org.eclipse.equinox.p2.metadata.index.IIndexProvider;
+
+/**
+ * Chooses the candidates of a boolean expression among the indexes of the members it queries.
+ * Every index that applies to the expression is asked for its candidates. An index that does
+ * not apply to a top level <code>and</code> is asked for the candidates of each of its
+ * operands, since the elements matching the <code>and</code> match all of them. When only one
+ * applies its candidates are used as they are. When several apply, the number of candidates
+ * of each index is its cost: the smallest set is used and, unless it is small already,
+ * intersected with the other sets that are not much larger. The candidates of the larger
+ * sets are only read as far as needed to tell. Since every index answers a superset of the
+ * matching elements, so does the intersection, and the expression must still be evaluated
+ * for each candidate.
+ */
+public final class IndexPlanner<T> {
+	/**
+	 * A set of candidates is intersected with the current ones when it is at most this
+	 * many times larger, otherwise hashing it would cost more than evaluating the expression
+	 * for the candidates it would remove.
+	 */
+	static final int INTERSECTION_FACTOR = 4;
+
+	/**
+	 * Up to this many candidates are evaluated rather than intersected with other sets.
+	 */
+	static final int MIN_INTERSECTED = 32;
+
+	private final IIndexProvider<T> indexProvider;
+	private final List<String> members;
+	private final IIndex<T>[] indexes;
+
+	/**
+	 * Creates a planner for the given members, using the indexes of the given provider.
+	 * The indexes are looked up once, the planner can be reused as long as the provider
+	 * does not change.
+	 */
+	@SuppressWarnings("unchecked")
+	public IndexPlanner(IIndexProvider<T> indexProvider, List<String> members) {
+		this.indexProvider = indexProvider;
+		this.members = members;
+		this.indexes = new IIndex[members.size()];
+		for (int idx = 0; idx < indexes.length; ++idx)
+			indexes[idx] = indexProvider.getIndex(members.get(idx));
+	}
+
+	public IIndexProvider<T> getIndexProvider() {
+		return indexProvider;
+	}
+
+	/**
+	 * Returns the candidates for the given boolean expression, or <code>null</code> if no
+	 * index applies and every element must be considered.
+	 */
+	public Iterator<T> getCandidates(IEvaluationContext ctx, IExpression variable, IExpression booleanExpr) {
+		return getCandidates(ctx, variable, booleanExpr, null);
+	}
+
+	/**
+	 * Describes how the candidates for the given boolean expression are found, one step per line.
+	 */
+	public String explain(IEvaluationContext ctx, IExpression variable, IExpression booleanExpr) {
+		StringBuilder trace = new StringBuilder();
+		Iterator<T> candidates = getCandidates(ctx, variable, booleanExpr, trace);
+		if (candidates == null)
+			trace.append("scan everything"); //$NON-NLS-1$
+		else {
+			int count = 0;
+			for (; candidates.hasNext(); candidates.next())
+				++count;
+			trace.append("evaluate ").append(count).append(" candidates"); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		return trace.toString();
+	}
+
+	private Iterator<T> getCandidates(IEvaluationContext ctx, IExpression variable, IExpression booleanExpr, StringBuilder trace) {
+		List<Iterator<T>> found = new ArrayList<>(indexes.length);
+		List<String> labels = new ArrayList<>(indexes.length);
+		IExpression[] conjuncts = null;
+		for (int idx = 0; idx < indexes.length; ++idx) {
+			String member = members.get(idx);
+			IIndex<T> index = indexes[idx];
+			if (index == null) {
+				if (trace != null)
+					trace.append(member).append(": no index\n"); //$NON-NLS-1$
+				continue;
+			}
+			Iterator<T> candidates = index.getCandidates(ctx, variable, booleanExpr);
+			if (candidates != null) {
+				found.add(candidates);
+				labels.add(member);
+				continue;
+			}
+
+			// The index may still apply to the operands of a top level and
+			boolean applied = false;
+			if (conjuncts == null)
+				conjuncts = getConjuncts(booleanExpr);
+			for (IExpression conjunct : conjuncts) {
+				candidates = index.getCandidates(ctx, variable, conjunct);
+				if (candidates != null) {
+					found.add(candidates);
+					labels.add(trace == null ? member : member + " on " + conjunct); //$NON-NLS-1$
+					applied = true;
+				}
+			}
+			if (!applied && trace != null)
+				trace.append(member).append(": index does not apply\n"); //$NON-NLS-1$
+		}
+
+		int top = found.size();
+		if (top == 0)
+			return null;
+		if (top == 1 && trace == null)
+			// the candidates of a single index are not copied
+			return found.get(0);
+
+		// The candidates of all indexes are read in turn until one of them runs out. That
+		// one has the fewest candidates, the others are read no further than the number of
+		// candidates that makes them worth intersecting with.
+		List<ArrayList<T>> sets = new ArrayList<>(top);
+		for (int idx = 0; idx < top; ++idx)
+			sets.add(new ArrayList<>());
+		int smallest = -1;
+		while (smallest < 0) {
+			for (int idx = 0; idx < top; ++idx) {
+				Iterator<T> candidates = found.get(idx);
+				if (!candidates.hasNext()) {
+					smallest = idx;
+					break;
+				}
+				sets.get(idx).add(candidates.next());
+			}
+		}
+		Collection<T> result = sets.get(smallest);
+		if (trace != null)
+			trace.append("use ").append(labels.get(smallest)).append(": ").append(result.size()).append(" candidates\n"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+
+		if (result.size() <= MIN_INTERSECTED) {
+			if (trace != null)
+				for (int idx = 0; idx < top; ++idx)
+					if (idx != smallest)
+						trace.append("skip ").append(labels.get(idx)).append('\n'); //$NON-NLS-1$
+			return result.iterator();
+		}
+
+		int limit = result.size() * INTERSECTION_FACTOR;
+		List<Integer> others = new ArrayList<>(top - 1);
+		for (int idx = 0; idx < top; ++idx) {
+			if (idx == smallest)
+				continue;
+			Iterator<T> candidates = found.get(idx);
+			ArrayList<T> set = sets.get(idx);
+			while (set.size() <= limit && candidates.hasNext())
+				set.add(candidates.next());
+			if (set.size() <= limit)
+				others.add(Integer.valueOf(idx));
+			else if (trace != null)
+				trace.append("skip ").append(labels.get(idx)).append(": more than ").append(limit).append(" candidates\n"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		}
+
+		others.sort((a, b) -> sets.get(a.intValue()).size() - sets.get(b.intValue()).size());
+		for (Integer idx : others) {
+			if (result.isEmpty())
+				break;
+			Set<T> contained = new HashSet<>(sets.get(idx.intValue()));
+			ArrayList<T> intersection = new ArrayList<>(result.size());
+			for (T candidate : result)
+				if (contained.contains(candidate))
+					intersection.add(candidate);
+			result = intersection;
+			if (trace != null)
+				trace.append("intersect with ").append(labels.get(idx.intValue())).append(": ").append(result.size()).append(" candidates\n"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		}
+		return result.iterator();
+	}
+
+	private static IExpression[] getConjuncts(IExpression booleanExpr) {
+		IExpression expr = booleanExpr;
+		if (expr instanceof IMatchExpression<?>)
+			expr = ((Unary) expr).getOperand();
+		return expr.getExpressionType() == IExpression.TYPE_AND ? ExpressionUtil.getOperands(expr) : new IExpression[0];
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010, 2017 Cloudsmith Inc. and others.
+ * Copyright (c) 2010, 2026 Cloudsmith Inc. and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -14,7 +14,13 @@
  *******************************************************************************/
 package org.eclipse.equinox.internal.p2.metadata.index;
 
+import java.util.ArrayList;
+import java.util.List;
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.equinox.internal.p2.metadata.expression.*;
+import org.eclipse.equinox.p2.metadata.expression.ExpressionUtil;
+import org.eclipse.equinox.p2.metadata.expression.IEvaluationContext;
+import org.eclipse.equinox.p2.metadata.expression.IMatchExpression;
 import org.eclipse.equinox.p2.metadata.index.IIndexProvider;
 import org.eclipse.equinox.p2.metadata.index.IQueryWithIndex;
 import org.eclipse.equinox.p2.query.*;
@@ -31,6 +37,72 @@ public abstract class IndexProvider<T> implements IIndexProvider<T>, IQueryable<
 		return result;
 	}
 
+	/**
+	 * Returns whether the given provider hands out snapshots, so that query results can be read lazily.
+	 */
+	public static boolean isSnapshot(IIndexProvider<?> indexProvider) {
+		if (indexProvider instanceof ISnapshotIndexProvider<?>)
+			return ((ISnapshotIndexProvider<?>) indexProvider).isSnapshot();
+		return indexProvider instanceof IndexProvider<?> && ((IndexProvider<?>) indexProvider).isSnapshot();
+	}
+
+	/**
+	 * Returns whether the iterators handed out by this provider and by its indexes are snapshots,
+	 * see {@link ISnapshotIndexProvider}. Providers that may change while a query result is read
+	 * answer <code>false</code>, the default.
+	 */
+	protected boolean isSnapshot() {
+		return false;
+	}
+
+	/**
+	 * Describes how the given query would find its candidates among the elements of the given
+	 * provider: which indexes apply, how many candidates each of them yields and how they are
+	 * combined. A query that iterates the elements more than once is described one iteration
+	 * at a time. This is meant for diagnostics, the candidates are computed to be counted.
+	 */
+	public static <Q> String explain(IIndexProvider<Q> indexProvider, IQuery<Q> query) {
+		if (query instanceof ExpressionMatchQuery<?>) {
+			ExpressionMatchQuery<Q> matchQuery = (ExpressionMatchQuery<Q>) query;
+			IMatchExpression<Q> expression = matchQuery.getExpression();
+			if (((MatchExpression<Q>) expression).operand == ExpressionUtil.TRUE_EXPRESSION)
+				return "scan everything"; //$NON-NLS-1$
+			List<String> members = Expression.getIndexCandidateMembers(matchQuery.getMatchingClass(), ExpressionFactory.THIS, (Expression) expression);
+			return new IndexPlanner<>(indexProvider, members).explain(matchQuery.getContext(), ExpressionFactory.THIS, expression);
+		}
+		if (!(query instanceof ExpressionQuery<?>))
+			return "scan everything"; //$NON-NLS-1$
+
+		ExpressionQuery<Q> expressionQuery = (ExpressionQuery<Q>) query;
+		Class<? extends Q> elementClass = expressionQuery.getElementClass();
+		IEvaluationContext context = expressionQuery.getExpression().createContext(elementClass, indexProvider);
+		List<CollectionFilter> filters = new ArrayList<>();
+		expressionQuery.getExpression().accept(expression -> {
+			// a context expression visits its operand twice
+			if (expression instanceof CollectionFilter && ((CollectionFilter) expression).getOperand() == ExpressionFactory.EVERYTHING && !filters.contains(expression))
+				filters.add((CollectionFilter) expression);
+			return true;
+		});
+		if (filters.isEmpty())
+			return "scan everything"; //$NON-NLS-1$
+
+		StringBuilder bld = new StringBuilder();
+		for (CollectionFilter filter : filters) {
+			if (bld.length() > 0)
+				bld.append('\n');
+			bld.append(filter).append('\n');
+			LambdaExpression lambda = filter.lambda;
+			List<String> members = Expression.getIndexCandidateMembers(elementClass, lambda.getItemVariable(), lambda.getOperand());
+			try {
+				bld.append(new IndexPlanner<>(indexProvider, members).explain(context, lambda.getItemVariable(), lambda.getOperand()));
+			} catch (RuntimeException e) {
+				// The filter depends on the variables of an enclosing expression
+				bld.append("planned when evaluated"); //$NON-NLS-1$
+			}
+		}
+		return bld.toString();
+	}
+
 	@Override
 	public IQueryResult<T> query(IQuery<T> query, IProgressMonitor monitor) {
 		return query(this, query, monitor);
@@ -1,5 +1,5 @@
 /******************************************************************************* 
-* Copyright (c) 2009, 2018 EclipseSource and others.
+* Copyright (c) 2009, 2026 EclipseSource and others.
 *
 * This
 * program and the accompanying materials are made available under the terms of
@@ -129,6 +129,15 @@ public final class CompoundQueryable<T> extends IndexProvider<T> {
 		return new CompoundIterator<>(iterators.iterator());
 	}
 
+	@Override
+	protected boolean isSnapshot() {
+		// the children are captured when the compound is created
+		for (IQueryable<T> queryable : queryables)
+			if (!(queryable instanceof IIndexProvider<?>) || !IndexProvider.isSnapshot((IIndexProvider<?>) queryable))
+				return false;
+		return true;
+	}
+
 	@Override
 	public Object getManagedProperty(Object client, String memberName, Object key) {
 		for (IQueryable<T> queryable : queryables) {
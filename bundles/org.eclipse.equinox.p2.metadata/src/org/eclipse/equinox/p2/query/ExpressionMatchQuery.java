@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009, 2018 Cloudsmith Inc. and others.
+ * Copyright (c) 2009, 2026 Cloudsmith Inc. and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -19,13 +19,15 @@ import java.util.List;
 import org.eclipse.equinox.internal.p2.metadata.expression.Expression;
 import org.eclipse.equinox.internal.p2.metadata.expression.ExpressionFactory;
 import org.eclipse.equinox.internal.p2.metadata.expression.MatchExpression;
+import org.eclipse.equinox.internal.p2.metadata.expression.MatchIteratorFilter;
 import org.eclipse.equinox.internal.p2.metadata.expression.QueryResult;
 import org.eclipse.equinox.internal.p2.metadata.expression.RepeatableIterator;
+import org.eclipse.equinox.internal.p2.metadata.index.IndexPlanner;
+import org.eclipse.equinox.internal.p2.metadata.index.IndexProvider;
 import org.eclipse.equinox.p2.metadata.expression.ExpressionUtil;
 import org.eclipse.equinox.p2.metadata.expression.IEvaluationContext;
 import org.eclipse.equinox.p2.metadata.expression.IExpression;
 import org.eclipse.equinox.p2.metadata.expression.IMatchExpression;
-import org.eclipse.equinox.p2.metadata.index.IIndex;
 import org.eclipse.equinox.p2.metadata.index.IIndexProvider;
 import org.eclipse.equinox.p2.metadata.index.IQueryWithIndex;
 
@@ -62,18 +64,20 @@ public class ExpressionMatchQuery<T> implements IMatchQuery<T>, IQueryWithIndex<
 	public IQueryResult<T> perform(IIndexProvider<T> indexProvider) {
 		if (((MatchExpression<T>) expression).operand == ExpressionUtil.TRUE_EXPRESSION)
 			return new QueryResult<>(RepeatableIterator.create(indexProvider));
-		Iterator<T> iterator = null;
-		int top = indexedMembers.size();
-		for (int idx = 0; idx < top; ++idx) {
-			IIndex<T> index = indexProvider.getIndex(indexedMembers.get(idx));
-			if (index != null) {
-				iterator = index.getCandidates(context, ExpressionFactory.THIS, expression);
-				if (iterator != null)
-					break;
-			}
-		}
+		Iterator<T> iterator = new IndexPlanner<>(indexProvider, indexedMembers).getCandidates(context, ExpressionFactory.THIS, expression);
 		if (iterator == null)
 			iterator = RepeatableIterator.create(indexProvider);
+		if (IndexProvider.isSnapshot(indexProvider)) {
+			// The candidates are matched as the result is read, in a context of their own
+			IEvaluationContext resultContext = expression.createContext();
+			resultContext.setIndexProvider(indexProvider);
+			return QueryResult.createLazy(new MatchIteratorFilter<T>(iterator) {
+				@Override
+				protected boolean isMatch(T candidate) {
+					return matchingClass.isInstance(candidate) && expression.isMatch(resultContext, candidate);
+				}
+			});
+		}
 		context.setIndexProvider(indexProvider);
 		return perform(iterator);
 	}
@@ -99,8 +103,7 @@ public class ExpressionMatchQuery<T> implements IMatchQuery<T>, IQueryWithIndex<
 	public boolean isMatch(T candidate) {
 		if (!matchingClass.isInstance(candidate))
 			return false;
-		ExpressionFactory.THIS.setValue(context, candidate);
-		return Boolean.TRUE == expression.evaluate(context);
+		return expression.isMatch(context, candidate);
 	}
 
 	@Override
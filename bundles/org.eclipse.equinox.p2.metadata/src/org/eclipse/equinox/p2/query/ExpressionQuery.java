@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009, 2018 Cloudsmith Inc. and others.
+ * Copyright (c) 2009, 2026 Cloudsmith Inc. and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -18,6 +18,7 @@ import org.eclipse.equinox.internal.p2.metadata.expression.ContextExpression;
 import org.eclipse.equinox.internal.p2.metadata.expression.ExpressionFactory;
 import org.eclipse.equinox.internal.p2.metadata.expression.MatchExpression;
 import org.eclipse.equinox.internal.p2.metadata.expression.QueryResult;
+import org.eclipse.equinox.internal.p2.metadata.index.IndexProvider;
 import org.eclipse.equinox.p2.metadata.expression.ExpressionUtil;
 import org.eclipse.equinox.p2.metadata.expression.IContextExpression;
 import org.eclipse.equinox.p2.metadata.expression.IExpression;
@@ -48,7 +49,8 @@ public class ExpressionQuery<T> implements IQueryWithIndex<T> {
 
 	@Override
 	public IQueryResult<T> perform(IIndexProvider<T> indexProvider) {
-		return new QueryResult<>(expression.iterator(expression.createContext(elementClass, indexProvider)));
+		Iterator<T> result = expression.iterator(expression.createContext(elementClass, indexProvider));
+		return IndexProvider.isSnapshot(indexProvider) ? QueryResult.createLazy(result) : new QueryResult<>(result);
 	}
 
 	@Override
@@ -0,0 +1,469 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.internal.p2.repository;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.equinox.internal.p2.core.helpers.LogHelper;
+import org.eclipse.equinox.internal.p2.repository.helpers.ChecksumHelper;
+import org.eclipse.equinox.internal.provisional.p2.repository.IStateful;
+import org.eclipse.equinox.p2.repository.artifact.IArtifactDescriptor;
+
+/**
+ * A cache of downloaded artifacts shared by the agents of a host. The bytes of an artifact
+ * are stored under their SHA-256 checksum, the one published by the repositories as the
+ * <code>download.checksum.sha-256</code> property of the artifact descriptors, so the same
+ * bytes are only downloaded once whatever the repository or agent asking for them.
+ * <p>
+ * The bytes of an artifact are only added once they have been checked against their checksum,
+ * and the cache never changes them afterwards. They can therefore be hard linked into a bundle
+ * pool, which is why the time an artifact is used is recorded in a marker file next to it rather
+ * than on the file itself. The cache keeps its total size in a file, and when it grows larger than
+ * its maximum size, the artifacts used least recently are removed until it is a tenth smaller. The
+ * changes to the cache are made while holding a lock on a file of the cache, so that agents running
+ * in different processes can share it.
+ * </p>
+ * <p>
+ * The cache is used when the <code>eclipse.p2.artifactCache</code> property gives its folder.
+ * </p>
+ */
+public class ArtifactCache {
+	/**
+	 * The property giving the folder of the shared cache.
+	 */
+	public static final String PROP_LOCATION = "eclipse.p2.artifactCache"; //$NON-NLS-1$
+
+	/**
+	 * The property giving the size in bytes above which the artifacts used least recently are
+	 * removed from the shared cache.
+	 */
+	public static final String PROP_MAX_SIZE = "eclipse.p2.artifactCache.maxSize"; //$NON-NLS-1$
+
+	private static final long DEFAULT_MAX_SIZE = 10L * 1024 * 1024 * 1024;
+	private static final String CHECKSUM = IArtifactDescriptor.DOWNLOAD_CHECKSUM + ".sha-256"; //$NON-NLS-1$
+	private static final String LOCK_FILE = ".lock"; //$NON-NLS-1$
+	private static final String SIZE_FILE = ".size"; //$NON-NLS-1$
+	private static final String USED_SUFFIX = ".used"; //$NON-NLS-1$
+	private static final String TEMP_PREFIX = ".download"; //$NON-NLS-1$
+	// downloads not completed for that long have been abandoned by their agent
+	private static final long TEMP_EXPIRY = 24 * 60 * 60 * 1000;
+	// the share of the maximum size left after an eviction, so that the next additions do not evict
+	private static final double EVICTED_SIZE = 0.9;
+
+	private static ArtifactCache defaultCache;
+
+	private final File location;
+	private final long maxSize;
+
+	/**
+	 * Returns the cache configured for this process, or <code>null</code> if there is none.
+	 */
+	public static synchronized ArtifactCache getDefault() {
+		String folder = getProperty(PROP_LOCATION);
+		if (folder == null || folder.trim().isEmpty()) {
+			defaultCache = null;
+			return null;
+		}
+		long maxSize = DEFAULT_MAX_SIZE;
+		String value = getProperty(PROP_MAX_SIZE);
+		if (value != null) {
+			try {
+				maxSize = Long.parseLong(value.trim());
+			} catch (NumberFormatException e) {
+				// keep the default
+			}
+		}
+		File cacheLocation = new File(folder.trim());
+		if (defaultCache == null || !defaultCache.location.equals(cacheLocation) || defaultCache.maxSize != maxSize)
+			defaultCache = new ArtifactCache(cacheLocation, maxSize);
+		return defaultCache;
+	}
+
+	private static String getProperty(String key) {
+		return Activator.getContext() != null ? Activator.getContext().getProperty(key) : System.getProperty(key);
+	}
+
+	/**
+	 * Returns the key of the bytes of the given artifact in the cache, or <code>null</code> if
+	 * the descriptor does not give their SHA-256 checksum.
+	 */
+	public static String getKey(IArtifactDescriptor descriptor) {
+		String checksum = descriptor.getProperty(CHECKSUM);
+		if (checksum == null)
+			return null;
+		checksum = checksum.trim().toLowerCase(Locale.ENGLISH);
+		if (checksum.length() != 64)
+			return null;
+		for (int i = 0; i < checksum.length(); i++)
+			if (Character.digit(checksum.charAt(i), 16) < 0)
+				return null;
+		return checksum;
+	}
+
+	public ArtifactCache(File location, long maxSize) {
+		this.location = location;
+		this.maxSize = maxSize;
+	}
+
+	public File getLocation() {
+		return location;
+	}
+
+	/**
+	 * Returns whether the cache holds the bytes with the given key.
+	 */
+	public boolean contains(String key) {
+		return getFile(key).isFile();
+	}
+
+	/**
+	 * Returns the file holding the bytes with the given key, or <code>null</code> if the cache
+	 * does not hold them. The file must only be read. It is marked as used, and while it can
+	 * be removed from the cache later on, an input stream opened on it beforehand keeps reading
+	 * the whole file.
+	 */
+	public File get(String key) {
+		File file = getFile(key);
+		try {
+			return locked(() -> touch(file) ? file : null);
+		} catch (IOException e) {
+			LogHelper.log(new Status(IStatus.WARNING, Activator.ID, e.getMessage(), e));
+			return null;
+		}
+	}
+
+	/**
+	 * Creates the given file with the bytes of the given key, as a hard link to the file of the
+	 * cache when the file system supports it, as a copy otherwise.
+	 *
+	 * @return <code>false</code> if the cache does not hold the bytes
+	 */
+	public boolean materialize(String key, File target) throws IOException {
+		File file = getFile(key);
+		Object result = locked(() -> {
+			if (!touch(file))
+				return Boolean.FALSE;
+			try {
+				Files.createLink(target.toPath(), file.toPath());
+				return Boolean.TRUE;
+			} catch (IOException | UnsupportedOperationException e) {
+				// most likely another file system, the bytes are copied once the lock is released
+				return new FileInputStream(file);
+			}
+		});
+		if (result instanceof Boolean)
+			return ((Boolean) result).booleanValue();
+		try (InputStream input = (InputStream) result) {
+			Files.copy(input, target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+		return true;
+	}
+
+	/**
+	 * Returns a stream writing to the given stream, whose bytes are added to the cache under
+	 * the given key when {@link Entry#commit()} is called and they match the key.
+	 */
+	public Entry newEntry(String key, OutputStream destination) {
+		return new Entry(key, destination);
+	}
+
+	/**
+	 * Removes the bytes with the given key, for instance because they could not be read.
+	 */
+	public void remove(String key) {
+		File file = getFile(key);
+		try {
+			locked(() -> {
+				long length = file.length();
+				if (!delete(file))
+					return Boolean.FALSE;
+				long size = readSize();
+				if (size >= 0)
+					writeSize(Math.max(0, size - length));
+				return Boolean.TRUE;
+			});
+		} catch (IOException e) {
+			LogHelper.log(new Status(IStatus.WARNING, Activator.ID, e.getMessage(), e));
+		}
+	}
+
+	private File getFile(String key) {
+		return new File(new File(location, key.substring(0, 2)), key);
+	}
+
+	private static File getUsedMarker(File file) {
+		return new File(file.getParentFile(), file.getName() + USED_SUFFIX);
+	}
+
+	/**
+	 * Marks the given file as used. The file itself is left alone since the installed copies of
+	 * the artifact may be hard links to it.
+	 */
+	private static boolean touch(File file) {
+		if (!file.isFile())
+			return false;
+		File marker = getUsedMarker(file);
+		if (!marker.setLastModified(System.currentTimeMillis())) {
+			try {
+				marker.createNewFile();
+			} catch (IOException e) {
+				// the file is ordered by the time it was added
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the last time the given file has been used, the time it was added if it has
+	 * not been used since.
+	 */
+	private static long getLastUsed(File file) {
+		long used = getUsedMarker(file).lastModified();
+		return used != 0 ? used : file.lastModified();
+	}
+
+	private static boolean delete(File file) {
+		if (!file.delete())
+			return false;
+		getUsedMarker(file).delete();
+		return true;
+	}
+
+	/**
+	 * Returns the total size of the artifacts of the cache, or <code>-1</code> if it is not known.
+	 * Called with the lock held.
+	 */
+	private long readSize() {
+		File file = new File(location, SIZE_FILE);
+		if (!file.isFile())
+			return -1;
+		try {
+			return Long.parseLong(new String(Files.readAllBytes(file.toPath()), StandardCharsets.US_ASCII).trim());
+		} catch (IOException | NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	/**
+	 * Records the total size of the artifacts of the cache. Called with the lock held.
+	 */
+	private void writeSize(long size) throws IOException {
+		Files.write(new File(location, SIZE_FILE).toPath(), Long.toString(size).getBytes(StandardCharsets.US_ASCII));
+	}
+
+	private interface Action<T> {
+		T run() throws IOException;
+	}
+
+	/**
+	 * Runs the given action while holding the lock of the cache. The threads of this process
+	 * take turns first, the file lock being held by the whole process.
+	 */
+	private <T> T locked(Action<T> action) throws IOException {
+		synchronized (ArtifactCache.class) {
+			if (!location.isDirectory() && !location.mkdirs() && !location.isDirectory())
+				throw new IOException(location.toString());
+			try (FileChannel channel = FileChannel.open(new File(location, LOCK_FILE).toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE); FileLock lock = channel.lock()) {
+				return action.run();
+			}
+		}
+	}
+
+	/**
+	 * Counts the size of the files of the cache and, when it is larger than its maximum size,
+	 * removes the files used least recently until it is a tenth smaller. Called with the lock
+	 * held, only when the recorded size is above the maximum or unknown.
+	 *
+	 * @return the size of the files left
+	 */
+	private long evict(File kept) {
+		List<File> files = new ArrayList<>();
+		long size = 0;
+		long now = System.currentTimeMillis();
+		File[] children = location.listFiles();
+		if (children == null)
+			return 0;
+		for (File child : children) {
+			if (child.getName().startsWith(TEMP_PREFIX)) {
+				if (now - child.lastModified() > TEMP_EXPIRY)
+					child.delete();
+			} else if (child.isDirectory()) {
+				File[] entries = child.listFiles();
+				if (entries != null)
+					for (File entry : entries) {
+						String name = entry.getName();
+						if (!name.endsWith(USED_SUFFIX)) {
+							files.add(entry);
+							size += entry.length();
+						} else if (!new File(child, name.substring(0, name.length() - USED_SUFFIX.length())).exists())
+							entry.delete();
+					}
+			}
+		}
+		if (size <= maxSize)
+			return size;
+		Map<File, Long> lastUsed = new HashMap<>();
+		for (File file : files)
+			lastUsed.put(file, Long.valueOf(getLastUsed(file)));
+		files.sort(Comparator.comparing(lastUsed::get));
+		long evictedSize = (long) (maxSize * EVICTED_SIZE);
+		for (File file : files) {
+			if (size <= evictedSize)
+				break;
+			long length = file.length();
+			// a file still open can not be removed on some platforms, it is removed later on
+			if (!file.equals(kept) && delete(file))
+				size -= length;
+		}
+		return size;
+	}
+
+	/**
+	 * Writes the bytes of an artifact to a destination and to a temporary file of the cache.
+	 * The status set on the stream is forwarded to the destination.
+	 */
+	public final class Entry extends OutputStream implements IStateful {
+		private final String key;
+		private final OutputStream destination;
+		private File temp;
+		private OutputStream output;
+		private MessageDigest digest;
+
+		Entry(String key, OutputStream destination) {
+			this.key = key;
+			this.destination = destination;
+			try {
+				digest = MessageDigest.getInstance("SHA-256"); //$NON-NLS-1$
+				if (!location.isDirectory())
+					location.mkdirs();
+				temp = File.createTempFile(TEMP_PREFIX, null, location);
+				output = new BufferedOutputStream(new FileOutputStream(temp));
+			} catch (IOException | NoSuchAlgorithmException e) {
+				// the artifact is downloaded without being cached
+				discard();
+			}
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			destination.write(b);
+			if (output != null) {
+				try {
+					output.write(b);
+					digest.update((byte) b);
+				} catch (IOException e) {
+					discard();
+				}
+			}
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			destination.write(b, off, len);
+			if (output != null) {
+				try {
+					output.write(b, off, len);
+					digest.update(b, off, len);
+				} catch (IOException e) {
+					discard();
+				}
+			}
+		}
+
+		@Override
+		public void flush() throws IOException {
+			destination.flush();
+		}
+
+		@Override
+		public void close() throws IOException {
+			destination.close();
+		}
+
+		/**
+		 * Adds the bytes written so far to the cache if they match the key of the entry.
+		 *
+		 * @return whether the bytes have been added
+		 */
+		public boolean commit() {
+			if (output == null)
+				return false;
+			try {
+				output.close();
+				output = null;
+				if (!key.equals(ChecksumHelper.toHexString(digest.digest())))
+					return false;
+				File file = getFile(key);
+				return locked(() -> {
+					if (file.isFile()) {
+						touch(file);
+						return Boolean.TRUE;
+					}
+					file.getParentFile().mkdirs();
+					Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+					touch(file);
+					long size = readSize();
+					if (size >= 0)
+						size += file.length();
+					if (size < 0 || size > maxSize)
+						size = evict(file);
+					writeSize(size);
+					return Boolean.TRUE;
+				}).booleanValue();
+			} catch (IOException e) {
+				LogHelper.log(new Status(IStatus.WARNING, Activator.ID, e.getMessage(), e));
+				return false;
+			} finally {
+				discard();
+			}
+		}
+
+		/**
+		 * Drops the bytes written so far.
+		 */
+		public void discard() {
+			if (output != null) {
+				try {
+					output.close();
+				} catch (IOException e) {
+					// the file is deleted anyway
+				}
+				output = null;
+			}
+			if (temp != null) {
+				temp.delete();
+				temp = null;
+			}
+		}
+
+		@Override
+		public IStatus getStatus() {
+			return destination instanceof IStateful ? ((IStateful) destination).getStatus() : Status.OK_STATUS;
+		}
+
+		@Override
+		public void setStatus(IStatus status) {
+			if (destination instanceof IStateful)
+				((IStateful) destination).setStatus(status);
+		}
+	}
+}
@@ -0,0 +1,56 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.internal.p2.repository;
+
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+/**
+ * Gives a transport the permits limiting the connections to the host of the transfer
+ * it runs. The transfer holds one permit for its connection while it runs. A transport
+ * opening more connections for the same transfer takes one more permit for each of
+ * them, without waiting for it, so that transfers holding permits never wait for each
+ * other, and gives them back when the connections are closed.
+ */
+public final class ConnectionPermits {
+	private static final ThreadLocal<Semaphore> current = new ThreadLocal<>();
+
+	private ConnectionPermits() {
+		// not to be instantiated
+	}
+
+	/**
+	 * Runs the given transfer on the calling thread, which holds one of the given permits.
+	 */
+	public static <T> T run(Semaphore permits, Supplier<T> transfer) {
+		Semaphore previous = current.get();
+		current.set(permits);
+		try {
+			return transfer.get();
+		} finally {
+			if (previous != null)
+				current.set(previous);
+			else
+				current.remove();
+		}
+	}
+
+	/**
+	 * Returns the permits limiting the connections to the host of the transfer run by the
+	 * calling thread, or <code>null</code> if the connections of the transfer are not limited.
+	 */
+	public static Semaphore getCurrent() {
+		return current.get();
+	}
+}
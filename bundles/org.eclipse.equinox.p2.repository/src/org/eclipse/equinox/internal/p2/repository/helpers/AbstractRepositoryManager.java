@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2015 IBM Corporation and others.
+ * Copyright (c) 2008, 2026 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -562,6 +562,7 @@ public abstract class AbstractRepositoryManager<T> implements IRepositoryManager
 	 */
 	public String getRepositoryProperty(URI location, String key) {
 		checkValidLocation(location);
+		IRepository<T> repository;
 		synchronized (repositoryLock) {
 			if (repositories == null)
 				restoreRepositories();
@@ -576,9 +577,13 @@ public abstract class AbstractRepositoryManager<T> implements IRepositoryManager
 				return Boolean.toString(info.isSystem);
 			else if (IRepository.PROP_NICKNAME.equals(key))
 				return info.nickname;
-			// Key not known, return null
-			return null;
+			else if (!IRepository.PROP_TIMESTAMP.equals(key))
+				// Key not known, return null
+				return null;
+			repository = info.repository == null ? null : info.repository.get();
 		}
+		// the timestamp is only known from the loaded repository, which is not asked while holding the lock
+		return repository == null ? null : repository.getProperty(key);
 	}
 
 	/*(non-Javadoc)
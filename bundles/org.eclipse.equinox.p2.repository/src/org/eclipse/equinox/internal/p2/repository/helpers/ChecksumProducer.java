@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009, 2018 IBM Corporation and others.
+ * Copyright (c) 2009, 2026 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -23,7 +23,7 @@ import java.security.*;
  */
 public class ChecksumProducer {
 
-	private static final int BUFFER_SIZE = 4 * 1024;
+	private static final int BUFFER_SIZE = 16 * 1024;
 
 	/**
 	 * @param file should not be <code>null</code>
@@ -49,14 +49,27 @@ public class ChecksumProducer {
 	 */
 	public static String produce(File file, String algorithm) throws IOException, NoSuchAlgorithmException {
 		MessageDigest messageDigest = MessageDigest.getInstance(algorithm);
-		try (InputStream fis = new DigestInputStream(new BufferedInputStream(new FileInputStream(file)), messageDigest)) {
+		update(file, messageDigest);
+		byte[] digest = messageDigest.digest();
+		return ChecksumHelper.toHexString(digest);
+	}
+
+	/**
+	 * Reads the file once, feeding its content to all the given digests.
+	 * 
+	 * @param file should not be <code>null</code>
+	 * @param messageDigests the digests to update
+	 * @throws IOException
+	 */
+	public static void update(File file, MessageDigest... messageDigests) throws IOException {
+		try (InputStream fis = new FileInputStream(file)) {
 			byte[] buffer = new byte[BUFFER_SIZE];
-			while (fis.read(buffer) != -1) {
-				// consume stream to update digest
+			int len;
+			while ((len = fis.read(buffer)) != -1) {
+				for (MessageDigest messageDigest : messageDigests)
+					messageDigest.update(buffer, 0, len);
 			}
 		}
-		byte[] digest = messageDigest.digest();
-		return ChecksumHelper.toHexString(digest);
 	}
 
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2011 IBM Corporation and others.
+ * Copyright (c) 2008, 2026 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -143,6 +143,7 @@ public interface IRepositoryManager<T> extends IQueryable<T> {
 	 * Note that only the repository properties referenced below are tracked by the 
 	 * repository manager itself. For all other properties, this method will return <code>null</code>.
 	 * Only values for the properties that are already known by a repository manager will be returned. 
+	 * The {@link IRepository#PROP_TIMESTAMP} property is known while the repository is loaded.
 	 * </p>
 	 * <p>
 	 * If a client wishes to retrieve a property value from a repository 
@@ -162,6 +163,7 @@ public interface IRepositoryManager<T> extends IQueryable<T> {
 	 * @see IRepository#PROP_NICKNAME
 	 * @see IRepository#PROP_DESCRIPTION
 	 * @see IRepository#PROP_SYSTEM
+	 * @see IRepository#PROP_TIMESTAMP
 	 */
 	public String getRepositoryProperty(URI location, String key);
 
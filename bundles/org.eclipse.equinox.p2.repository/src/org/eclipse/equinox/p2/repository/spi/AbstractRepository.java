@@ -1,5 +1,5 @@
 /*******************************************************************************
- *  Copyright (c) 2007, 2011 IBM Corporation and others.
+ *  Copyright (c) 2007, 2026 IBM Corporation and others.
  *
  *  This program and the accompanying materials
  *  are made available under the terms of the Eclipse Public License 2.0
@@ -15,7 +15,7 @@
 package org.eclipse.equinox.p2.repository.spi;
 
 import java.net.URI;
-import java.util.Map;
+import java.util.*;
 import org.eclipse.core.runtime.*;
 import org.eclipse.equinox.internal.p2.core.helpers.OrderedProperties;
 import org.eclipse.equinox.p2.core.IProvisioningAgent;
@@ -33,9 +33,11 @@ import org.eclipse.equinox.p2.repository.IRepository;
 public abstract class AbstractRepository<T> extends PlatformObject implements IRepository<T> {
 	private final IProvisioningAgent agent;
 	private String description;
-	private transient URI location;
+	private transient volatile URI location;
 	private String name;
 	private Map<String, String> properties = new OrderedProperties();
+	// read-only copy of the properties for the unsynchronized reads, discarded on write
+	private transient volatile Map<String, String> propertiesSnapshot;
 	private String provider;
 	private String type;
 	private String version;
@@ -86,7 +88,7 @@ public abstract class AbstractRepository<T> extends PlatformObject implements IR
 	 * Returns the location of this repository.
 	 * @return the URI of the repository.
 	 */
-	public synchronized URI getLocation() {
+	public URI getLocation() {
 		return location;
 	}
 
@@ -110,7 +112,16 @@ public abstract class AbstractRepository<T> extends PlatformObject implements IR
 	 * {@inheritDoc}
 	 */
 	public String getProperty(String key) {
-		return properties.get(key);
+		Map<String, String> snapshot = propertiesSnapshot;
+		if (snapshot == null)
+			snapshot = snapshotProperties();
+		return snapshot.get(key);
+	}
+
+	private synchronized Map<String, String> snapshotProperties() {
+		if (propertiesSnapshot == null)
+			propertiesSnapshot = Collections.unmodifiableMap(new HashMap<>(properties));
+		return propertiesSnapshot;
 	}
 
 	/**
@@ -182,6 +193,7 @@ public abstract class AbstractRepository<T> extends PlatformObject implements IR
 			setName(value);
 			return oldName;
 		}
+		propertiesSnapshot = null;
 		return (value == null ? properties.remove(key) : properties.put(key, value));
 	}
 
@@ -235,5 +247,6 @@ public abstract class AbstractRepository<T> extends PlatformObject implements IR
 	 */
 	protected synchronized void setProperties(Map<String, String> properties) {
 		this.properties = properties;
+		propertiesSnapshot = null;
 	}
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2018 compeople AG and others.
+ * Copyright (c) 2007, 2026 compeople AG and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -26,6 +26,7 @@ public class AllTests extends TestCase {
 		suite.addTestSuite(ZipVerifierProcessorTest.class);
 		suite.addTest(new JUnit4TestAdapter(ChecksumVerifierTest.class));
 		suite.addTest(new JUnit4TestAdapter(ChecksumUtilitiesTest.class));
+		suite.addTest(new JUnit4TestAdapter(MultiChecksumVerifierTest.class));
 		return suite;
 	}
 
@@ -1,5 +1,5 @@
 /*******************************************************************************
- *  Copyright (c) 2018 Mykola Nikishov
+ *  Copyright (c) 2018, 2026 Mykola Nikishov and others
  *
  *  This program and the accompanying materials
  *  are made available under the terms of the Eclipse Public License 2.0
@@ -18,11 +18,13 @@ import static java.util.Collections.emptyList;
 import static java.util.Collections.emptySet;
 import static java.util.Collections.singleton;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import java.util.Collection;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.equinox.internal.p2.artifact.processors.checksum.ChecksumUtilities;
 import org.eclipse.equinox.internal.p2.artifact.processors.checksum.ChecksumVerifier;
+import org.eclipse.equinox.internal.p2.artifact.processors.checksum.MultiChecksumVerifier;
 import org.eclipse.equinox.internal.p2.metadata.ArtifactKey;
 import org.eclipse.equinox.internal.p2.metadata.OSGiVersion;
 import org.eclipse.equinox.internal.provisional.p2.artifact.repository.processing.ProcessingStep;
@@ -78,6 +80,22 @@ public class ChecksumUtilitiesTest {
 		assertEquals(Status.OK_STATUS, verifier.getStatus());
 	}
 
+	@Test
+	public void testSeveralChecksumsVerifiedTogether() {
+		String other = IArtifactDescriptor.ARTIFACT_CHECKSUM.equals(propertyType) ? IArtifactDescriptor.ARTIFACT_CHECKSUM : IArtifactDescriptor.DOWNLOAD_CHECKSUM;
+		boolean md5 = "md5".equals(algorithmId);
+		artifactDescriptor.setProperty(other.concat(md5 ? ".sha-256" : ".md5"), md5 ? "123456789_123456789_123456789_123456789_123456789_123456789_1234" : "123456789_123456789_123456789_12");
+		Collection<ProcessingStep> checksumVerifiers = ChecksumUtilities.getChecksumVerifiers(artifactDescriptor, propertyType, emptySet());
+
+		assertEquals(1, checksumVerifiers.size());
+		MultiChecksumVerifier verifier = (MultiChecksumVerifier) checksumVerifiers.iterator().next();
+		assertEquals(2, verifier.getVerifiers().size());
+
+		checksumVerifiers = ChecksumUtilities.getChecksumVerifiers(artifactDescriptor, propertyType, singleton(algorithmId));
+		assertEquals(1, checksumVerifiers.size());
+		assertTrue(checksumVerifiers.iterator().next() instanceof ChecksumVerifier);
+	}
+
 	@Test
 	public void testChecksumsToSkip() {
 		Collection<ProcessingStep> checksumVerifiers = ChecksumUtilities.getChecksumVerifiers(artifactDescriptor, propertyType, singleton(algorithmId));
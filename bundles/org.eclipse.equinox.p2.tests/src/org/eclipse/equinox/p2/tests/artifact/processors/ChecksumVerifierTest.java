@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2015, 2018 Mykola Nikishov.
+ * Copyright (c) 2015, 2026 Mykola Nikishov and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -15,12 +15,16 @@ package org.eclipse.equinox.p2.tests.artifact.processors;
 
 import static org.easymock.EasyMock.*;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.security.MessageDigest;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
+import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.equinox.internal.p2.artifact.processors.checksum.ChecksumVerifier;
+import org.eclipse.equinox.internal.p2.repository.helpers.ChecksumHelper;
 import org.eclipse.equinox.p2.repository.artifact.IArtifactDescriptor;
 import org.eclipse.equinox.p2.repository.artifact.IProcessingStepDescriptor;
 import org.junit.Assert;
@@ -111,4 +115,35 @@ public class ChecksumVerifierTest {
 		verifier.close();
 		verify(processingStepDescriptor);
 	}
+
+	@Test
+	public void testMixedWrites() throws Exception {
+		byte[] data = new byte[100000];
+		for (int i = 0; i < data.length; i++)
+			data[i] = (byte) (i * 31);
+		String expected = ChecksumHelper.toHexString(MessageDigest.getInstance(digestAlgorithm).digest(data));
+		IProcessingStepDescriptor processingStepDescriptor = createMock(IProcessingStepDescriptor.class);
+		expect(processingStepDescriptor.getData()).andReturn(expected);
+		replay(processingStepDescriptor);
+
+		ChecksumVerifier verifier = new ChecksumVerifier(digestAlgorithm, algorithmId);
+		verifier.initialize(null, processingStepDescriptor, null);
+		ByteArrayOutputStream destination = new ByteArrayOutputStream();
+		verifier.link(destination, new NullProgressMonitor());
+
+		// single bytes, blocks smaller and larger than the buffer of the step, in any order
+		int offset = 0;
+		for (int len : new int[] {1, 100, 1, 20000, 5, 3, 50000}) {
+			if (len == 1)
+				verifier.write(data[offset]);
+			else
+				verifier.write(data, offset, len);
+			offset += len;
+		}
+		verifier.write(data, offset, data.length - offset);
+		verifier.close();
+
+		Assert.assertEquals(Status.OK_STATUS, verifier.getStatus());
+		Assert.assertArrayEquals(data, destination.toByteArray());
+	}
 }
@@ -0,0 +1,119 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.p2.tests.artifact.processors;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.util.*;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.equinox.internal.p2.artifact.processors.checksum.ChecksumVerifier;
+import org.eclipse.equinox.internal.p2.artifact.processors.checksum.MultiChecksumVerifier;
+import org.eclipse.equinox.internal.p2.repository.helpers.ChecksumHelper;
+import org.eclipse.equinox.internal.p2.repository.helpers.ChecksumProducer;
+import org.eclipse.equinox.p2.repository.artifact.spi.ProcessingStepDescriptor;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MultiChecksumVerifierTest {
+	private byte[] data;
+	private String sha256;
+	private String md5;
+
+	@Before
+	public void createData() throws Exception {
+		data = new byte[100000];
+		new Random(1).nextBytes(data);
+		sha256 = ChecksumHelper.toHexString(MessageDigest.getInstance("SHA-256").digest(data));
+		md5 = ChecksumHelper.toHexString(MessageDigest.getInstance("MD5").digest(data));
+	}
+
+	@Test
+	public void testVerified() throws IOException {
+		ByteArrayOutputStream destination = new ByteArrayOutputStream();
+		MultiChecksumVerifier verifier = createVerifier(sha256, md5);
+		verifier.link(destination, new NullProgressMonitor());
+		writeMixed(verifier);
+		verifier.close();
+
+		assertTrue(verifier.getStatus().isOK());
+		assertArrayEquals(data, destination.toByteArray());
+	}
+
+	@Test
+	public void testOneUnexpected() throws IOException {
+		MultiChecksumVerifier verifier = createVerifier(sha256, "123456789_123456789_123456789_12");
+		verifier.link(new ByteArrayOutputStream(), new NullProgressMonitor());
+		writeMixed(verifier);
+		verifier.close();
+
+		assertEquals(IStatus.ERROR, verifier.getStatus().getSeverity());
+		assertTrue(verifier.getVerifiers().get(0).getStatus().isOK());
+		assertEquals(verifier.getVerifiers().get(1).getStatus(), verifier.getStatus());
+	}
+
+	@Test
+	public void testAllUnexpected() throws IOException {
+		MultiChecksumVerifier verifier = createVerifier(md5 + md5, sha256.substring(0, 32));
+		verifier.link(new ByteArrayOutputStream(), new NullProgressMonitor());
+		writeMixed(verifier);
+		verifier.close();
+
+		assertEquals(IStatus.ERROR, verifier.getStatus().getSeverity());
+		assertEquals(2, verifier.getStatus().getChildren().length);
+	}
+
+	@Test
+	public void testProduceFromFile() throws Exception {
+		File file = File.createTempFile("MultiChecksumVerifierTest", ".bin");
+		try {
+			Files.write(file.toPath(), data);
+			MessageDigest sha = MessageDigest.getInstance("SHA-256");
+			MessageDigest md = MessageDigest.getInstance("MD5");
+			ChecksumProducer.update(file, sha, md);
+
+			assertEquals(sha256, ChecksumHelper.toHexString(sha.digest()));
+			assertEquals(md5, ChecksumHelper.toHexString(md.digest()));
+			assertEquals(sha256, ChecksumProducer.produce(file, "SHA-256"));
+		} finally {
+			file.delete();
+		}
+	}
+
+	private MultiChecksumVerifier createVerifier(String expectedSha256, String expectedMd5) {
+		ChecksumVerifier sha = new ChecksumVerifier("SHA-256", "sha-256");
+		sha.initialize(null, new ProcessingStepDescriptor(null, expectedSha256, true), null);
+		ChecksumVerifier md = new ChecksumVerifier("MD5", "md5");
+		md.initialize(null, new ProcessingStepDescriptor(null, expectedMd5, true), null);
+		return new MultiChecksumVerifier(Arrays.asList(sha, md));
+	}
+
+	// single bytes, small blocks that are buffered and blocks larger than the buffer
+	private void writeMixed(OutputStream stream) throws IOException {
+		Random random = new Random(2);
+		int offset = 0;
+		while (offset < data.length) {
+			if (random.nextBoolean()) {
+				stream.write(data[offset++]);
+			} else {
+				int length = Math.min(data.length - offset, random.nextInt(40000));
+				stream.write(data, offset, length);
+				offset += length;
+			}
+		}
+	}
+}
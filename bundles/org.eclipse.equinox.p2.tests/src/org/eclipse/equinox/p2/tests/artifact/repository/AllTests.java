@@ -1,5 +1,5 @@
 /*******************************************************************************
- *  Copyright (c) 2007, 2011 IBM Corporation and others.
+ *  Copyright (c) 2007, 2026 IBM Corporation and others.
  *
  *  This program and the accompanying materials
  *  are made available under the terms of the Eclipse Public License 2.0
@@ -33,11 +33,13 @@ public class AllTests extends TestCase {
 		suite.addTestSuite(Bug351944.class);
 		suite.addTestSuite(CompositeArtifactRepositoryTest.class);
 		suite.addTestSuite(CorruptedJar.class);
+		suite.addTestSuite(DownloadExecutorTest.class);
 		suite.addTestSuite(FoldersRepositoryTest.class);
 		suite.addTestSuite(JarURLArtifactRepositoryTest.class);
 		suite.addTestSuite(LocationTest.class);
 		suite.addTestSuite(MD5Tests.class);
 		suite.addTestSuite(MirrorSelectorTest.class);
+		suite.addTestSuite(HedgedDownloadTest.class);
 		suite.addTestSuite(MirrorRequestTest.class);
 		suite.addTestSuite(SimpleArtifactRepositoryTest.class);
 		suite.addTestSuite(TransferTest.class);
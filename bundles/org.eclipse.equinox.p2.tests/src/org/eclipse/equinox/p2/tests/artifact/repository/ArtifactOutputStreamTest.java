@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2018 compeople AG and others.
+ * Copyright (c) 2007, 2026 compeople AG and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -14,9 +14,10 @@
  *******************************************************************************/
 package org.eclipse.equinox.p2.tests.artifact.repository;
 
-import java.io.ByteArrayOutputStream;
-import java.io.File;
-import java.io.IOException;
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.util.Arrays;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.equinox.internal.p2.artifact.repository.simple.SimpleArtifactRepository;
 import org.eclipse.equinox.internal.p2.artifact.repository.simple.SimpleArtifactRepository.ArtifactOutputStream;
@@ -140,6 +141,30 @@ public class ArtifactOutputStreamTest extends AbstractProvisioningTest {
 		assertEquals(22, Destination.baos.toByteArray()[0]);
 	}
 
+	public void testTransferFrom() throws IOException {
+		assertFalse(aos.canTransfer());
+		File source = File.createTempFile("ArtifactOutputStreamTest", ".source");
+		try {
+			Files.write(source.toPath(), new byte[] {1, 2, 3, 4, 5});
+			FileOutputStream target = new FileOutputStream(temp);
+			ArtifactOutputStream stream = sar.new ArtifactOutputStream(new BufferedOutputStream(target), ad, temp, target.getChannel());
+			assertTrue(stream.canTransfer());
+			stream.write(0);
+			try (FileInputStream in = new FileInputStream(source)) {
+				FileChannel channel = in.getChannel();
+				assertEquals(2, stream.transferFrom(channel, 0, 2));
+				assertEquals(3, stream.transferFrom(channel, 2, 10));
+			}
+			stream.write(6);
+			stream.close();
+			assertFalse(stream.canTransfer());
+			assertEquals("7", ad.getProperty(IArtifactDescriptor.DOWNLOAD_SIZE));
+			assertTrue(Arrays.equals(new byte[] {0, 1, 2, 3, 4, 5, 6}, Files.readAllBytes(temp.toPath())));
+		} finally {
+			source.delete();
+		}
+	}
+
 	static class Destination extends ProcessingStep {
 
 		static IOException ioe = null;
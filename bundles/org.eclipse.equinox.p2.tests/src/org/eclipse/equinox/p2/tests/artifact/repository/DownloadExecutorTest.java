@@ -0,0 +1,167 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.p2.tests.artifact.repository;
+
+import java.io.File;
+import java.net.URI;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.eclipse.core.runtime.*;
+import org.eclipse.equinox.internal.p2.artifact.repository.simple.DownloadExecutor;
+import org.eclipse.equinox.internal.p2.artifact.repository.simple.SimpleArtifactRepository;
+import org.eclipse.equinox.internal.p2.metadata.ArtifactKey;
+import org.eclipse.equinox.p2.metadata.IArtifactKey;
+import org.eclipse.equinox.p2.metadata.Version;
+import org.eclipse.equinox.p2.repository.artifact.IArtifactRepository;
+import org.eclipse.equinox.p2.repository.artifact.IArtifactRequest;
+import org.eclipse.equinox.p2.tests.AbstractProvisioningTest;
+
+public class DownloadExecutorTest extends AbstractProvisioningTest {
+	private File location;
+	private SimpleArtifactRepository repository;
+	private DownloadExecutor registered;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		location = getTempFolder();
+		Map<String, String> properties = new HashMap<>();
+		properties.put(SimpleArtifactRepository.PROP_FORCE_THREADING, "true");
+		repository = new SimpleArtifactRepository(getAgent(), "name", location.toURI(), properties);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		if (registered != null)
+			getAgent().unregisterService(DownloadExecutor.SERVICE_NAME, registered);
+		delete(location);
+		super.tearDown();
+	}
+
+	public void testTransfersPerHost() throws Exception {
+		final DownloadExecutor executor = new DownloadExecutor(2, false);
+		final Map<String, AtomicInteger> running = new ConcurrentHashMap<>();
+		final Map<String, Integer> maximum = new ConcurrentHashMap<>();
+		ExecutorService threads = Executors.newFixedThreadPool(12);
+		try {
+			List<Future<IStatus>> results = new ArrayList<>();
+			for (int i = 0; i < 30; i++) {
+				final String host = i % 2 == 0 ? "a.example.org" : "B.example.org";
+				final URI uri = URI.create("http://" + host + "/plugins/a" + i + ".jar");
+				results.add(threads.submit(() -> executor.transfer(uri, () -> {
+					String key = uri.getHost().toLowerCase();
+					int count = running.computeIfAbsent(key, k -> new AtomicInteger()).incrementAndGet();
+					maximum.merge(key, count, Math::max);
+					try {
+						Thread.sleep(5);
+					} catch (InterruptedException e) {
+						return Status.CANCEL_STATUS;
+					} finally {
+						running.get(key).decrementAndGet();
+					}
+					return Status.OK_STATUS;
+				})));
+			}
+			for (Future<IStatus> result : results)
+				assertOK(result.get());
+		} finally {
+			threads.shutdownNow();
+		}
+		assertEquals(2, maximum.size());
+		for (Integer count : maximum.values())
+			assertTrue(count.toString(), count <= 2);
+	}
+
+	public void testLocalTransferNotLimited() throws Exception {
+		final DownloadExecutor executor = new DownloadExecutor(1, false);
+		final CountDownLatch latch = new CountDownLatch(2);
+		ExecutorService threads = Executors.newFixedThreadPool(2);
+		try {
+			List<Future<IStatus>> results = new ArrayList<>();
+			for (int i = 0; i < 2; i++) {
+				final URI uri = new File(location, "a" + i + ".jar").toURI();
+				// both transfers have to run at the same time to complete
+				results.add(threads.submit(() -> executor.transfer(uri, () -> {
+					latch.countDown();
+					try {
+						return latch.await(10, TimeUnit.SECONDS) ? Status.OK_STATUS : Status.CANCEL_STATUS;
+					} catch (InterruptedException e) {
+						return Status.CANCEL_STATUS;
+					}
+				})));
+			}
+			for (Future<IStatus> result : results)
+				assertOK(result.get());
+		} finally {
+			threads.shutdownNow();
+		}
+	}
+
+	public void testExecute() {
+		TestRequest[] requests = new TestRequest[20];
+		for (int i = 0; i < requests.length; i++)
+			requests[i] = new TestRequest(new ArtifactKey("osgi.bundle", "a" + i, Version.create("1.0.0")), i % 5 == 0);
+		MultiStatus status = new MultiStatus("test", IStatus.OK, "", null);
+		new DownloadExecutor(4, true).execute(repository, requests, 3, new NullProgressMonitor(), status);
+		for (TestRequest request : requests)
+			assertTrue(request.performed);
+		assertEquals(4, status.getChildren().length);
+	}
+
+	public void testAgentExecutor() {
+		final AtomicInteger executed = new AtomicInteger();
+		registered = new DownloadExecutor(1, false) {
+			@Override
+			public void execute(SimpleArtifactRepository repo, IArtifactRequest[] requests, int maxThreads, IProgressMonitor monitor, MultiStatus overallStatus) {
+				executed.incrementAndGet();
+				super.execute(repo, requests, maxThreads, monitor, overallStatus);
+			}
+		};
+		getAgent().registerService(DownloadExecutor.SERVICE_NAME, registered);
+		TestRequest[] requests = new TestRequest[6];
+		for (int i = 0; i < requests.length; i++)
+			requests[i] = new TestRequest(new ArtifactKey("osgi.bundle", "a" + i, Version.create("1.0.0")), false);
+		assertOK(repository.getArtifacts(requests, new NullProgressMonitor()));
+		assertEquals(1, executed.get());
+		for (TestRequest request : requests)
+			assertTrue(request.performed);
+	}
+
+	static class TestRequest implements IArtifactRequest {
+		private final IArtifactKey key;
+		private final boolean fail;
+		volatile boolean performed;
+
+		TestRequest(IArtifactKey key, boolean fail) {
+			this.key = key;
+			this.fail = fail;
+		}
+
+		@Override
+		public IArtifactKey getArtifactKey() {
+			return key;
+		}
+
+		@Override
+		public void perform(IArtifactRepository sourceRepository, IProgressMonitor monitor) {
+			performed = true;
+		}
+
+		@Override
+		public IStatus getResult() {
+			return fail ? new Status(IStatus.ERROR, "test", key.toString()) : Status.OK_STATUS;
+		}
+	}
+}
@@ -0,0 +1,315 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.p2.tests.artifact.repository;
+
+import java.io.*;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import junit.framework.TestCase;
+import org.eclipse.core.runtime.*;
+import org.eclipse.equinox.internal.p2.artifact.repository.HedgedDownload;
+import org.eclipse.equinox.internal.p2.artifact.repository.MirrorSelector;
+import org.eclipse.equinox.internal.p2.repository.DownloadStatus;
+import org.eclipse.equinox.internal.p2.repository.Transport;
+import org.eclipse.equinox.p2.query.IQuery;
+import org.eclipse.equinox.p2.query.IQueryResult;
+import org.eclipse.equinox.p2.repository.IRepository;
+import org.eclipse.equinox.p2.repository.spi.AbstractRepository;
+
+/**
+ * Tests the mirror selection and the hedged downloads against mirror stand-ins
+ * answering after different delays.
+ */
+public class HedgedDownloadTest extends TestCase {
+	private static final String ARTIFACT = "plugins/a_1.0.0.jar";
+
+	private MirrorTransport transport;
+	private MirrorSelector selector;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		transport = new MirrorTransport();
+		transport.addMirror("fast", 5);
+		transport.addMirror("medium", 50);
+		transport.addMirror("slow", 3000);
+		Map<String, String> properties = new HashMap<>();
+		properties.put(IRepository.PROP_MIRRORS_URL, "http://base.example.org/mirrors.xml");
+		IRepository<Object> repository = new AbstractRepository<Object>(null, "Mirrored", "test", "1", URI.create("http://base.example.org/repo"), null, null, properties) {
+			@Override
+			public IQueryResult<Object> query(IQuery<Object> query, IProgressMonitor monitor) {
+				return null;
+			}
+		};
+		selector = new MirrorSelector(repository, transport);
+	}
+
+	public void testNoHedgeDelayBeforeSamples() {
+		selector.getMirrorLocation(location("base"), new NullProgressMonitor());
+		assertEquals(-1, selector.getHedgeDelay());
+		for (int i = 1; i <= 20; i++)
+			selector.reportTimeToFirstByte(location("fast").toString(), i * 10);
+		assertEquals(190, selector.getHedgeDelay());
+	}
+
+	public void testSelectionAvoidsSlowMirror() {
+		selector.getMirrorLocation(location("base"), new NullProgressMonitor());
+		for (int i = 0; i < 10; i++) {
+			report("fast", 5, 10000000);
+			report("medium", 50, 1000000);
+			report("slow", 3000, 10000);
+			report("base", 100, 100000);
+		}
+		Map<String, Integer> selected = new HashMap<>();
+		for (int i = 0; i < 1000; i++)
+			selected.merge(selector.getMirrorLocation(location("base"), new NullProgressMonitor()).getHost(), 1, Integer::sum);
+		assertNull(selected.get("slow.example.org"));
+		// the fastest mirror wins whenever it is one of the two mirrors compared
+		assertTrue(selected.toString(), selected.get("fast.example.org") > 400);
+		assertTrue(selected.toString(), selected.get("fast.example.org") > selected.get("medium.example.org"));
+	}
+
+	public void testSelectionAmongAllMirrors() {
+		transport.listed.clear();
+		for (int i = 0; i < 10; i++)
+			transport.listed.add("m" + i);
+		Map<String, Integer> selected = select(1000);
+		// mirrors that cannot be told apart yet are preferred by their rank, the base site coming last
+		assertNull(selected.toString(), selected.get("base.example.org"));
+		assertTrue(selected.toString(), selected.get("m0.example.org") > selected.getOrDefault("m8.example.org", 0));
+		for (int i = 0; i < 10; i++) {
+			for (int k = 0; k < 9; k++)
+				report("m" + k, 500, 100000);
+			report("m9", 5, 10000000);
+		}
+		// the farthest mirror wins whenever it is one of the two mirrors compared
+		selected = select(1000);
+		assertTrue(selected.toString(), selected.get("m9.example.org") > 100);
+	}
+
+	public void testDownloadOnCallingThreadWithoutSamples() {
+		ByteArrayOutputStream destination = new ByteArrayOutputStream();
+		selector.getMirrorLocation(location("base"), new NullProgressMonitor());
+		HedgedDownload download = new HedgedDownload(selector, transport);
+		assertTrue(download.run(location("medium"), destination, new NullProgressMonitor()).isOK());
+		assertEquals("medium", destination.toString());
+		assertEquals(Thread.currentThread(), transport.threads.get("medium"));
+	}
+
+	public void testSlowMirrorHedged() {
+		warmUp();
+		ByteArrayOutputStream destination = new ByteArrayOutputStream();
+		HedgedDownload download = new HedgedDownload(selector, transport);
+		long start = System.currentTimeMillis();
+		IStatus result = download.run(location("slow"), destination, new NullProgressMonitor());
+		long elapsed = System.currentTimeMillis() - start;
+
+		assertTrue(result.toString(), result.isOK());
+		assertTrue(Long.toString(elapsed), elapsed < 2000);
+		assertFalse(location("slow").equals(download.getLocation()));
+		// only the download that won wrote to the destination
+		assertEquals(download.getLocation().getHost().replace(".example.org", ""), destination.toString());
+		assertEquals(1, transport.requests.get("slow").get());
+	}
+
+	public void testFastMirrorNotHedged() {
+		warmUp();
+		transport.requests.clear();
+		ByteArrayOutputStream destination = new ByteArrayOutputStream();
+		HedgedDownload download = new HedgedDownload(selector, transport);
+		assertTrue(download.run(location("fast"), destination, new NullProgressMonitor()).isOK());
+		assertEquals("fast", destination.toString());
+		assertEquals(location("fast"), download.getLocation());
+		assertEquals(Collections.singleton("fast"), transport.requests.keySet());
+	}
+
+	public void testQueuedMirrorNotHedged() {
+		warmUp();
+		transport.requests.clear();
+		// the transfer waits for its turn longer than the hedge delay, then answers quickly
+		transport.queued.put("fast", 500L);
+		ByteArrayOutputStream destination = new ByteArrayOutputStream();
+		HedgedDownload download = new HedgedDownload(selector, transport);
+		assertTrue(download.run(location("fast"), destination, new NullProgressMonitor()).isOK());
+		assertEquals("fast", destination.toString());
+		assertEquals(Collections.singleton("fast"), transport.requests.keySet());
+		// the time waiting for the turn is not taken for the time to first byte
+		assertTrue(Long.toString(selector.getHedgeDelay()), selector.getHedgeDelay() < 500);
+	}
+
+	public void testNothingWrittenAfterCancel() throws Exception {
+		warmUp();
+		// the mirror keeps sending bytes whether the download is canceled or not
+		transport.streaming.add("fast");
+		transport.addMirror("fast", 1000);
+		ByteArrayOutputStream destination = new ByteArrayOutputStream();
+		NullProgressMonitor monitor = new NullProgressMonitor();
+		Thread canceler = new Thread(() -> {
+			try {
+				Thread.sleep(200);
+			} catch (InterruptedException e) {
+				// cancel now
+			}
+			monitor.setCanceled(true);
+		});
+		canceler.start();
+		HedgedDownload download = new HedgedDownload(selector, transport);
+		assertEquals(IStatus.CANCEL, download.run(location("fast"), destination, monitor).getSeverity());
+		int written = destination.size();
+		assertTrue(written > 0);
+		Thread.sleep(300);
+		assertEquals(written, destination.size());
+		canceler.join();
+	}
+
+	public void testFailureWithoutBytesFallsBackToHedge() {
+		warmUp();
+		// the first mirror fails after the second one has been asked, but before it answers
+		transport.failing.add("medium");
+		transport.addMirror("medium", 200);
+		transport.addMirror("fast", 400);
+		transport.addMirror("slow", 400);
+		transport.addMirror("base", 400);
+		ByteArrayOutputStream destination = new ByteArrayOutputStream();
+		HedgedDownload download = new HedgedDownload(selector, transport);
+		IStatus result = download.run(location("medium"), destination, new NullProgressMonitor());
+		assertTrue(result.toString(), result.isOK());
+		assertFalse(location("medium").equals(download.getLocation()));
+	}
+
+	// make the selector expect the first bytes after a few tens of milliseconds
+	private void warmUp() {
+		selector.getMirrorLocation(location("base"), new NullProgressMonitor());
+		for (int i = 0; i < 10; i++) {
+			report("fast", 5, 10000000);
+			report("medium", 50, 1000000);
+			report("base", 60, 1000000);
+		}
+	}
+
+	private Map<String, Integer> select(int count) {
+		Map<String, Integer> selected = new HashMap<>();
+		for (int i = 0; i < count; i++)
+			selected.merge(selector.getMirrorLocation(location("base"), new NullProgressMonitor()).getHost(), 1, Integer::sum);
+		return selected;
+	}
+
+	private void report(String mirror, long timeToFirstByte, long bytesPerSecond) {
+		selector.reportTimeToFirstByte(location(mirror).toString(), timeToFirstByte);
+		DownloadStatus status = new DownloadStatus(IStatus.OK, "test", "");
+		status.setTransferRate(bytesPerSecond);
+		selector.reportResult(location(mirror).toString(), status);
+	}
+
+	static URI location(String mirror) {
+		return URI.create("http://" + mirror + ".example.org/repo/" + ARTIFACT);
+	}
+
+	/**
+	 * Stands in for mirrors sending their name as the content of every artifact after a delay.
+	 */
+	static class MirrorTransport extends Transport implements HedgedDownload.Transfer {
+		final Map<String, Long> delays = new ConcurrentHashMap<>();
+		final Map<String, AtomicInteger> requests = new ConcurrentHashMap<>();
+		final Map<String, Thread> threads = new ConcurrentHashMap<>();
+		final Set<String> failing = Collections.synchronizedSet(new HashSet<>());
+		final Set<String> streaming = Collections.synchronizedSet(new HashSet<>());
+		final Map<String, Long> queued = new ConcurrentHashMap<>();
+		final List<String> listed = new ArrayList<>(Arrays.asList("fast", "medium", "slow"));
+
+		MirrorTransport() {
+			addMirror("base", 60);
+		}
+
+		void addMirror(String name, long delay) {
+			delays.put(name, delay);
+		}
+
+		@Override
+		public IStatus download(URI toDownload, OutputStream target, IProgressMonitor monitor, Runnable started) {
+			Long wait = queued.get(toDownload.getHost().replace(".example.org", ""));
+			if (wait != null) {
+				try {
+					Thread.sleep(wait);
+				} catch (InterruptedException e) {
+					return Status.CANCEL_STATUS;
+				}
+			}
+			started.run();
+			return download(toDownload, target, monitor);
+		}
+
+		@Override
+		public IStatus download(URI toDownload, OutputStream target, IProgressMonitor monitor) {
+			String mirror = toDownload.getHost().replace(".example.org", "");
+			requests.computeIfAbsent(mirror, m -> new AtomicInteger()).incrementAndGet();
+			threads.put(mirror, Thread.currentThread());
+			long end = System.currentTimeMillis() + delays.get(mirror);
+			if (streaming.contains(mirror))
+				return stream(target, end);
+			while (System.currentTimeMillis() < end) {
+				if (monitor.isCanceled())
+					throw new OperationCanceledException();
+				try {
+					Thread.sleep(1);
+				} catch (InterruptedException e) {
+					return Status.CANCEL_STATUS;
+				}
+			}
+			if (failing.contains(mirror))
+				return new Status(IStatus.ERROR, "test", "Unavailable " + toDownload);
+			try {
+				target.write(mirror.getBytes(StandardCharsets.UTF_8));
+			} catch (IOException e) {
+				return new Status(IStatus.ERROR, "test", e.getMessage(), e);
+			}
+			return new DownloadStatus(IStatus.OK, "test", "");
+		}
+
+		private IStatus stream(OutputStream target, long end) {
+			try {
+				while (System.currentTimeMillis() < end) {
+					target.write('x');
+					Thread.sleep(1);
+				}
+			} catch (IOException e) {
+				return new Status(IStatus.ERROR, "test", e.getMessage(), e);
+			} catch (InterruptedException e) {
+				return Status.CANCEL_STATUS;
+			}
+			return new DownloadStatus(IStatus.OK, "test", "");
+		}
+
+		@Override
+		public IStatus download(URI toDownload, OutputStream target, long startPos, IProgressMonitor monitor) {
+			return download(toDownload, target, monitor);
+		}
+
+		@Override
+		public InputStream stream(URI toDownload, IProgressMonitor monitor) {
+			StringBuilder mirrors = new StringBuilder("<mirrors>");
+			for (String mirror : listed)
+				mirrors.append("<mirror url=\"http://").append(mirror).append(".example.org/repo\"/>");
+			return new ByteArrayInputStream(mirrors.append("</mirrors>").toString().getBytes(StandardCharsets.UTF_8));
+		}
+
+		@Override
+		public long getLastModified(URI toDownload, IProgressMonitor monitor) {
+			return 0;
+		}
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2017 compeople AG and others.
+ * Copyright (c) 2007, 2026 compeople AG and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -16,6 +16,7 @@
  *******************************************************************************/
 package org.eclipse.equinox.p2.tests.artifact.repository;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
@@ -25,6 +26,8 @@ import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.security.MessageDigest;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
@@ -32,9 +35,13 @@ import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.core.runtime.Status;
+import org.eclipse.equinox.internal.p2.artifact.repository.simple.SimpleArtifactDescriptor;
 import org.eclipse.equinox.internal.p2.artifact.repository.simple.SimpleArtifactRepository;
 import org.eclipse.equinox.internal.p2.artifact.repository.simple.SimpleArtifactRepositoryFactory;
+import org.eclipse.equinox.internal.p2.artifact.repository.simple.SimpleArtifactRepositoryIO;
 import org.eclipse.equinox.internal.p2.metadata.ArtifactKey;
+import org.eclipse.equinox.internal.p2.repository.ArtifactCache;
+import org.eclipse.equinox.internal.p2.repository.helpers.ChecksumHelper;
 import org.eclipse.equinox.internal.provisional.p2.artifact.repository.processing.ProcessingStep;
 import org.eclipse.equinox.internal.provisional.p2.artifact.repository.processing.ProcessingStepHandler;
 import org.eclipse.equinox.p2.core.ProvisionException;
@@ -389,6 +396,124 @@ public class SimpleArtifactRepositoryTest extends AbstractProvisioningTest {
 
 	}
 
+	public void testRawLocalTransfer() throws Exception {
+		File folder = getTestFolder("simple_RawLocalTransfer");
+		repositoryURI = folder.toURI();
+		SimpleArtifactRepository source = (SimpleArtifactRepository) getArtifactRepositoryManager().createRepository(new File(folder, "source").toURI(), "Source", IArtifactRepositoryManager.TYPE_SIMPLE_REPOSITORY, new HashMap<>());
+		SimpleArtifactRepository target = (SimpleArtifactRepository) getArtifactRepositoryManager().createRepository(new File(folder, "target").toURI(), "Target", IArtifactRepositoryManager.TYPE_SIMPLE_REPOSITORY, new HashMap<>());
+		try {
+			// large enough to be transferred in several slices
+			byte[] content = new byte[20 * 1024 * 1024 + 17];
+			for (int i = 0; i < content.length; i++)
+				content[i] = (byte) (i % 251);
+			ArtifactDescriptor descriptor = new ArtifactDescriptor(new ArtifactKey("osgi.bundle", "aaPlugin", Version.create("1.0.0")));
+			try (OutputStream stream = source.getOutputStream(descriptor)) {
+				stream.write(content);
+			}
+			IArtifactDescriptor sourceDescriptor = source.getArtifactDescriptors(descriptor.getArtifactKey())[0];
+
+			OutputStream destination = target.getOutputStream(sourceDescriptor);
+			IStatus status;
+			try {
+				status = source.getRawArtifact(sourceDescriptor, destination, new NullProgressMonitor());
+			} finally {
+				destination.close();
+			}
+			assertOK("Transfer", status);
+			IArtifactDescriptor targetDescriptor = target.getArtifactDescriptors(descriptor.getArtifactKey())[0];
+			assertEquals(Integer.toString(content.length), targetDescriptor.getProperty(IArtifactDescriptor.DOWNLOAD_SIZE));
+			assertTrue(Arrays.equals(content, Files.readAllBytes(target.getArtifactFile(targetDescriptor).toPath())));
+		} finally {
+			getArtifactRepositoryManager().removeRepository(source.getLocation());
+			getArtifactRepositoryManager().removeRepository(target.getLocation());
+		}
+	}
+
+	public void testGetArtifactFromSharedCache() throws Exception {
+		File folder = getTestFolder("simple_SharedCache");
+		repositoryURI = folder.toURI();
+		SimpleArtifactRepository source = (SimpleArtifactRepository) getArtifactRepositoryManager().createRepository(new File(folder, "source").toURI(), "Source", IArtifactRepositoryManager.TYPE_SIMPLE_REPOSITORY, new HashMap<>());
+		SimpleArtifactRepository target = (SimpleArtifactRepository) getArtifactRepositoryManager().createRepository(new File(folder, "target").toURI(), "Target", IArtifactRepositoryManager.TYPE_SIMPLE_REPOSITORY, new HashMap<>());
+		ArtifactCache cache = new ArtifactCache(new File(folder, "cache"), Long.MAX_VALUE);
+		System.setProperty(ArtifactCache.PROP_LOCATION, cache.getLocation().getAbsolutePath());
+		try {
+			byte[] cached = "I am the cached artifact".getBytes();
+			String key = ChecksumHelper.toHexString(MessageDigest.getInstance("SHA-256").digest(cached));
+			ArtifactCache.Entry entry = cache.newEntry(key, new ByteArrayOutputStream());
+			entry.write(cached);
+			assertTrue(entry.commit());
+
+			// the repository holds other bytes, to tell where the artifact comes from
+			ArtifactDescriptor descriptor = new ArtifactDescriptor(new ArtifactKey("osgi.bundle", "aaPlugin", Version.create("1.0.0")));
+			descriptor.setProperty(IArtifactDescriptor.DOWNLOAD_CHECKSUM + ".sha-256", key);
+			try (OutputStream stream = source.getOutputStream(descriptor)) {
+				stream.write("I am the artifact of the repository".getBytes());
+			}
+			IArtifactDescriptor sourceDescriptor = source.getArtifactDescriptors(descriptor.getArtifactKey())[0];
+
+			OutputStream destination = target.getOutputStream(new ArtifactDescriptor(descriptor.getArtifactKey()));
+			IStatus status;
+			try {
+				status = source.getArtifact(sourceDescriptor, destination, new NullProgressMonitor());
+			} finally {
+				destination.close();
+			}
+			assertOK("Transfer", status);
+			IArtifactDescriptor targetDescriptor = target.getArtifactDescriptors(descriptor.getArtifactKey())[0];
+			File file = target.getArtifactFile(targetDescriptor);
+			assertTrue(Arrays.equals(cached, Files.readAllBytes(file.toPath())));
+			assertEquals(Integer.toString(cached.length), targetDescriptor.getProperty(IArtifactDescriptor.DOWNLOAD_SIZE));
+			// the artifact has been hard linked into the target repository
+			assertTrue(Files.isSameFile(file.toPath(), cache.get(key).toPath()));
+		} finally {
+			System.clearProperty(ArtifactCache.PROP_LOCATION);
+			getArtifactRepositoryManager().removeRepository(source.getLocation());
+			getArtifactRepositoryManager().removeRepository(target.getLocation());
+		}
+	}
+
+	public void testChangedSharedCacheNotLinked() throws Exception {
+		File folder = getTestFolder("simple_ChangedSharedCache");
+		repositoryURI = folder.toURI();
+		SimpleArtifactRepository source = (SimpleArtifactRepository) getArtifactRepositoryManager().createRepository(new File(folder, "source").toURI(), "Source", IArtifactRepositoryManager.TYPE_SIMPLE_REPOSITORY, new HashMap<>());
+		SimpleArtifactRepository target = (SimpleArtifactRepository) getArtifactRepositoryManager().createRepository(new File(folder, "target").toURI(), "Target", IArtifactRepositoryManager.TYPE_SIMPLE_REPOSITORY, new HashMap<>());
+		ArtifactCache cache = new ArtifactCache(new File(folder, "cache"), Long.MAX_VALUE);
+		System.setProperty(ArtifactCache.PROP_LOCATION, cache.getLocation().getAbsolutePath());
+		try {
+			byte[] content = "I am the artifact".getBytes();
+			String key = ChecksumHelper.toHexString(MessageDigest.getInstance("SHA-256").digest(content));
+			ArtifactCache.Entry entry = cache.newEntry(key, new ByteArrayOutputStream());
+			entry.write(content);
+			assertTrue(entry.commit());
+			// the bytes of the cache are changed behind its back
+			Files.write(cache.get(key).toPath(), "I am a changed artifact".getBytes());
+
+			ArtifactDescriptor descriptor = new ArtifactDescriptor(new ArtifactKey("osgi.bundle", "aaPlugin", Version.create("1.0.0")));
+			descriptor.setProperty(IArtifactDescriptor.DOWNLOAD_CHECKSUM + ".sha-256", key);
+			try (OutputStream stream = source.getOutputStream(descriptor)) {
+				stream.write(content);
+			}
+			IArtifactDescriptor sourceDescriptor = source.getArtifactDescriptors(descriptor.getArtifactKey())[0];
+
+			OutputStream destination = target.getOutputStream(new ArtifactDescriptor(descriptor.getArtifactKey()));
+			IStatus status;
+			try {
+				status = source.getArtifact(sourceDescriptor, destination, new NullProgressMonitor());
+			} finally {
+				destination.close();
+			}
+			assertOK("Transfer", status);
+			IArtifactDescriptor targetDescriptor = target.getArtifactDescriptors(descriptor.getArtifactKey())[0];
+			// the artifact comes from the repository and the changed bytes are dropped
+			assertTrue(Arrays.equals(content, Files.readAllBytes(target.getArtifactFile(targetDescriptor).toPath())));
+			assertFalse(cache.contains(key));
+		} finally {
+			System.clearProperty(ArtifactCache.PROP_LOCATION);
+			getArtifactRepositoryManager().removeRepository(source.getLocation());
+			getArtifactRepositoryManager().removeRepository(target.getLocation());
+		}
+	}
+
 	public void _testAddDescriptorPerformance() throws Exception {
 		File folder = getTestFolder("ArtifactRepository_testAddDescriptorPerformance");
 		repositoryURI = folder.toURI();
@@ -452,6 +577,77 @@ public class SimpleArtifactRepositoryTest extends AbstractProvisioningTest {
 		assertEquals(d3.getArtifactKey(), resultDescriptor.getArtifactKey());
 	}
 
+	public void testLoadSharesKeysAndProperties() throws Exception {
+		File folder = getTestFolder("ArtifactRepository_testLoadShares");
+		repositoryURI = folder.toURI();
+		IArtifactRepository repo = getArtifactRepositoryManager().createRepository(repositoryURI, "test", IArtifactRepositoryManager.TYPE_SIMPLE_REPOSITORY, new HashMap<>());
+		ArtifactDescriptor canonical = new ArtifactDescriptor(new ArtifactKey("osgi.bundle", "a", Version.create("1.0.0")));
+		canonical.setProperty(IArtifactDescriptor.DOWNLOAD_CONTENTTYPE, "application/zip");
+		canonical.setProperty(IArtifactDescriptor.DOWNLOAD_CHECKSUM + ".sha-256", "f2ca1bb6c7e907d06dafe4687e579fce76b37e4e93b7605022da52e6ccc26fd2");
+		ArtifactDescriptor packed = new ArtifactDescriptor(new ArtifactKey("osgi.bundle", "a", Version.create("1.0.0")));
+		packed.setProperty(IArtifactDescriptor.FORMAT, IArtifactDescriptor.FORMAT_PACKED);
+		packed.setProperty(IArtifactDescriptor.DOWNLOAD_CONTENTTYPE, "application/zip");
+		ArtifactDescriptor other = new ArtifactDescriptor(new ArtifactKey("osgi.bundle", "b", Version.create("1.0.0")));
+		repo.addDescriptors(new IArtifactDescriptor[] {canonical, packed, other}, new NullProgressMonitor());
+
+		SimpleArtifactRepositoryFactory factory = new SimpleArtifactRepositoryFactory();
+		factory.setAgent(getAgent());
+		SimpleArtifactRepository loaded = (SimpleArtifactRepository) factory.load(repositoryURI, 0, new NullProgressMonitor());
+		IArtifactDescriptor[] descriptors = loaded.getArtifactDescriptors(canonical.getArtifactKey());
+		assertEquals(2, descriptors.length);
+		assertSame(descriptors[0].getArtifactKey(), descriptors[1].getArtifactKey());
+		assertSame(descriptors[0].getArtifactKey().getClassifier(), loaded.getArtifactDescriptors(other.getArtifactKey())[0].getArtifactKey().getClassifier());
+		assertSame(descriptors[0].getProperty(IArtifactDescriptor.DOWNLOAD_CONTENTTYPE), descriptors[1].getProperty(IArtifactDescriptor.DOWNLOAD_CONTENTTYPE));
+		IArtifactDescriptor loadedCanonical = descriptors[0].getProperty(IArtifactDescriptor.FORMAT) == null ? descriptors[0] : descriptors[1];
+		assertEquals(canonical.getProperties(), loadedCanonical.getProperties());
+
+		// the loaded properties are written back as they were read
+		loaded.addDescriptor(new ArtifactDescriptor(new ArtifactKey("osgi.bundle", "c", Version.create("1.0.0"))), new NullProgressMonitor());
+		loaded = (SimpleArtifactRepository) factory.load(repositoryURI, 0, new NullProgressMonitor());
+		assertEquals(4, loaded.getDescriptors().size());
+		assertEquals(canonical.getProperties(), loaded.getCompleteArtifactDescriptor(canonical.getArtifactKey()).getProperties());
+	}
+
+	public void testCompactDescriptors() throws Exception {
+		File folder = getTestFolder("ArtifactRepository_testCompact");
+		repositoryURI = folder.toURI();
+		IArtifactRepository repo = getArtifactRepositoryManager().createRepository(repositoryURI, "test", IArtifactRepositoryManager.TYPE_SIMPLE_REPOSITORY, new HashMap<>());
+		ArtifactDescriptor canonical = new ArtifactDescriptor(new ArtifactKey("osgi.bundle", "a", Version.create("1.0.0")));
+		canonical.setProperty(IArtifactDescriptor.DOWNLOAD_CONTENTTYPE, "application/zip");
+		canonical.setProperty(IArtifactDescriptor.DOWNLOAD_SIZE, "1234");
+		canonical.setProperty(IArtifactDescriptor.ARTIFACT_SIZE, "0123");
+		canonical.setProperty(IArtifactDescriptor.DOWNLOAD_CHECKSUM + ".sha-256", "f2ca1bb6c7e907d06dafe4687e579fce76b37e4e93b7605022da52e6ccc26fd2");
+		canonical.setProperty(IArtifactDescriptor.DOWNLOAD_CHECKSUM + ".md5", "F2CA1BB6C7E907D06DAFE4687E579FCE");
+		canonical.setProperty("test.description", "A description longer than the values shared between the descriptors");
+		SimpleArtifactDescriptor folderBased = new SimpleArtifactDescriptor(new ArtifactKey("osgi.bundle", "b", Version.create("1.0.0")));
+		folderBased.setRepositoryProperty("artifact.folder", "true");
+		repo.addDescriptors(new IArtifactDescriptor[] {canonical, folderBased}, new NullProgressMonitor());
+
+		System.setProperty(SimpleArtifactRepositoryIO.PROP_COMPACT_DESCRIPTORS, "true");
+		try {
+			SimpleArtifactRepositoryFactory factory = new SimpleArtifactRepositoryFactory();
+			factory.setAgent(getAgent());
+			SimpleArtifactRepository loaded = (SimpleArtifactRepository) factory.load(repositoryURI, 0, new NullProgressMonitor());
+			IArtifactDescriptor loadedCanonical = loaded.getCompleteArtifactDescriptor(canonical.getArtifactKey());
+			assertEquals(canonical.getProperties(), loadedCanonical.getProperties());
+			assertEquals("1234", loadedCanonical.getProperty(IArtifactDescriptor.DOWNLOAD_SIZE));
+			assertNull(loadedCanonical.getProperty(IArtifactDescriptor.FORMAT));
+			SimpleArtifactDescriptor loadedFolder = (SimpleArtifactDescriptor) loaded.getArtifactDescriptors(folderBased.getArtifactKey())[0];
+			assertEquals("true", loadedFolder.getRepositoryProperty("artifact.folder"));
+
+			// the descriptors read are written back from their compact form, changed or not
+			((SimpleArtifactDescriptor) loadedCanonical).setProperty(IArtifactDescriptor.DOWNLOAD_SIZE, "4321");
+			loaded.addDescriptor(new ArtifactDescriptor(new ArtifactKey("osgi.bundle", "c", Version.create("1.0.0"))), new NullProgressMonitor());
+			loaded = (SimpleArtifactRepository) factory.load(repositoryURI, 0, new NullProgressMonitor());
+			assertEquals(3, loaded.getDescriptors().size());
+			canonical.setProperty(IArtifactDescriptor.DOWNLOAD_SIZE, "4321");
+			assertEquals(canonical.getProperties(), loaded.getCompleteArtifactDescriptor(canonical.getArtifactKey()).getProperties());
+			assertEquals(folderBased.getRepositoryProperties(), ((SimpleArtifactDescriptor) loaded.getArtifactDescriptors(folderBased.getArtifactKey())[0]).getRepositoryProperties());
+		} finally {
+			System.clearProperty(SimpleArtifactRepositoryIO.PROP_COMPACT_DESCRIPTORS);
+		}
+	}
+
 	/*
 	 * Tests the number of threads allowed
 	 */
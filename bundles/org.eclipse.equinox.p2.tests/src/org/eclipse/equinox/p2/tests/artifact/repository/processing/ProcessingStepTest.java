@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2017 compeople AG and others.
+ * Copyright (c) 2007, 2026 compeople AG and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -13,8 +13,9 @@
  *******************************************************************************/
 package org.eclipse.equinox.p2.tests.artifact.repository.processing;
 
-import java.io.IOException;
-import java.io.OutputStream;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import junit.framework.TestCase;
 import org.eclipse.core.runtime.*;
 import org.eclipse.equinox.internal.provisional.p2.artifact.repository.processing.ProcessingStep;
@@ -114,4 +115,30 @@ public class ProcessingStepTest extends TestCase {
 		assertTrue(closed);
 	}
 
+	public void testWriteByteBuffer() throws IOException {
+		byte[] data = new byte[100000];
+		for (int i = 0; i < data.length; i++)
+			data[i] = (byte) i;
+		ByteArrayOutputStream destination = new ByteArrayOutputStream();
+		ProcessingStep step = new ProcessingStep() {
+			@Override
+			public void write(int b) throws IOException {
+				getDestination().write(b);
+			}
+		};
+		step.link(destination, new NullProgressMonitor());
+
+		ByteBuffer heap = ByteBuffer.wrap(data, 10, 1000).slice();
+		step.write(heap);
+		assertFalse(heap.hasRemaining());
+		ByteBuffer direct = ByteBuffer.allocateDirect(data.length);
+		direct.put(data).flip();
+		step.write(direct);
+		assertFalse(direct.hasRemaining());
+
+		byte[] written = destination.toByteArray();
+		assertEquals(1000 + data.length, written.length);
+		assertTrue(Arrays.equals(Arrays.copyOfRange(data, 10, 1010), Arrays.copyOfRange(written, 0, 1000)));
+		assertTrue(Arrays.equals(data, Arrays.copyOfRange(written, 1000, written.length)));
+	}
 }
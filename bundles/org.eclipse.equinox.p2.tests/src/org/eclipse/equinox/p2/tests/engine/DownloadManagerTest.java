@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2017 IBM Corporation and others.
+ * Copyright (c) 2007, 2026 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -15,15 +15,21 @@ package org.eclipse.equinox.p2.tests.engine;
 
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.*;
+import java.util.concurrent.*;
 import junit.framework.Test;
 import junit.framework.TestSuite;
 import org.eclipse.core.runtime.*;
 import org.eclipse.equinox.internal.p2.engine.DownloadManager;
+import org.eclipse.equinox.internal.p2.metadata.ArtifactKey;
 import org.eclipse.equinox.p2.engine.ProvisioningContext;
 import org.eclipse.equinox.p2.metadata.IArtifactKey;
+import org.eclipse.equinox.p2.metadata.Version;
+import org.eclipse.equinox.p2.query.*;
 import org.eclipse.equinox.p2.repository.artifact.IArtifactRepository;
 import org.eclipse.equinox.p2.repository.artifact.IArtifactRequest;
 import org.eclipse.equinox.p2.tests.AbstractProvisioningTest;
+import org.eclipse.equinox.p2.tests.TestArtifactRepository;
 
 /**
  * Simple tests of {@link DownloadManager} API.
@@ -233,6 +239,133 @@ public class DownloadManagerTest extends AbstractProvisioningTest {
 
 	}
 
+	/**
+	 * Tests that the artifacts are fetched from all the repositories at the same time,
+	 * and that the artifacts failing in a repository are then fetched from the next one.
+	 */
+	public void testFetchFromRepositoriesConcurrently() throws Exception {
+		// each repository waits for the other one to get its artifacts, and the first
+		// repository asked for c fails to get it
+		CyclicBarrier barrier = new CyclicBarrier(2);
+		Set<IArtifactKey> failing = Collections.synchronizedSet(new HashSet<>());
+		FetchingRepository first = new FetchingRepository(new URI("testartifactrepo:/first"), barrier, failing);
+		FetchingRepository second = new FetchingRepository(new URI("testartifactrepo:/second"), barrier, failing);
+		IArtifactKey a = new ArtifactKey("osgi.bundle", "a", Version.create("1.0.0"));
+		IArtifactKey b = new ArtifactKey("osgi.bundle", "b", Version.create("1.0.0"));
+		IArtifactKey c = new ArtifactKey("osgi.bundle", "c", Version.create("1.0.0"));
+		first.addArtifact(a, new byte[0]);
+		first.addArtifact(c, new byte[0]);
+		second.addArtifact(b, new byte[0]);
+		second.addArtifact(c, new byte[0]);
+		failing.add(c);
+		assertTrue(first.addToRepositoryManager());
+		assertTrue(second.addToRepositoryManager());
+		try {
+			ProvisioningContext context = new ProvisioningContext(getAgent());
+			context.setArtifactRepositories(new URI[] {first.getLocation(), second.getLocation()});
+			DownloadManager manager = createDownloadManager(context);
+			FetchRequest[] requests = new FetchRequest[] {new FetchRequest(a), new FetchRequest(b), new FetchRequest(c)};
+			manager.add(requests);
+			assertOK(manager.start(new NullProgressMonitor()));
+
+			assertEquals(Arrays.asList(first), requests[0].repositories);
+			assertEquals(Arrays.asList(second), requests[1].repositories);
+			assertEquals(new HashSet<>(Arrays.asList(first, second)), new HashSet<>(requests[2].repositories));
+			assertEquals(2, requests[2].repositories.size());
+			assertNotSame(first.thread, second.thread);
+		} finally {
+			getArtifactRepositoryManager().removeRepository(first.getLocation());
+			getArtifactRepositoryManager().removeRepository(second.getLocation());
+		}
+	}
+
+	/**
+	 * Tests that the artifacts of a repository not listing its keys are fetched from it.
+	 */
+	public void testRepositoryNotListingKeys() throws Exception {
+		FetchingRepository repository = new FetchingRepository(new URI("testartifactrepo:/unlisted"), null, new HashSet<>()) {
+			@Override
+			public IQueryResult<IArtifactKey> query(IQuery<IArtifactKey> query, IProgressMonitor monitor) {
+				return Collector.emptyCollector();
+			}
+		};
+		IArtifactKey a = new ArtifactKey("osgi.bundle", "a", Version.create("1.0.0"));
+		repository.addArtifact(a, new byte[0]);
+		assertTrue(repository.addToRepositoryManager());
+		try {
+			ProvisioningContext context = new ProvisioningContext(getAgent());
+			context.setArtifactRepositories(new URI[] {repository.getLocation()});
+			DownloadManager manager = createDownloadManager(context);
+			FetchRequest request = new FetchRequest(a);
+			manager.add(request);
+			assertOK(manager.start(new NullProgressMonitor()));
+			assertEquals(Arrays.asList(repository), request.repositories);
+		} finally {
+			getArtifactRepositoryManager().removeRepository(repository.getLocation());
+		}
+	}
+
+	static class FetchingRepository extends TestArtifactRepository {
+		private final CyclicBarrier barrier;
+		private final Set<IArtifactKey> failing;
+		volatile Thread thread;
+
+		FetchingRepository(URI location, CyclicBarrier barrier, Set<IArtifactKey> failing) {
+			super(getAgent(), location);
+			this.barrier = barrier;
+			this.failing = failing;
+		}
+
+		@Override
+		public IStatus getArtifacts(IArtifactRequest[] requests, IProgressMonitor monitor) {
+			if (thread == null) {
+				thread = Thread.currentThread();
+				if (barrier != null)
+					try {
+						barrier.await(10, TimeUnit.SECONDS);
+					} catch (InterruptedException | BrokenBarrierException | TimeoutException e) {
+						return new Status(IStatus.ERROR, "test", "Repositories not fetched concurrently", e);
+					}
+			}
+			MultiStatus result = new MultiStatus("test", IStatus.OK, "", null);
+			for (IArtifactRequest request : requests) {
+				((FetchRequest) request).fetch(this, !failing.remove(request.getArtifactKey()));
+				result.add(request.getResult());
+			}
+			return result;
+		}
+	}
+
+	static class FetchRequest implements IArtifactRequest {
+		final List<IArtifactRepository> repositories = new ArrayList<>();
+		private final IArtifactKey key;
+		private IStatus result;
+
+		FetchRequest(IArtifactKey key) {
+			this.key = key;
+		}
+
+		synchronized void fetch(IArtifactRepository repository, boolean succeed) {
+			repositories.add(repository);
+			result = succeed ? Status.OK_STATUS : new Status(IStatus.ERROR, "test", key.toString());
+		}
+
+		@Override
+		public IArtifactKey getArtifactKey() {
+			return key;
+		}
+
+		@Override
+		public void perform(IArtifactRepository sourceRepository, IProgressMonitor monitor) {
+			fetch(sourceRepository, true);
+		}
+
+		@Override
+		public synchronized IStatus getResult() {
+			return result;
+		}
+	}
+
 	private DownloadManager createDownloadManager(ProvisioningContext context) {
 		return new DownloadManager(context, getAgent());
 	}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- *  Copyright (c) 2008, 2017 IBM Corporation and others.
+ *  Copyright (c) 2008, 2026 IBM Corporation and others.
  *
  *  This program and the accompanying materials
  *  are made available under the terms of the Eclipse Public License 2.0
@@ -15,6 +15,7 @@
 package org.eclipse.equinox.p2.tests.engine;
 
 import java.net.URI;
+import java.util.Arrays;
 import java.util.Collections;
 import org.eclipse.equinox.internal.p2.director.ProfileChangeRequest;
 import org.eclipse.equinox.p2.engine.IProvisioningPlan;
@@ -167,6 +168,20 @@ public class ProvisioningContextTest extends AbstractProvisioningTest {
 		assertEquals("three artifact repos", 3, followed.length);
 	}
 
+	public void testRepositoryLocations() {
+		ProvisioningContext context = new ProvisioningContext(getAgent());
+		assertNull(context.getMetadataRepositoryLocations());
+		assertNull(context.getArtifactRepositoryLocations());
+		URI[] locations = new URI[] {repoA.getLocation()};
+		context.setMetadataRepositories(locations);
+		context.setArtifactRepositories(new URI[0]);
+		assertEquals(Arrays.asList(locations), Arrays.asList(context.getMetadataRepositoryLocations()));
+		assertEquals(0, context.getArtifactRepositoryLocations().length);
+		// the locations given are not changed through the accessor
+		context.getMetadataRepositoryLocations()[0] = repoB.getLocation();
+		assertEquals(repoA.getLocation(), context.getMetadataRepositoryLocations()[0]);
+	}
+
 	public void testContextNoReposNoFollow() {
 		ProvisioningContext context = new ProvisioningContext(getAgent());
 		context.setArtifactRepositories(new URI[0]);
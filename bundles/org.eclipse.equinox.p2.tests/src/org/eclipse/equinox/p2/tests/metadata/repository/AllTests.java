@@ -1,5 +1,5 @@
 /*******************************************************************************
- *  Copyright (c) 2007, 2015 IBM Corporation and others.
+ *  Copyright (c) 2007, 2026 IBM Corporation and others.
  *
  *  This program and the accompanying materials
  *  are made available under the terms of the Eclipse Public License 2.0
@@ -31,6 +31,7 @@ public class AllTests extends TestCase {
 		suite.addTestSuite(StandaloneSerializationTest.class);
 		suite.addTestSuite(MetadataRepositoryManagerTest.class);
 		suite.addTestSuite(NoFailOver.class);
+		suite.addTestSuite(ParallelUnitsParserTest.class);
 		suite.addTestSuite(SiteIndexFileTest.class);
 		suite.addTestSuite(XZedRepositoryTest.class);
 		//		suite.addTestSuite(ResumeDownloadTest.class);
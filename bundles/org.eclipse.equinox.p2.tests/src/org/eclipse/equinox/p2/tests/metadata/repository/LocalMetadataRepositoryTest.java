@@ -1,5 +1,5 @@
 /*******************************************************************************
- *  Copyright (c) 2008, 2018 IBM Corporation and others.
+ *  Copyright (c) 2008, 2026 IBM Corporation and others.
  *
  *  This program and the accompanying materials
  *  are made available under the terms of the Eclipse Public License 2.0
@@ -15,23 +15,30 @@
 package org.eclipse.equinox.p2.tests.metadata.repository;
 
 import java.io.File;
+import java.io.IOException;
 import java.net.URI;
+import java.nio.file.Files;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
 import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.equinox.internal.p2.metadata.repository.LocalMetadataRepository;
 import org.eclipse.equinox.internal.provisional.p2.core.eventbus.IProvisioningEventBus;
 import org.eclipse.equinox.internal.provisional.p2.core.eventbus.SynchronousProvisioningListener;
 import org.eclipse.equinox.internal.provisional.p2.repository.RepositoryEvent;
 import org.eclipse.equinox.p2.core.ProvisionException;
 import org.eclipse.equinox.p2.metadata.IInstallableUnit;
+import org.eclipse.equinox.p2.metadata.IInstallableUnitFragment;
 import org.eclipse.equinox.p2.metadata.ILicense;
+import org.eclipse.equinox.p2.metadata.IRequirement;
 import org.eclipse.equinox.p2.metadata.MetadataFactory;
 import org.eclipse.equinox.p2.metadata.MetadataFactory.InstallableUnitDescription;
 import org.eclipse.equinox.p2.metadata.Version;
+import org.eclipse.equinox.p2.metadata.VersionRange;
 import org.eclipse.equinox.p2.query.IQueryResult;
 import org.eclipse.equinox.p2.query.QueryUtil;
 import org.eclipse.equinox.p2.repository.IRepository;
@@ -186,6 +193,83 @@ public class LocalMetadataRepositoryTest extends AbstractProvisioningTest {
 		}
 	}
 
+	public void testBinaryIndex() throws ProvisionException {
+		IMetadataRepositoryManager manager = getMetadataRepositoryManager();
+		Map<String, String> properties = new HashMap<>();
+		properties.put(LocalMetadataRepository.PROP_BINARY, "true");
+		URI repoURI = repoLocation.toURI();
+		IMetadataRepository repo = manager.createRepository(repoURI, "TestRepo", IMetadataRepositoryManager.TYPE_SIMPLE_REPOSITORY, properties);
+
+		IInstallableUnit host = createIU("host", Version.create("1.0.0"), new IRequirement[] {createIURequirement("bar", new VersionRange("[1.0.0,2.0.0)"), "(osgi.os=linux)")});
+		IInstallableUnit fragment = createIUFragment(host, "fragment", Version.create("1.0.0"));
+		repo.addInstallableUnits(Arrays.asList(host, fragment, createIU("bar", Version.create("1.2.0"))));
+		File binaryFile = new File(repoLocation, "content.p2bin");
+		assertTrue("1.0", binaryFile.exists());
+
+		//the binary index must be usable on its own
+		new File(repoLocation, "content.xml").delete();
+		manager.removeRepository(repoURI);
+		repo = manager.loadRepository(repoURI, null);
+		assertEquals("1.1", "TestRepo", repo.getName());
+		assertEquals("1.2", 3, queryResultSize(repo.query(QueryUtil.createIUAnyQuery(), null)));
+
+		IInstallableUnit loadedHost = repo.query(QueryUtil.createIUQuery("host"), null).iterator().next();
+		assertEquals("1.3", host.getRequirements(), loadedHost.getRequirements());
+		assertEquals("1.4", host.getProvidedCapabilities(), loadedHost.getProvidedCapabilities());
+		IInstallableUnit loadedFragment = repo.query(QueryUtil.createIUQuery("fragment"), null).iterator().next();
+		assertTrue("1.5", loadedFragment instanceof IInstallableUnitFragment);
+		assertEquals("1.6", ((IInstallableUnitFragment) fragment).getHost(), ((IInstallableUnitFragment) loadedFragment).getHost());
+		//capability queries are answered by the persisted capability index
+		IRequirement barRequirement = host.getRequirements().iterator().next();
+		assertEquals("1.6.1", 1, queryResultSize(repo.query(QueryUtil.createMatchQuery(barRequirement.getMatches()), null)));
+
+		//turning the property off removes the index
+		repo.setProperty(LocalMetadataRepository.PROP_BINARY, "false");
+		assertFalse("1.7", binaryFile.exists());
+	}
+
+	public void testBinaryIndexReplacedWhileMapped() throws ProvisionException {
+		IMetadataRepositoryManager manager = getMetadataRepositoryManager();
+		Map<String, String> properties = new HashMap<>();
+		properties.put(LocalMetadataRepository.PROP_BINARY, "true");
+		URI repoURI = repoLocation.toURI();
+		IMetadataRepository repo = manager.createRepository(repoURI, "TestRepo", IMetadataRepositoryManager.TYPE_SIMPLE_REPOSITORY, properties);
+		repo.addInstallableUnits(Arrays.asList(createIU("a", Version.create("1.0.0")), createIU("b", Version.create("1.0.0"))));
+
+		//the units of the loaded repository are read from the mapped index
+		manager.removeRepository(repoURI);
+		repo = manager.loadRepository(repoURI, null);
+		repo.setProperty(TEST_KEY, TEST_VALUE);
+		assertEquals("1.0", 2, queryResultSize(repo.query(QueryUtil.createIUAnyQuery(), null)));
+		repo.addInstallableUnits(Collections.singletonList(createIU("c", Version.create("1.0.0"))));
+
+		//the index is moved into place, no temporary file is left behind
+		assertEquals("1.1", new HashSet<>(Arrays.asList("content.xml", "content.p2bin")), new HashSet<>(Arrays.asList(repoLocation.list())));
+		manager.removeRepository(repoURI);
+		repo = manager.loadRepository(repoURI, null);
+		assertEquals("1.2", 3, queryResultSize(repo.query(QueryUtil.createIUAnyQuery(), null)));
+		assertEquals("1.3", TEST_VALUE, repo.getProperty(TEST_KEY));
+	}
+
+	public void testStaleBinaryIndex() throws ProvisionException, IOException {
+		IMetadataRepositoryManager manager = getMetadataRepositoryManager();
+		Map<String, String> properties = new HashMap<>();
+		properties.put(LocalMetadataRepository.PROP_BINARY, "true");
+		URI repoURI = repoLocation.toURI();
+		IMetadataRepository repo = manager.createRepository(repoURI, "TestRepo", IMetadataRepositoryManager.TYPE_SIMPLE_REPOSITORY, properties);
+		repo.addInstallableUnits(Collections.singletonList(createIU("a", Version.create("1.0.0"))));
+		File binaryFile = new File(repoLocation, "content.p2bin");
+		byte[] staleIndex = Files.readAllBytes(binaryFile.toPath());
+		repo.addInstallableUnits(Collections.singletonList(createIU("b", Version.create("1.0.0"))));
+
+		//an index that was not written with the XML is ignored, however recent it looks
+		Files.write(binaryFile.toPath(), staleIndex);
+		binaryFile.setLastModified(new File(repoLocation, "content.xml").lastModified() + 60000);
+		manager.removeRepository(repoURI);
+		repo = manager.loadRepository(repoURI, null);
+		assertEquals("1.0", 2, queryResultSize(repo.query(QueryUtil.createIUAnyQuery(), null)));
+	}
+
 	/**
 	 * Tests loading a repository that has a reference to itself as a disabled repository.
 	 * @throws MalformedURLException
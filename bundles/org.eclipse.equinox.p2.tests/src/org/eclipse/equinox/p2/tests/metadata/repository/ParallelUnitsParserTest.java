@@ -0,0 +1,169 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.p2.tests.metadata.repository;
+
+import java.io.ByteArrayInputStream;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.equinox.internal.p2.metadata.repository.MetadataRepositoryIO;
+import org.eclipse.equinox.internal.p2.metadata.repository.io.ParallelUnitsParser;
+import org.eclipse.equinox.internal.p2.metadata.repository.io.ParallelUnitsParser.UnitBoundaries;
+import org.eclipse.equinox.p2.metadata.IInstallableUnit;
+import org.eclipse.equinox.p2.query.QueryUtil;
+import org.eclipse.equinox.p2.repository.metadata.IMetadataRepository;
+import org.eclipse.equinox.p2.tests.AbstractProvisioningTest;
+import org.eclipse.equinox.p2.tests.TestActivator;
+
+/**
+ * Checks that parsing the units of a metadata document in parallel gives the same units
+ * as the sequential parser, and that documents that cannot be split are left to it.
+ */
+public class ParallelUnitsParserTest extends AbstractProvisioningTest {
+	private static final String REPOSITORY_START = "<?xml version='1.0' encoding='UTF-8'?>\n<?metadataRepository version='1.2.0'?>\n<repository name='test' type='org.eclipse.equinox.internal.p2.metadata.repository.LocalMetadataRepository' version='1'>\n<properties size='1'><property name='p2.timestamp' value='1'/></properties>\n";
+	private static final String REPOSITORY_END = "</repository>\n";
+
+	public void testSameUnits() throws Exception {
+		StringBuilder units = new StringBuilder();
+		for (int i = 0; i < 1200; i++)
+			units.append(unit(i, "instruction" + i));
+		assertSameUnits(document(units, 1200));
+	}
+
+	public void testCommentsAndCData() throws Exception {
+		StringBuilder units = new StringBuilder();
+		for (int i = 0; i < 600; i++) {
+			// markup that looks like a unit is not one
+			if (i % 100 == 0)
+				units.append("<!-- <unit id='commented' version='1.0.0'> -->\n");
+			units.append(unit(i, i % 50 == 0 ? "<![CDATA[<unit id='data' version='1.0.0'></unit>]]>" : "instruction" + i));
+		}
+		byte[] document = document(units, 600);
+		assertEquals(600, ParallelUnitsParser.scan(document).getUnitCount());
+		List<IInstallableUnit> parsed = assertSameUnits(document);
+		assertEquals("<unit id='data' version='1.0.0'></unit>", parsed.get(0).getTouchpointData().iterator().next().getInstruction("install").getBody());
+	}
+
+	public void testSelfClosingUnits() throws Exception {
+		StringBuilder units = new StringBuilder();
+		for (int i = 0; i < 600; i++)
+			units.append(i % 3 == 0 ? "<unit id='empty" + i + "' version='1.0.0'/>\n" : unit(i, "instruction" + i));
+		byte[] document = document(units, 600);
+		assertEquals(600, ParallelUnitsParser.scan(document).getUnitCount());
+		assertSameUnits(document);
+	}
+
+	public void testOtherEncoding() throws Exception {
+		StringBuilder units = new StringBuilder();
+		for (int i = 0; i < 600; i++)
+			units.append(unit(i, "caf\u00e9" + i));
+		Charset latin1 = StandardCharsets.ISO_8859_1;
+		String text = new String(document(units, 600), StandardCharsets.UTF_8).replace("encoding='UTF-8'", "encoding='ISO-8859-1'");
+		byte[] document = text.getBytes(latin1);
+
+		// the boundaries are only searched for in UTF-8 documents
+		assertNull(ParallelUnitsParser.scan(document));
+		List<IInstallableUnit> parsed = assertSameUnits(document);
+		assertEquals("caf\u00e90", parsed.get(0).getTouchpointData().iterator().next().getInstruction("install").getBody());
+	}
+
+	public void testFewUnits() throws Exception {
+		StringBuilder units = new StringBuilder();
+		for (int i = 0; i < 10; i++)
+			units.append(unit(i, "instruction" + i));
+		byte[] document = document(units, 10);
+
+		// too few units for the parallel parser to pay off
+		assertNull(ParallelUnitsParser.scan(document));
+		assertEquals(10, assertSameUnits(document).size());
+	}
+
+	/**
+	 * Reads the given document with the sequential parser and with the parallel parser
+	 * enabled, and checks that both give the same units. When the document can be split,
+	 * the units parsed by the parallel parser alone are checked as well.
+	 */
+	private List<IInstallableUnit> assertSameUnits(byte[] document) throws Exception {
+		List<IInstallableUnit> expected = read(document, false);
+		assertFalse(expected.isEmpty());
+		assertSameUnits(expected, read(document, true));
+
+		UnitBoundaries boundaries = ParallelUnitsParser.scan(document);
+		if (boundaries != null) {
+			ParallelUnitsParser parser = new ParallelUnitsParser(TestActivator.getContext(), TestActivator.PI_PROV_TESTS);
+			List<IInstallableUnit> parallel = new ArrayList<>();
+			Collections.addAll(parallel, parser.parseUnits(document, boundaries, new NullProgressMonitor()));
+			assertTrue(parser.getStatus().isOK());
+			sort(parallel);
+			assertSameUnits(expected, parallel);
+		}
+		return expected;
+	}
+
+	private void assertSameUnits(List<IInstallableUnit> expected, List<IInstallableUnit> actual) {
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			IInstallableUnit expectedUnit = expected.get(i);
+			IInstallableUnit actualUnit = actual.get(i);
+			assertEquals(expectedUnit, actualUnit);
+			assertEquals(expectedUnit.getProperties(), actualUnit.getProperties());
+			assertEquals(expectedUnit.getProvidedCapabilities(), actualUnit.getProvidedCapabilities());
+			assertEquals(expectedUnit.getRequirements(), actualUnit.getRequirements());
+			assertEquals(expectedUnit.getFilter(), actualUnit.getFilter());
+			assertEquals(expectedUnit.getTouchpointType(), actualUnit.getTouchpointType());
+			assertEquals(expectedUnit.getTouchpointData(), actualUnit.getTouchpointData());
+		}
+	}
+
+	private List<IInstallableUnit> read(byte[] document, boolean parallel) throws Exception {
+		String previous = System.getProperty(ParallelUnitsParser.PROP_PARALLEL_PARSING);
+		System.setProperty(ParallelUnitsParser.PROP_PARALLEL_PARSING, Boolean.toString(parallel));
+		try {
+			IMetadataRepository repository = new MetadataRepositoryIO(getAgent()).read(new URL("file:/test/content.xml"), new ByteArrayInputStream(document), new NullProgressMonitor());
+			List<IInstallableUnit> units = new ArrayList<>(repository.query(QueryUtil.createIUAnyQuery(), null).toUnmodifiableSet());
+			sort(units);
+			return units;
+		} finally {
+			if (previous == null)
+				System.clearProperty(ParallelUnitsParser.PROP_PARALLEL_PARSING);
+			else
+				System.setProperty(ParallelUnitsParser.PROP_PARALLEL_PARSING, previous);
+		}
+	}
+
+	private static void sort(List<IInstallableUnit> units) {
+		units.sort(Comparator.comparing(IInstallableUnit::getId).thenComparing(IInstallableUnit::getVersion));
+	}
+
+	private static byte[] document(StringBuilder units, int count) {
+		return (REPOSITORY_START + "<units size='" + count + "'>\n" + units + "</units>\n" + REPOSITORY_END).getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static String unit(int i, String instruction) {
+		return "<unit id='unit" + i + "' version='1.0." + i + "'>\n" //
+				+ "  <update id='unit" + i + "' range='[0.0.0,1.0." + i + ")' severity='0'/>\n" //
+				+ "  <properties size='2'><property name='org.eclipse.equinox.p2.name' value='Unit &amp; " + i + "'/><property name='index' value='" + i + "'/></properties>\n" //
+				+ "  <provides size='2'><provided namespace='org.eclipse.equinox.p2.iu' name='unit" + i + "' version='1.0." + i + "'/><provided namespace='java.package' name='p" + i % 7 + "' version='1.0.0'/></provides>\n" //
+				+ "  <requires size='2'><required namespace='java.package' name='p" + (i + 1) % 7 + "' range='[1.0.0,2.0.0)'/><required namespace='org.eclipse.equinox.p2.iu' name='unit" + (i + 1) + "' range='0.0.0' optional='true'><filter>(osgi.os=linux)</filter></required></requires>\n" //
+				+ "  <filter>(osgi.arch=x86_64)</filter>\n" //
+				+ "  <touchpoint id='org.eclipse.equinox.p2.native' version='1.0.0'/>\n" //
+				+ "  <touchpointData size='1'><instructions size='1'><instruction key='install'>" + instruction + "</instruction></instructions></touchpointData>\n" //
+				+ "</unit>\n";
+	}
+}
@@ -0,0 +1,119 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.p2.tests.perf;
+
+import java.io.File;
+import java.net.URI;
+import java.util.*;
+import java.util.concurrent.*;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.tests.harness.PerformanceTestRunner;
+import org.eclipse.equinox.internal.p2.artifact.repository.simple.SimpleArtifactRepository;
+import org.eclipse.equinox.internal.p2.metadata.ArtifactKey;
+import org.eclipse.equinox.p2.metadata.IArtifactKey;
+import org.eclipse.equinox.p2.metadata.Version;
+import org.eclipse.equinox.p2.query.QueryUtil;
+import org.eclipse.equinox.p2.repository.artifact.IArtifactDescriptor;
+import org.eclipse.equinox.p2.repository.artifact.IArtifactRepositoryManager;
+import org.eclipse.equinox.p2.repository.artifact.spi.ArtifactDescriptor;
+
+/**
+ * Performance tests for looking up the descriptors of a large repository from several
+ * threads, as the download threads do, while another thread keeps changing the repository.
+ */
+public class ArtifactRepositoryContentionPerformanceTest extends ProvisioningPerformanceTest {
+	private static final int REPEATS = 5;
+	private static final int DESCRIPTOR_COUNT = 50000;
+	private static final int THREAD_COUNT = 8;
+	private static final int LOOKUP_COUNT = 20000;
+
+	private File location;
+	private SimpleArtifactRepository repository;
+	private IArtifactDescriptor[] descriptors;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		location = new File(System.getProperty("java.io.tmpdir"), "ArtifactRepositoryContentionPerformanceTest");
+		delete(location);
+		repository = (SimpleArtifactRepository) getArtifactRepositoryManager().createRepository(location.toURI(), "Contention", IArtifactRepositoryManager.TYPE_SIMPLE_REPOSITORY, new HashMap<>());
+		descriptors = new IArtifactDescriptor[DESCRIPTOR_COUNT];
+		for (int i = 0; i < DESCRIPTOR_COUNT; i++)
+			descriptors[i] = new ArtifactDescriptor(new ArtifactKey("osgi.bundle", "a" + i / 2, Version.createOSGi(1, i % 2, 0)));
+		repository.addDescriptors(descriptors, new NullProgressMonitor());
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		getArtifactRepositoryManager().removeRepository(location.toURI());
+		delete(location);
+		super.tearDown();
+	}
+
+	public void testLookups() {
+		lookup(false);
+	}
+
+	public void testLookupsWhileChanging() {
+		lookup(true);
+	}
+
+	private void lookup(final boolean changing) {
+		new PerformanceTestRunner() {
+			@Override
+			protected void test() {
+				ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT + 1);
+				try {
+					List<Future<?>> lookups = new ArrayList<>();
+					for (int i = 0; i < THREAD_COUNT; i++) {
+						final int seed = i;
+						lookups.add(executor.submit(() -> lookup(new Random(seed))));
+					}
+					Future<?> writer = changing ? executor.submit(() -> change(lookups)) : null;
+					for (Future<?> result : lookups)
+						result.get();
+					if (writer != null)
+						writer.get();
+				} catch (InterruptedException | ExecutionException e) {
+					fail(e.getMessage());
+				} finally {
+					executor.shutdownNow();
+				}
+			}
+		}.run(this, "Test " + THREAD_COUNT + " threads looking up " + DESCRIPTOR_COUNT + " descriptors" + (changing ? " while the repository changes" : ""), REPEATS, 1);
+	}
+
+	void lookup(Random random) {
+		for (int i = 0; i < LOOKUP_COUNT; i++) {
+			IArtifactDescriptor descriptor = descriptors[random.nextInt(DESCRIPTOR_COUNT)];
+			IArtifactKey key = descriptor.getArtifactKey();
+			assertTrue(repository.contains(key));
+			IArtifactDescriptor[] found = repository.getArtifactDescriptors(key);
+			assertEquals(1, found.length);
+			URI artifact = repository.getLocation(found[0]);
+			assertNotNull(artifact);
+			if (i % 1000 == 0)
+				assertFalse(repository.query(QueryUtil.createMatchQuery(IArtifactKey.class, "id == $0", key.getId()), null).isEmpty());
+		}
+	}
+
+	// adds and removes a descriptor, saving the repository each time, until the lookups are done
+	void change(List<Future<?>> lookups) {
+		IArtifactDescriptor added = new ArtifactDescriptor(new ArtifactKey("osgi.bundle", "added", Version.createOSGi(1, 0, 0)));
+		while (!lookups.stream().allMatch(Future::isDone)) {
+			repository.addDescriptor(added, new NullProgressMonitor());
+			repository.removeDescriptor(added, new NullProgressMonitor());
+		}
+	}
+}
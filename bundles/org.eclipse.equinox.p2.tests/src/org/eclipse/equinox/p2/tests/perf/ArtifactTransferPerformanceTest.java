@@ -0,0 +1,106 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.p2.tests.perf;
+
+import java.io.*;
+import java.util.HashMap;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.tests.harness.PerformanceTestRunner;
+import org.eclipse.equinox.internal.p2.metadata.ArtifactKey;
+import org.eclipse.equinox.p2.core.ProvisionException;
+import org.eclipse.equinox.p2.metadata.Version;
+import org.eclipse.equinox.p2.repository.artifact.*;
+import org.eclipse.equinox.p2.repository.artifact.spi.ArtifactDescriptor;
+
+/**
+ * Performance tests for mirroring the raw artifacts of a local repository into another
+ * local repository, the bytes being streamed through the heap or transferred from file
+ * to file.
+ */
+public class ArtifactTransferPerformanceTest extends ProvisioningPerformanceTest {
+	private static final int REPEATS = 5;
+	private static final int ARTIFACT_SIZE = 8 * 1024 * 1024;
+	private static final int ARTIFACT_COUNT = 50;
+
+	private File location;
+	private IArtifactRepository source;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		location = new File(System.getProperty("java.io.tmpdir"), "ArtifactTransferPerformanceTest");
+		delete(location);
+		source = getArtifactRepositoryManager().createRepository(new File(location, "source").toURI(), "Source", IArtifactRepositoryManager.TYPE_SIMPLE_REPOSITORY, new HashMap<>());
+		byte[] content = new byte[ARTIFACT_SIZE];
+		for (int i = 0; i < content.length; i++)
+			content[i] = (byte) (i * 31 + i / 7);
+		for (int i = 0; i < ARTIFACT_COUNT; i++) {
+			try (OutputStream stream = source.getOutputStream(new ArtifactDescriptor(new ArtifactKey("osgi.bundle", "a" + i, Version.create("1.0.0"))))) {
+				stream.write(content);
+			}
+		}
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		getArtifactRepositoryManager().removeRepository(source.getLocation());
+		delete(location);
+		super.tearDown();
+	}
+
+	public void testStreamed() {
+		mirror(false);
+	}
+
+	public void testTransferred() {
+		mirror(true);
+	}
+
+	private void mirror(final boolean transfer) {
+		new PerformanceTestRunner() {
+			private int run = 0;
+
+			@Override
+			protected void test() {
+				File targetLocation = new File(location, "target" + run++);
+				try {
+					IArtifactRepository target = getArtifactRepositoryManager().createRepository(targetLocation.toURI(), "Target", IArtifactRepositoryManager.TYPE_SIMPLE_REPOSITORY, new HashMap<>());
+					for (IArtifactDescriptor descriptor : source.descriptorQueryable().query(ArtifactDescriptorQuery.ALL_DESCRIPTORS, null)) {
+						OutputStream destination = target.getOutputStream(descriptor);
+						// hide the repository stream so that the bytes go through the heap
+						OutputStream stream = transfer ? destination : new FilterOutputStream(destination) {
+							@Override
+							public void write(byte[] b, int off, int len) throws IOException {
+								out.write(b, off, len);
+							}
+						};
+						IStatus status;
+						try {
+							status = source.getRawArtifact(descriptor, stream, new NullProgressMonitor());
+						} finally {
+							stream.close();
+						}
+						assertOK("Mirroring " + descriptor, status);
+					}
+					getArtifactRepositoryManager().removeRepository(target.getLocation());
+				} catch (ProvisionException | IOException e) {
+					fail(e.getMessage());
+				} finally {
+					delete(targetLocation);
+				}
+			}
+		}.run(this, "Test mirroring " + ARTIFACT_COUNT * (ARTIFACT_SIZE / (1024 * 1024)) + " MB " + (transfer ? "file to file" : "through the heap"), REPEATS, 1);
+	}
+}
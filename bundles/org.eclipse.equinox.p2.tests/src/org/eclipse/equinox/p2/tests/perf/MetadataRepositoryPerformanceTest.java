@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009, 2017 IBM Corporation and others.
+ * Copyright (c) 2009, 2026 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -17,6 +17,8 @@ import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
 import org.eclipse.core.tests.harness.PerformanceTestRunner;
+import org.eclipse.equinox.internal.p2.metadata.repository.io.ParallelUnitsParser;
+import org.eclipse.equinox.p2.core.ProvisionException;
 import org.eclipse.equinox.p2.metadata.IInstallableUnit;
 import org.eclipse.equinox.p2.query.IQuery;
 import org.eclipse.equinox.p2.query.QueryUtil;
@@ -74,4 +76,41 @@ public class MetadataRepositoryPerformanceTest extends ProvisioningPerformanceTe
 			}
 		}.run(this, "Test query local metadata repo for " + IU_COUNT + " ius", REPEATS, 10);
 	}
+
+	public void testLoadLocalRepositorySequential() throws Exception {
+		loadLocalRepository(false);
+	}
+
+	public void testLoadLocalRepositoryParallel() throws Exception {
+		loadLocalRepository(true);
+	}
+
+	private void loadLocalRepository(boolean parallel) throws Exception {
+		final int IU_COUNT = 50000;
+		List<IInstallableUnit> ius = new ArrayList<>(IU_COUNT);
+		for (int i = 0; i < IU_COUNT; i++)
+			ius.add(generateIU(i));
+		repository.addInstallableUnits(ius);
+		final IMetadataRepositoryManager manager = getMetadataRepositoryManager();
+		String oldValue = System.setProperty(ParallelUnitsParser.PROP_PARALLEL_PARSING, Boolean.toString(parallel));
+		try {
+			new PerformanceTestRunner() {
+				@Override
+				protected void test() {
+					manager.removeRepository(repoLocation.toURI());
+					try {
+						IMetadataRepository loaded = manager.loadRepository(repoLocation.toURI(), null);
+						assertEquals(IU_COUNT, loaded.query(QueryUtil.createIUAnyQuery(), null).toUnmodifiableSet().size());
+					} catch (ProvisionException e) {
+						fail("Failed to load repository", e);
+					}
+				}
+			}.run(this, "Test load local metadata repo for " + IU_COUNT + " ius" + (parallel ? " in parallel" : ""), REPEATS, 1);
+		} finally {
+			if (oldValue == null)
+				System.clearProperty(ParallelUnitsParser.PROP_PARALLEL_PARSING);
+			else
+				System.setProperty(ParallelUnitsParser.PROP_PARALLEL_PARSING, oldValue);
+		}
+	}
 }
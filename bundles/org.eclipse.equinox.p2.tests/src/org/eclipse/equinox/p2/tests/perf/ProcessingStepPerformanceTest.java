@@ -0,0 +1,118 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.p2.tests.perf;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.tests.harness.PerformanceTestRunner;
+import org.eclipse.equinox.internal.p2.artifact.processors.checksum.ChecksumVerifier;
+import org.eclipse.equinox.internal.p2.artifact.processors.checksum.MultiChecksumVerifier;
+import org.eclipse.equinox.internal.p2.repository.helpers.ChecksumHelper;
+import org.eclipse.equinox.internal.provisional.p2.artifact.repository.processing.*;
+import org.eclipse.equinox.p2.repository.artifact.spi.ProcessingStepDescriptor;
+
+/**
+ * Performance tests for pushing a large artifact through the zip and checksum verification steps,
+ * one byte at a time as the steps used to and block by block, with one step per checksum or a
+ * single step verifying all checksums.
+ */
+public class ProcessingStepPerformanceTest extends ProvisioningPerformanceTest {
+	private static final int REPEATS = 5;
+	private static final int BLOCK_SIZE = 1024 * 1024;
+	private static final int BLOCK_COUNT = 200;
+
+	private byte[] block;
+	private String sha256;
+	private String md5;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		block = new byte[BLOCK_SIZE];
+		for (int i = 0; i < block.length; i++)
+			block[i] = (byte) (i * 31 + i / 7);
+		// start like a zip file
+		block[0] = 0x50;
+		block[1] = 0x4b;
+		block[2] = 0x03;
+		block[3] = 0x04;
+		MessageDigest sha = MessageDigest.getInstance("SHA-256");
+		MessageDigest md = MessageDigest.getInstance("MD5");
+		for (int i = 0; i < BLOCK_COUNT; i++) {
+			sha.update(block);
+			md.update(block);
+		}
+		sha256 = ChecksumHelper.toHexString(sha.digest());
+		md5 = ChecksumHelper.toHexString(md.digest());
+	}
+
+	public void testBytes() {
+		process(false, false);
+	}
+
+	public void testBlocks() {
+		process(true, false);
+	}
+
+	public void testBlocksFused() {
+		process(true, true);
+	}
+
+	private void process(final boolean blocks, final boolean fused) {
+		new PerformanceTestRunner() {
+			@Override
+			protected void test() {
+				try {
+					ProcessingStep[] steps = createSteps(fused);
+					OutputStream chain = new ProcessingStepHandler().link(steps, new OutputStream() {
+						@Override
+						public void write(int b) {
+							// discard
+						}
+
+						@Override
+						public void write(byte[] b, int off, int len) {
+							// discard
+						}
+					}, new NullProgressMonitor());
+					for (int i = 0; i < BLOCK_COUNT; i++) {
+						if (blocks) {
+							chain.write(block, 0, block.length);
+						} else {
+							for (int j = 0; j < block.length; j++)
+								chain.write(block[j]);
+						}
+					}
+					chain.close();
+					assertTrue(ProcessingStepHandler.checkStatus(chain).isOK());
+				} catch (IOException e) {
+					fail(e.getMessage());
+				}
+			}
+		}.run(this, "Test verifying " + BLOCK_COUNT + " MB " + (blocks ? "block by block" : "byte by byte") + (fused ? " with fused checksums" : ""), REPEATS, 1);
+	}
+
+	private ProcessingStep[] createSteps(boolean fused) {
+		ChecksumVerifier sha = new ChecksumVerifier("SHA-256", "sha-256");
+		sha.initialize(null, new ProcessingStepDescriptor("org.eclipse.equinox.p2.processing.ChecksumVerifier", sha256, true), null);
+		ChecksumVerifier md = new ChecksumVerifier("MD5", "md5");
+		md.initialize(null, new ProcessingStepDescriptor("org.eclipse.equinox.p2.processing.ChecksumVerifier", md5, true), null);
+		if (fused)
+			return new ProcessingStep[] {new ZipVerifierStep(), new MultiChecksumVerifier(Arrays.asList(sha, md))};
+		return new ProcessingStep[] {new ZipVerifierStep(), sha, md};
+	}
+}
@@ -0,0 +1,78 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.p2.tests.perf;
+
+import java.util.*;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.tests.harness.PerformanceTestRunner;
+import org.eclipse.equinox.internal.p2.director.QueryableArray;
+import org.eclipse.equinox.internal.p2.director.Slicer;
+import org.eclipse.equinox.p2.metadata.*;
+import org.eclipse.equinox.p2.query.IQueryable;
+import org.eclipse.equinox.p2.query.QueryUtil;
+
+/**
+ * Performance tests for slicing a large repository sequentially and in parallel
+ */
+public class SlicerPerformanceTest extends ProvisioningPerformanceTest {
+	private static final int REPEATS = 5;
+	private static final int IU_COUNT = 20000;
+	private static final int REQUIREMENT_COUNT = 5;
+
+	private IInstallableUnit[] ius;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		Random random = new Random(IU_COUNT);
+		ius = new IInstallableUnit[IU_COUNT];
+		for (int i = 0; i < IU_COUNT; i++) {
+			IRequirement[] requirements = new IRequirement[REQUIREMENT_COUNT];
+			for (int j = 0; j < REQUIREMENT_COUNT; j++)
+				requirements[j] = MetadataFactory.createRequirement(IInstallableUnit.NAMESPACE_IU_ID, "org.eclipse.someiu" + random.nextInt(IU_COUNT), VersionRange.emptyRange, null, false, false);
+			MetadataFactory.InstallableUnitDescription desc = new MetadataFactory.InstallableUnitDescription();
+			desc.setId("org.eclipse.someiu" + i);
+			desc.setVersion(Version.createOSGi(1, 1, i));
+			desc.setCapabilities(new IProvidedCapability[] {MetadataFactory.createProvidedCapability(IInstallableUnit.NAMESPACE_IU_ID, desc.getId(), desc.getVersion())});
+			desc.setRequirements(requirements);
+			ius[i] = MetadataFactory.createInstallableUnit(desc);
+		}
+	}
+
+	public void testSliceSequential() {
+		slice(1);
+	}
+
+	public void testSlice4Threads() {
+		slice(4);
+	}
+
+	public void testSlice16Threads() {
+		slice(16);
+	}
+
+	private void slice(final int threads) {
+		final IQueryable<IInstallableUnit> repository = new QueryableArray(ius);
+		final Set<IInstallableUnit> expected = new Slicer(repository, Collections.emptyMap(), false).slice(new IInstallableUnit[] {ius[0]}, new NullProgressMonitor()).query(QueryUtil.createIUAnyQuery(), null).toUnmodifiableSet();
+		new PerformanceTestRunner() {
+			@Override
+			protected void test() {
+				Slicer slicer = new Slicer(repository, Collections.emptyMap(), false);
+				slicer.setParallelism(threads);
+				IQueryable<IInstallableUnit> slice = slicer.slice(new IInstallableUnit[] {ius[0]}, new NullProgressMonitor());
+				assertEquals(expected, slice.query(QueryUtil.createIUAnyQuery(), null).toUnmodifiableSet());
+			}
+		}.run(this, "Test slicing " + IU_COUNT + " ius with " + threads + " threads", REPEATS, 1);
+	}
+}
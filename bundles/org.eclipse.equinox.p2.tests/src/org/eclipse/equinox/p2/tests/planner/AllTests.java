@@ -1,5 +1,5 @@
 /*******************************************************************************
- *  Copyright (c) 2008, 2011 IBM Corporation and others.
+ *  Copyright (c) 2008, 2026 IBM Corporation and others.
  *
  *  This program and the accompanying materials
  *  are made available under the terms of the Eclipse Public License 2.0
@@ -138,7 +138,10 @@ public class AllTests extends TestCase {
 		suite.addTestSuite(PatchTestUpdate5.class);
 		suite.addTestSuite(PatchTestUsingNegativeRequirement.class);
 		suite.addTestSuite(PermissiveSlicerTest.class);
+		suite.addTestSuite(PlannerCacheTest.class);
 		suite.addTestSuite(PP2ShouldFailToInstall.class);
+		suite.addTestSuite(ProjectorEncodingCacheTest.class);
+		suite.addTestSuite(RequirementMatchCacheTest.class);
 		suite.addTestSuite(ResolvedIUInPCR.class);
 		//		suite.addTestSuite(ProvisioningPlanQueryTest.class); disabled, see bug 313812 
 		suite.addTestSuite(SDKPatchingTest1.class);
@@ -157,6 +160,7 @@ public class AllTests extends TestCase {
 		suite.addTestSuite(SimulatedSharedInstallTest.class);
 		suite.addTestSuite(SingletonOptionallyInstalled.class);
 		suite.addTestSuite(SingletonOptionallyInstalled2.class);
+		suite.addTestSuite(SolverPortfolioTest.class);
 		suite.addTestSuite(SWTFragment.class);
 		suite.addTestSuite(SynchronizeOperationTest.class);
 		suite.addTestSuite(TestNoopChangeRequest.class);
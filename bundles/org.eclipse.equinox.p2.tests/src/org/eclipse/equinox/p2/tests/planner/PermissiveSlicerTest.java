@@ -1,5 +1,5 @@
 /*******************************************************************************
- *  Copyright (c) 2005, 2017 IBM Corporation and others.
+ *  Copyright (c) 2005, 2026 IBM Corporation and others.
  *
  *  This program and the accompanying materials
  *  are made available under the terms of the Eclipse Public License 2.0
@@ -17,6 +17,7 @@ import java.io.File;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.equinox.internal.p2.director.PermissiveSlicer;
 import org.eclipse.equinox.p2.metadata.IInstallableUnit;
@@ -172,4 +173,16 @@ public class PermissiveSlicerTest extends AbstractProvisioningTest {
 		assertEquals(35, queryResultSize(resultCollector));
 	}
 
+	public void testParallelSlice() {
+		IQueryResult<IInstallableUnit> c = repo.query(QueryUtil.createIUQuery("org.eclipse.rcp.feature.group"), new NullProgressMonitor());
+		IInstallableUnit iu = c.iterator().next();
+		PermissiveSlicer slicer = new PermissiveSlicer(repo, Collections.emptyMap(), true, false, true, false, false);
+		Set<IInstallableUnit> expected = slicer.slice(new IInstallableUnit[] {iu}, new NullProgressMonitor()).query(QueryUtil.createIUAnyQuery(), new NullProgressMonitor()).toUnmodifiableSet();
+
+		slicer = new PermissiveSlicer(repo, Collections.emptyMap(), true, false, true, false, false);
+		slicer.setParallelism(4);
+		IQueryable<IInstallableUnit> result = slicer.slice(new IInstallableUnit[] {iu}, new NullProgressMonitor());
+		assertNotNull(result);
+		assertEquals(expected, result.query(QueryUtil.createIUAnyQuery(), new NullProgressMonitor()).toUnmodifiableSet());
+	}
 }
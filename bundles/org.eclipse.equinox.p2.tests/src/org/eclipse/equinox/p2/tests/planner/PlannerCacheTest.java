@@ -0,0 +1,168 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.p2.tests.planner;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collections;
+import org.eclipse.equinox.internal.p2.engine.ProvisioningPlan;
+import org.eclipse.equinox.internal.p2.director.PlannerCache;
+import org.eclipse.equinox.internal.p2.director.PlannerCache.Fingerprint;
+import org.eclipse.equinox.internal.p2.director.ProfileChangeRequest;
+import org.eclipse.equinox.p2.engine.*;
+import org.eclipse.equinox.p2.metadata.IInstallableUnit;
+import org.eclipse.equinox.p2.metadata.Version;
+import org.eclipse.equinox.p2.query.QueryUtil;
+import org.eclipse.equinox.p2.repository.metadata.IMetadataRepository;
+import org.eclipse.equinox.p2.tests.AbstractProvisioningTest;
+
+public class PlannerCacheTest extends AbstractProvisioningTest {
+	private IInstallableUnit a1;
+	private IInstallableUnit b1;
+	private IMetadataRepository repository;
+	private IProfile profile;
+	private ProvisioningContext context;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		a1 = createIU("A", Version.create("1.0.0"), true);
+		b1 = createIU("B", Version.create("1.0.0"), true);
+		repository = createMetadataRepository(getTempFolder().toURI(), null);
+		repository.addInstallableUnits(Arrays.asList(a1, b1));
+		profile = createProfile("TestProfile." + getName());
+		context = new ProvisioningContext(getAgent());
+		context.setMetadataRepositories(repository.getLocation());
+	}
+
+	private ProfileChangeRequest createRequest(IInstallableUnit... additions) {
+		ProfileChangeRequest request = new ProfileChangeRequest(profile);
+		request.addInstallableUnits(additions);
+		return request;
+	}
+
+	public void testDisabled() {
+		PlannerCache cache = new PlannerCache(0);
+		assertFalse(cache.isEnabled());
+		assertNull(cache.createFingerprint(createRequest(a1), context, getAgent()));
+	}
+
+	public void testFingerprint() {
+		PlannerCache cache = new PlannerCache(10);
+		Fingerprint fingerprint = cache.createFingerprint(createRequest(a1), context, getAgent());
+		assertNotNull(fingerprint);
+		assertEquals(fingerprint, cache.createFingerprint(createRequest(a1), context, getAgent()));
+		assertFalse(fingerprint.equals(cache.createFingerprint(createRequest(b1), context, getAgent())));
+		// an equal unit that is not the same instance may describe a different unit
+		assertFalse(fingerprint.equals(cache.createFingerprint(createRequest(createIU("A", Version.create("1.0.0"), true)), context, getAgent())));
+
+		ProvisioningContext otherContext = new ProvisioningContext(getAgent());
+		otherContext.setMetadataRepositories(repository.getLocation());
+		otherContext.setProperty("foo", "bar");
+		assertFalse(fingerprint.equals(cache.createFingerprint(createRequest(a1), otherContext, getAgent())));
+
+		otherContext = new ProvisioningContext(getAgent());
+		otherContext.setMetadataRepositories(repository.getLocation());
+		otherContext.setArtifactRepositories(getTempFolder().toURI());
+		assertFalse(fingerprint.equals(cache.createFingerprint(createRequest(a1), otherContext, getAgent())));
+	}
+
+	public void testContextWithoutRepositories() {
+		PlannerCache cache = new PlannerCache(10);
+		// consults either no repository or all the known ones, which cannot be told apart
+		assertNull(cache.createFingerprint(createRequest(a1), new ProvisioningContext(getAgent()), getAgent()));
+		ProvisioningContext noRepositories = new ProvisioningContext(getAgent());
+		noRepositories.setMetadataRepositories();
+		assertNull(cache.createFingerprint(createRequest(a1), noRepositories, getAgent()));
+	}
+
+	public void testRepositoryNotLoaded() throws Exception {
+		PlannerCache cache = new PlannerCache(10);
+		URI location = repository.getLocation();
+		getMetadataRepositoryManager().removeRepository(location);
+		// the state of the repository is not known until it is loaded
+		assertNull(cache.createFingerprint(createRequest(a1), context, getAgent()));
+		// computing the fingerprint does not load the repository
+		assertFalse(getMetadataRepositoryManager().contains(location));
+		getMetadataRepositoryManager().loadRepository(location, getMonitor());
+		assertNotNull(cache.createFingerprint(createRequest(a1), context, getAgent()));
+	}
+
+	public void testFollowedReferences() {
+		PlannerCache cache = new PlannerCache(10);
+		context.setProperty(ProvisioningContext.FOLLOW_REPOSITORY_REFERENCES, Boolean.TRUE.toString());
+		// the referenced repositories are not known without loading them
+		assertNull(cache.createFingerprint(createRequest(a1), context, getAgent()));
+	}
+
+	public void testRepositoryChange() {
+		PlannerCache cache = new PlannerCache(10);
+		Fingerprint fingerprint = cache.createFingerprint(createRequest(a1), context, getAgent());
+		// make sure the repository gets a new timestamp
+		long now = System.currentTimeMillis();
+		while (System.currentTimeMillis() == now)
+			Thread.yield();
+		repository.addInstallableUnits(Collections.singletonList(createIU("C", Version.create("1.0.0"), true)));
+		assertFalse(fingerprint.equals(cache.createFingerprint(createRequest(a1), context, getAgent())));
+	}
+
+	public void testPlans() {
+		PlannerCache cache = new PlannerCache(1);
+		Fingerprint fingerprintA = cache.createFingerprint(createRequest(a1), context, getAgent());
+		Fingerprint fingerprintB = cache.createFingerprint(createRequest(b1), context, getAgent());
+		IProvisioningPlan planA = cache.createPlan(getEngine(), profile, context);
+		planA.addInstallableUnit(a1);
+		planA.setProfileProperty("foo", "bar");
+		IProvisioningPlan planB = cache.createPlan(getEngine(), profile, context);
+		planB.addInstallableUnit(b1);
+
+		assertNull(cache.get(fingerprintA, context));
+		cache.put(fingerprintA, planA);
+		ProvisioningContext otherContext = new ProvisioningContext(getAgent());
+		IProvisioningPlan copy = cache.get(fingerprintA, otherContext);
+		// the plan is copied and bound to the context of the caller
+		assertNotSame(PlannerCache.unwrap(planA), copy);
+		assertSame(otherContext, copy.getContext());
+		assertEquals(((ProvisioningPlan) PlannerCache.unwrap(planA)).getOperands().length, ((ProvisioningPlan) copy).getOperands().length);
+		assertContains(copy.getAdditions().query(QueryUtil.createIUAnyQuery(), null), Collections.singletonList(a1));
+		assertNotSame(copy, cache.get(fingerprintA, otherContext));
+
+		// the least recently used plan is evicted
+		cache.put(fingerprintB, planB);
+		assertEquals(1, cache.size());
+		assertNull(cache.get(fingerprintA, context));
+		assertNotNull(cache.get(fingerprintB, context));
+	}
+
+	public void testInstallerPlan() {
+		PlannerCache cache = new PlannerCache(1);
+		Fingerprint fingerprint = cache.createFingerprint(createRequest(a1), context, getAgent());
+		IProvisioningPlan plan = cache.createPlan(getEngine(), profile, context);
+		IProvisioningPlan installerPlan = cache.createPlan(getEngine(), profile, context);
+		installerPlan.addInstallableUnit(b1);
+		plan.setInstallerPlan(installerPlan);
+		cache.put(fingerprint, plan);
+
+		ProvisioningContext otherContext = new ProvisioningContext(getAgent());
+		IProvisioningPlan copy = cache.get(fingerprint, otherContext);
+		assertSame(otherContext, copy.getInstallerPlan().getContext());
+		assertContains(copy.getInstallerPlan().getAdditions().query(QueryUtil.createIUAnyQuery(), null), Collections.singletonList(b1));
+	}
+
+	public void testUnwrap() {
+		assertTrue(PlannerCache.unwrap(new PlannerCache(1).createPlan(getEngine(), profile, context)) instanceof ProvisioningPlan);
+		// nothing is recorded when the cache is disabled
+		assertTrue(new PlannerCache(0).createPlan(getEngine(), profile, context) instanceof ProvisioningPlan);
+	}
+}
@@ -0,0 +1,137 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.p2.tests.planner;
+
+import java.net.URI;
+import java.util.*;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.equinox.internal.p2.director.*;
+import org.eclipse.equinox.p2.engine.ProvisioningContext;
+import org.eclipse.equinox.p2.metadata.*;
+import org.eclipse.equinox.p2.query.IQueryable;
+import org.eclipse.equinox.p2.tests.AbstractProvisioningTest;
+
+public class ProjectorEncodingCacheTest extends AbstractProvisioningTest {
+	private IInstallableUnit a1;
+	private IInstallableUnit b1;
+	private IInstallableUnit b2;
+	private IInstallableUnit c1;
+	private IInstallableUnit d1;
+	private List<IInstallableUnit> units;
+	private int roots;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		a1 = createIU("A", Version.create("1.0.0"), createRequiredCapabilities(IInstallableUnit.NAMESPACE_IU_ID, "B"), NO_PROPERTIES, true);
+		b1 = createIU("B", Version.create("1.0.0"), createRequiredCapabilities(IInstallableUnit.NAMESPACE_IU_ID, "C"), NO_PROPERTIES, true);
+		b2 = createIU("B", Version.create("2.0.0"), createRequiredCapabilities(IInstallableUnit.NAMESPACE_IU_ID, "C"), NO_PROPERTIES, true);
+		c1 = createIU("C", Version.create("1.0.0"), true);
+		d1 = createIU("D", Version.create("1.0.0"), createRequiredCapabilities(IInstallableUnit.NAMESPACE_IU_ID, "B", new VersionRange("[1.0.0,2.0.0)")), NO_PROPERTIES, true);
+		units = Arrays.asList(a1, b1, b2, c1, d1);
+	}
+
+	public void testReuseForPartOfTheSlice() {
+		Projector first = project(null, "A", "D");
+		assertFalse(first.isEncodingReused());
+		assertNotNull(first.getEncoding());
+		assertSolution(first, a1, b1, c1, d1);
+
+		// neither the roots nor the bounds of the first projection constrain the next ones
+		Projector second = project(first.getEncoding(), "A");
+		assertTrue(second.isEncodingReused());
+		assertSame(first.getEncoding(), second.getEncoding());
+		assertSolution(second, a1, b2, c1);
+		assertSolution(project(null, "A"), a1, b2, c1);
+
+		Projector third = project(second.getEncoding(), "D");
+		assertTrue(third.isEncodingReused());
+		assertSolution(third, b1, c1, d1);
+	}
+
+	public void testGrownSliceEncodedAgain() {
+		Projector first = project(null, "A");
+		assertSolution(first, a1, b2, c1);
+		Projector second = project(first.getEncoding(), "A", "D");
+		assertFalse(second.isEncodingReused());
+		assertNotSame(first.getEncoding(), second.getEncoding());
+		assertSolution(second, a1, b1, c1, d1);
+
+		Projector third = project(second.getEncoding(), "C");
+		assertTrue(third.isEncodingReused());
+		assertSolution(third, c1);
+	}
+
+	public void testUnsatisfiableWithReusedEncoding() {
+		Projector first = project(null, "A");
+		assertSolution(first, a1, b2, c1);
+		IRequirement[] conflicting = {MetadataFactory.createRequirement(IInstallableUnit.NAMESPACE_IU_ID, "B", new VersionRange("[1.0.0,2.0.0)"), null, false, false), MetadataFactory.createRequirement(IInstallableUnit.NAMESPACE_IU_ID, "B", new VersionRange("[2.0.0,3.0.0)"), null, false, false)};
+		Projector second = project(first.getEncoding(), createIU("root" + roots++, Version.create("1.0.0"), conflicting));
+		assertTrue(second.isEncodingReused());
+		IStatus status = second.invokeSolver(new NullProgressMonitor());
+		assertEquals(IStatus.ERROR, status.getSeverity());
+
+		Projector third = project(second.getEncoding(), "B");
+		assertTrue(third.isEncodingReused());
+		assertSolution(third, b2, c1);
+	}
+
+	public void testCache() throws Exception {
+		ProjectorEncodingCache cache = new ProjectorEncodingCache(1);
+		assertTrue(cache.isEnabled());
+		assertFalse(new ProjectorEncodingCache(0).isEnabled());
+		ProvisioningContext context = new ProvisioningContext(getAgent());
+		context.setMetadataRepositories(new URI[] {new URI("http://example.org/first"), new URI("http://example.org/second")});
+		ProjectorEncodingCache.Key key = cache.createKey("profile", context, Collections.<String, String> emptyMap(), false);
+		assertNull(cache.take(key));
+
+		Projector projector = project(null, "A");
+		projector.invokeSolver(new NullProgressMonitor());
+		cache.put(key, projector.getEncoding());
+		ProvisioningContext reordered = new ProvisioningContext(getAgent());
+		reordered.setMetadataRepositories(new URI[] {new URI("http://example.org/second"), new URI("http://example.org/first")});
+		assertNull(cache.take(cache.createKey("other", context, Collections.<String, String> emptyMap(), false)));
+		assertNull(cache.take(cache.createKey("profile", new ProvisioningContext(getAgent()), Collections.<String, String> emptyMap(), false)));
+		// an encoding is used by one projection at a time
+		assertSame(projector.getEncoding(), cache.take(cache.createKey("profile", reordered, Collections.<String, String> emptyMap(), false)));
+		assertNull(cache.take(key));
+		assertEquals(0, cache.size());
+	}
+
+	private Projector project(Projector.Encoding previous, String... required) {
+		IRequirement[] requirements = new IRequirement[required.length];
+		for (int i = 0; i < required.length; i++)
+			requirements[i] = createRequiredCapabilities(IInstallableUnit.NAMESPACE_IU_ID, required[i])[0];
+		// the entry point is a different unit for every request, as it is for the planner
+		return project(previous, createIU("root" + roots++, Version.create("1.0.0"), requirements));
+	}
+
+	private Projector project(Projector.Encoding previous, IInstallableUnit root) {
+		List<IInstallableUnit> all = new ArrayList<>(units);
+		all.add(root);
+		Map<String, String> context = Collections.emptyMap();
+		Slicer slicer = new Slicer(new QueryableArray(all.toArray(new IInstallableUnit[all.size()])), context, false);
+		IQueryable<IInstallableUnit> slice = slicer.slice(new IInstallableUnit[] {root}, new NullProgressMonitor());
+		Projector projector = new Projector(slice, context, new HashSet<IInstallableUnit>(), false);
+		projector.setEncoding(previous);
+		projector.encode(root, new IInstallableUnit[0], new QueryableArray(new IInstallableUnit[0]), Collections.singletonList(root), new NullProgressMonitor());
+		return projector;
+	}
+
+	private void assertSolution(Projector projector, IInstallableUnit... expected) {
+		assertTrue(projector.invokeSolver(new NullProgressMonitor()).isOK());
+		assertEquals(new HashSet<>(Arrays.asList(expected)), new HashSet<>(projector.extractSolution()));
+	}
+}
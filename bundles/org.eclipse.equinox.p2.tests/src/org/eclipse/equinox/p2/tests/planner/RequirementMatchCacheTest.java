@@ -0,0 +1,130 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.p2.tests.planner;
+
+import java.util.*;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.equinox.internal.p2.director.*;
+import org.eclipse.equinox.internal.p2.metadata.InstallableUnit;
+import org.eclipse.equinox.p2.metadata.*;
+import org.eclipse.equinox.p2.metadata.expression.IMatchExpression;
+import org.eclipse.equinox.p2.query.IQueryable;
+import org.eclipse.equinox.p2.query.QueryUtil;
+import org.eclipse.equinox.p2.tests.AbstractProvisioningTest;
+
+public class RequirementMatchCacheTest extends AbstractProvisioningTest {
+	private IInstallableUnit a1;
+	private IInstallableUnit b1;
+	private IInstallableUnit b2;
+	private IInstallableUnit c1;
+	private IQueryable<IInstallableUnit> repository;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		c1 = createIU("C", Version.create("1.0.0"), true);
+		b1 = createIU("B", Version.create("1.0.0"), createRequiredCapabilities(IInstallableUnit.NAMESPACE_IU_ID, "C"), NO_PROPERTIES, true);
+		b2 = createIU("B", Version.create("2.0.0"), createRequiredCapabilities(IInstallableUnit.NAMESPACE_IU_ID, "C"), NO_PROPERTIES, true);
+		a1 = createIU("A", Version.create("1.0.0"), createRequiredCapabilities(IInstallableUnit.NAMESPACE_IU_ID, "B"), NO_PROPERTIES, true);
+		repository = new QueryableArray(new IInstallableUnit[] {a1, b1, b2, c1});
+	}
+
+	public void testMatches() {
+		RequirementMatchCache cache = new RequirementMatchCache(repository);
+		IRequirement req = a1.getRequirements().iterator().next();
+		Set<IInstallableUnit> expected = repository.query(QueryUtil.createMatchQuery(req.getMatches()), null).toUnmodifiableSet();
+		assertEquals(expected, new HashSet<>(Arrays.asList(cache.getMatches(repository, req))));
+		assertEquals(0, cache.getHits());
+		assertEquals(1, cache.getMisses());
+
+		assertEquals(expected, new HashSet<>(Arrays.asList(cache.getMatches(repository, req))));
+		assertEquals(1, cache.getHits());
+
+		// the matches are restricted to the members of another queryable, without querying again
+		IQueryable<IInstallableUnit> other = new QueryableArray(new IInstallableUnit[] {b1, c1});
+		assertEquals(Collections.singletonList(b1), Arrays.asList(cache.getMatches(other, req)));
+		assertEquals(1, cache.getMisses());
+		assertEquals(2, cache.getHits());
+
+		// units that are not available to the session are matched as well
+		IInstallableUnit b3 = createIU("B", Version.create("3.0.0"), true);
+		IQueryable<IInstallableUnit> additions = new QueryableArray(new IInstallableUnit[] {b2, b3});
+		assertEquals(Arrays.asList(b2, b3), Arrays.asList(cache.getMatches(additions, req)));
+		assertEquals(1, cache.getMisses());
+	}
+
+	public void testFilterResults() {
+		RequirementMatchCache cache = new RequirementMatchCache(repository);
+		IMatchExpression<IInstallableUnit> filter = InstallableUnit.parseFilter("(&(osgi.os=linux)(osgi.ws=gtk))");
+		IInstallableUnit linux = InstallableUnit.contextIU("gtk", "linux", "x86_64");
+		IInstallableUnit windows = InstallableUnit.contextIU("win32", "win32", "x86_64");
+		assertTrue(cache.isMatch(filter, linux));
+		assertTrue(cache.isMatch(filter, linux));
+		assertEquals(1, cache.getFilterHits());
+		assertEquals(1, cache.getFilterMisses());
+
+		// the results are remembered per selection context
+		assertFalse(cache.isMatch(filter, windows));
+		assertTrue(cache.isMatch(filter, linux));
+		assertFalse(cache.isMatch(filter, windows));
+		assertEquals(3, cache.getFilterHits());
+		assertEquals(2, cache.getFilterMisses());
+		// the requirement matches are not affected
+		assertEquals(0, cache.getHits() + cache.getMisses());
+	}
+
+	public void testSharedBetweenSlicerAndProjector() {
+		RequirementMatchCache cache = new RequirementMatchCache(repository);
+		Map<String, String> context = Collections.emptyMap();
+		Slicer slicer = new Slicer(repository, context, false);
+		slicer.setMatchCache(cache);
+		IQueryable<IInstallableUnit> slice = slicer.slice(new IInstallableUnit[] {a1}, new NullProgressMonitor());
+		assertNotNull(slice);
+		assertEquals(0, cache.getHits());
+		long misses = cache.getMisses();
+
+		Projector projector = new Projector(slice, context, new HashSet<IInstallableUnit>(), false);
+		projector.setMatchCache(cache);
+		projector.encode(a1, new IInstallableUnit[0], new QueryableArray(new IInstallableUnit[0]), Collections.singletonList(a1), new NullProgressMonitor());
+		assertEquals(IStatus.OK, projector.invokeSolver(new NullProgressMonitor()).getSeverity());
+		assertTrue(projector.extractSolution().containsAll(Arrays.asList(a1, b2, c1)));
+		// the projector reuses the matches of the slicer although it works on the slice
+		assertTrue(cache.getHits() > 0);
+		assertEquals(misses, cache.getMisses());
+	}
+
+	public void testFilterResultsSharedBetweenSlicerAndProjector() {
+		IInstallableUnit linux = createIU("L", Version.create("1.0.0"), InstallableUnit.parseFilter("(osgi.os=linux)"), NO_PROVIDES);
+		IInstallableUnit root = createIU("R", Version.create("1.0.0"), createRequiredCapabilities(IInstallableUnit.NAMESPACE_IU_ID, "L"), NO_PROPERTIES, true);
+		IQueryable<IInstallableUnit> available = new QueryableArray(new IInstallableUnit[] {linux, root});
+		RequirementMatchCache cache = new RequirementMatchCache(available);
+		IInstallableUnit selectionContext = InstallableUnit.contextIU(Collections.singletonMap("osgi.os", "linux"));
+		Slicer slicer = new Slicer(available, selectionContext, false);
+		slicer.setMatchCache(cache);
+		IQueryable<IInstallableUnit> slice = slicer.slice(new IInstallableUnit[] {root}, new NullProgressMonitor());
+		assertNotNull(slice);
+		long misses = cache.getFilterMisses();
+		assertTrue(misses > 0);
+
+		Projector projector = new Projector(slice, selectionContext, new HashSet<IInstallableUnit>(), false);
+		projector.setMatchCache(cache);
+		projector.encode(root, new IInstallableUnit[0], new QueryableArray(new IInstallableUnit[0]), Collections.singletonList(root), new NullProgressMonitor());
+		assertEquals(IStatus.OK, projector.invokeSolver(new NullProgressMonitor()).getSeverity());
+		assertTrue(projector.extractSolution().contains(linux));
+		// the projector evaluates the filters against the same selection context as the slicer
+		assertTrue(cache.getFilterHits() > 0);
+		assertEquals(misses, cache.getFilterMisses());
+	}
+}
@@ -0,0 +1,106 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.p2.tests.planner;
+
+import java.util.*;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.equinox.internal.p2.director.*;
+import org.eclipse.equinox.p2.metadata.*;
+import org.eclipse.equinox.p2.tests.AbstractProvisioningTest;
+
+public class SolverPortfolioTest extends AbstractProvisioningTest {
+	private List<IInstallableUnit> units;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		units = new ArrayList<>();
+		units.add(createIU("A", Version.create("1.0.0"), createRequiredCapabilities(IInstallableUnit.NAMESPACE_IU_ID, "B"), NO_PROPERTIES, true));
+		units.add(createIU("B", Version.create("1.0.0"), createRequiredCapabilities(IInstallableUnit.NAMESPACE_IU_ID, "C"), NO_PROPERTIES, true));
+		units.add(createIU("B", Version.create("2.0.0"), createRequiredCapabilities(IInstallableUnit.NAMESPACE_IU_ID, "C", new VersionRange("[2.0.0,3.0.0)")), NO_PROPERTIES, true));
+		units.add(createIU("C", Version.create("1.0.0"), true));
+		units.add(createIU("C", Version.create("2.0.0"), true));
+		units.add(createIU("D", Version.create("1.0.0"), createRequiredCapabilities(IInstallableUnit.NAMESPACE_IU_ID, "C", new VersionRange("[1.0.0,2.0.0)")), NO_PROPERTIES, true));
+		units.add(createIU("E", Version.create("1.0.0"), createRequiredCapabilities(IInstallableUnit.NAMESPACE_IU_ID, "Missing"), NO_PROPERTIES, true));
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		System.clearProperty(SolverPortfolio.PROP_PORTFOLIO_SIZE);
+		super.tearDown();
+	}
+
+	public void testSize() {
+		assertEquals(1, SolverPortfolio.getSize());
+		System.setProperty(SolverPortfolio.PROP_PORTFOLIO_SIZE, "3");
+		assertEquals(3, SolverPortfolio.getSize());
+		System.setProperty(SolverPortfolio.PROP_PORTFOLIO_SIZE, "1000");
+		assertTrue(SolverPortfolio.getSize() > 1);
+		System.setProperty(SolverPortfolio.PROP_PORTFOLIO_SIZE, "many");
+		assertEquals(1, SolverPortfolio.getSize());
+	}
+
+	public void testSameSolution() {
+		String[][] requests = { {"A"}, {"D"}, {"A", "D"}};
+		for (String[] request : requests) {
+			Set<IInstallableUnit> expected = solve(request, null);
+			assertNotNull(expected);
+			assertEquals(expected, solve(request, "5"));
+		}
+	}
+
+	public void testSameSolutionAmongEqualCosts() {
+		// any of the providers is an optimal solution
+		for (int i = 0; i < 8; i++)
+			units.add(createIU("P" + i, Version.create("1.0.0"), new IProvidedCapability[] {MetadataFactory.createProvidedCapability("test", "service", Version.create("1.0.0"))}));
+		IRequirement service = MetadataFactory.createRequirement("test", "service", VersionRange.emptyRange, null, false, false, true);
+		Set<IInstallableUnit> expected = solve(new IRequirement[] {service}, null);
+		assertEquals(1, expected.size());
+		// the first configuration is the single solver, its solution is kept whichever solver wins
+		for (int i = 0; i < 20; i++)
+			assertEquals(expected, solve(new IRequirement[] {service}, "5"));
+	}
+
+	public void testUnsatisfiable() {
+		assertNull(solve(new String[] {"E"}, "5"));
+		assertNull(solve(new String[] {"A", "D", "E"}, "2"));
+	}
+
+	private Set<IInstallableUnit> solve(String[] required, String portfolioSize) {
+		IRequirement[] reqs = new IRequirement[required.length];
+		for (int i = 0; i < required.length; i++)
+			reqs[i] = MetadataFactory.createRequirement(IInstallableUnit.NAMESPACE_IU_ID, required[i], VersionRange.emptyRange, null, false, false, true);
+		return solve(reqs, portfolioSize);
+	}
+
+	private Set<IInstallableUnit> solve(IRequirement[] reqs, String portfolioSize) {
+		if (portfolioSize == null)
+			System.clearProperty(SolverPortfolio.PROP_PORTFOLIO_SIZE);
+		else
+			System.setProperty(SolverPortfolio.PROP_PORTFOLIO_SIZE, portfolioSize);
+		IInstallableUnit root = createIU("root", Version.create("1.0.0"), reqs);
+		List<IInstallableUnit> all = new ArrayList<>(units);
+		all.add(root);
+		Projector projector = new Projector(new QueryableArray(all.toArray(new IInstallableUnit[all.size()])), Collections.<String, String> emptyMap(), new HashSet<IInstallableUnit>(), false);
+		projector.encode(root, new IInstallableUnit[0], new QueryableArray(new IInstallableUnit[0]), Collections.singletonList(root), new NullProgressMonitor());
+		IStatus status = projector.invokeSolver(new NullProgressMonitor());
+		if (status.getSeverity() == IStatus.ERROR) {
+			// the portfolio explains a failure like a single solver does
+			assertFalse(projector.getExplanation(new NullProgressMonitor()).isEmpty());
+			return null;
+		}
+		return new HashSet<>(projector.extractSolution());
+	}
+}
@@ -23,6 +23,7 @@ public class AllTests extends TestCase {
 	public static Test suite() {
 		TestSuite suite = new TestSuite(AllTests.class.getName());
 		suite.addTestSuite(EvaluatorTest.class);
+		suite.addTestSuite(ExpressionCompilerTest.class);
 		suite.addTestSuite(PerformanceTest.class);
 		suite.addTestSuite(TestQueryReimplementation.class);
 		return suite;
@@ -0,0 +1,129 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.p2.tests.ql;
+
+import java.util.*;
+import junit.framework.TestCase;
+import org.eclipse.equinox.internal.p2.metadata.ResolvedInstallableUnit;
+import org.eclipse.equinox.p2.metadata.*;
+import org.eclipse.equinox.p2.metadata.MetadataFactory.InstallableUnitDescription;
+import org.eclipse.equinox.p2.metadata.expression.*;
+import org.eclipse.equinox.p2.query.IQuery;
+import org.eclipse.equinox.p2.query.QueryUtil;
+
+/**
+ * Checks that the compiled match expressions give the same results as the interpreted ones.
+ */
+public class ExpressionCompilerTest extends TestCase {
+	private static final IExpressionParser parser = ExpressionUtil.getParser();
+	private static final IExpressionFactory factory = ExpressionUtil.getFactory();
+
+	private List<IInstallableUnit> units;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		units = new ArrayList<>();
+		for (int i = 0; i < 20; i++) {
+			InstallableUnitDescription description = new InstallableUnitDescription();
+			description.setId("org.example." + (i % 2 == 0 ? "bundle" : "feature") + i % 5);
+			description.setVersion(Version.createOSGi(1, i % 4, i));
+			description.setProperty("org.eclipse.equinox.p2.type.group", Boolean.toString(i % 3 == 0));
+			List<IProvidedCapability> capabilities = new ArrayList<>();
+			capabilities.add(MetadataFactory.createProvidedCapability(IInstallableUnit.NAMESPACE_IU_ID, description.getId(), description.getVersion()));
+			capabilities.add(MetadataFactory.createProvidedCapability("java.package", "org.example.p" + i % 3, Version.createOSGi(2, i % 2, 0)));
+			if (i % 4 == 0)
+				capabilities.add(MetadataFactory.createProvidedCapability("java.package", "org.example.p" + (i + 1) % 3, Version.emptyVersion));
+			description.setCapabilities(capabilities.toArray(new IProvidedCapability[capabilities.size()]));
+			units.add(MetadataFactory.createInstallableUnit(description));
+		}
+	}
+
+	public void testMembers() {
+		assertSameMatches("id == $0 && version == $1", "org.example.bundle0", Version.createOSGi(1, 0, 0));
+		assertSameMatches("id == $0 || id == $1", "org.example.bundle2", "org.example.feature1");
+		assertSameMatches("version >= $0 && version < $1", Version.createOSGi(1, 1, 0), Version.createOSGi(1, 3, 0));
+		assertSameMatches("!(id == $0)", "org.example.bundle4");
+	}
+
+	public void testMatches() {
+		assertSameMatches("id ~= /org.example.feature*/");
+		assertSameMatches("version ~= $0", new VersionRange("[1.1.0,1.3.0)"));
+		assertSameMatches("this ~= $0", IInstallableUnit.class);
+	}
+
+	public void testCollectionFilters() {
+		assertSameMatches("providedCapabilities.exists(x | x.namespace == $0 && x.name == $1)", "java.package", "org.example.p1");
+		assertSameMatches("providedCapabilities.exists(x | x.namespace == $0 && x.name ~= /*.p2/ && x.version > $1)", "java.package", Version.createOSGi(2, 0, 0));
+		assertSameMatches("providedCapabilities.all(x | x.namespace == $0 || x.version >= $1)", "java.package", Version.createOSGi(1, 0, 0));
+		assertSameMatches("providedCapabilities.exists(x | providedCapabilities.exists(y | x.namespace == y.namespace && x.name != y.name))");
+		assertSameMatches("providedCapabilities.exists(x | x.name == id)");
+	}
+
+	public void testUncompiledExpressions() {
+		// indexed access and the everything variable are left to the interpreter
+		assertSameMatches("properties[$0] == 'true'", "org.eclipse.equinox.p2.type.group");
+		assertSameMatches("providedCapabilities.exists(x | properties[$0] == 'true' && x.namespace == $1)", "org.eclipse.equinox.p2.type.group", "java.package");
+	}
+
+	public void testRequirements() {
+		for (int i = 0; i < 5; i++) {
+			IRequirement requirement = MetadataFactory.createRequirement("java.package", "org.example.p" + i % 3, new VersionRange("[2.0.0,2.1.0)"), null, false, false);
+			assertSameMatches(requirement.getMatches());
+			requirement = MetadataFactory.createRequirement(IInstallableUnit.NAMESPACE_IU_ID, "org.example.bundle" + i, VersionRange.emptyRange, null, false, false);
+			assertSameMatches(requirement.getMatches());
+		}
+	}
+
+	public void testVersionRangeRequirements() {
+		// all versions, strict, open and closed ranges
+		String[] ranges = {"0.0.0", "[1.1.1,1.1.1]", "1.1.0", "(1.1.1,2.0.0)", "[1.1.1,1.2.5]", "[1.1.1,1.2.5)", "(1.1.1,1.2.5]", "(1.1.1,1.2.5)", "[2.0.0,2.0.0]", "(2.0.0,2.1.0]", "[2.0.0,2.1.0)"};
+		for (String range : ranges) {
+			IRequirement requirement = MetadataFactory.createRequirement(IInstallableUnit.NAMESPACE_IU_ID, "org.example.feature1", new VersionRange(range), null, false, false);
+			assertSameMatches(requirement.getMatches());
+			requirement = MetadataFactory.createRequirement("java.package", "org.example.p1", new VersionRange(range), null, false, false);
+			assertSameMatches(requirement.getMatches());
+		}
+	}
+
+	public void testRequirementQuery() {
+		IRequirement requirement = MetadataFactory.createRequirement("java.package", "org.example.p2", new VersionRange("[2.0.0,2.1.0)"), null, false, false);
+		IQuery<IInstallableUnit> query = QueryUtil.createMatchQuery(requirement.getMatches());
+		Set<IInstallableUnit> expected = new HashSet<>();
+		for (IInstallableUnit unit : units) {
+			// units that are not InstallableUnit instances are matched by the general predicate
+			IInstallableUnit resolved = new ResolvedInstallableUnit(unit);
+			assertEquals(requirement.isMatch(unit), requirement.isMatch(resolved));
+			if (requirement.isMatch(unit))
+				expected.add(unit);
+		}
+		assertFalse(expected.isEmpty());
+		assertEquals(expected, query.perform(units.iterator()).toUnmodifiableSet());
+	}
+
+	private void assertSameMatches(String expression, Object... parameters) {
+		assertSameMatches(factory.<IInstallableUnit> matchExpression(parser.parse(expression), parameters));
+	}
+
+	private void assertSameMatches(IMatchExpression<IInstallableUnit> expression) {
+		for (IInstallableUnit unit : units) {
+			// evaluating the match expression itself goes through the interpreter
+			IEvaluationContext context = expression.createContext();
+			context.setValue(factory.thisVariable(), unit);
+			boolean interpreted = expression.evaluate(context) == Boolean.TRUE;
+			assertEquals(expression + " on " + unit, interpreted, expression.isMatch(unit));
+			assertEquals(expression + " on " + unit, interpreted, expression.isMatch(expression.createContext(), unit));
+		}
+	}
+}
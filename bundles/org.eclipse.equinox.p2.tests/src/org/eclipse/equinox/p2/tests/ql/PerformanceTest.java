@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009, 2017 Cloudsmith Inc. and others.
+ * Copyright (c) 2009, 2026 Cloudsmith Inc. and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -13,6 +13,7 @@
  *******************************************************************************/
 package org.eclipse.equinox.p2.tests.ql;
 
+import java.lang.management.ManagementFactory;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -25,6 +26,7 @@ import org.eclipse.equinox.internal.p2.director.QueryableArray;
 import org.eclipse.equinox.internal.p2.director.Slicer;
 import org.eclipse.equinox.internal.p2.metadata.InstallableUnit;
 import org.eclipse.equinox.internal.p2.metadata.expression.MatchIteratorFilter;
+import org.eclipse.equinox.internal.p2.metadata.index.IndexProvider;
 import org.eclipse.equinox.internal.p2.metadata.repository.CompositeMetadataRepository;
 import org.eclipse.equinox.p2.metadata.IInstallableUnit;
 import org.eclipse.equinox.p2.metadata.IProvidedCapability;
@@ -33,7 +35,10 @@ import org.eclipse.equinox.p2.metadata.MetadataFactory;
 import org.eclipse.equinox.p2.metadata.Version;
 import org.eclipse.equinox.p2.metadata.VersionRange;
 import org.eclipse.equinox.p2.metadata.expression.ExpressionUtil;
+import org.eclipse.equinox.p2.metadata.expression.IEvaluationContext;
 import org.eclipse.equinox.p2.metadata.expression.IExpressionParser;
+import org.eclipse.equinox.p2.metadata.expression.IMatchExpression;
+import org.eclipse.equinox.p2.metadata.index.IIndex;
 import org.eclipse.equinox.p2.publisher.actions.JREAction;
 import org.eclipse.equinox.p2.query.IQuery;
 import org.eclipse.equinox.p2.query.IQueryResult;
@@ -53,6 +58,115 @@ public class PerformanceTest extends AbstractProvisioningTest {
 		System.out.println("Parse of 50000 expressions took: " + (System.currentTimeMillis() - start) + " milliseconds");
 	}
 
+	public void testCompiledVersusInterpretedMatchPerformance() throws Exception {
+		IInstallableUnit[] units = new IInstallableUnit[10000];
+		for (int i = 0; i < units.length; i++) {
+			MetadataFactory.InstallableUnitDescription description = new MetadataFactory.InstallableUnitDescription();
+			description.setId("org.example.unit" + i);
+			description.setVersion(Version.createOSGi(1, 0, i));
+			description.setCapabilities(new IProvidedCapability[] {MetadataFactory.createProvidedCapability(IInstallableUnit.NAMESPACE_IU_ID, description.getId(), description.getVersion()), MetadataFactory.createProvidedCapability("java.package", "org.example.p" + i % 100, Version.createOSGi(1, i % 3, 0))});
+			units[i] = MetadataFactory.createInstallableUnit(description);
+		}
+		IRequirement requirement = MetadataFactory.createRequirement("java.package", "org.example.p42", new VersionRange("[1.1.0,2.0.0)"), null, false, false);
+		IMatchExpression<IInstallableUnit> matches = requirement.getMatches();
+		IEvaluationContext context = matches.createContext();
+
+		long interpretedMS = 0;
+		long compiledMS = 0;
+		for (int i = 0; i < 5; ++i) {
+			int found = 0;
+			long start = System.currentTimeMillis();
+			for (int idx = 0; idx < 100; ++idx)
+				for (IInstallableUnit unit : units) {
+					// evaluating the match expression itself goes through the interpreter
+					context.setValue(ExpressionUtil.getFactory().thisVariable(), unit);
+					if (matches.evaluate(context) == Boolean.TRUE)
+						found++;
+				}
+			interpretedMS += (System.currentTimeMillis() - start);
+
+			start = System.currentTimeMillis();
+			for (int idx = 0; idx < 100; ++idx)
+				for (IInstallableUnit unit : units)
+					if (matches.isMatch(context, unit))
+						found--;
+			compiledMS += (System.currentTimeMillis() - start);
+			assertEquals(0, found);
+		}
+		System.out.println("Interpreted matches of " + units.length * 500 + " units took: " + interpretedMS + " milliseconds");
+		System.out.println("Compiled matches of " + units.length * 500 + " units took: " + compiledMS + " milliseconds");
+		System.out.println();
+	}
+
+	public void testLazyQueryResultAllocation() throws Exception {
+		if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean)) {
+			System.out.println("Allocated bytes cannot be measured on this VM");
+			return;
+		}
+		IInstallableUnit[] units = new IInstallableUnit[10000];
+		for (int i = 0; i < units.length; i++) {
+			MetadataFactory.InstallableUnitDescription description = new MetadataFactory.InstallableUnitDescription();
+			description.setId("org.example.unit" + i % 2500);
+			description.setVersion(Version.createOSGi(1, 0, i));
+			description.setCapabilities(new IProvidedCapability[] {MetadataFactory.createProvidedCapability(IInstallableUnit.NAMESPACE_IU_ID, description.getId(), description.getVersion()), MetadataFactory.createProvidedCapability("java.package", "org.example.p" + i % 100, Version.createOSGi(1, i % 3, 0))});
+			units[i] = MetadataFactory.createInstallableUnit(description);
+		}
+		// the array hands out snapshots, the same units behind a plain provider are read eagerly
+		QueryableArray lazy = new QueryableArray(units);
+		IndexProvider<IInstallableUnit> eager = new IndexProvider<IInstallableUnit>() {
+			@Override
+			public Iterator<IInstallableUnit> everything() {
+				return lazy.everything();
+			}
+
+			@Override
+			public IIndex<IInstallableUnit> getIndex(String memberName) {
+				return lazy.getIndex(memberName);
+			}
+
+			@Override
+			public Object getManagedProperty(Object client, String memberName, Object key) {
+				return lazy.getManagedProperty(client, memberName, key);
+			}
+		};
+		IQuery<IInstallableUnit> available = QueryUtil.createIUQuery("org.example.unit42");
+		IQuery<IInstallableUnit> latest = QueryUtil.createLatestIUQuery();
+		IQuery<IInstallableUnit> provider = QueryUtil.createMatchQuery(MetadataFactory.createRequirement("java.package", "org.example.p42", new VersionRange("[1.1.0,2.0.0)"), null, false, false).getMatches());
+
+		for (IndexProvider<IInstallableUnit> queryable : new IndexProvider[] {eager, lazy}) {
+			String label = queryable == lazy ? "Lazy" : "Eager";
+			long[] bytes = new long[3];
+			for (int i = 0; i < 5; ++i) {
+				long start = getAllocatedBytes();
+				for (int idx = 0; idx < 100; ++idx)
+					assertFalse(queryable.query(available, null).isEmpty());
+				bytes[0] = getAllocatedBytes() - start;
+
+				start = getAllocatedBytes();
+				for (int idx = 0; idx < 100; ++idx) {
+					int count = 0;
+					for (Iterator<IInstallableUnit> iter = queryable.query(latest, null).iterator(); iter.hasNext(); iter.next())
+						count++;
+					assertEquals(2500, count);
+				}
+				bytes[1] = getAllocatedBytes() - start;
+
+				start = getAllocatedBytes();
+				for (int idx = 0; idx < 100; ++idx)
+					assertNotNull(queryable.query(provider, null).iterator().next());
+				bytes[2] = getAllocatedBytes() - start;
+			}
+			System.out.println(label + " isEmpty of 100 id queries allocated: " + bytes[0] / 1024 + " KB");
+			System.out.println(label + " iteration of 100 latest queries allocated: " + bytes[1] / 1024 + " KB");
+			System.out.println(label + " first of 100 requirement queries allocated: " + bytes[2] / 1024 + " KB");
+		}
+		System.out.println();
+	}
+
+	private static long getAllocatedBytes() {
+		return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
 	public void testMatchQueryVersusExpressionPerformance() throws Exception {
 
 		IMetadataRepository repo = getMDR("/testData/galileoM7");
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009, 2010 Cloudsmith Inc. and others.
+ * Copyright (c) 2009, 2026 Cloudsmith Inc. and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -14,10 +14,20 @@
 package org.eclipse.equinox.p2.tests.ql;
 
 import java.net.URI;
+import java.util.*;
 import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.equinox.internal.p2.director.QueryableArray;
+import org.eclipse.equinox.internal.p2.metadata.expression.ExpressionFactory;
+import org.eclipse.equinox.internal.p2.metadata.index.CapabilityIndex;
+import org.eclipse.equinox.internal.p2.metadata.index.IndexProvider;
 import org.eclipse.equinox.p2.metadata.IInstallableUnit;
+import org.eclipse.equinox.p2.metadata.IProvidedCapability;
 import org.eclipse.equinox.p2.metadata.IRequirement;
 import org.eclipse.equinox.p2.metadata.MetadataFactory;
+import org.eclipse.equinox.p2.metadata.Version;
+import org.eclipse.equinox.p2.metadata.VersionRange;
+import org.eclipse.equinox.p2.metadata.expression.IMatchExpression;
+import org.eclipse.equinox.p2.query.ExpressionMatchQuery;
 import org.eclipse.equinox.p2.query.IQuery;
 import org.eclipse.equinox.p2.query.IQueryResult;
 import org.eclipse.equinox.p2.query.QueryUtil;
@@ -70,6 +80,135 @@ public class TestIndexes extends AbstractProvisioningTest {
 		assertEquals(queryResultSize(result), 487);
 	}
 
+	public void testCapabilityIndexIncremental() throws Exception {
+		IMetadataRepository repo = createMetadataRepository(getTempFolder().toURI(), null);
+		IInstallableUnit a1 = createIU("a", Version.create("1.0.0"));
+		IInstallableUnit a2 = createIU("a", Version.create("2.0.0"));
+		IRequirement requirement = MetadataFactory.createRequirement("org.eclipse.equinox.p2.iu", "a", null, null, 1, 2, true);
+		IQuery<IInstallableUnit> query = QueryUtil.createQuery("select(x | x ~= $0)", requirement);
+
+		repo.addInstallableUnits(Collections.singletonList(a1));
+		assertEquals(1, queryResultSize(repo.query(query, getMonitor())));
+
+		// the index created by the previous query must follow the changes
+		repo.addInstallableUnits(Arrays.asList(a2, createIU("b", Version.create("1.0.0"))));
+		assertEquals(2, queryResultSize(repo.query(query, getMonitor())));
+
+		repo.removeInstallableUnits(Collections.singletonList(a1));
+		IQueryResult<IInstallableUnit> result = repo.query(query, getMonitor());
+		assertEquals(1, queryResultSize(result));
+		assertEquals(a2, result.iterator().next());
+
+		repo.removeAll();
+		assertEquals(0, queryResultSize(repo.query(query, getMonitor())));
+	}
+
+	public void testCapabilityIndexVersionRange() throws Exception {
+		List<IInstallableUnit> ius = new ArrayList<>();
+		for (String version : new String[] {"3.0.0", "1.0.0", "2.0.0", "1.5.0"})
+			ius.add(createIU("a", Version.create(version)));
+		ius.add(createIU("b", Version.create("1.0.0")));
+		CapabilityIndex index = new CapabilityIndex(ius.iterator());
+
+		assertEquals(new HashSet<>(ius.subList(1, 4)), getCandidates(index, "[1.0.0,2.0.0]"));
+		assertEquals(new HashSet<>(ius.subList(2, 4)), getCandidates(index, "(1.0.0,2.0.0]"));
+		assertEquals(new HashSet<>(Arrays.asList(ius.get(1), ius.get(3))), getCandidates(index, "[1.0.0,2.0.0)"));
+		assertEquals(new HashSet<>(Arrays.asList(ius.get(0), ius.get(2))), getCandidates(index, "2.0.0"));
+		assertEquals(Collections.singleton(ius.get(2)), getCandidates(index, "[2.0.0,2.0.0]"));
+		assertEquals(new HashSet<>(ius.subList(0, 4)), getCandidates(index, null));
+		assertTrue(getCandidates(index, "[4.0.0,5.0.0)").isEmpty());
+
+		IMetadataRepository repo = createMetadataRepository(getTempFolder().toURI(), null);
+		repo.addInstallableUnits(ius);
+		IRequirement requirement = MetadataFactory.createRequirement("org.eclipse.equinox.p2.iu", "a", new VersionRange("[1.0.0,2.0.0)"), null, false, false);
+		assertEquals(2, queryResultSize(repo.query(QueryUtil.createMatchQuery(requirement.getMatches()), getMonitor())));
+	}
+
+	public void testCapabilityIndexNamespaces() {
+		IInstallableUnit packageProvider = createIU("x", Version.create("1.0.0"), new IProvidedCapability[] {MetadataFactory.createProvidedCapability("java.package", "foo", Version.create("1.0.0"))});
+		IInstallableUnit foo = createIU("foo", Version.create("1.0.0"));
+		CapabilityIndex index = new CapabilityIndex(Arrays.asList(packageProvider, foo).iterator());
+
+		// the namespace restricts the candidates to the providers in that namespace
+		ExpressionMatchQuery<IInstallableUnit> query = (ExpressionMatchQuery<IInstallableUnit>) QueryUtil.createMatchQuery("providedCapabilities.exists(pc | pc.namespace == $1 && pc.name == $0)", "foo", "org.eclipse.equinox.p2.iu");
+		assertEquals(Collections.singleton(foo), toSet(index.getCandidates(query.getContext(), ExpressionFactory.THIS, query.getExpression())));
+
+		query = (ExpressionMatchQuery<IInstallableUnit>) QueryUtil.createMatchQuery("providedCapabilities.exists(pc | pc.name == $0)", "foo");
+		assertEquals(new HashSet<>(Arrays.asList(packageProvider, foo)), toSet(index.getCandidates(query.getContext(), ExpressionFactory.THIS, query.getExpression())));
+	}
+
+	public void testExecutionEnvironmentCandidates() {
+		IInstallableUnit java8 = createIU("a.jre", Version.create("1.8.0"), new IProvidedCapability[] {MetadataFactory.createProvidedCapability(CapabilityIndex.NAMESPACE_EXECUTION_ENVIRONMENT, "JavaSE", Version.create("1.8.0"))});
+		IInstallableUnit java11 = createIU("b.jre", Version.create("11.0.0"), new IProvidedCapability[] {MetadataFactory.createProvidedCapability(CapabilityIndex.NAMESPACE_EXECUTION_ENVIRONMENT, "JavaSE", Version.create("11.0.0"))});
+		CapabilityIndex index = new CapabilityIndex(Arrays.asList(java8, createIU("foo", Version.create("1.0.0"))).iterator());
+
+		ExpressionMatchQuery<IInstallableUnit> query = (ExpressionMatchQuery<IInstallableUnit>) QueryUtil.createMatchQuery("providedCapabilities.exists(pc | pc.namespace == $0)", CapabilityIndex.NAMESPACE_EXECUTION_ENVIRONMENT);
+		Iterator<IInstallableUnit> candidates = index.getCandidates(query.getContext(), ExpressionFactory.THIS, query.getExpression());
+
+		// candidates handed out before a change are not affected by it
+		index.add(java11);
+		index.remove(java8);
+		assertEquals(Collections.singleton(java8), toSet(candidates));
+		assertEquals(Collections.singleton(java11), toSet(index.getCandidates(query.getContext(), ExpressionFactory.THIS, query.getExpression())));
+	}
+
+	public void testIndexOfAndOperand() {
+		IInstallableUnit[] ius = createPlannerIUs();
+		IQuery<IInstallableUnit> query = QueryUtil.createMatchQuery("version == $0 && providedCapabilities.exists(pc | pc.namespace == 'java.package' && pc.name == $1)", Version.create("1.0.0"), "p1");
+		QueryableArray queryable = new QueryableArray(ius);
+		assertTrue(IndexProvider.explain(queryable, query), IndexProvider.explain(queryable, query).contains("use providedCapabilities on"));
+		assertEquals(query.perform(Arrays.asList(ius).iterator()).toUnmodifiableSet(), queryable.query(query, getMonitor()).toUnmodifiableSet());
+		assertEquals(1, queryResultSize(queryable.query(query, getMonitor())));
+
+		// the index is not lost because a matches expression comes first
+		query = QueryUtil.createMatchQuery("id ~= /a1*/ && providedCapabilities.exists(pc | pc.namespace == 'java.package' && pc.name == $0)", "p1");
+		assertTrue(IndexProvider.explain(queryable, query), IndexProvider.explain(queryable, query).contains("use providedCapabilities on"));
+		assertEquals(query.perform(Arrays.asList(ius).iterator()).toUnmodifiableSet(), queryable.query(query, getMonitor()).toUnmodifiableSet());
+	}
+
+	public void testIntersectedIndexes() {
+		IInstallableUnit[] ius = createPlannerIUs();
+		IQuery<IInstallableUnit> query = QueryUtil.createMatchQuery("id == $0 && providedCapabilities.exists(pc | pc.namespace == 'java.package' && pc.name == $1)", "a1", "p1");
+		QueryableArray queryable = new QueryableArray(ius);
+		String explanation = IndexProvider.explain(queryable, query);
+		assertTrue(explanation, explanation.contains("use id: 100 candidates"));
+		assertTrue(explanation, explanation.contains("intersect with providedCapabilities on"));
+		assertTrue(explanation, explanation.endsWith("evaluate 34 candidates"));
+		assertEquals(query.perform(Arrays.asList(ius).iterator()).toUnmodifiableSet(), queryable.query(query, getMonitor()).toUnmodifiableSet());
+		assertEquals(34, queryResultSize(queryable.query(query, getMonitor())));
+	}
+
+	public void testLatestQueryIndex() {
+		IInstallableUnit[] ius = createPlannerIUs();
+		IQuery<IInstallableUnit> query = QueryUtil.createLatestQuery(QueryUtil.createIUQuery("a1"));
+		QueryableArray queryable = new QueryableArray(ius);
+		assertTrue(IndexProvider.explain(queryable, query), IndexProvider.explain(queryable, query).contains("use id: 100 candidates"));
+		IQueryResult<IInstallableUnit> result = queryable.query(query, getMonitor());
+		assertEquals(1, queryResultSize(result));
+		assertEquals(Version.createOSGi(1, 99, 0), result.iterator().next().getVersion());
+	}
+
+	// 400 units, with 4 ids and 3 provided packages
+	private static IInstallableUnit[] createPlannerIUs() {
+		IInstallableUnit[] ius = new IInstallableUnit[400];
+		for (int i = 0; i < ius.length; i++)
+			ius[i] = createIU("a" + i % 4, Version.createOSGi(1, i / 4, 0), new IProvidedCapability[] {MetadataFactory.createProvidedCapability("java.package", "p" + i % 3, Version.create("1.0.0"))});
+		return ius;
+	}
+
+	private static Set<IInstallableUnit> toSet(Iterator<IInstallableUnit> iterator) {
+		Set<IInstallableUnit> result = new HashSet<>();
+		while (iterator.hasNext())
+			result.add(iterator.next());
+		return result;
+	}
+
+	private Set<IInstallableUnit> getCandidates(CapabilityIndex index, String range) {
+		IRequirement requirement = MetadataFactory.createRequirement("org.eclipse.equinox.p2.iu", "a", range == null ? null : new VersionRange(range), null, false, false);
+		IMatchExpression<IInstallableUnit> matches = requirement.getMatches();
+		return toSet(index.getCandidates(matches.createContext(), ExpressionFactory.THIS, matches));
+	}
+
 	private IMetadataRepository getMDR(String uri) throws Exception {
 		URI metadataRepo = getTestData("1.1", uri).toURI();
 
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009, 2018 Cloudsmith Inc and others.
+ * Copyright (c) 2009, 2026 Cloudsmith Inc and others.
  *
  * This program and the accompanying materials 
  * are made available under the terms of the Eclipse Public License 2.0
@@ -26,6 +26,9 @@ public class AllTests extends TestCase {
 		suite.addTestSuite(RepositoryHelperTest.class);
 		suite.addTestSuite(RepositoryExtensionPointTest.class);
 		suite.addTestSuite(FileReaderTest2.class);
+		suite.addTestSuite(ChunkedDownloadTest.class);
+		suite.addTestSuite(ChunkedTransportTest.class);
+		suite.addTestSuite(ArtifactCacheTest.class);
 		suite.addTest(new JUnit4TestAdapter(ChecksumHelperTest.class));
 		return suite;
 	}
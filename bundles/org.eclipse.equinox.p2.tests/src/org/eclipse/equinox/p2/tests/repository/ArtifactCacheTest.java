@@ -0,0 +1,208 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.p2.tests.repository;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.util.*;
+import java.util.concurrent.*;
+import junit.framework.TestCase;
+import org.eclipse.equinox.internal.p2.metadata.ArtifactKey;
+import org.eclipse.equinox.internal.p2.repository.ArtifactCache;
+import org.eclipse.equinox.internal.p2.repository.helpers.ChecksumHelper;
+import org.eclipse.equinox.p2.metadata.Version;
+import org.eclipse.equinox.p2.repository.artifact.spi.ArtifactDescriptor;
+
+public class ArtifactCacheTest extends TestCase {
+	private File folder;
+	private ArtifactCache cache;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		folder = Files.createTempDirectory("ArtifactCacheTest").toFile();
+		cache = new ArtifactCache(new File(folder, "cache"), 1000);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		delete(folder);
+		super.tearDown();
+	}
+
+	public void testGetKey() {
+		ArtifactDescriptor descriptor = new ArtifactDescriptor(new ArtifactKey("osgi.bundle", "a", Version.create("1.0.0")));
+		assertNull(ArtifactCache.getKey(descriptor));
+		descriptor.setProperty("download.checksum.sha-256", "not a checksum");
+		assertNull(ArtifactCache.getKey(descriptor));
+		String key = key("a");
+		descriptor.setProperty("download.checksum.sha-256", key.toUpperCase());
+		assertEquals(key, ArtifactCache.getKey(descriptor));
+	}
+
+	public void testCommit() throws IOException {
+		ByteArrayOutputStream destination = new ByteArrayOutputStream();
+		assertTrue(add("content", destination));
+		assertEquals("content", destination.toString("UTF-8"));
+		assertTrue(cache.contains(key("content")));
+		File file = cache.get(key("content"));
+		assertEquals("content", new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+	}
+
+	public void testCommitNotMatchingKey() throws IOException {
+		ByteArrayOutputStream destination = new ByteArrayOutputStream();
+		ArtifactCache.Entry entry = cache.newEntry(key("expected"), destination);
+		entry.write("received".getBytes(StandardCharsets.UTF_8));
+		assertFalse(entry.commit());
+		assertEquals("received", destination.toString("UTF-8"));
+		assertFalse(cache.contains(key("expected")));
+		assertNull(cache.get(key("expected")));
+		// no temporary file is left behind
+		assertEquals(Collections.singletonList(".lock"), Arrays.asList(cache.getLocation().list()));
+	}
+
+	public void testDiscard() throws IOException {
+		ArtifactCache.Entry entry = cache.newEntry(key("content"), new ByteArrayOutputStream());
+		entry.write("content".getBytes(StandardCharsets.UTF_8));
+		entry.discard();
+		assertFalse(entry.commit());
+		assertFalse(cache.contains(key("content")));
+	}
+
+	public void testMaterialize() throws IOException {
+		add("content", new ByteArrayOutputStream());
+		File target = new File(folder, "pool/a.jar");
+		target.getParentFile().mkdirs();
+		assertTrue(cache.materialize(key("content"), target));
+		assertEquals("content", new String(Files.readAllBytes(target.toPath()), StandardCharsets.UTF_8));
+		assertTrue(Files.isSameFile(target.toPath(), cache.get(key("content")).toPath()));
+		assertFalse(cache.materialize(key("other"), new File(folder, "pool/b.jar")));
+		assertFalse(new File(folder, "pool/b.jar").exists());
+
+		// the linked file stays when the bytes are removed from the cache
+		cache.remove(key("content"));
+		assertFalse(cache.contains(key("content")));
+		assertEquals("content", new String(Files.readAllBytes(target.toPath()), StandardCharsets.UTF_8));
+	}
+
+	public void testEvictLeastRecentlyUsed() throws IOException {
+		char[] content = new char[300];
+		List<String> added = new ArrayList<>();
+		for (char c = 'a'; c <= 'c'; c++) {
+			Arrays.fill(content, c);
+			added.add(new String(content));
+			add(added.get(added.size() - 1), new ByteArrayOutputStream());
+			setLastUsed(added.get(added.size() - 1), 1000000L * (added.size()));
+		}
+		// using the oldest makes the second one the least recently used
+		cache.get(key(added.get(0)));
+		Arrays.fill(content, 'd');
+		add(new String(content), new ByteArrayOutputStream());
+
+		assertTrue(cache.contains(key(added.get(0))));
+		assertFalse(cache.contains(key(added.get(1))));
+		assertTrue(cache.contains(key(added.get(2))));
+		assertTrue(cache.contains(key(new String(content))));
+	}
+
+	public void testUseKeepsFileTime() throws IOException {
+		add("content", new ByteArrayOutputStream());
+		File file = cache.get(key("content"));
+		// the installed copies of the artifact may be hard links to the file
+		assertTrue(file.setLastModified(1000000L));
+		assertNotNull(cache.get(key("content")));
+		assertTrue(cache.materialize(key("content"), new File(folder, "a.jar")));
+		assertEquals(1000000L, file.lastModified());
+	}
+
+	public void testScannedAboveMaxSize() throws IOException {
+		add(content('a'), new ByteArrayOutputStream());
+		// an abandoned download is only removed when the cache is scanned
+		File abandoned = new File(cache.getLocation(), ".download-abandoned");
+		assertTrue(abandoned.createNewFile());
+		assertTrue(abandoned.setLastModified(1000000L));
+		add(content('b'), new ByteArrayOutputStream());
+		cache.remove(key(content('a')));
+		add(content('c'), new ByteArrayOutputStream());
+		add(content('d'), new ByteArrayOutputStream());
+		assertTrue(abandoned.exists());
+
+		setLastUsed(content('b'), 1000000L);
+		setLastUsed(content('c'), 2000000L);
+		setLastUsed(content('d'), 3000000L);
+		add(content('e'), new ByteArrayOutputStream());
+		assertFalse(abandoned.exists());
+		assertFalse(cache.contains(key(content('b'))));
+		assertTrue(cache.contains(key(content('c'))));
+		assertTrue(cache.contains(key(content('d'))));
+		assertTrue(cache.contains(key(content('e'))));
+	}
+
+	public void testConcurrentCommits() throws Exception {
+		cache = new ArtifactCache(new File(folder, "cache"), 100000);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<Boolean>> results = new ArrayList<>();
+			for (int i = 0; i < 40; i++) {
+				String content = "content " + (i % 10);
+				results.add(executor.submit(() -> add(content, new ByteArrayOutputStream())));
+			}
+			for (Future<Boolean> result : results)
+				assertTrue(result.get().booleanValue());
+		} finally {
+			executor.shutdownNow();
+		}
+		for (int i = 0; i < 10; i++)
+			assertEquals("content " + i, new String(Files.readAllBytes(cache.get(key("content " + i)).toPath()), StandardCharsets.UTF_8));
+	}
+
+	private boolean add(String content, OutputStream destination) throws IOException {
+		ArtifactCache.Entry entry = cache.newEntry(key(content), destination);
+		try {
+			entry.write(content.getBytes(StandardCharsets.UTF_8));
+			return entry.commit();
+		} finally {
+			entry.discard();
+		}
+	}
+
+	private static String content(char c) {
+		char[] content = new char[300];
+		Arrays.fill(content, c);
+		return new String(content);
+	}
+
+	private void setLastUsed(String content, long time) {
+		File marker = new File(new File(cache.getLocation(), key(content).substring(0, 2)), key(content) + ".used");
+		assertTrue(marker.setLastModified(time));
+	}
+
+	private static String key(String content) {
+		try {
+			return ChecksumHelper.toHexString(MessageDigest.getInstance("SHA-256").digest(content.getBytes(StandardCharsets.UTF_8)));
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static void delete(File file) {
+		File[] children = file.listFiles();
+		if (children != null)
+			for (File child : children)
+				delete(child);
+		file.delete();
+	}
+}
@@ -0,0 +1,157 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.p2.tests.repository;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import junit.framework.TestCase;
+import org.eclipse.core.runtime.*;
+import org.eclipse.equinox.internal.p2.transport.ecf.ChunkedDownload;
+import org.eclipse.equinox.internal.p2.transport.ecf.ChunkedDownload.RangeReader;
+
+/**
+ * Tests downloading a file as byte ranges from a server stand-in answering the ranges
+ * after random delays.
+ */
+public class ChunkedDownloadTest extends TestCase {
+	private static final int CHUNK_SIZE = 1000;
+
+	private byte[] file;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		file = new byte[10 * CHUNK_SIZE + 123];
+		new Random(42).nextBytes(file);
+	}
+
+	public void testRangesWrittenInOrder() {
+		Server server = new Server();
+		ByteArrayOutputStream destination = new ByteArrayOutputStream();
+		ChunkedDownload download = new ChunkedDownload(4, CHUNK_SIZE);
+		IStatus result = download.run(file.length, destination, server, new NullProgressMonitor());
+		assertTrue(result.toString(), result.isOK());
+		assertTrue(Arrays.equals(file, destination.toByteArray()));
+		assertEquals(file.length, download.getWritten());
+		assertEquals(11, server.requests.get());
+		assertTrue(Integer.toString(server.maximum), server.maximum > 1);
+		assertTrue(Integer.toString(server.maximum), server.maximum <= 4);
+	}
+
+	public void testFileSmallerThanChunk() {
+		ByteArrayOutputStream destination = new ByteArrayOutputStream();
+		ChunkedDownload download = new ChunkedDownload(4, 2 * file.length);
+		assertTrue(download.run(file.length, destination, new Server(), new NullProgressMonitor()).isOK());
+		assertTrue(Arrays.equals(file, destination.toByteArray()));
+	}
+
+	public void testFailedRangeStopsDownload() {
+		Server server = new Server();
+		server.failing.add(Long.valueOf(5 * CHUNK_SIZE));
+		ByteArrayOutputStream destination = new ByteArrayOutputStream();
+		ChunkedDownload download = new ChunkedDownload(3, CHUNK_SIZE);
+		IStatus result = download.run(file.length, destination, server, new NullProgressMonitor());
+		assertEquals(IStatus.ERROR, result.getSeverity());
+		// only the ranges before the failed one are written, the download can resume after them
+		assertEquals(5 * CHUNK_SIZE, download.getWritten());
+		assertTrue(Arrays.equals(Arrays.copyOf(file, 5 * CHUNK_SIZE), destination.toByteArray()));
+	}
+
+	public void testRangeIgnored() {
+		Server server = new Server();
+		server.ignoreRanges = true;
+		ByteArrayOutputStream destination = new ByteArrayOutputStream();
+		ChunkedDownload download = new ChunkedDownload(2, CHUNK_SIZE);
+		IStatus result = download.run(file.length, destination, server, new NullProgressMonitor());
+		assertEquals(IStatus.ERROR, result.getSeverity());
+		assertEquals(0, download.getWritten());
+		assertEquals(0, destination.size());
+	}
+
+	public void testShortRange() {
+		Server server = new Server();
+		server.truncated.add(Long.valueOf(0));
+		ByteArrayOutputStream destination = new ByteArrayOutputStream();
+		IStatus result = new ChunkedDownload(2, CHUNK_SIZE).run(file.length, destination, server, new NullProgressMonitor());
+		assertEquals(IStatus.ERROR, result.getSeverity());
+		assertEquals(0, destination.size());
+	}
+
+	public void testCancel() {
+		Server server = new Server();
+		final IProgressMonitor monitor = new NullProgressMonitor();
+		server.onRequest = () -> {
+			if (server.requests.get() == 3)
+				monitor.setCanceled(true);
+		};
+		ByteArrayOutputStream destination = new ByteArrayOutputStream();
+		ChunkedDownload download = new ChunkedDownload(2, CHUNK_SIZE);
+		assertEquals(IStatus.CANCEL, download.run(file.length, destination, server, monitor).getSeverity());
+		assertTrue(server.requests.get() < 6);
+	}
+
+	/**
+	 * Stands in for a server answering range requests on the file after a random delay.
+	 */
+	class Server implements RangeReader {
+		final AtomicInteger requests = new AtomicInteger();
+		final Set<Long> failing = Collections.synchronizedSet(new HashSet<>());
+		final Set<Long> truncated = Collections.synchronizedSet(new HashSet<>());
+		final Random random = new Random(7);
+		volatile boolean ignoreRanges;
+		volatile Runnable onRequest;
+		private int running;
+		int maximum;
+
+		@Override
+		public IStatus read(long start, long end, OutputStream destination, IProgressMonitor monitor) {
+			requests.incrementAndGet();
+			if (onRequest != null)
+				onRequest.run();
+			synchronized (this) {
+				maximum = Math.max(maximum, ++running);
+			}
+			try {
+				int delay;
+				synchronized (random) {
+					delay = random.nextInt(20);
+				}
+				Thread.sleep(delay);
+				if (monitor.isCanceled())
+					return Status.CANCEL_STATUS;
+				if (failing.contains(Long.valueOf(start)))
+					return new Status(IStatus.ERROR, "test", "Unavailable range " + start);
+				if (ignoreRanges) {
+					start = 0;
+					end = file.length;
+				}
+				if (truncated.contains(Long.valueOf(start)))
+					end--;
+				destination.write(file, (int) start, (int) (end - start));
+				return Status.OK_STATUS;
+			} catch (IOException e) {
+				return new Status(IStatus.ERROR, "test", e.getMessage(), e);
+			} catch (InterruptedException e) {
+				return Status.CANCEL_STATUS;
+			} finally {
+				synchronized (this) {
+					running--;
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,210 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.p2.tests.repository;
+
+import java.io.*;
+import java.net.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import junit.framework.TestCase;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.equinox.internal.p2.repository.ConnectionPermits;
+import org.eclipse.equinox.internal.p2.transport.ecf.RepositoryTransport;
+
+/**
+ * Tests downloading a file as byte ranges with the transport, against a local server
+ * answering range requests.
+ */
+public class ChunkedTransportTest extends TestCase {
+	// three ranges of the transport
+	private static final int FILE_SIZE = 2 * 8 * 1024 * 1024 + 123;
+
+	private byte[] file;
+	private RangeServer server;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		file = new byte[FILE_SIZE];
+		new Random(42).nextBytes(file);
+		server = new RangeServer(file);
+		System.setProperty(RepositoryTransport.CHUNKED_DOWNLOAD_THRESHOLD, Integer.toString(1024 * 1024));
+		System.setProperty(RepositoryTransport.CHUNKED_DOWNLOAD_CONNECTIONS, "3");
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		System.clearProperty(RepositoryTransport.CHUNKED_DOWNLOAD_THRESHOLD);
+		System.clearProperty(RepositoryTransport.CHUNKED_DOWNLOAD_CONNECTIONS);
+		server.close();
+		super.tearDown();
+	}
+
+	public void testRanges() {
+		ByteArrayOutputStream destination = new ByteArrayOutputStream();
+		IStatus result = new RepositoryTransport().download(server.getLocation(), destination, new NullProgressMonitor());
+		assertTrue(result.toString(), result.isOK());
+		assertTrue(Arrays.equals(file, destination.toByteArray()));
+		assertEquals(3, server.ranges.get());
+		assertEquals(0, server.downloads.get());
+	}
+
+	public void testRangesIgnored() {
+		server.ignoreRanges = true;
+		ByteArrayOutputStream destination = new ByteArrayOutputStream();
+		IStatus result = new RepositoryTransport().download(server.getLocation(), destination, new NullProgressMonitor());
+		assertTrue(result.toString(), result.isOK());
+		// the file is downloaded again in one request
+		assertTrue(Arrays.equals(file, destination.toByteArray()));
+		assertTrue(server.ranges.get() > 0);
+		assertEquals(1, server.downloads.get());
+	}
+
+	public void testConnectionsLimitedByPermits() {
+		// one more connection than the one of the download is allowed
+		Semaphore permits = new Semaphore(1);
+		ByteArrayOutputStream destination = new ByteArrayOutputStream();
+		IStatus result = ConnectionPermits.run(permits, () -> new RepositoryTransport().download(server.getLocation(), destination, new NullProgressMonitor()));
+		assertTrue(result.toString(), result.isOK());
+		assertTrue(Arrays.equals(file, destination.toByteArray()));
+		assertEquals(3, server.ranges.get());
+		assertTrue(Integer.toString(server.getMaximum()), server.getMaximum() <= 2);
+		assertEquals(1, permits.availablePermits());
+	}
+
+	public void testNoPermitForRanges() {
+		ByteArrayOutputStream destination = new ByteArrayOutputStream();
+		IStatus result = ConnectionPermits.run(new Semaphore(0), () -> new RepositoryTransport().download(server.getLocation(), destination, new NullProgressMonitor()));
+		assertTrue(result.toString(), result.isOK());
+		assertTrue(Arrays.equals(file, destination.toByteArray()));
+		assertEquals(0, server.ranges.get());
+		assertEquals(1, server.downloads.get());
+	}
+
+	/**
+	 * Serves one file over HTTP, answering the requests for a range of its bytes unless
+	 * told to ignore them. Each connection is closed after its response. The requests for
+	 * a range and the others are counted apart.
+	 */
+	static class RangeServer implements Runnable {
+		private static final Pattern RANGE = Pattern.compile("bytes=(\\d+)-(\\d*)");
+
+		private final byte[] file;
+		private final ServerSocket socket;
+		final AtomicInteger ranges = new AtomicInteger();
+		final AtomicInteger downloads = new AtomicInteger();
+		volatile boolean ignoreRanges;
+		private int active;
+		private int maximum;
+
+		RangeServer(byte[] file) throws IOException {
+			this.file = file;
+			this.socket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+			Thread thread = new Thread(this, "range server");
+			thread.setDaemon(true);
+			thread.start();
+		}
+
+		URI getLocation() {
+			return URI.create("http://127.0.0.1:" + socket.getLocalPort() + "/plugins/a_1.0.0.jar");
+		}
+
+		void close() throws IOException {
+			socket.close();
+		}
+
+		@Override
+		public void run() {
+			while (!socket.isClosed()) {
+				try {
+					Socket connection = socket.accept();
+					Thread thread = new Thread(() -> serve(connection), "range server connection");
+					thread.setDaemon(true);
+					thread.start();
+				} catch (IOException e) {
+					// closed
+				}
+			}
+		}
+
+		private void serve(Socket connection) {
+			try (Socket c = connection) {
+				BufferedReader in = new BufferedReader(new InputStreamReader(c.getInputStream(), StandardCharsets.ISO_8859_1));
+				String request = in.readLine();
+				if (request == null)
+					return;
+				String range = null;
+				for (String header = in.readLine(); header != null && !header.isEmpty(); header = in.readLine()) {
+					if (header.toLowerCase(Locale.ENGLISH).startsWith("range:"))
+						range = header.substring("range:".length()).trim();
+				}
+				boolean head = request.startsWith("HEAD ");
+				if (!head)
+					(range != null ? ranges : downloads).incrementAndGet();
+				Matcher matcher = range != null && !ignoreRanges ? RANGE.matcher(range) : null;
+				int start = 0;
+				int end = file.length - 1;
+				StringBuilder response = new StringBuilder();
+				if (matcher != null && matcher.matches()) {
+					start = Integer.parseInt(matcher.group(1));
+					if (!matcher.group(2).isEmpty())
+						end = Math.min(end, Integer.parseInt(matcher.group(2)));
+					response.append("HTTP/1.1 206 Partial Content\r\n");
+					response.append("Content-Range: bytes ").append(start).append('-').append(end).append('/').append(file.length).append("\r\n");
+				} else {
+					response.append("HTTP/1.1 200 OK\r\n");
+				}
+				response.append("Content-Length: ").append(end - start + 1).append("\r\n");
+				response.append("Content-Type: application/octet-stream\r\n");
+				response.append("Last-Modified: Thu, 01 Jan 2026 00:00:00 GMT\r\n");
+				if (!ignoreRanges)
+					response.append("Accept-Ranges: bytes\r\n");
+				response.append("Connection: close\r\n\r\n");
+				OutputStream out = c.getOutputStream();
+				out.write(response.toString().getBytes(StandardCharsets.ISO_8859_1));
+				if (!head) {
+					enter();
+					try {
+						out.write(file, start, end - start + 1);
+					} finally {
+						leave();
+					}
+				}
+				out.flush();
+			} catch (IOException e) {
+				// the client went away
+			}
+		}
+
+		private synchronized void enter() {
+			maximum = Math.max(maximum, ++active);
+		}
+
+		private synchronized void leave() {
+			active--;
+		}
+
+		/**
+		 * Returns the largest number of responses sent at the same time.
+		 */
+		synchronized int getMaximum() {
+			return maximum;
+		}
+	}
+}
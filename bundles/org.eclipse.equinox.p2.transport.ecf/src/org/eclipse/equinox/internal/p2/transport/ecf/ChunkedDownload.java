@@ -0,0 +1,209 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.internal.p2.transport.ecf;
+
+import java.io.*;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.*;
+import org.eclipse.core.runtime.*;
+import org.eclipse.osgi.util.NLS;
+
+/**
+ * Downloads a file as consecutive byte ranges fetched at the same time over several
+ * connections. The ranges are buffered as they arrive and written to the destination
+ * in order, so the destination sees the same bytes as with a single download.
+ * <p>
+ * At most as many ranges as there are connections are being fetched or waiting to be
+ * written at any time, which bounds the memory used to the connections times the chunk size.
+ * The buffer of a range grows with the bytes received, up to the chunk size.
+ * </p>
+ */
+public class ChunkedDownload {
+	/**
+	 * Reads a range of bytes of the file being downloaded.
+	 */
+	public interface RangeReader {
+		/**
+		 * Writes the bytes from <code>start</code> (inclusive) to <code>end</code> (exclusive)
+		 * into the given stream.
+		 */
+		IStatus read(long start, long end, OutputStream destination, IProgressMonitor monitor);
+	}
+
+	private static final long POLL_INTERVAL = 100;
+
+	private static final ExecutorService chunks = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 10, TimeUnit.SECONDS, new SynchronousQueue<>(), runnable -> {
+		Thread thread = new Thread(runnable, "p2 chunked download"); //$NON-NLS-1$
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private final int connections;
+	private final int chunkSize;
+	private volatile boolean stopped;
+	private long written;
+
+	public ChunkedDownload(int connections, int chunkSize) {
+		if (connections < 1 || chunkSize < 1)
+			throw new IllegalArgumentException();
+		this.connections = connections;
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * Downloads the <code>size</code> bytes of a file into the given stream. When a range
+	 * could not be read, the ranges not written yet are dropped and the error is returned;
+	 * {@link #getWritten()} then tells where a sequential download can resume.
+	 */
+	public IStatus run(long size, OutputStream target, RangeReader reader, IProgressMonitor monitor) {
+		SubMonitor progress = SubMonitor.convert(monitor, (int) ((size + chunkSize - 1) / chunkSize));
+		Deque<Chunk> window = new ArrayDeque<>();
+		long next = 0;
+		written = 0;
+		stopped = false;
+		try {
+			while (written < size) {
+				while (window.size() < connections && next < size) {
+					Chunk chunk = new Chunk(reader, next, Math.min(next + chunkSize, size));
+					chunk.future = chunks.submit(chunk);
+					window.add(chunk);
+					next = chunk.end;
+				}
+				Chunk chunk = window.peek();
+				IStatus result = await(chunk, progress);
+				if (!result.isOK())
+					return result;
+				chunk.buffer.writeTo(target);
+				written = chunk.end;
+				window.remove();
+				// let the buffer be collected while the next chunks are downloaded
+				chunk.buffer = null;
+				progress.worked(1);
+			}
+			return Status.OK_STATUS;
+		} catch (IOException e) {
+			return new Status(IStatus.ERROR, Activator.ID, e.getMessage(), e);
+		} finally {
+			stopped = true;
+			for (Chunk chunk : window)
+				chunk.future.cancel(false);
+		}
+	}
+
+	/**
+	 * Returns the number of bytes written to the destination by the last download.
+	 */
+	public long getWritten() {
+		return written;
+	}
+
+	private IStatus await(Chunk chunk, IProgressMonitor monitor) {
+		while (true) {
+			if (monitor.isCanceled())
+				return Status.CANCEL_STATUS;
+			try {
+				return chunk.future.get(POLL_INTERVAL, TimeUnit.MILLISECONDS);
+			} catch (TimeoutException e) {
+				// check for cancellation again
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return Status.CANCEL_STATUS;
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				if (cause instanceof OperationCanceledException)
+					return Status.CANCEL_STATUS;
+				return new Status(IStatus.ERROR, Activator.ID, cause.getMessage(), cause);
+			}
+		}
+	}
+
+	/**
+	 * One range of the file, buffered until the ranges before it have been written.
+	 */
+	private final class Chunk implements Callable<IStatus> {
+		final RangeReader reader;
+		final long start;
+		final long end;
+		ChunkBuffer buffer;
+		Future<IStatus> future;
+
+		Chunk(RangeReader reader, long start, long end) {
+			this.reader = reader;
+			this.start = start;
+			this.end = end;
+			this.buffer = new ChunkBuffer((int) (end - start));
+		}
+
+		@Override
+		public IStatus call() {
+			IStatus result = reader.read(start, end, buffer, new NullProgressMonitor() {
+				@Override
+				public boolean isCanceled() {
+					return stopped;
+				}
+			});
+			if (result.isOK() && buffer.size() != end - start)
+				return new Status(IStatus.ERROR, Activator.ID, NLS.bind(Messages.chunk_incomplete, new Object[] {Long.toString(start), Long.toString(end), Integer.toString(buffer.size())}));
+			return result;
+		}
+	}
+
+	/**
+	 * Holds the bytes of a range, growing as they are received. It refuses to hold more
+	 * bytes than the range has, as sent by a server not honoring the range.
+	 */
+	private static final class ChunkBuffer extends OutputStream {
+		private static final int INITIAL_SIZE = 64 * 1024;
+
+		private final int capacity;
+		private byte[] bytes = new byte[0];
+		private int count;
+
+		ChunkBuffer(int capacity) {
+			this.capacity = capacity;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			ensureCapacity(1);
+			bytes[count++] = (byte) b;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			ensureCapacity(len);
+			System.arraycopy(b, off, bytes, count, len);
+			count += len;
+		}
+
+		private void ensureCapacity(int len) throws IOException {
+			if (len > capacity - count)
+				throw new IOException(Messages.chunk_range_ignored);
+			if (len > bytes.length - count) {
+				long size = Math.max(Math.max(INITIAL_SIZE, 2L * bytes.length), (long) count + len);
+				bytes = Arrays.copyOf(bytes, (int) Math.min(size, capacity));
+			}
+		}
+
+		int size() {
+			return count;
+		}
+
+		void writeTo(OutputStream destination) throws IOException {
+			destination.write(bytes, 0, count);
+		}
+	}
+}
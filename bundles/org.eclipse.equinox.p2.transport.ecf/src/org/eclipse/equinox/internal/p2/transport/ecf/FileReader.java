@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2017 Cloudsmith Inc.
+ * Copyright (c) 2006, 2026 Cloudsmith Inc.
  *
  *  This program and the accompanying materials
  *  are made available under the terms of the Eclipse Public License 2.0
@@ -372,10 +372,19 @@ public final class FileReader extends FileTransferJob implements IFileTransferLi
 
 	public void readInto(URI uri, OutputStream anOutputStream, long startPos, IProgressMonitor monitor) //
 			throws CoreException, FileNotFoundException, AuthenticationFailedException, JREHttpClientRequiredException {
+		readInto(uri, anOutputStream, startPos, -1, monitor);
+	}
+
+	/**
+	 * Reads the bytes from <code>startPos</code> to <code>endPos</code>, both inclusive.
+	 * An <code>endPos</code> of -1 reads up to the end of the file.
+	 */
+	public void readInto(URI uri, OutputStream anOutputStream, long startPos, long endPos, IProgressMonitor monitor) //
+			throws CoreException, FileNotFoundException, AuthenticationFailedException, JREHttpClientRequiredException {
 		if (monitor == null)
 			monitor = new NullProgressMonitor();
 		try {
-			sendRetrieveRequest(uri, anOutputStream, (startPos != -1 ? new DownloadRange(startPos) : null), false, monitor);
+			sendRetrieveRequest(uri, anOutputStream, (startPos != -1 ? new DownloadRange(startPos, endPos) : null), false, monitor);
 			Job.getJobManager().join(this, new SuppressBlockedMonitor(monitor, 0));
 			waitPaused(uri, anOutputStream, startPos, monitor);
 			if (monitor.isCanceled() && connectEvent != null)
@@ -545,14 +554,16 @@ public final class FileReader extends FileTransferJob implements IFileTransferLi
 	private static class DownloadRange implements IFileRangeSpecification {
 
 		private long startPosition;
+		private long endPosition;
 
-		public DownloadRange(long startPos) {
+		public DownloadRange(long startPos, long endPos) {
 			startPosition = startPos;
+			endPosition = endPos;
 		}
 
 		@Override
 		public long getEndPosition() {
-			return -1;
+			return endPosition;
 		}
 
 		@Override
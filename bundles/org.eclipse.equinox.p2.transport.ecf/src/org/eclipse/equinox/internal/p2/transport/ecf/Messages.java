@@ -1,5 +1,5 @@
 /*******************************************************************************
- *  Copyright (c) 2007, 2012 IBM Corporation and others.
+ *  Copyright (c) 2007, 2026 IBM Corporation and others.
  *
  *  This program and the accompanying materials
  *  are made available under the terms of the Eclipse Public License 2.0
@@ -23,6 +23,9 @@ public class Messages extends NLS {
 	public static String artifact_not_found;
 	public static String io_failedRead;
 
+	public static String chunk_incomplete;
+	public static String chunk_range_ignored;
+
 	public static String exception_malformedRepoURI;
 	public static String TransportErrorTranslator_400;
 	public static String TransportErrorTranslator_401;
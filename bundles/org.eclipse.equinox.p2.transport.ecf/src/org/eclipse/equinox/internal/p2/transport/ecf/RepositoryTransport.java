@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2017 IBM Corporation and others.
+ * Copyright (c) 2006, 2026 IBM Corporation and others.
  * The code, documentation and other materials contained herein have been
  * licensed under the Eclipse Public License - v 1.0 by the copyright holder
  * listed above, as the Initial Contributor under such license. The text of
@@ -16,6 +16,7 @@ import java.io.*;
 import java.net.*;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.Semaphore;
 import org.eclipse.core.runtime.*;
 import org.eclipse.ecf.core.identity.IDCreateException;
 import org.eclipse.ecf.core.security.ConnectContextFactory;
@@ -41,6 +42,20 @@ import org.eclipse.osgi.util.NLS;
 public class RepositoryTransport extends Transport {
 
 	public static final String TIMEOUT_RETRY = "org.eclipse.equinox.p2.transport.ecf.retry"; //$NON-NLS-1$
+
+	/**
+	 * The size in bytes above which files served over HTTP are downloaded as byte ranges fetched
+	 * at the same time. Files are downloaded in one request when the property is not set.
+	 */
+	public static final String CHUNKED_DOWNLOAD_THRESHOLD = "org.eclipse.equinox.p2.transport.ecf.chunkedDownloadThreshold"; //$NON-NLS-1$
+
+	/**
+	 * The number of connections used to download the byte ranges of a file.
+	 */
+	public static final String CHUNKED_DOWNLOAD_CONNECTIONS = "org.eclipse.equinox.p2.transport.ecf.chunkedDownloadConnections"; //$NON-NLS-1$
+
+	private static final int DEFAULT_CHUNKED_DOWNLOAD_CONNECTIONS = 4;
+	private static final int CHUNK_SIZE = 8 * 1024 * 1024;
 	private static Map<URI, Integer> socketExceptionRetry = null;
 	private IProvisioningAgent agent = null;
 
@@ -69,6 +84,15 @@ public class RepositoryTransport extends Transport {
 
 	@Override
 	public IStatus download(URI toDownload, OutputStream target, long startPos, IProgressMonitor monitor) {
+		if (startPos == -1 && isChunkedDownloadEnabled(toDownload)) {
+			IStatus result = downloadChunked(toDownload, target, monitor);
+			if (result != null)
+				return result;
+		}
+		return downloadSequentially(toDownload, target, startPos, monitor);
+	}
+
+	private IStatus downloadSequentially(URI toDownload, OutputStream target, long startPos, IProgressMonitor monitor) {
 
 		boolean promptUser = false;
 		boolean useJREHttp = false;
@@ -158,6 +182,113 @@ public class RepositoryTransport extends Transport {
 		return download(toDownload, target, -1, monitor);
 	}
 
+	private static boolean isChunkedDownloadEnabled(URI toDownload) {
+		String scheme = toDownload.getScheme();
+		return getChunkedDownloadProperty(CHUNKED_DOWNLOAD_THRESHOLD, -1) > 0 && ("http".equalsIgnoreCase(scheme) || "https".equalsIgnoreCase(scheme)); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	private static long getChunkedDownloadProperty(String key, long defaultValue) {
+		String value = System.getProperty(key);
+		if (value != null) {
+			try {
+				return Long.parseLong(value.trim());
+			} catch (NumberFormatException e) {
+				// ignore
+			}
+		}
+		return defaultValue;
+	}
+
+	/**
+	 * Downloads a file larger than the chunked download threshold as byte ranges fetched
+	 * at the same time, the size being asked for first. When a range cannot be fetched,
+	 * for instance because the server does not support ranges, the rest of the file is
+	 * downloaded in one request.
+	 * <p>
+	 * When the connections to the host are limited, the first range connection is the
+	 * one of the download and the others are only opened if their permits are available,
+	 * see {@link ConnectionPermits}.
+	 * </p>
+	 * @return the status of the download, or <code>null</code> if the file is to be downloaded in one request.
+	 */
+	private IStatus downloadChunked(final URI toDownload, OutputStream target, final IProgressMonitor monitor) {
+		final IConnectContext context;
+		long size;
+		try {
+			AuthenticationInfo loginDetails = Credentials.forLocation(toDownload, false);
+			context = (loginDetails == null) ? null : ConnectContextFactory.createUsernamePasswordConnectContext(loginDetails.getUserName(), loginDetails.getPassword());
+			IRemoteFile file = new FileInfoReader(context).getRemoteFile(toDownload, new NullProgressMonitor() {
+				@Override
+				public boolean isCanceled() {
+					return monitor != null && monitor.isCanceled();
+				}
+			});
+			size = file == null ? -1 : file.getInfo().getLength();
+		} catch (OperationCanceledException e) {
+			throw e;
+		} catch (Exception e) {
+			// the download in one request reports the problem, or prompts for credentials
+			return null;
+		}
+		if (size <= getChunkedDownloadProperty(CHUNKED_DOWNLOAD_THRESHOLD, -1))
+			return null;
+
+		int connections = Math.max(1, (int) getChunkedDownloadProperty(CHUNKED_DOWNLOAD_CONNECTIONS, DEFAULT_CHUNKED_DOWNLOAD_CONNECTIONS));
+		Semaphore permits = ConnectionPermits.getCurrent();
+		int additional = connections - 1;
+		if (permits != null) {
+			additional = 0;
+			while (additional < connections - 1 && permits.tryAcquire())
+				additional++;
+			// one connection is better used by a single request
+			if (additional == 0)
+				return null;
+		}
+		ChunkedDownload download = new ChunkedDownload(additional + 1, CHUNK_SIZE);
+		SubMonitor progress = SubMonitor.convert(monitor, 1);
+		long start = System.currentTimeMillis();
+		IStatus result;
+		try {
+			result = download.run(size, target, (from, to, destination, rangeMonitor) -> readRange(toDownload, context, from, to, destination, rangeMonitor), progress.newChild(1));
+		} finally {
+			if (permits != null)
+				permits.release(additional);
+		}
+		if (result.getSeverity() == IStatus.CANCEL) {
+			statusOn(target, new DownloadStatus(IStatus.CANCEL, Activator.ID, 1, "", null), null); //$NON-NLS-1$
+			throw new OperationCanceledException();
+		}
+		if (!result.isOK()) {
+			long written = download.getWritten();
+			progress.setWorkRemaining(1);
+			return downloadSequentially(toDownload, target, written > 0 ? written : -1, progress.newChild(1));
+		}
+		DownloadStatus status = new DownloadStatus(IStatus.OK, Activator.ID, Status.OK_STATUS.getMessage());
+		status.setFileSize(size);
+		long elapsed = System.currentTimeMillis() - start;
+		if (elapsed > 0)
+			status.setTransferRate(size * 1000 / elapsed);
+		return statusOn(target, status, null);
+	}
+
+	private static IStatus readRange(URI toDownload, IConnectContext context, long start, long end, OutputStream destination, IProgressMonitor monitor) {
+		// the ranges are not reported as downloads of their own
+		FileReader reader = new FileReader(null, context);
+		try {
+			reader.readInto(toDownload, destination, start, end - 1, monitor);
+			IStatus result = reader.getResult();
+			if (result == null)
+				return new Status(IStatus.ERROR, Activator.ID, NLS.bind(Messages.RepositoryTransport_failedReadRepo, toDownload));
+			return result;
+		} catch (OperationCanceledException e) {
+			return Status.CANCEL_STATUS;
+		} catch (CoreException e) {
+			return e.getStatus();
+		} catch (Exception e) {
+			return new Status(IStatus.ERROR, Activator.ID, e.getMessage(), e);
+		}
+	}
+
 	@Override
 	public InputStream stream(URI toDownload, IProgressMonitor monitor) throws FileNotFoundException, CoreException, AuthenticationFailedException {
 